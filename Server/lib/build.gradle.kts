@@ -102,6 +102,16 @@ java {
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
+    jvmArgs("--add-modules=jdk.incubator.vector")
+}
+
+// RGB -> YUV 변환 SIMD 구현(Vector API, 인큐베이터 모듈)
+// 실행 시 모듈이 없으면 스칼라 구현으로 동작함
+tasks.withType<JavaCompile> {
+    options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+}
+tasks.withType<JavaExec> {
+    jvmArgs("--add-modules=jdk.incubator.vector")
 }
 
 // commons-logging 중복 방지
@@ -22,9 +22,15 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import com.EchoLink.server.capture.CaptureHub;
+import com.EchoLink.server.capture.CaptureSourceFactory;
 import com.EchoLink.server.config.ServerConfig;
+import com.EchoLink.server.config.StreamConfig;
 import com.EchoLink.server.handler.ClientHandler;
 import com.EchoLink.server.handler.StreamSessionManager;
+import com.EchoLink.server.stream.EncoderHub;
+import com.EchoLink.server.stream.VideoEncoderProbe;
+import com.EchoLink.server.stream.Yuv420Converter;
 
 /**
  * 스트리밍 서버 시작(main) 클래스
@@ -40,6 +46,8 @@ import com.EchoLink.server.handler.StreamSessionManager;
 public class StreamingServerService {
 
     private final ServerConfig config;	// 서버 기본 설정(application.yml)
+    private final StreamConfig streamConfig;	// 스트리밍 파이프라인 설정
+    private final EncoderHub encoderHub;		// 모든 세션이 공유하는 캡처/인코딩 파이프라인
     private String jwtToken;			// jwt 인증 토큰
     private ExecutorService clientHandlerPool;	// 클라이언트 입력 쓰레드
     private ServerSocket serverSocket;			// 서버 Socket
@@ -54,10 +62,13 @@ public class StreamingServerService {
      * 생성자
      * 서버 기본 설정 로드
      * @param config Spring이 자동으로 ServerConfig Bean을 주입합니다.
+     * @param streamConfig Spring이 자동으로 StreamConfig Bean을 주입합니다.
      */
     @Autowired
-    public StreamingServerService(ServerConfig config) {
+    public StreamingServerService(ServerConfig config, StreamConfig streamConfig) {
         this.config = config;
+        this.streamConfig = streamConfig;
+        this.encoderHub = new EncoderHub(new CaptureHub(streamConfig), streamConfig);
     }
     
     
@@ -77,6 +88,16 @@ public class StreamingServerService {
                 // 2. 인증 성공 후 Heartbeat 스케줄러 시작
                 startHeartbeat();
 
+                // 영상 코덱(nvenc, qsv, libx264) 사용 가능 여부를 백그라운드에서 미리 확인 (세션마다 실패하는 코덱을 시도하지 않음)
+                VideoEncoderProbe.start();
+
+                // 캡처 백엔드 자동 선택(벤치마크)을 미리 끝내 첫 연결 지연을 줄임
+                if (CaptureSourceFactory.AUTO.equalsIgnoreCase(streamConfig.getCaptureBackend())) {
+                    CaptureSourceFactory.selectBackend(CaptureHub.detectScreenSize());
+                }
+                // RGB -> YUV 변환(SIMD) JIT 예열: 첫 시청자의 초기 프레임 지연을 줄임
+                Yuv420Converter.warmUp();
+
                 // 3. 스트리밍 서버 소켓 열고 클라이언트 연결 대기
                 startClientAcceptLoop();
 
@@ -130,7 +151,7 @@ public class StreamingServerService {
             try {
                 Socket client = serverSocket.accept();
                 logger.info("[EchoLink] 클라이언트 연결됨: " + client.getInetAddress().getHostAddress());
-                clientHandlerPool.submit(new ClientHandler(client, jwtToken, config));
+                clientHandlerPool.submit(new ClientHandler(client, jwtToken, config, streamConfig, encoderHub));
             } catch (IOException e) {
                 if (running) {
                 	logger.error("클라이언트 연결 수락 중 오류 발생: ", e);
@@ -0,0 +1,210 @@
+package com.EchoLink.server.bench;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacpp.BytePointer;
+
+import com.EchoLink.server.capture.SyntheticCaptureSource;
+import com.EchoLink.server.stream.EncodedPacket;
+import com.EchoLink.server.stream.VideoEncoder;
+import com.EchoLink.server.stream.Yuv420Converter;
+import com.EchoLink.server.stream.Yuv420Planes;
+
+/**
+ * 영상 코덱 비교 벤치마크 (H.264 / HEVC / AV1, CPU만으로 실행 가능)
+ *
+ * 같은 합성 데스크톱 프레임을 코덱마다 같은 목표 비트레이트로 인코딩하고
+ * 프레임당 인코딩 시간, 프레임당 크기, 화질(휘도 PSNR, 디코딩해서 원본과 비교)을 출력.
+ * 비트레이트 제어 때문에 크기는 목표 근처로 모이므로, 같은 크기에서의 PSNR 차이로 압축 효율을 비교함.
+ * 캡처/변환 시간은 제외 (프레임은 미리 YUV로 변환해 인코더 입력에 복사).
+ * 사용법: CodecBenchmark [패턴] [가로x세로] [fps] [프레임 수] [비트레이트] [코덱,...]
+ * 예: CodecBenchmark scrolling_text 1280x720 30 300 1500000 libx264,libx265,libsvtav1
+ * @author ESH
+ */
+public class CodecBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String pattern = args.length > 0 ? args[0] : "scrolling_text";
+		String size = args.length > 1 ? args[1] : "1280x720";
+		int fps = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		int frames = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+		int bitrate = args.length > 4 ? Integer.parseInt(args[4]) : 1_500_000;
+		List<String> codecs = Arrays.asList((args.length > 5 ? args[5] : "libx264,libx265,libsvtav1").split(","));
+
+		SyntheticCaptureSource source = SyntheticCaptureSource.fromSpec(
+				SyntheticCaptureSource.NAME + ":" + pattern + ":" + size, null);
+		Dimension dim = source.getSize();
+		System.out.println("[Bench] " + source.getName() + " " + dim.width + "x" + dim.height + " @" + fps + "fps, "
+				+ frames + " frames, " + bitrate + "bps, codecs=" + codecs);
+
+		for (String codec : codecs) {
+			run(source, codec.trim(), dim, fps, frames, bitrate);
+		}
+	}
+
+	/**
+	 * 코덱 하나 측정 (합성 화면은 처음 프레임부터 다시 생성)
+	 */
+	private static void run(SyntheticCaptureSource source, String codec, Dimension dim, int fps, int frames,
+			int bitrate) throws Exception {
+		source.start();
+		BufferedImage image = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_RGB);
+		Yuv420Converter converter = new Yuv420Converter();
+		Yuv420Converter referenceConverter = new Yuv420Converter();
+
+		long openStart = System.nanoTime();
+		VideoEncoder encoder = new VideoEncoder(dim.width, dim.height, fps, bitrate);
+		try {
+			encoder.open(Collections.singletonList(codec));
+		} catch (Exception e) {
+			System.out.println("[Bench] " + codec + ": 사용 불가 (" + e.getMessage() + ")");
+			encoder.close();
+			return;
+		}
+		double openMs = (System.nanoTime() - openStart) / 1e6;
+		Decoder decoder = new Decoder(encoder.getCodecContext().codec_id(), dim.width, dim.height);
+
+		long[] encodeNs = new long[frames];
+		long bytes = 0;
+		int packets = 0;
+		int keyFrames = 0;
+		ArrayDeque<byte[]> references = new ArrayDeque<>();	// 디코딩을 기다리는 원본 휘도 (B 프레임이 없으므로 순서대로)
+		try {
+			for (int i = 0; i < frames; i++) {
+				source.captureInto(image);
+				Yuv420Planes reference = referencePlanes(dim);
+				referenceConverter.convert(image, null, reference);
+				references.add(luma(reference, dim));
+				converter.convert(image, null, encoder.beginPicture());
+
+				long start = System.nanoTime();
+				List<EncodedPacket> encoded = encoder.encodePicture(i * 1_000_000L / fps);
+				encodeNs[i] = System.nanoTime() - start;
+				for (EncodedPacket packet : encoded) {
+					bytes += packet.getData().length;
+					packets++;
+					keyFrames += packet.isKeyFrame() ? 1 : 0;
+					decoder.decode(packet.getData(), references);
+				}
+			}
+			for (EncodedPacket packet : encoder.flush()) {
+				bytes += packet.getData().length;
+				packets++;
+				decoder.decode(packet.getData(), references);
+			}
+			decoder.decode(null, references);
+		}
+		finally {
+			encoder.close();
+			decoder.close();
+		}
+
+		long[] sorted = encodeNs.clone();
+		Arrays.sort(sorted);
+		double avgMs = Arrays.stream(encodeNs).average().orElse(0) / 1e6;
+		System.out.printf("[Bench] %-10s open %6.1f ms | encode avg %6.2f ms/frame, p99 %6.2f ms | %7.0f bytes/frame (%5.0f kbps) "
+				+ "| PSNR-Y %5.2f dB (%d frames) | keyframes %d%n",
+				codec, openMs, avgMs, sorted[Math.min(frames - 1, frames * 99 / 100)] / 1e6,
+				packets > 0 ? (double) bytes / packets : 0, bytes * 8.0 * fps / frames / 1000,
+				decoder.averagePsnr(), decoder.decodedFrames, keyFrames);
+	}
+
+	private static Yuv420Planes referencePlanes(Dimension dim) {
+		int chroma = (dim.width + 1) / 2;
+		int chromaRows = (dim.height + 1) / 2;
+		return new Yuv420Planes(ByteBuffer.allocate(dim.width * dim.height),
+				ByteBuffer.allocate(chroma * chromaRows), ByteBuffer.allocate(chroma * chromaRows),
+				dim.width, chroma, chroma, dim.width, dim.height);
+	}
+
+	/**
+	 * 참조 평면의 휘도만 복사 (평면 객체는 변환기가 매번 전체 변환하도록 프레임마다 새로 만듦)
+	 */
+	private static byte[] luma(Yuv420Planes planes, Dimension dim) {
+		byte[] y = new byte[dim.width * dim.height];
+		planes.copyLuma(y);
+		return y;
+	}
+
+	/**
+	 * 인코딩 결과를 디코딩하여 원본 휘도와 PSNR 계산
+	 */
+	private static final class Decoder implements AutoCloseable {
+		private final int width;
+		private final int height;
+		private final AVCodecContext context;
+		private final AVPacket packet = avcodec.av_packet_alloc();
+		private final AVFrame frame = avutil.av_frame_alloc();
+		private double psnrSum = 0;
+		private int decodedFrames = 0;
+
+		private Decoder(int codecId, int width, int height) {
+			this.width = width;
+			this.height = height;
+			AVCodec codec = avcodec.avcodec_find_decoder(codecId);
+			this.context = avcodec.avcodec_alloc_context3(codec);
+			avcodec.avcodec_open2(context, codec, (AVDictionary) null);
+		}
+
+		/**
+		 * 패킷 하나 디코딩 (null이면 남은 프레임 꺼냄)
+		 */
+		private void decode(byte[] data, ArrayDeque<byte[]> references) {
+			if (data != null) {
+				avcodec.av_new_packet(packet, data.length);
+				packet.data().put(data);
+				avcodec.avcodec_send_packet(context, packet);
+				avcodec.av_packet_unref(packet);
+			} else {
+				avcodec.avcodec_send_packet(context, null);
+			}
+			while (avcodec.avcodec_receive_frame(context, frame) >= 0) {
+				byte[] reference = references.poll();
+				if (reference != null) {
+					psnrSum += psnr(reference, frame.data(0), frame.linesize(0));
+					decodedFrames++;
+				}
+				avutil.av_frame_unref(frame);
+			}
+		}
+
+		private double psnr(byte[] reference, BytePointer decoded, int stride) {
+			byte[] row = new byte[width];
+			long squaredError = 0;
+			for (int y = 0; y < height; y++) {
+				decoded.position((long) y * stride).get(row, 0, width);
+				for (int x = 0; x < width; x++) {
+					int diff = (reference[y * width + x] & 0xFF) - (row[x] & 0xFF);
+					squaredError += diff * diff;
+				}
+			}
+			decoded.position(0);
+			double mse = (double) squaredError / ((long) width * height);
+			return mse == 0 ? 99 : 10 * Math.log10(255.0 * 255.0 / mse);
+		}
+
+		private double averagePsnr() {
+			return decodedFrames > 0 ? psnrSum / decodedFrames : 0;
+		}
+
+		@Override
+		public void close() {
+			avcodec.avcodec_free_context(context);
+			avcodec.av_packet_free(packet);
+			avutil.av_frame_free(frame);
+		}
+	}
+}
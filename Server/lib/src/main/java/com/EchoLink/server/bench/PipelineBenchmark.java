@@ -0,0 +1,131 @@
+package com.EchoLink.server.bench;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.javacv.Frame;
+
+import com.EchoLink.server.capture.FrameScaler;
+import com.EchoLink.server.capture.IdleFrameGate;
+import com.EchoLink.server.capture.ScreenCapture;
+import com.EchoLink.server.capture.SyntheticCaptureSource;
+import com.EchoLink.server.stream.FrameFanOut;
+import com.EchoLink.server.stream.FrameRingBuffer;
+import com.EchoLink.server.stream.IncrementalFrameConverter;
+import com.EchoLink.server.stream.TimestampedFrame;
+import com.EchoLink.server.stream.VideoEncoder;
+import com.EchoLink.server.stream.Yuv420Converter;
+
+/**
+ * 화면 없이 캡처 -> 큐 -> 변환 -> 인코딩 경로를 측정하는 벤치마크 (GPU 없는 CI용)
+ *
+ * SyntheticCaptureSource로 ScreenCapture를 돌리고, 인코딩 결과(패킷)는 버림.
+ * 사용법: PipelineBenchmark [패턴] [가로x세로] [fps] [초] [코덱|none] [yuv|bgr0]
+ * 예: PipelineBenchmark scrolling_text 1920x1080 60 10 libx264 yuv
+ * 변환 경로: yuv = Yuv420Converter로 인코더 입력에 바로 변환, bgr0 = IncrementalFrameConverter + swscale
+ * (SIMD 사용 시 --add-modules jdk.incubator.vector, 스칼라 비교는 -Decholink.yuv.scalar=true)
+ * @author ESH
+ */
+public class PipelineBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String pattern = args.length > 0 ? args[0] : "scrolling_text";
+		String size = args.length > 1 ? args[1] : "1920x1080";
+		int fps = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+		int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		String codec = args.length > 4 ? args[4] : "libx264";
+		boolean yuvPath = !(args.length > 5 && "bgr0".equalsIgnoreCase(args[5]));
+
+		SyntheticCaptureSource source = SyntheticCaptureSource.fromSpec(
+				SyntheticCaptureSource.NAME + ":" + pattern + ":" + size, null);
+		Dimension dim = source.getSize();
+		System.out.println("[Bench] " + source.getName() + " " + dim.width + "x" + dim.height
+				+ " @" + fps + "fps, " + seconds + "s, codec=" + codec
+				+ ", convert=" + (yuvPath ? "yuv (" + Yuv420Converter.describe() + ")" : "bgr0 + swscale"));
+
+		FrameRingBuffer<TimestampedFrame<BufferedImage>> queue = new FrameRingBuffer<>(8, TimestampedFrame::release);
+		FrameFanOut<BufferedImage> fanOut = new FrameFanOut<>();
+		fanOut.add(queue);
+		IdleFrameGate gate = new IdleFrameGate(fps, fps, fps, 0);	// 유휴 모드 없이 측정
+		ScreenCapture capture = new ScreenCapture(fanOut, source, gate, 6, null, FrameScaler.Mode.AREA);
+
+		VideoEncoder encoder = null;
+		if (!"none".equalsIgnoreCase(codec)) {
+			encoder = new VideoEncoder(dim.width, dim.height, fps, 6_000_000);	// 결과는 버림 (전송 비용 제외)
+			encoder.open(Collections.singletonList(codec));
+			yuvPath &= encoder.acceptsYuv420(dim.width, dim.height);
+		}
+
+		IncrementalFrameConverter converter = new IncrementalFrameConverter();
+		Yuv420Converter yuvConverter = new Yuv420Converter();
+		long[] latencyUs = new long[fps * seconds * 2];
+		long convertNs = 0;
+		int frames = 0;
+
+		Thread captureThread = new Thread(capture, "Bench-Capture");
+		captureThread.setDaemon(true);
+		captureThread.start();
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+		try {
+			while (System.nanoTime() < end) {
+				TimestampedFrame<BufferedImage> tsFrame = queue.poll(100, TimeUnit.MILLISECONDS);	// 모든 프레임 측정 (밀리면 링 버퍼가 버림)
+				if (tsFrame == null) {
+					continue;
+				}
+				long convertStart = System.nanoTime();
+				Frame frame = null;
+				try {
+					if (yuvPath && encoder != null) {
+						yuvConverter.convert(tsFrame, encoder.beginPicture());
+					} else {
+						frame = converter.convert(tsFrame);
+					}
+				} finally {
+					tsFrame.release();
+				}
+				convertNs += System.nanoTime() - convertStart;	// bgr0 경로의 swscale 변환은 인코딩 시간에 포함됨
+				if (encoder != null) {
+					long timestampUs = (tsFrame.getTimestamp() - start) / 1000;
+					if (yuvPath) {
+						encoder.encodePicture(timestampUs);
+					} else {
+						encoder.encode(frame, IncrementalFrameConverter.PIXEL_FORMAT, timestampUs);
+					}
+				}
+				if (frames < latencyUs.length) {
+					latencyUs[frames] = (System.nanoTime() - tsFrame.getTimestamp()) / 1000;	// 캡처 -> 인코딩 완료
+				}
+				frames++;
+			}
+		}
+		finally {
+			// 큐가 가득 차 put()에서 대기 중일 수 있으므로 인터럽트로 깨움
+			capture.stop();
+			captureThread.interrupt();
+			captureThread.join(1000);
+			if (encoder != null) {
+				encoder.flush();
+				encoder.close();
+			}
+		}
+		double elapsed = (end - start) / 1e9;
+
+		int n = Math.min(frames, latencyUs.length);
+		long[] sorted = Arrays.copyOf(latencyUs, n);
+		Arrays.sort(sorted);
+		System.out.printf("[Bench] %d frames, %.1f fps, queue peak=%d, dropped=%d%n", frames, frames / elapsed,
+				queue.getPeakSize(), queue.getOverwrittenCount());
+		if (frames > 0) {
+			System.out.printf("[Bench] convert avg=%.2f ms/frame%n", convertNs / 1e6 / frames);
+		}
+		if (n > 0) {
+			System.out.printf("[Bench] latency p50=%.2f ms, p99=%.2f ms, max=%.2f ms%n",
+					sorted[n / 2] / 1000.0, sorted[Math.min(n - 1, n * 99 / 100)] / 1000.0, sorted[n - 1] / 1000.0);
+		}
+	}
+}
@@ -3,9 +3,10 @@ package com.EchoLink.server.capture;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
 
+import com.EchoLink.server.stream.SessionClock;
 import com.EchoLink.server.stream.TimestampedFrame;
 
-import java.util.concurrent.BlockingQueue;
+import com.EchoLink.server.stream.FrameFanOut;
 
 /**
  * 시스템에서 재생되는 오디오를 캡처하여 큐에 추가합니다.
@@ -15,26 +16,52 @@ import java.util.concurrent.BlockingQueue;
  * Windows의 경우, 'ffmpeg -list_devices true -f dshow -i dummy' 명령어를 
  * cmd에서 실행하여 사용 가능한 오디오 장치 목록을 확인하고 정확한 이름을 넣어주어야 합니다. 
  * (예: "마이크(Realtek High Definition Audio)", "스테레오 믹스(Realtek High Definition Audio)")
+ * 
+ * 장치 버퍼를 코덱 프레임 길이(frameMs)로 맞춰서, 캡처 한 번이 인코더 프레임 하나가 되도록 함
+ * (장치 기본 버퍼는 수십 ms 단위라 인코더 FIFO에서 그만큼 더 기다리게 됨).
+ * 잡은 오디오는 Frame.clone() 대신 미리 할당한 PcmRingBuffer에 복사하고, frameMs 칸 단위로 내보냄.
+ * 타임스탬프는 칸의 시작 샘플 번호로 계산 (SessionClock), 칸은 모든 세션이 release하면 다시 씀.
  * @author ESH
  */
 public class AudioCapture implements Runnable {
 
-    private final BlockingQueue<TimestampedFrame<Frame>> audioFrameQueue;
+    private final FrameFanOut<Frame> audioFrameQueue;	// 구독 세션들의 오디오 링 버퍼로 전달
+    private final SessionClock clock;	// 세션 시계 (캡처한 샘플 수로 오디오 시계, 드리프트 갱신)
+    private final SilenceDetector silenceDetector;	// 무음 판정 (인코더 DTX, 드롭 정책이 공유)
     private volatile boolean running = true;
 
     // 캡처할 오디오 장치 이름. OS에 따라 변경(추후 추가=>현재는 Windows만 지원)
     // Windows: "Stereo Mix" 장치가 활성화되어야 함("virtual-audio-capturer" 등)
     private final String audioDeviceName;	// OS별 오디오 장치 이름(Windows:"Stereo Mix")
+    private final int sampleRate;	// 샘플링 속도
+    private final int channels;		// 채널 수
+    private final int frameMs;		// 캡처 단위 (코덱 프레임 길이, ms)
+    private final PcmRingBuffer ringBuffer;	// 캡처 PCM 링 버퍼 (미리 할당, 칸 단위로 내보냄)
+    private long clockedSamples = 0;	// 세션 시계에 알린 샘플 수 (overrun으로 버린 칸 포함)
     
     /**
      * 생성자
      * OS의 장치 이름을 받아 오디오 활성화
-     * @param audioFrameQueue 오디오 프레임 큐
+     * @param audioFrameQueue 오디오 프레임 팬아웃
      * @param audioDevice OS별 오디오 장치 이름
+     * @param clock 세션 시계
+     * @param silenceDetector 무음 판정
+     * @param sampleRate 샘플링 속도 (인코더와 같게 해서 변환 생략)
+     * @param channels 채널 수
+     * @param frameMs 캡처 단위 (코덱 프레임 길이, ms)
+     * @param bufferMs 캡처 링 버퍼 길이 (ms)
      */
-    public AudioCapture(BlockingQueue<TimestampedFrame<Frame>> audioFrameQueue, String audioDevice) {
+    public AudioCapture(FrameFanOut<Frame> audioFrameQueue, String audioDevice, SessionClock clock,
+    		SilenceDetector silenceDetector, int sampleRate, int channels, int frameMs, int bufferMs) {
         this.audioFrameQueue = audioFrameQueue;
         this.audioDeviceName = audioDevice;
+        this.clock = clock;
+        this.silenceDetector = silenceDetector;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.frameMs = frameMs;
+        // 칸이 모두 사용 중이면 구독 세션의 가장 오래된 프레임을 버려 칸을 되찾음 (ScreenCapture 버퍼 풀과 같은 방식)
+        this.ringBuffer = new PcmRingBuffer(sampleRate, channels, frameMs, bufferMs, audioFrameQueue::dropOldest);
     }
 
     @Override
@@ -59,23 +86,31 @@ public class AudioCapture implements Runnable {
              */
             FFmpegFrameGrabber grabber = new FFmpegFrameGrabber("audio=" + audioDeviceName);
             grabber.setFormat(inputFormat);
-            grabber.setSampleRate(44100); // 표준 샘플링 속도
-            grabber.setAudioChannels(2);  // 스테레오
+            grabber.setSampleRate(sampleRate); // 인코더 샘플링 속도 (Opus: 48kHz)
+            grabber.setAudioChannels(channels);  // 스테레오
+            // 장치 버퍼 = 코덱 프레임 (dshow: ms 단위, pulse: S16 기준 byte 단위)
+            if (inputFormat.equals("dshow")) {
+            	grabber.setOption("audio_buffer_size", Integer.toString(frameMs));
+            } else {
+            	grabber.setOption("fragment_size", Integer.toString(sampleRate * frameMs / 1000 * channels * 2));
+            }
             grabber.start();
 
-            System.out.println("오디오 캡처 시작: " + audioDeviceName);
+            System.out.println("오디오 캡처 시작: " + audioDeviceName + " (" + sampleRate + "Hz, " + frameMs + "ms 단위)");
 
             while (running) {
-                Frame audioFrame = grabber.grab();	 // 오디오 프레임 캡처
-                if (audioFrame != null) {
-                	// 캡처한 오디오 프레임과 현재 시간을 TimestampedFrame으로 감싸서 큐에 추가
-                    audioFrameQueue.put(new TimestampedFrame<>(audioFrame.clone(), System.nanoTime()));
+                Frame audioFrame = grabber.grab();	 // 오디오 프레임 캡처 (그래버의 버퍼, 다음 grab에서 덮어씀)
+                if (audioFrame != null && audioFrame.samples != null) {
+                	long capturedNs = System.nanoTime();
+                	ringBuffer.write(audioFrame);	// 링 버퍼로 복사 (할당 없음)
+                	publishChunks(capturedNs);
                 }
             }
 
             grabber.stop();
             grabber.release();
-            System.out.println("오디오 캡처 종료.");
+            System.out.println("오디오 캡처 종료. (무음 " + silenceDetector.getSilentFrames() + "/" + silenceDetector.getAnalyzedFrames()
+            		+ " 프레임, 링 버퍼 " + ringBuffer.getChunkCount() + "칸, overrun " + ringBuffer.getOverrunChunks() + "칸)");
 
         } catch (Exception e) {
             System.err.println("오디오 캡처 중 심각한 오류 발생. 오디오 장치 이름(" + audioDeviceName + ")과 드라이버를 확인하세요.");
@@ -83,6 +118,29 @@ public class AudioCapture implements Runnable {
         }
     }
 
+    /**
+     * 꽉 찬 칸을 모두 세션들에 전달
+     * 캡처 시각 대신 샘플 번호로 계산한 오디오 시계 시각을 붙임 (캡처 지터 없음, 드리프트 보정).
+     * @param capturedNs 마지막 grab을 마친 시각 (칸이 끝난 시각은 그 뒤에 받은 샘플 수만큼 앞으로 당김)
+     */
+    private void publishChunks(long capturedNs) {
+    	PcmRingBuffer.Chunk chunk;
+    	while ((chunk = ringBuffer.poll()) != null) {
+    		long chunkEnd = chunk.getSampleIndex() + ringBuffer.getChunkSamples();
+    		int samples = (int) (chunkEnd - clockedSamples);	// overrun으로 버린 칸도 시계에는 포함 (샘플 번호 유지)
+    		long endNs = capturedNs - (ringBuffer.getWrittenSamples() - chunkEnd) * 1_000_000_000L / sampleRate;
+    		long start = clock.audioCaptured(samples, sampleRate, endNs);
+    		long timestamp = start + (samples - ringBuffer.getChunkSamples()) * 1_000_000_000L / sampleRate;
+    		clockedSamples = chunkEnd;
+
+    		Frame frame = chunk.getFrame();
+    		boolean silent = silenceDetector.isSilent(frame);	// 칸마다 한 번만 판정 (모든 인코더가 공유)
+    		long sequence = chunk.getSampleIndex() / ringBuffer.getChunkSamples();	// 순번이 끊기면 overrun
+    		audioFrameQueue.publish(new TimestampedFrame<>(frame, timestamp, timestamp, null,
+    				sequence, chunk.getRecycler(), silent));
+    	}
+    }
+
     public void stop() {
         this.running = false;
     }
@@ -0,0 +1,225 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bytedeco.javacv.Frame;
+
+import com.EchoLink.server.config.StreamConfig;
+import com.EchoLink.server.stream.AudioEncoder;
+import com.EchoLink.server.stream.FrameFanOut;
+import com.EchoLink.server.stream.FrameRingBuffer;
+import com.EchoLink.server.stream.SessionClock;
+import com.EchoLink.server.stream.TimestampedFrame;
+
+/**
+ * 서버 전체에서 하나만 돌아가는 캡처 파이프라인 (영상 + 오디오)
+ *
+ * 세션(시청자)마다 ScreenCapture / AudioCapture를 따로 만들면 같은 화면을 여러 번 캡처하고
+ * 오디오 장치도 여러 번 열게 됨. 세션은 자기 링 버퍼로 구독만 하고 프레임은 FrameFanOut으로 나눠 받음.
+ * - 첫 구독자가 들어오면 캡처 시작, 마지막 구독자가 나가면 캡처 중지
+ * - 출력 해상도는 구독자 요청 중 가장 큰 것, FPS는 가장 높은 것 (작은 해상도 세션은 인코더가 축소)
+ * - 세션 시계(SessionClock)는 캡처를 시작할 때 0이 되고, 오디오 캡처가 오디오 시계로 드리프트를 갱신
+ * @author ESH
+ */
+public class CaptureHub {
+
+	private final StreamConfig streamConfig;	// 스트리밍 파이프라인 설정
+
+	private final FrameFanOut<BufferedImage> videoFanOut = new FrameFanOut<>();
+	private final FrameFanOut<Frame> audioFanOut = new FrameFanOut<>();
+	private final List<Subscription> subscriptions = new ArrayList<>();
+	private final SessionClock clock = new SessionClock();	// 인코더 pts 기준 시계 (오디오 시계 기준)
+	private final SilenceDetector silenceDetector;			// 오디오 무음 판정 (카운터는 서버 실행 동안 누적)
+
+	// 쓰레드 인스턴스 (구독자가 있을 때만 존재)
+	private ScreenCapture screenCapture;
+	private AudioCapture audioCapture;
+
+	/**
+	 * 구독 정보 (세션 하나)
+	 */
+	public static final class Subscription {
+		private final int fps;
+		private final Dimension size;
+		private final FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue;
+		private final FrameRingBuffer<TimestampedFrame<Frame>> audioQueue;
+
+		private Subscription(int fps, Dimension size,
+				FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue,
+				FrameRingBuffer<TimestampedFrame<Frame>> audioQueue) {
+			this.fps = fps;
+			this.size = size;
+			this.videoQueue = videoQueue;
+			this.audioQueue = audioQueue;
+		}
+	}
+
+	/**
+	 * 생성자
+	 * @param streamConfig 스트리밍 파이프라인 설정
+	 */
+	public CaptureHub(StreamConfig streamConfig) {
+		this.streamConfig = streamConfig;
+		this.silenceDetector = new SilenceDetector(streamConfig.getAudioSilenceDb());
+	}
+
+	/**
+	 * 세션 구독 (첫 구독이면 캡처 시작)
+	 * @param fps			세션 FPS
+	 * @param size			세션 요청 해상도
+	 * @param videoQueue	세션의 영상 링 버퍼
+	 * @param audioQueue	세션의 오디오 링 버퍼
+	 * @return 구독 정보 (unsubscribe에 사용)
+	 */
+	public synchronized Subscription subscribe(int fps, Dimension size,
+			FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue,
+			FrameRingBuffer<TimestampedFrame<Frame>> audioQueue) {
+
+		Subscription subscription = new Subscription(fps, size, videoQueue, audioQueue);
+		subscriptions.add(subscription);
+		videoFanOut.add(videoQueue);
+		audioFanOut.add(audioQueue);
+
+		if (screenCapture == null) {
+			start();
+		}
+		else {
+			reconfigure();
+		}
+		System.out.println("[CaptureHub] 구독 추가 (현재 " + subscriptions.size() + "명)");
+		return subscription;
+	}
+
+	/**
+	 * 세션 구독 해제 (마지막 구독이면 캡처 중지)
+	 * @param subscription subscribe()의 반환값
+	 */
+	public synchronized void unsubscribe(Subscription subscription) {
+		if (subscription == null || !subscriptions.remove(subscription)) {
+			return;
+		}
+		videoFanOut.remove(subscription.videoQueue);	// 남은 프레임은 버퍼 풀로 반납
+		audioFanOut.remove(subscription.audioQueue);
+
+		if (subscriptions.isEmpty()) {
+			stop();
+		}
+		else {
+			reconfigure();
+		}
+		System.out.println("[CaptureHub] 구독 해제 (현재 " + subscriptions.size() + "명)");
+	}
+
+	/**
+	 * 영상, 오디오 캡처 쓰레드 시작
+	 */
+	private void start() {
+		clock.reset();	// 캡처 시작 = 세션 시각 0
+
+		// 영상 쓰레드
+		CaptureSource captureSource = CaptureSourceFactory.create(
+				streamConfig.getCaptureBackend(), maxFps(), detectScreenSize());
+		this.screenCapture = new ScreenCapture(videoFanOut, captureSource,
+				new IdleFrameGate(maxFps(),
+						streamConfig.getIdleProbeFps(),
+						streamConfig.getIdleKeepAliveFps(),
+						streamConfig.getIdleEnterMs()),
+				streamConfig.getCapturePoolSize(),
+				maxSize(),	// 요청 해상도로 캡처 단계에서 축소
+				FrameScaler.Mode.parse(streamConfig.getCaptureScaleMode()));
+		new Thread(this.screenCapture, "ScreenCapture-Thread").start();
+
+		// 오디오 쓰레드
+		String audioDevice = AudioDeviceManager.windowsFindOutputDeviceName();	// windows의 실제 장치 이름으로 전환
+		if (audioDevice != null && !audioDevice.isEmpty()) {
+			this.audioCapture = new AudioCapture(audioFanOut, audioDevice, clock, silenceDetector,
+					AudioEncoder.SAMPLE_RATE, AudioEncoder.CHANNELS, streamConfig.getAudioFrameMs(),	// 코덱 프레임 단위로 캡처
+					streamConfig.getAudioBufferMs());
+			new Thread(this.audioCapture, "AudioCapture-Thread").start();
+		}
+		else {
+			// 오디오 없이 영상만 스트리밍
+			System.err.println("오디오 장치를 찾지 못해 오디오 캡처를 시작하지 않습니다.");
+		}
+	}
+
+	/**
+	 * 영상, 오디오 캡처 쓰레드 중지
+	 */
+	private void stop() {
+		if (screenCapture != null) screenCapture.stop();
+		if (audioCapture != null) audioCapture.stop();
+		screenCapture = null;
+		audioCapture = null;
+	}
+
+	/**
+	 * 구독자 변경 후 출력 해상도, FPS 재적용 (다음 프레임부터)
+	 */
+	private void reconfigure() {
+		screenCapture.setTargetSize(maxSize());
+		screenCapture.getIdleGate().setActiveFps(maxFps());
+	}
+
+	private int maxFps() {
+		int fps = 1;
+		for (Subscription s : subscriptions) {
+			fps = Math.max(fps, s.fps);
+		}
+		return fps;
+	}
+
+	/**
+	 * @return 구독자 요청 중 면적이 가장 큰 해상도
+	 */
+	private Dimension maxSize() {
+		Dimension max = null;
+		for (Subscription s : subscriptions) {
+			if (s.size != null && (max == null
+					|| (long) s.size.width * s.size.height > (long) max.width * max.height)) {
+				max = s.size;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * 서버 화면 크기
+	 * @return 화면 크기, GUI 없는 환경(headless)이면 null
+	 */
+	public static Dimension detectScreenSize() {
+		if (GraphicsEnvironment.isHeadless()) {
+			return null;
+		}
+		return Toolkit.getDefaultToolkit().getScreenSize();
+	}
+
+	/**
+	 * Getter
+	 * @return 현재 구독자 수
+	 */
+	public synchronized int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Getter
+	 * @return 세션 시계 (인코더가 캡처 시각을 pts로 바꿀 때 사용)
+	 */
+	public SessionClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Getter
+	 * @return 오디오 무음 판정 (판정한/무음 프레임 수 확인용)
+	 */
+	public SilenceDetector getSilenceDetector() {
+		return silenceDetector;
+	}
+}
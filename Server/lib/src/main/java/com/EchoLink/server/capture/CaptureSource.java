@@ -0,0 +1,45 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+
+/**
+ * 화면 캡처 백엔드 인터페이스 (SPI)
+ *
+ * ScreenCapture가 FPS 제어, 변경 감지, 버퍼 풀, 큐 전달을 담당하고
+ * 구현체는 "화면 한 장을 버퍼에 쓰는 일"만 담당.
+ * 구현체 선택은 CaptureSourceFactory에서 설정값 또는 시작 시 벤치마크로 결정.
+ * @author ESH
+ */
+public interface CaptureSource extends AutoCloseable {
+
+	/**
+	 * @return 백엔드 이름 (설정값과 동일: "robot", "x11grab" 등)
+	 */
+	String getName();
+
+	/**
+	 * 캡처 장치 열기. 캡처 쓰레드에서 호출.
+	 * @throws Exception 장치를 열 수 없을 때 (GUI 없음, X 서버 없음 등)
+	 */
+	void start() throws Exception;
+
+	/**
+	 * start() 이후 실제 캡처 크기
+	 * @return 캡처 크기
+	 */
+	Dimension getSize();
+
+	/**
+	 * 화면 한 장을 target 버퍼에 쓴다.
+	 * @param target getSize() 크기의 TYPE_INT_RGB 버퍼 (FrameBufferPool에서 받은 버퍼)
+	 * @throws Exception 캡처 실패
+	 */
+	void captureInto(BufferedImage target) throws Exception;
+
+	/**
+	 * 캡처 장치 닫기 (예외를 던지지 않음)
+	 */
+	@Override
+	void close();
+}
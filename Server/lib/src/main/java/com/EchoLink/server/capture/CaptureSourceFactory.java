@@ -0,0 +1,119 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 화면 캡처 백엔드(CaptureSource) 선택 및 생성 유틸리티 클래스.
+ *
+ * 설정값(echolink.stream.capture.backend)
+ * - "robot"	: AWT Robot (모든 OS)
+ * - "x11grab"	: FFmpeg x11grab (Linux, Xvfb 포함)
+ * - "synthetic[:패턴[:가로x세로]]"	: 합성 테스트 패턴 (화면 없는 벤치마크용, auto에서는 선택되지 않음)
+ * - "auto"		: 사용 가능한 백엔드를 짧게 벤치마크하여 가장 빠른 것을 선택 (결과는 캐시)
+ * @author ESH
+ */
+public final class CaptureSourceFactory {
+
+	public static final String AUTO = "auto";
+
+	private static final int BENCHMARK_FRAMES = 10;	// 백엔드별 측정 프레임 수 (첫 프레임 제외)
+	private static final int BENCHMARK_FPS = 120;	// 측정 시 FPS 제한에 걸리지 않도록 높게 설정
+
+	private static volatile String benchmarkedBackend;	// auto 선택 결과 캐시
+
+	private CaptureSourceFactory() {
+	}
+
+
+	/**
+	 * 설정값에 맞는 캡처 백엔드 생성
+	 * @param backend		"auto", "robot", "x11grab", "synthetic:..."
+	 * @param fps			캡처 FPS
+	 * @param captureSize	캡처 크기 (null이면 백엔드가 화면 전체 크기를 사용, Robot은 필수)
+	 * @return CaptureSource (start() 전 상태)
+	 */
+	public static CaptureSource create(String backend, int fps, Dimension captureSize) {
+		String name = AUTO.equalsIgnoreCase(backend) ? selectBackend(captureSize) : backend.toLowerCase();
+		if (name.startsWith(SyntheticCaptureSource.NAME)) {
+			return SyntheticCaptureSource.fromSpec(name, captureSize);
+		}
+		return newSource(name, fps, captureSize);
+	}
+
+	/**
+	 * auto 설정의 백엔드 결정. 처음 한 번만 벤치마크하고 이후에는 캐시된 결과 사용.
+	 * 서버 시작 시 미리 호출하면 첫 세션의 연결 지연을 줄일 수 있음.
+	 * @param captureSize 캡처 크기
+	 * @return 선택된 백엔드 이름
+	 */
+	public static synchronized String selectBackend(Dimension captureSize) {
+		if (benchmarkedBackend != null) {
+			return benchmarkedBackend;
+		}
+
+		List<String> candidates = new ArrayList<>();
+		if (X11GrabCaptureSource.isSupported()) {
+			candidates.add(X11GrabCaptureSource.NAME);
+		}
+		if (captureSize != null) {
+			candidates.add(RobotCaptureSource.NAME);
+		}
+
+		String best = null;
+		double bestMs = Double.MAX_VALUE;
+		for (String name : candidates) {
+			double ms = benchmark(newSource(name, BENCHMARK_FPS, captureSize));
+			System.out.println("[Capture] 백엔드 벤치마크: " + name + " = "
+					+ (ms < 0 ? "사용 불가" : String.format("%.2f ms/frame", ms)));
+			if (ms >= 0 && ms < bestMs) {
+				bestMs = ms;
+				best = name;
+			}
+		}
+
+		if (best == null) {
+			best = RobotCaptureSource.NAME;	// 모두 실패하면 기존 방식 (이후 ScreenCapture에서 오류 출력)
+		}
+		System.out.println("[Capture] 캡처 백엔드 선택: " + best);
+		benchmarkedBackend = best;
+		return best;
+	}
+
+
+	private static CaptureSource newSource(String name, int fps, Dimension captureSize) {
+		switch (name) {
+			case X11GrabCaptureSource.NAME:
+				return new X11GrabCaptureSource(null, fps, captureSize);
+			case RobotCaptureSource.NAME:
+				return new RobotCaptureSource(captureSize);
+			default:
+				throw new IllegalArgumentException("알 수 없는 캡처 백엔드: " + name);
+		}
+	}
+
+	/**
+	 * 백엔드로 몇 프레임을 캡처해 평균 시간을 잰다.
+	 * @return 프레임당 ms, 실패 시 -1
+	 */
+	private static double benchmark(CaptureSource source) {
+		try (source) {
+			source.start();
+			Dimension size = source.getSize();
+			BufferedImage target = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+
+			source.captureInto(target);	// 첫 프레임은 장치 준비 시간이 섞이므로 제외
+			long start = System.nanoTime();
+			for (int i = 0; i < BENCHMARK_FRAMES; i++) {
+				source.captureInto(target);
+			}
+			return (System.nanoTime() - start) / 1_000_000.0 / BENCHMARK_FRAMES;
+		}
+		catch (Throwable e) {
+			// 네이티브 라이브러리 로딩 실패(UnsatisfiedLinkError) 등도 "사용 불가"로 처리
+			return -1;
+		}
+	}
+}
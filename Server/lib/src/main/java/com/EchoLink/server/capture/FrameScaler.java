@@ -0,0 +1,245 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 캡처 단계 축소기 (TYPE_INT_RGB -> TYPE_INT_RGB)
+ *
+ * 서버 화면(예: 4K)을 클라이언트가 요청한 해상도(예: 1280x720)로 캡처 직후 줄여서
+ * 큐, 픽셀 포맷 변환, 인코더가 작은 프레임만 다루도록 함.
+ * 변경 영역(Dirty Region)만 다시 계산하고, 변경 영역 좌표도 출력 해상도로 변환하여 돌려줌.
+ *
+ * - BILINEAR	: 2x2 픽셀 보간. 빠르지만 2배 이상 축소 시 글자가 거칠어질 수 있음
+ * - AREA		: 출력 픽셀이 덮는 원본 영역의 평균. 큰 비율 축소에서 화질이 좋음
+ * @author ESH
+ */
+public class FrameScaler {
+
+	/**
+	 * 축소 방식
+	 */
+	public enum Mode {
+		BILINEAR, AREA;
+
+		/**
+		 * 설정 문자열을 축소 방식으로 변환
+		 * @param name "bilinear" 또는 "area" (대소문자 무시)
+		 * @return 축소 방식
+		 */
+		public static Mode parse(String name) {
+			return Mode.valueOf(name.trim().toUpperCase());
+		}
+	}
+
+	private static final int MAX_PACKED_COUNT = 257;	// AREA에서 R/B를 한 int에 누적할 수 있는 최대 픽셀 수
+
+	private final int srcWidth;
+	private final int srcHeight;
+	private final int dstWidth;
+	private final int dstHeight;
+	private final Mode mode;
+
+	// BILINEAR: 출력 좌표별 원본 좌표와 다음 픽셀 가중치(0~256)
+	// AREA: 출력 좌표별 덮는 원본 범위 [index, weight) (weight 배열을 끝 좌표로 사용)
+	private final int[] xIndex;
+	private final int[] xWeight;
+	private final int[] yIndex;
+	private final int[] yWeight;
+
+	/**
+	 * 생성자 (좌표 테이블을 미리 계산)
+	 * @param srcWidth	원본 가로
+	 * @param srcHeight	원본 세로
+	 * @param dstWidth	출력 가로
+	 * @param dstHeight	출력 세로
+	 * @param mode		축소 방식
+	 */
+	public FrameScaler(int srcWidth, int srcHeight, int dstWidth, int dstHeight, Mode mode) {
+		if (srcWidth <= 0 || srcHeight <= 0 || dstWidth <= 0 || dstHeight <= 0) {
+			throw new IllegalArgumentException("invalid size: " + srcWidth + "x" + srcHeight
+					+ " -> " + dstWidth + "x" + dstHeight);
+		}
+		this.srcWidth = srcWidth;
+		this.srcHeight = srcHeight;
+		this.dstWidth = dstWidth;
+		this.dstHeight = dstHeight;
+		this.mode = mode;
+
+		this.xIndex = new int[dstWidth];
+		this.xWeight = new int[dstWidth];
+		this.yIndex = new int[dstHeight];
+		this.yWeight = new int[dstHeight];
+		if (mode == Mode.BILINEAR) {
+			bilinearTable(srcWidth, dstWidth, xIndex, xWeight);
+			bilinearTable(srcHeight, dstHeight, yIndex, yWeight);
+		}
+		else {
+			areaTable(srcWidth, dstWidth, xIndex, xWeight);
+			areaTable(srcHeight, dstHeight, yIndex, yWeight);
+		}
+	}
+
+
+	/**
+	 * 원본의 변경 영역만 출력 버퍼에 다시 계산.
+	 * @param src			원본 (srcWidth x srcHeight, TYPE_INT_RGB)
+	 * @param dst			출력 (dstWidth x dstHeight, TYPE_INT_RGB). 변경되지 않은 영역은 이전 내용 유지
+	 * @param srcRegions	원본 좌표의 변경 영역
+	 * @return 출력 좌표의 변경 영역 (변경이 없으면 빈 리스트)
+	 */
+	public List<Rectangle> scale(BufferedImage src, BufferedImage dst, List<Rectangle> srcRegions) {
+		int[] srcPixels = ((DataBufferInt) src.getRaster().getDataBuffer()).getData();
+		int[] dstPixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+
+		List<Rectangle> dstRegions = new ArrayList<>(srcRegions.size());
+		for (Rectangle r : srcRegions) {
+			Rectangle d = mapRegion(r);
+			if (d.isEmpty()) {
+				continue;
+			}
+			if (mode == Mode.BILINEAR) {
+				scaleBilinear(srcPixels, dstPixels, d);
+			}
+			else {
+				scaleArea(srcPixels, dstPixels, d);
+			}
+			dstRegions.add(d);
+		}
+		return dstRegions;
+	}
+
+	/**
+	 * 원본 변경 영역에 영향을 받는 출력 영역 (보간 범위를 고려해 1px 여유)
+	 */
+	Rectangle mapRegion(Rectangle r) {
+		int x0 = (int) ((long) r.x * dstWidth / srcWidth) - 1;
+		int y0 = (int) ((long) r.y * dstHeight / srcHeight) - 1;
+		int x1 = (int) (((long) (r.x + r.width) * dstWidth + srcWidth - 1) / srcWidth) + 1;
+		int y1 = (int) (((long) (r.y + r.height) * dstHeight + srcHeight - 1) / srcHeight) + 1;
+		x0 = Math.max(0, x0);
+		y0 = Math.max(0, y0);
+		x1 = Math.min(dstWidth, x1);
+		y1 = Math.min(dstHeight, y1);
+		return new Rectangle(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+	}
+
+
+	private void scaleBilinear(int[] src, int[] dst, Rectangle d) {
+		for (int y = d.y; y < d.y + d.height; y++) {
+			int row0 = yIndex[y] * srcWidth;
+			int row1 = Math.min(yIndex[y] + 1, srcHeight - 1) * srcWidth;
+			int fy = yWeight[y];
+			int out = y * dstWidth;
+
+			for (int x = d.x; x < d.x + d.width; x++) {
+				int sx0 = xIndex[x];
+				int sx1 = Math.min(sx0 + 1, srcWidth - 1);
+				int fx = xWeight[x];
+
+				int top = lerp(src[row0 + sx0], src[row0 + sx1], fx);
+				int bottom = lerp(src[row1 + sx0], src[row1 + sx1], fx);
+				dst[out + x] = lerp(top, bottom, fy);
+			}
+		}
+	}
+
+	/**
+	 * 두 픽셀의 채널별 선형 보간 (R/B와 G를 나누어 한 번의 곱셈으로 두 채널 처리)
+	 * @param w b의 가중치 (0~256)
+	 */
+	private static int lerp(int a, int b, int w) {
+		int iw = 256 - w;
+		int rb = (((a & 0xFF00FF) * iw + (b & 0xFF00FF) * w) >>> 8) & 0xFF00FF;
+		int g = (((a & 0x00FF00) * iw + (b & 0x00FF00) * w) >>> 8) & 0x00FF00;
+		return rb | g;
+	}
+
+	private void scaleArea(int[] src, int[] dst, Rectangle d) {
+		for (int y = d.y; y < d.y + d.height; y++) {
+			int sy0 = yIndex[y];
+			int sy1 = yWeight[y];
+			int out = y * dstWidth;
+
+			for (int x = d.x; x < d.x + d.width; x++) {
+				int sx0 = xIndex[x];
+				int sx1 = xWeight[x];
+				int count = (sy1 - sy0) * (sx1 - sx0);
+				int r, g, b;
+
+				if (count <= MAX_PACKED_COUNT) {
+					// R/B를 16bit 칸 두 개에 함께 누적 (255 * 257 < 65536 이므로 넘치지 않음)
+					int rb = 0;
+					g = 0;
+					for (int sy = sy0; sy < sy1; sy++) {
+						int row = sy * srcWidth;
+						for (int sx = sx0; sx < sx1; sx++) {
+							int p = src[row + sx];
+							rb += p & 0xFF00FF;
+							g += (p >>> 8) & 0xFF;
+						}
+					}
+					r = rb >>> 16;
+					b = rb & 0xFFFF;
+				}
+				else {
+					r = 0;
+					g = 0;
+					b = 0;
+					for (int sy = sy0; sy < sy1; sy++) {
+						int row = sy * srcWidth;
+						for (int sx = sx0; sx < sx1; sx++) {
+							int p = src[row + sx];
+							r += (p >>> 16) & 0xFF;
+							g += (p >>> 8) & 0xFF;
+							b += p & 0xFF;
+						}
+					}
+				}
+				int half = count >> 1;	// 반올림
+				dst[out + x] = ((r + half) / count) << 16 | ((g + half) / count) << 8 | ((b + half) / count);
+			}
+		}
+	}
+
+
+	/**
+	 * 픽셀 중심을 맞춘 보간 좌표 테이블
+	 */
+	private static void bilinearTable(int srcLen, int dstLen, int[] index, int[] weight) {
+		for (int i = 0; i < dstLen; i++) {
+			double s = (i + 0.5) * srcLen / dstLen - 0.5;
+			if (s < 0) {
+				s = 0;
+			}
+			int s0 = Math.min((int) s, srcLen - 1);
+			index[i] = s0;
+			weight[i] = (int) Math.round((s - s0) * 256);
+		}
+	}
+
+	/**
+	 * 출력 픽셀별 원본 범위 테이블 (최소 1px, 확대 시에는 최근접)
+	 */
+	private static void areaTable(int srcLen, int dstLen, int[] start, int[] end) {
+		for (int i = 0; i < dstLen; i++) {
+			start[i] = Math.min((int) ((long) i * srcLen / dstLen), srcLen - 1);
+			end[i] = Math.max((int) ((long) (i + 1) * srcLen / dstLen), start[i] + 1);
+		}
+	}
+
+
+	// ----Getter-----
+	public int getDstWidth() {
+		return dstWidth;
+	}
+	public int getDstHeight() {
+		return dstHeight;
+	}
+	public Mode getMode() {
+		return mode;
+	}
+}
@@ -0,0 +1,106 @@
+package com.EchoLink.server.capture;
+
+/**
+ * 화면 유휴 모드(가변 프레임레이트) 판단기
+ *
+ * 화면 변경이 일정 시간(enterMs) 없으면 유휴 모드로 전환.
+ * 유휴 모드에서는
+ * 1) 캡처 간격을 probeFps로 늘려 변경 여부만 확인하고
+ * 2) 인코더에는 keepAliveFps 간격으로 직전 화면(반복 프레임)만 보낸다.
+ * 변경이 감지되면 즉시 원래 FPS로 복귀.
+ * @author ESH
+ */
+public class IdleFrameGate {
+
+	private volatile long activeIntervalNs;	// 일반 캡처 간격 (구독 세션 변경 시 바뀔 수 있음)
+	private volatile long probeIntervalNs;	// 유휴 모드 캡처 간격
+	private final int probeFps;
+	private final long keepAliveIntervalNs;	// 유휴 모드 반복 프레임 전송 간격
+	private final long enterNs;				// 유휴 모드 진입 시간 (0 이하 = 사용 안 함)
+
+	private boolean idle = false;			// 유휴 모드 여부
+	private long lastChangeNs = -1;			// 마지막으로 화면이 바뀐 시각
+	private long lastSentNs = -1;			// 마지막으로 인코더에 보낸 시각
+	private long skippedFrames = 0;			// 유휴 모드로 보내지 않은 프레임 수
+
+	/**
+	 * 생성자
+	 * @param activeFps		일반 FPS (클라이언트 요청값)
+	 * @param probeFps		유휴 모드 변경 감지 FPS
+	 * @param keepAliveFps	유휴 모드 반복 프레임 FPS
+	 * @param enterMs		유휴 모드 진입 시간(ms), 0 이하이면 유휴 모드 사용 안 함
+	 */
+	public IdleFrameGate(int activeFps, int probeFps, int keepAliveFps, int enterMs) {
+		this.probeFps = probeFps;
+		setActiveFps(activeFps);
+		this.keepAliveIntervalNs = 1_000_000_000L / Math.max(1, keepAliveFps);
+		this.enterNs = enterMs * 1_000_000L;
+	}
+
+
+	/**
+	 * 캡처된 프레임을 인코더로 보낼지 결정.
+	 * @param changed	이전 프레임 대비 변경 여부
+	 * @param nowNs		캡처 시각 (System.nanoTime)
+	 * @return 인코더로 보내야 하면 true
+	 */
+	public boolean accept(boolean changed, long nowNs) {
+		if (lastChangeNs < 0 || changed) {
+			lastChangeNs = nowNs;
+			if (idle) {
+				idle = false;
+				System.out.println("[Capture] 화면 변경 감지: 일반 모드로 복귀합니다.");
+			}
+			lastSentNs = nowNs;
+			return true;
+		}
+
+		if (enterNs <= 0) {
+			lastSentNs = nowNs;
+			return true;
+		}
+
+		if (!idle && nowNs - lastChangeNs >= enterNs) {
+			idle = true;
+			System.out.println("[Capture] 화면 변경 없음: 유휴 모드로 전환합니다.");
+		}
+
+		if (!idle || nowNs - lastSentNs >= keepAliveIntervalNs) {
+			lastSentNs = nowNs;
+			return true;
+		}
+		skippedFrames++;
+		return false;
+	}
+
+	/**
+	 * 일반 FPS 변경 (다음 캡처부터 적용, 생성자에서도 호출하므로 final)
+	 * @param activeFps 일반 FPS
+	 */
+	public final void setActiveFps(int activeFps) {
+		long active = 1_000_000_000L / Math.max(1, activeFps);
+		// 변경 감지 FPS는 일반 FPS보다 높을 수 없음
+		this.probeIntervalNs = Math.max(active, 1_000_000_000L / Math.max(1, probeFps));
+		this.activeIntervalNs = active;
+	}
+
+	/**
+	 * 다음 캡처까지의 간격
+	 * @return 나노초
+	 */
+	public long nextIntervalNanos() {
+		return idle ? probeIntervalNs : activeIntervalNs;
+	}
+
+	public boolean isIdle() {
+		return idle;
+	}
+
+	/**
+	 * Getter
+	 * @return 유휴 모드로 인코더에 보내지 않은 프레임 수
+	 */
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+}
@@ -0,0 +1,254 @@
+package com.EchoLink.server.capture;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 오디오 캡처 PCM 링 버퍼 (미리 할당, S16 interleaved)
+ *
+ * 잡은 오디오를 매번 Frame.clone()하면 프레임마다 Frame 객체와 네이티브 버퍼를 새로 할당하게 됨.
+ * 대신 bufferMs 길이의 direct 버퍼 하나를 chunkMs(코덱 프레임) 크기의 칸으로 나눠 두고,
+ * 캡처 쓰레드가 write()로 칸을 채우면 꽉 찬 칸을 미리 만든 Frame(칸의 slice)으로 내보냄 (복사 1회, 할당 없음).
+ * - 장치가 한 번에 주는 샘플 수와 상관없이 항상 칸 크기로 나옴 (인코더 FIFO에 남는 샘플이 없음)
+ * - 칸마다 시작 샘플 번호를 가짐 (타임스탬프는 벽시계 대신 샘플 번호로 계산)
+ * - 칸은 TimestampedFrame.release()로 마지막 참조가 해제되면 다시 씀 (getRecycler(), 여러 세션이 공유)
+ * - 다음 칸이 아직 사용 중이면 reclaimer(구독자의 오래된 프레임 버리기)로 되찾아 보고,
+ *   그래도 안 되면 그 칸 길이만큼의 샘플은 버리고 번호만 진행 (overrun, 인코더가 시각을 보고 무음을 채움)
+ * 쓰기와 poll()은 오디오 캡처 쓰레드 하나만, 칸 반납은 인코더 쓰레드들에서.
+ * @author ESH
+ */
+public class PcmRingBuffer {
+
+	private final int sampleRate;
+	private final int channels;
+	private final int chunkSamples;			// 칸 하나의 채널당 샘플 수
+	private final Chunk[] chunks;			// 링 순서대로 미리 만든 칸
+	private final BooleanSupplier reclaimer;	// 칸이 모자랄 때 구독자 프레임을 버려 칸을 되찾음 (null = 사용 안 함)
+	private final ArrayDeque<Chunk> completed;	// 채워졌지만 아직 꺼내지 않은 칸
+
+	// 오디오 캡처 쓰레드만 사용
+	private int next = 0;				// 다음에 채울 칸 번호
+	private Chunk current;				// 채우는 중인 칸 (null이면 overrun 중: 샘플을 버림)
+	private int filled = 0;				// 현재 칸에 채운 채널당 샘플 수
+	private long chunkStart = 0;		// 현재 칸의 시작 샘플 번호
+	private long writtenSamples = 0;	// 지금까지 받은 채널당 샘플 수
+
+	private volatile long publishedChunks = 0;	// 내보낸 칸 수
+	private volatile long overrunChunks = 0;	// 칸이 모두 사용 중이라 버린 칸 수
+
+	/**
+	 * 칸 하나 (링 버퍼의 chunkSamples 구간과 그 구간을 가리키는 Frame)
+	 */
+	public static final class Chunk {
+		private final Frame frame;
+		private final AtomicBoolean inUse = new AtomicBoolean();	// 내보낸 뒤 마지막 참조가 해제될 때까지 true
+		private final Consumer<Frame> recycler = frame -> inUse.set(false);	// 미리 만들어 둠 (내보낼 때마다 람다 생성 방지)
+		private long sampleIndex;	// 이 칸의 시작 샘플 번호
+
+		private Chunk(ShortBuffer data, int sampleRate, int channels) {
+			this.frame = new Frame();
+			frame.sampleRate = sampleRate;
+			frame.audioChannels = channels;
+			frame.samples = new Buffer[] { data };
+		}
+
+
+		// ----Getter-----
+		/**
+		 * @return 칸의 데이터 (S16 interleaved, 복사본이 아니므로 release 후에는 쓰지 말 것)
+		 */
+		public Frame getFrame() {
+			return frame;
+		}
+		/**
+		 * @return 시작 샘플 번호 (캡처 시작 이후 채널당 샘플 수)
+		 */
+		public long getSampleIndex() {
+			return sampleIndex;
+		}
+		/**
+		 * @return TimestampedFrame에 넘길 반납 함수
+		 */
+		public Consumer<Frame> getRecycler() {
+			return recycler;
+		}
+	}
+
+	/**
+	 * 생성자
+	 * @param sampleRate	샘플링 속도
+	 * @param channels		채널 수
+	 * @param chunkMs		칸 길이 (코덱 프레임 길이, ms)
+	 * @param bufferMs		전체 길이 (ms, 칸 길이의 배수로 올림, 최소 2칸)
+	 * @param reclaimer		칸이 모두 사용 중일 때 호출 (구독자의 가장 오래된 프레임을 버리고 true, 없으면 false)
+	 */
+	public PcmRingBuffer(int sampleRate, int channels, int chunkMs, int bufferMs, BooleanSupplier reclaimer) {
+		if (sampleRate <= 0 || channels <= 0 || chunkMs <= 0) {
+			throw new IllegalArgumentException("invalid audio format: " + sampleRate + "Hz " + channels + "ch " + chunkMs + "ms");
+		}
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.chunkSamples = sampleRate * chunkMs / 1000;
+		this.reclaimer = reclaimer;
+
+		int count = Math.max(2, (bufferMs + chunkMs - 1) / chunkMs);
+		int chunkLength = chunkSamples * channels;
+		ShortBuffer ring = ByteBuffer.allocateDirect(count * chunkLength * Short.BYTES)
+				.order(ByteOrder.nativeOrder()).asShortBuffer();	// 네이티브 코드(swresample)가 바로 읽음
+		this.chunks = new Chunk[count];
+		for (int i = 0; i < count; i++) {
+			ring.limit((i + 1) * chunkLength).position(i * chunkLength);
+			chunks[i] = new Chunk(ring.slice(), sampleRate, channels);
+		}
+		this.completed = new ArrayDeque<>(count);
+	}
+
+
+	/**
+	 * 잡은 오디오를 링 버퍼에 복사 (꽉 찬 칸은 poll()로 꺼냄)
+	 * S16 interleaved는 한 번에 복사, 그 밖의 형식(planar, FLT)은 샘플마다 S16 interleaved로 바꿔 복사.
+	 * @param source 잡은 오디오 (같은 샘플링 속도, 그래버가 맞춰 줌)
+	 * @return 이번에 받은 채널당 샘플 수
+	 */
+	public int write(Frame source) {
+		if (source == null || source.samples == null || source.samples.length == 0) {
+			return 0;
+		}
+		Buffer first = source.samples[0];
+		boolean planar = source.samples.length > 1;
+		int sourceChannels = planar ? source.samples.length
+				: Math.max(1, source.audioChannels > 0 ? source.audioChannels : channels);
+		int total = (first.limit() - first.position()) / (planar ? 1 : sourceChannels);
+
+		int offset = 0;
+		while (offset < total) {
+			if (filled == 0) {
+				current = acquire();
+			}
+			int count = Math.min(chunkSamples - filled, total - offset);
+			if (current != null) {
+				copy(source, planar, sourceChannels, offset, count);
+			}
+			filled += count;
+			offset += count;
+			if (filled == chunkSamples) {
+				if (current != null) {
+					current.sampleIndex = chunkStart;
+					completed.add(current);
+					publishedChunks++;
+				} else {
+					overrunChunks++;
+				}
+				chunkStart += chunkSamples;
+				filled = 0;
+				current = null;
+			}
+		}
+		writtenSamples += total;
+		return total;
+	}
+
+	/**
+	 * 꽉 찬 칸 하나 꺼냄 (샘플 순서대로)
+	 * 꺼낸 칸은 getRecycler()를 넘긴 TimestampedFrame이 마지막으로 release될 때 다시 쓸 수 있게 됨.
+	 * @return 칸, 없으면 null
+	 */
+	public Chunk poll() {
+		return completed.poll();
+	}
+
+	/**
+	 * 다음 칸을 사용 중으로 표시 (모두 사용 중이면 구독자 프레임을 버려 되찾아 봄)
+	 * @return 칸, 되찾지 못했으면 null (overrun)
+	 */
+	private Chunk acquire() {
+		Chunk chunk = chunks[next];
+		while (!chunk.inUse.compareAndSet(false, true)) {
+			if (reclaimer == null || !reclaimer.getAsBoolean()) {
+				return null;	// 다음 칸을 다시 시도 (링 순서 유지)
+			}
+		}
+		next = (next + 1) % chunks.length;
+		return chunk;
+	}
+
+	/**
+	 * source의 [offset, offset + count) 샘플을 현재 칸의 filled 위치로 복사
+	 */
+	private void copy(Frame source, boolean planar, int sourceChannels, int offset, int count) {
+		ShortBuffer target = (ShortBuffer) current.frame.samples[0];
+		int targetIndex = filled * channels;
+		Buffer first = source.samples[0];
+		if (!planar && sourceChannels == channels && first instanceof ShortBuffer) {
+			target.put(targetIndex, (ShortBuffer) first, first.position() + offset * channels, count * channels);
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			for (int c = 0; c < channels; c++) {
+				int sourceChannel = Math.min(c, sourceChannels - 1);	// 모노를 스테레오로 넣을 때 같은 샘플
+				Buffer buffer = planar ? source.samples[sourceChannel] : first;
+				int index = buffer.position() + (planar ? offset + i : (offset + i) * sourceChannels + sourceChannel);
+				target.put(targetIndex++, sampleAt(buffer, index));
+			}
+		}
+	}
+
+	/**
+	 * 샘플 하나를 S16으로 (S16, FLT 외의 형식은 무음)
+	 */
+	private static short sampleAt(Buffer buffer, int index) {
+		if (buffer instanceof ShortBuffer) {
+			return ((ShortBuffer) buffer).get(index);
+		}
+		if (buffer instanceof FloatBuffer) {
+			float v = ((FloatBuffer) buffer).get(index);
+			return (short) Math.round(Math.max(-1f, Math.min(1f, v)) * Short.MAX_VALUE);
+		}
+		return 0;
+	}
+
+
+	// ----Getter-----
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	public int getChannels() {
+		return channels;
+	}
+	/**
+	 * @return 칸 하나의 채널당 샘플 수
+	 */
+	public int getChunkSamples() {
+		return chunkSamples;
+	}
+	/**
+	 * @return 칸 수 (전체 길이 = 칸 수 x 칸 길이)
+	 */
+	public int getChunkCount() {
+		return chunks.length;
+	}
+	/**
+	 * @return 지금까지 받은 채널당 샘플 수 (버린 샘플 포함)
+	 */
+	public long getWrittenSamples() {
+		return writtenSamples;
+	}
+	public long getPublishedChunks() {
+		return publishedChunks;
+	}
+	/**
+	 * @return 칸이 모두 사용 중이라 샘플을 버린 칸 수
+	 */
+	public long getOverrunChunks() {
+		return overrunChunks;
+	}
+}
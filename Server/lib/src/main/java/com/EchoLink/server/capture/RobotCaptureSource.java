@@ -0,0 +1,64 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * AWT Robot 캡처 백엔드 (기존 ScreenCapture 방식)
+ *
+ * 모든 OS에서 동작하지만, Robot이 캡처마다 새 이미지를 만들기 때문에 풀 버퍼로 한 번 더 복사.
+ * Robot 캡처에는 마우스 커서가 포함되지 않음 (클라이언트가 CursorChannel 위치로 직접 그려야 함)
+ * @author ESH
+ */
+public class RobotCaptureSource implements CaptureSource {
+
+	public static final String NAME = "robot";
+
+	private final Rectangle captureArea;	// 캡처할 화면 영역
+	private Robot robot;
+
+	/**
+	 * 생성자
+	 * @param captureSize 캡처할 화면 크기
+	 */
+	public RobotCaptureSource(Dimension captureSize) {
+		this.captureArea = new Rectangle(captureSize);
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void start() throws Exception {
+		robot = new Robot();	// GUI 환경이 아니면 AWTException/HeadlessException
+	}
+
+	@Override
+	public Dimension getSize() {
+		return captureArea.getSize();
+	}
+
+	@Override
+	public void captureInto(BufferedImage target) {
+		BufferedImage screenshot = robot.createScreenCapture(captureArea);
+		if (!FrameBufferPool.copyInto(screenshot, target)) {
+			// TYPE_INT_RGB가 아닌 이미지는 그려서 변환
+			Graphics2D g = target.createGraphics();
+			try {
+				g.drawImage(screenshot, 0, 0, null);
+			} finally {
+				g.dispose();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		robot = null;
+	}
+}
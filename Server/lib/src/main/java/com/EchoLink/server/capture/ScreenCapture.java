@@ -2,49 +2,82 @@ package com.EchoLink.server.capture;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.concurrent.BlockingQueue;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import com.EchoLink.server.metrics.AllocationMeter;
+import com.EchoLink.server.metrics.StageLatency;
+import com.EchoLink.server.stream.FrameFanOut;
 import com.EchoLink.server.stream.TimestampedFrame;
 
 /**
  * 화면 캡처
  * 이후 인코더(EncoderWorker.java)에게 넘겨줌
+ * 
+ * 실제 캡처는 CaptureSource 구현체(Robot, x11grab 등)가 담당하고,
+ * 이 클래스는 FPS 제어, 변경 감지, 유휴 모드, 버퍼 풀, 큐 전달을 담당.
+ * 요청 해상도가 화면보다 작으면 캡처 직후 FrameScaler로 줄여서 큐에는 작은 프레임만 넣음.
  * @author ESH
  */
 public class ScreenCapture implements Runnable {
 
-	private final BlockingQueue<TimestampedFrame<BufferedImage>> frameQueue;	// 프레임 공유용 큐 + 쓰레드 블로킹 => Endcoder에게 넘김
-	private final Rectangle captureArea;					// 캡처할 화면 영역
+	private final FrameFanOut<BufferedImage> frameQueue;	// 구독 세션들의 링 버퍼로 프레임 전달 (복사 없음) => Endcoder에게 넘김
+	private final CaptureSource source;						// 캡처 백엔드
 	private volatile boolean running = true;				// 쓰레드 실행 상태
 
-	private final long frameIntervalMillis;					// 촬영 간격
+	private final TileChangeDetector changeDetector = new TileChangeDetector();	// 64x64 타일 단위 변경 감지
+	private final IdleFrameGate idleGate;					// 유휴 모드 판단 (촬영 간격, 전송 여부 결정)
+	private final int poolSize;								// 캡처 버퍼 풀 크기
+	private volatile FrameBufferPool bufferPool;			// 캡처 버퍼 풀 (인코더가 변환 후 반납, 캡처 크기 확정 후 생성)
+	private Consumer<BufferedImage> recycler;				// TimestampedFrame.release() 시 풀로 반납
+	private final AllocationMeter allocationMeter = new AllocationMeter("ScreenCapture", 300);	// 프레임당 할당량
+	private final StageLatency latency =
+			new StageLatency("ScreenCapture", 300, StageLatency.Stage.CAPTURE);	// 캡처 단계 지연 시간
+	private long sequence = 0;								// 큐에 넣는 프레임 순번
+
+	private volatile Dimension targetSize;					// 출력 해상도 (null이면 캡처 크기 그대로, 실행 중 변경 가능)
+	private Dimension appliedTargetSize;					// 현재 적용된 출력 해상도 요청값
+	private Dimension captureSize;							// 캡처 백엔드의 실제 크기
+	private final FrameScaler.Mode scaleMode;				// 축소 방식
+	private FrameScaler scaler;								// 캡처 크기 != 출력 해상도일 때만 사용
+	private BufferedImage rawFrame;							// 축소 전 원본 캡처 버퍼 (1개 재사용)
+	private BufferedImage scaledFrame;						// 축소 결과 (변경 영역만 갱신되는 누적 버퍼)
 
 	/**
 	 * 생성자
-	 * @param frameQueue 프레임 공유용 큐
-	 * @param frameRate 프레임
+	 * @param frameQueue 프레임 팬아웃 (구독 세션의 링 버퍼들)
+	 * @param source 캡처 백엔드 (CaptureSourceFactory로 생성)
+	 * @param idleGate 유휴 모드 판단기 (FPS 포함)
+	 * @param poolSize 캡처 버퍼 풀 크기
+	 * @param targetSize 출력 해상도 (클라이언트 요청 해상도, null이면 캡처 크기 그대로)
+	 * @param scaleMode 축소 방식
 	 */
-	public ScreenCapture(BlockingQueue<TimestampedFrame<BufferedImage>> frameQueue, int fps, Dimension captureSize) {
+	public ScreenCapture(FrameFanOut<BufferedImage> frameQueue, CaptureSource source,
+			IdleFrameGate idleGate, int poolSize, Dimension targetSize, FrameScaler.Mode scaleMode) {
 		this.frameQueue = frameQueue;
-		this.frameIntervalMillis = 1000/fps;
-
-		this.captureArea = new Rectangle(captureSize);	// 모니터 사이즈(해상도)만큼 사진 캡처
+		this.source = source;
+		this.idleGate = idleGate;
+		this.poolSize = poolSize;
+		this.targetSize = targetSize;
+		this.scaleMode = scaleMode;
 	}
 
 	@Override
 	public void run() {
-		Robot robot;
 		try {
-			robot = new Robot();
-
+			source.start();
 		} 
-		catch (AWTException e) {
-			System.err.println("Robot 객체 생성에 실패했습니다. GUI 환경이 아닐 수 있습니다.");
+		catch (Exception e) {
+			System.err.println("캡처 백엔드(" + source.getName() + ") 시작에 실패했습니다. GUI 환경이 아닐 수 있습니다.");
 			e.printStackTrace();
+			source.close();
 			return; // run 메소드 종료
 		}
 
+		this.captureSize = source.getSize();	// 모니터 사이즈(해상도)만큼 캡처
+		configureOutput(targetSize);
+
 		/*
 		 * 화면 캡처
 		 */
@@ -52,12 +85,17 @@ public class ScreenCapture implements Runnable {
 
 		while (running) {
 			try {
-				BufferedImage screenshot = robot.createScreenCapture(captureArea);
-				// 캡처한 이미지와 현재 시간을 TimestampedFrame으로 감싸서 큐에 추가
-				frameQueue.put(new TimestampedFrame<>(screenshot, System.nanoTime()));
+				Dimension requested = targetSize;
+				if (requested != appliedTargetSize) {
+					configureOutput(requested);	// 출력 해상도 변경은 프레임 사이에서만 적용
+				}
+
+				allocationMeter.frameStart();
+				captureFrame();
+				allocationMeter.frameEnd();
 
-				// 다음 프레임 시간까지 정확히 대기
-				nextFrameTime += frameIntervalMillis * 1_000_000; // ms를 ns로 변환하여 더함
+				// 다음 프레임 시간까지 정확히 대기 (유휴 모드에서는 간격이 늘어남)
+				nextFrameTime += idleGate.nextIntervalNanos();
 				long sleepTimeNs = nextFrameTime - System.nanoTime();
 
 				if (sleepTimeNs > 0) {
@@ -76,8 +114,129 @@ public class ScreenCapture implements Runnable {
 			}
 		}
 
+		source.close();
+	}
+
+
+	/**
+	 * 출력 해상도에 맞게 축소기와 버퍼 풀 준비.
+	 * 기존 풀의 버퍼는 각 프레임의 recycler를 통해 기존 풀로 반납되고 버려짐.
+	 * @param requested 요청 해상도 (null이면 캡처 크기 그대로)
+	 */
+	private void configureOutput(Dimension requested) {
+		this.appliedTargetSize = requested;
+		Dimension outputSize = captureSize;
+		this.scaler = null;
+		this.rawFrame = null;
+		this.scaledFrame = null;
+		if (requested != null && !requested.equals(captureSize)) {
+			outputSize = requested;
+			this.scaler = new FrameScaler(captureSize.width, captureSize.height,
+					outputSize.width, outputSize.height, scaleMode);
+			this.rawFrame = new BufferedImage(captureSize.width, captureSize.height, BufferedImage.TYPE_INT_RGB);
+			this.scaledFrame = new BufferedImage(outputSize.width, outputSize.height, BufferedImage.TYPE_INT_RGB);
+			System.out.println("[Capture] 캡처 단계 축소: " + captureSize.width + "x" + captureSize.height
+					+ " -> " + outputSize.width + "x" + outputSize.height + " (" + scaleMode + ")");
+		}
+		this.bufferPool = new FrameBufferPool(outputSize.width, outputSize.height, poolSize);
+		this.recycler = bufferPool::release;
+		changeDetector.reset();	// 새 출력 버퍼는 전체를 다시 계산
+	}
+
+	/**
+	 * 풀 버퍼 하나에 화면을 캡처하여 큐에 추가.
+	 * 버퍼가 모두 사용 중이면 큐의 가장 오래된 프레임을 버리고 그 버퍼를 재사용.
+	 * 그래도 버퍼가 없으면(인코더가 모든 버퍼 사용 중) 이번 캡처를 건너뜀.
+	 * 버려진 프레임은 순번이 끊기므로 인코더가 다음 프레임을 전체 복사함.
+	 */
+	private void captureFrame() throws Exception {
+		BufferedImage buffer = bufferPool.acquire();
+		// 버린 프레임의 버퍼는 dropHandler(release)로 풀에 반납됨 (다른 세션도 다 놓아야 반납)
+		while (buffer == null && frameQueue.dropOldest()) {
+			buffer = bufferPool.acquire();
+		}
+		if (buffer == null) {
+			return;
+		}
+
+		boolean queued = false;
+		try {
+			long captureStart = System.nanoTime();
+			long timestamp;
+			List<Rectangle> dirtyRegions;	// 이전 프레임 대비 변경 영역 (출력 해상도 기준)
+			if (scaler == null) {
+				source.captureInto(buffer);
+				timestamp = System.nanoTime();
+				dirtyRegions = changeDetector.detect(buffer);
+			}
+			else {
+				// 원본에서 변경을 감지하고 변경 영역만 축소 -> 누적 버퍼를 풀 버퍼로 복사
+				source.captureInto(rawFrame);
+				timestamp = System.nanoTime();
+				dirtyRegions = scaler.scale(rawFrame, scaledFrame, changeDetector.detect(rawFrame));
+				FrameBufferPool.copyInto(scaledFrame, buffer);
+			}
+
+			latency.record(StageLatency.Stage.CAPTURE, System.nanoTime() - captureStart);
+			latency.frameEnd();
+
+			// 유휴 모드에서는 keep-alive 간격의 반복 프레임만 인코더로 보냄
+			if (idleGate.accept(!dirtyRegions.isEmpty(), timestamp)) {
+				// 캡처한 이미지, 현재 시간, 변경 영역을 TimestampedFrame으로 감싸서 큐에 추가
+				frameQueue.publish(new TimestampedFrame<>(buffer, captureStart, timestamp, dirtyRegions, sequence++, recycler));
+				queued = true;
+			}
+			else if (!dirtyRegions.isEmpty()) {
+				sequence++;	// 변경된 프레임을 버렸으므로 순번을 끊어 다음 프레임을 전체 복사하게 함
+			}
+		}
+		finally {
+			if (!queued) {
+				bufferPool.release(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Getter
+	 * @return 캡처 버퍼 풀 (캡처 시작 전에는 null)
+	 */
+	public FrameBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Getter
+	 * @return 캡처 쓰레드의 프레임당 할당량 측정기
+	 */
+	public AllocationMeter getAllocationMeter() {
+		return allocationMeter;
+	}
+
+	/**
+	 * Getter
+	 * @return 캡처 단계 지연 시간 측정기
+	 */
+	public StageLatency getLatency() {
+		return latency;
+	}
+
+
+	/**
+	 * 출력 해상도 변경 (다음 프레임부터 적용)
+	 * @param size 새 출력 해상도, null이면 캡처 크기 그대로
+	 */
+	public void setTargetSize(Dimension size) {
+		this.targetSize = size;
 	}
 
+	/**
+	 * Getter
+	 * @return 유휴 모드 판단기 (FPS 변경용)
+	 */
+	public IdleFrameGate getIdleGate() {
+		return idleGate;
+	}
 
 	/**
 	 * 외부에서 캡처 쓰레드 중지
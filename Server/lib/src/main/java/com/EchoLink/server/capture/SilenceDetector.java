@@ -0,0 +1,116 @@
+package com.EchoLink.server.capture;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 오디오 무음 감지 (캡처 쪽에서 프레임마다 한 번, 모든 인코더가 결과를 공유)
+ *
+ * 에너지(RMS)와 영교차율(zero-crossing rate)만 보는 가벼운 판정:
+ * - RMS가 thresholdDb 미만이면 무음
+ * - RMS가 thresholdDb + NOISE_MARGIN_DB 미만이고 영교차율이 NOISE_ZCR 이상이면 무음 (잡음: 장치 히스 등)
+ *   (같은 크기라도 영교차율이 낮은 소리는 음악의 여음 같은 실제 소리로 보고 남김)
+ * 앞 프레임을 보지 않고 프레임 하나로 판정하므로 소리가 시작되면 그 프레임부터 바로 소리로 판정됨.
+ * 무음 프레임은 인코더가 인코딩하지 않음 (AudioEncoder DTX), 끝부분이 잘리지 않게 하는 여유 프레임도 인코더가 담당.
+ * 오디오 캡처 쓰레드 하나가 호출하고, 카운터는 다른 쓰레드에서 읽음.
+ * @author ESH
+ */
+public class SilenceDetector {
+
+	private static final double NOISE_MARGIN_DB = 10;	// 잡음으로 볼 수 있는 최대 크기 (thresholdDb 위로)
+	private static final double NOISE_ZCR = 0.25;		// 이 이상이면 잡음 같은 신호 (샘플 4개 중 1번 이상 부호가 바뀜)
+
+	private final double silenceRms;	// 무음 RMS (0~1)
+	private final double noiseRms;		// 잡음 RMS 상한 (0~1)
+
+	private volatile long analyzedFrames = 0;	// 판정한 프레임 수
+	private volatile long silentFrames = 0;		// 무음으로 판정한 프레임 수
+
+	/**
+	 * 생성자
+	 * @param thresholdDb 무음 기준 (dBFS, 예: -60)
+	 */
+	public SilenceDetector(double thresholdDb) {
+		this.silenceRms = Math.pow(10, thresholdDb / 20);
+		this.noiseRms = Math.pow(10, (thresholdDb + NOISE_MARGIN_DB) / 20);
+	}
+
+	/**
+	 * 프레임 하나 판정
+	 * @param frame 오디오 프레임 (S16/FLT, interleaved 또는 planar)
+	 * @return 무음이면 true (모르는 포맷은 소리로 취급)
+	 */
+	public boolean isSilent(Frame frame) {
+		analyzedFrames++;
+		if (frame == null || frame.samples == null || frame.samples.length == 0) {
+			return false;
+		}
+		double sumSquares = 0;
+		long count = 0;
+		for (Buffer buffer : frame.samples) {
+			if (buffer instanceof ShortBuffer) {
+				ShortBuffer s = (ShortBuffer) buffer;
+				for (int i = s.position(); i < s.limit(); i++) {
+					double v = s.get(i) / 32768.0;
+					sumSquares += v * v;
+				}
+			}
+			else if (buffer instanceof FloatBuffer) {
+				FloatBuffer f = (FloatBuffer) buffer;
+				for (int i = f.position(); i < f.limit(); i++) {
+					double v = f.get(i);
+					sumSquares += v * v;
+				}
+			}
+			else {
+				return false;
+			}
+			count += buffer.limit() - buffer.position();
+		}
+		if (count == 0) {
+			return false;
+		}
+		double rms = Math.sqrt(sumSquares / count);
+		boolean silent = rms < silenceRms
+				|| (rms < noiseRms && zeroCrossingRate(frame) >= NOISE_ZCR);
+		if (silent) {
+			silentFrames++;
+		}
+		return silent;
+	}
+
+	/**
+	 * 첫 채널의 영교차율 (interleaved면 채널 수만큼 건너뛰며 비교)
+	 */
+	private static double zeroCrossingRate(Frame frame) {
+		Buffer buffer = frame.samples[0];
+		int step = frame.samples.length > 1 ? 1 : Math.max(1, frame.audioChannels);
+		int crossings = 0;
+		int pairs = 0;
+		boolean shorts = buffer instanceof ShortBuffer;
+		double previous = 0;
+		for (int i = buffer.position(); i < buffer.limit(); i += step) {
+			double v = shorts ? ((ShortBuffer) buffer).get(i) : ((FloatBuffer) buffer).get(i);
+			if (i > buffer.position()) {
+				pairs++;
+				if ((v >= 0) != (previous >= 0)) {
+					crossings++;
+				}
+			}
+			previous = v;
+		}
+		return pairs > 0 ? (double) crossings / pairs : 0;
+	}
+
+
+	// ----Getter-----
+	public long getAnalyzedFrames() {
+		return analyzedFrames;
+	}
+	public long getSilentFrames() {
+		return silentFrames;
+	}
+}
@@ -0,0 +1,231 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 합성 테스트 패턴 캡처 백엔드 (화면 없이 벤치마크용)
+ *
+ * 실제 디스플레이 없이 같은 ScreenCapture -> 큐 -> Encoder 경로를 돌리기 위한 결정적(deterministic) 화면.
+ * 프레임 번호만으로 내용이 정해지므로 같은 설정이면 어느 머신에서나 같은 프레임이 나옴.
+ * (글꼴 차이를 없애기 위해 글자는 사각형 글리프로 그림)
+ *
+ * 설정값: "synthetic[:패턴[:가로x세로]]" (예: "synthetic:noise:1280x720")
+ * - scrolling_text	: 문서를 위로 스크롤 (프레임마다 전체가 바뀌지만 움직임 예측이 쉬운 화면)
+ * - noise			: 프레임마다 전체 랜덤 (최악의 경우)
+ * - static			: 변하지 않는 데스크톱 (유휴 모드 확인)
+ * - sparse			: 데스크톱에 작은 영역 하나만 변경 (시계, 커서 깜빡임 등)
+ * @author ESH
+ */
+public class SyntheticCaptureSource implements CaptureSource {
+
+	public static final String NAME = "synthetic";
+	public static final Dimension DEFAULT_SIZE = new Dimension(1920, 1080);
+
+	/**
+	 * 테스트 패턴 종류
+	 */
+	public enum Pattern {
+		SCROLLING_TEXT, NOISE, STATIC, SPARSE
+	}
+
+	private static final int LINE_HEIGHT = 20;		// 텍스트 줄 높이(px)
+	private static final int SCROLL_PX = 4;			// 프레임당 스크롤 양(px)
+	private static final int SPARSE_BLOCK = 48;		// sparse 패턴의 변경 영역 크기(px)
+
+	private final Pattern pattern;
+	private final Dimension size;
+	private final long seed;
+
+	private int[] desktop;		// static/sparse 배경
+	private int[] document;		// scrolling_text 원본 (화면 높이 x2, 세로로 반복)
+	private long frameIndex;	// 지금까지 만든 프레임 수
+	private long noiseState;	// noise 패턴 난수 상태
+
+	/**
+	 * 생성자
+	 * @param pattern	테스트 패턴
+	 * @param size		출력 크기
+	 * @param seed		난수 시드 (같은 시드면 같은 프레임 순서)
+	 */
+	public SyntheticCaptureSource(Pattern pattern, Dimension size, long seed) {
+		this.pattern = pattern;
+		this.size = new Dimension(size);
+		this.seed = seed;
+	}
+
+	/**
+	 * 설정 문자열로 생성
+	 * @param spec			"synthetic[:패턴[:가로x세로]]"
+	 * @param defaultSize	크기가 지정되지 않았을 때의 크기 (null이면 1920x1080)
+	 * @return SyntheticCaptureSource
+	 */
+	public static SyntheticCaptureSource fromSpec(String spec, Dimension defaultSize) {
+		String[] parts = spec.split(":");
+		Pattern pattern = parts.length > 1 ? Pattern.valueOf(parts[1].trim().toUpperCase()) : Pattern.SCROLLING_TEXT;
+		Dimension size = defaultSize != null ? defaultSize : DEFAULT_SIZE;
+		if (parts.length > 2) {
+			String[] wh = parts[2].toLowerCase().split("x");
+			size = new Dimension(Integer.parseInt(wh[0].trim()), Integer.parseInt(wh[1].trim()));
+		}
+		return new SyntheticCaptureSource(pattern, size, 42);
+	}
+
+	@Override
+	public String getName() {
+		return NAME + ":" + pattern.name().toLowerCase();
+	}
+
+	@Override
+	public void start() {
+		frameIndex = 0;
+		noiseState = seed * 0x9E3779B97F4A7C15L + 1;
+		switch (pattern) {
+			case SCROLLING_TEXT:
+				document = renderDocument(size.width, size.height * 2, seed);
+				break;
+			case STATIC:
+			case SPARSE:
+				desktop = renderDesktop(size.width, size.height, seed);
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public Dimension getSize() {
+		return size;
+	}
+
+	@Override
+	public void captureInto(BufferedImage target) {
+		int[] dst = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+		int w = size.width;
+		int h = size.height;
+
+		switch (pattern) {
+			case SCROLLING_TEXT: {
+				// 문서(높이 2h)의 offset부터 h줄을 복사, 끝에 닿으면 처음으로
+				int docHeight = h * 2;
+				int offset = (int) ((frameIndex * SCROLL_PX) % docHeight);
+				int firstRows = Math.min(h, docHeight - offset);
+				System.arraycopy(document, offset * w, dst, 0, firstRows * w);
+				if (firstRows < h) {
+					System.arraycopy(document, 0, dst, firstRows * w, (h - firstRows) * w);
+				}
+				break;
+			}
+			case NOISE: {
+				long s = noiseState;
+				for (int i = 0; i < w * h; i++) {
+					// xorshift64
+					s ^= s << 13;
+					s ^= s >>> 7;
+					s ^= s << 17;
+					dst[i] = (int) s & 0xFFFFFF;
+				}
+				noiseState = s;
+				break;
+			}
+			case STATIC:
+				System.arraycopy(desktop, 0, dst, 0, w * h);
+				break;
+			case SPARSE: {
+				System.arraycopy(desktop, 0, dst, 0, w * h);
+				// 화면 위를 천천히 도는 작은 블록 하나 (색은 프레임마다 바뀜)
+				int cols = Math.max(1, w / SPARSE_BLOCK);
+				int rows = Math.max(1, h / SPARSE_BLOCK);
+				int cell = (int) ((frameIndex / 15) % (cols * rows));
+				int bx = (cell % cols) * SPARSE_BLOCK;
+				int by = (cell / cols) * SPARSE_BLOCK;
+				int color = (int) (frameIndex * 0x1F3D5B) & 0xFFFFFF;
+				for (int y = by; y < Math.min(h, by + SPARSE_BLOCK); y++) {
+					int row = y * w;
+					for (int x = bx; x < Math.min(w, bx + SPARSE_BLOCK); x++) {
+						dst[row + x] = color;
+					}
+				}
+				break;
+			}
+		}
+		frameIndex++;
+	}
+
+	@Override
+	public void close() {
+		desktop = null;
+		document = null;
+	}
+
+
+	/**
+	 * 데스크톱 비슷한 배경: 그라데이션 + 창 몇 개 + 작업 표시줄
+	 */
+	private static int[] renderDesktop(int w, int h, long seed) {
+		int[] px = new int[w * h];
+		for (int y = 0; y < h; y++) {
+			int c = 0x20 + (0x40 * y / Math.max(1, h));
+			int color = (c / 2) << 16 | (c / 2 + 0x10) << 8 | c + 0x30;
+			Arrays.fill(px, y * w, y * w + w, color);
+		}
+
+		Random random = new Random(seed);
+		for (int i = 0; i < 4; i++) {
+			int ww = w / 3 + random.nextInt(Math.max(1, w / 4));
+			int wh = h / 3 + random.nextInt(Math.max(1, h / 4));
+			int wx = random.nextInt(Math.max(1, w - ww));
+			int wy = random.nextInt(Math.max(1, h - wh - 40));
+			fillRect(px, w, wx, wy, ww, wh, 0xF0F0F0);			// 창 본문
+			fillRect(px, w, wx, wy, ww, 28, 0x3C78D8);			// 제목 표시줄
+			drawText(px, w, wx + 8, wy + 36, ww - 16, wh - 44, random);
+		}
+		fillRect(px, w, 0, h - 40, w, 40, 0x202020);			// 작업 표시줄
+		return px;
+	}
+
+	/**
+	 * 흰 바탕의 긴 문서 (스크롤용)
+	 */
+	private static int[] renderDocument(int w, int h, long seed) {
+		int[] px = new int[w * h];
+		Arrays.fill(px, 0xFFFFFF);
+		drawText(px, w, 16, 8, w - 32, h - 16, new Random(seed));
+		return px;
+	}
+
+	/**
+	 * 사각형 글리프로 텍스트 줄 그리기 (단어 길이, 줄 길이는 난수)
+	 */
+	private static void drawText(int[] px, int stride, int x0, int y0, int maxW, int maxH, Random random) {
+		for (int line = 0; (line + 1) * LINE_HEIGHT <= maxH; line++) {
+			int y = y0 + line * LINE_HEIGHT;
+			int lineWidth = maxW / 2 + random.nextInt(Math.max(1, maxW / 2));
+			int x = x0;
+			while (x < x0 + lineWidth) {
+				int word = 2 + random.nextInt(8);
+				for (int c = 0; c < word && x + 7 <= x0 + maxW; c++) {
+					int glyphH = 8 + random.nextInt(5);
+					fillRect(px, stride, x, y + (12 - glyphH) + 3, 6, glyphH, 0x202020);
+					x += 8;
+				}
+				x += 8;	// 공백
+			}
+		}
+	}
+
+	private static void fillRect(int[] px, int stride, int x, int y, int w, int h, int color) {
+		int height = px.length / stride;
+		int from = Math.max(0, x);
+		int to = Math.min(stride, x + w);
+		if (from >= to) {
+			return;
+		}
+		for (int yy = Math.max(0, y); yy < Math.min(height, y + h); yy++) {
+			Arrays.fill(px, yy * stride + from, yy * stride + to, color);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 타일 단위 화면 변경 감지기
+ *
+ * 화면을 64x64 타일로 나누어 타일별 해시를 계산하고,
+ * 이전 프레임의 해시와 비교하여 변경된 영역(Dirty Region) 목록을 만든다.
+ * 커서 깜빡임처럼 일부만 바뀐 프레임에서 인코더가 바뀐 영역만 처리할 수 있게 함.
+ * @author ESH
+ */
+public class TileChangeDetector {
+
+	public static final int DEFAULT_TILE_SIZE = 64;	// 타일 한 변의 길이(px)
+
+	private final int tileSize;
+	private int width;				// 마지막으로 비교한 프레임의 가로
+	private int height;				// 마지막으로 비교한 프레임의 세로
+	private int tileCols;			// 가로 타일 수
+	private int tileRows;			// 세로 타일 수
+	private long[] tileHashes;		// 이전 프레임의 타일별 해시
+	private boolean forceFull = true;	// 다음 프레임 전체를 변경으로 처리할지 여부
+
+	/**
+	 * 생성자 (기본 타일 크기 64px)
+	 */
+	public TileChangeDetector() {
+		this(DEFAULT_TILE_SIZE);
+	}
+
+	/**
+	 * 생성자
+	 * @param tileSize 타일 한 변의 길이(px)
+	 */
+	public TileChangeDetector(int tileSize) {
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+		}
+		this.tileSize = tileSize;
+	}
+
+
+	/**
+	 * 이전 프레임과 비교하여 변경된 영역 목록을 반환.
+	 *
+	 * 같은 행에서 연속으로 변경된 타일은 하나의 사각형으로 합친다.
+	 * 첫 프레임, 해상도 변경, reset() 이후에는 전체 화면을 반환.
+	 * @param image 캡처된 화면(TYPE_INT_RGB 계열)
+	 * @return 변경된 영역 목록. 변경이 없으면 빈 리스트
+	 */
+	public List<Rectangle> detect(BufferedImage image) {
+		Raster raster = image.getRaster();
+		if (!(raster.getDataBuffer() instanceof DataBufferInt)
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+			// int 픽셀 배열이 아닌 이미지는 해시를 계산하지 않고 전체를 변경으로 처리
+			forceFull = true;
+			return fullFrame(image.getWidth(), image.getHeight());
+		}
+
+		int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+		int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		int offset = raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+		return detect(pixels, offset, stride, image.getWidth(), image.getHeight());
+	}
+
+
+	/**
+	 * int 픽셀 배열을 직접 받아 변경 영역을 계산.
+	 * @param pixels	0x00RRGGBB 픽셀 배열
+	 * @param offset	(0,0) 픽셀의 배열 인덱스
+	 * @param stride	한 행의 픽셀 수(scanline stride)
+	 * @param w			가로
+	 * @param h			세로
+	 * @return 변경된 영역 목록
+	 */
+	public List<Rectangle> detect(int[] pixels, int offset, int stride, int w, int h) {
+		if (w != width || h != height || tileHashes == null) {
+			resize(w, h);
+		}
+
+		boolean full = forceFull;
+		forceFull = false;
+
+		List<Rectangle> dirty = new ArrayList<>();
+		for (int row = 0; row < tileRows; row++) {
+			int y = row * tileSize;
+			int th = Math.min(tileSize, h - y);
+			int runStart = -1;	// 현재 행에서 이어지는 변경 타일의 시작 열
+
+			for (int col = 0; col < tileCols; col++) {
+				int x = col * tileSize;
+				int tw = Math.min(tileSize, w - x);
+
+				long hash = hashTile(pixels, offset + y * stride + x, stride, tw, th);
+				int idx = row * tileCols + col;
+				boolean changed = full || hash != tileHashes[idx];
+				tileHashes[idx] = hash;
+
+				if (changed && runStart < 0) {
+					runStart = col;
+				}
+				else if (!changed && runStart >= 0) {
+					dirty.add(runRect(runStart, col, y, th, w));
+					runStart = -1;
+				}
+			}
+			if (runStart >= 0) {
+				dirty.add(runRect(runStart, tileCols, y, th, w));
+			}
+		}
+		return dirty;
+	}
+
+
+	/**
+	 * 다음 프레임을 전체 변경으로 처리하도록 상태 초기화
+	 */
+	public void reset() {
+		forceFull = true;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+
+	/**
+	 * 해상도가 바뀌면 해시 테이블을 다시 만든다.
+	 */
+	private void resize(int w, int h) {
+		this.width = w;
+		this.height = h;
+		this.tileCols = (w + tileSize - 1) / tileSize;
+		this.tileRows = (h + tileSize - 1) / tileSize;
+		this.tileHashes = new long[tileCols * tileRows];
+		this.forceFull = true;
+	}
+
+	/**
+	 * 같은 행의 [startCol, endCol) 타일을 하나의 사각형으로 변환
+	 */
+	private Rectangle runRect(int startCol, int endCol, int y, int th, int w) {
+		int x = startCol * tileSize;
+		int right = Math.min(endCol * tileSize, w);
+		return new Rectangle(x, y, right - x, th);
+	}
+
+	/**
+	 * 타일 하나의 64bit 해시 (FNV-1a 변형, 픽셀 단위)
+	 */
+	private static long hashTile(int[] pixels, int start, int stride, int tw, int th) {
+		long hash = 0xcbf29ce484222325L;
+		for (int y = 0; y < th; y++) {
+			int p = start + y * stride;
+			int end = p + tw;
+			for (; p < end; p++) {
+				hash = (hash ^ pixels[p]) * 0x100000001b3L;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * 전체 화면 하나짜리 영역 목록
+	 */
+	static List<Rectangle> fullFrame(int w, int h) {
+		List<Rectangle> full = new ArrayList<>(1);
+		full.add(new Rectangle(0, 0, w, h));
+		return full;
+	}
+}
@@ -0,0 +1,143 @@
+package com.EchoLink.server.capture;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+
+/**
+ * FFmpeg x11grab 캡처 백엔드 (Linux)
+ *
+ * X 서버(실제 디스플레이 또는 Xvfb)의 화면을 FFmpegFrameGrabber로 직접 캡처.
+ * BGR0 포맷으로 받으면 little-endian int 값이 TYPE_INT_RGB(0x00RRGGBB)와 같으므로
+ * Java2DFrameConverter 변환 없이 풀 버퍼로 한 번만 복사.
+ * DISPLAY 환경변수(예: ":99" Xvfb)를 사용하므로 GUI 없는 CI 서버에서도 동작.
+ * @author ESH
+ */
+public class X11GrabCaptureSource implements CaptureSource {
+
+	public static final String NAME = "x11grab";
+
+	private final String display;			// X 디스플레이 (예: ":0.0", ":99")
+	private final int fps;					// 캡처 FPS
+	private final Dimension requestedSize;	// 캡처 크기 (null이면 화면 전체)
+
+	private FFmpegFrameGrabber grabber;
+	private Dimension size;
+	private ByteBuffer lastImage;			// 직전 프레임의 이미지 버퍼 (grabber가 재사용하면 view도 재사용)
+	private IntBuffer lastImageInts;
+
+	/**
+	 * 생성자
+	 * @param display		X 디스플레이, null이면 DISPLAY 환경변수(없으면 ":0.0")
+	 * @param fps			캡처 FPS
+	 * @param requestedSize	캡처 크기, null이면 화면 전체
+	 */
+	public X11GrabCaptureSource(String display, int fps, Dimension requestedSize) {
+		this.display = display != null ? display : defaultDisplay();
+		this.fps = fps;
+		this.requestedSize = requestedSize;
+	}
+
+	/**
+	 * @return 이 환경에서 x11grab을 시도할 수 있는지 (Linux + DISPLAY 설정)
+	 */
+	public static boolean isSupported() {
+		return System.getProperty("os.name").toLowerCase().contains("linux")
+				&& System.getenv("DISPLAY") != null;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public void start() throws Exception {
+		// x11grab 입력 형식: "[호스트]:디스플레이.스크린+x,y"
+		String input = display.contains("+") ? display : display + "+0,0";
+		grabber = new FFmpegFrameGrabber(input);
+		grabber.setFormat("x11grab");
+		grabber.setFrameRate(fps);
+		grabber.setPixelFormat(avutil.AV_PIX_FMT_BGR0);	// X 서버 기본 포맷(bgr0)이면 변환 없음
+		grabber.setOption("draw_mouse", "1");	// 커서를 영상에 그림 (커서 채널은 위치만 보내므로 모양은 영상으로 전달)
+		if (requestedSize != null) {
+			grabber.setImageWidth(requestedSize.width);
+			grabber.setImageHeight(requestedSize.height);
+		}
+		try {
+			grabber.start();
+		} catch (Exception e) {
+			close();
+			throw e;
+		}
+		size = new Dimension(grabber.getImageWidth(), grabber.getImageHeight());
+		System.out.println("[Capture] x11grab 시작: " + input + " (" + size.width + "x" + size.height + ")");
+	}
+
+	@Override
+	public Dimension getSize() {
+		return size;
+	}
+
+	@Override
+	public void captureInto(BufferedImage target) throws Exception {
+		Frame frame = grabber.grabImage();
+		if (frame == null || frame.image == null) {
+			throw new IllegalStateException("x11grab 프레임을 받지 못했습니다.");
+		}
+		if (frame.imageWidth != target.getWidth() || frame.imageHeight != target.getHeight()
+				|| frame.imageChannels != 4) {
+			throw new IllegalStateException("x11grab 프레임 형식이 다릅니다: "
+					+ frame.imageWidth + "x" + frame.imageHeight + "x" + frame.imageChannels);
+		}
+
+		ByteBuffer image = (ByteBuffer) frame.image[0];
+		if (image != lastImage) {
+			lastImage = image;
+			lastImageInts = image.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		}
+
+		int[] dst = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+		int w = frame.imageWidth;
+		int h = frame.imageHeight;
+		int strideInts = frame.imageStride / 4;	// imageStride는 byte 단위
+
+		if (strideInts == w) {
+			lastImageInts.position(0);
+			lastImageInts.get(dst, 0, w * h);
+		}
+		else {
+			for (int y = 0; y < h; y++) {
+				lastImageInts.position(y * strideInts);
+				lastImageInts.get(dst, y * w, w);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (grabber != null) {
+			try {
+				grabber.stop();
+				grabber.release();
+			} catch (Exception e) {
+				System.err.println("[Capture] x11grab 종료 중 오류: " + e.getMessage());
+			}
+			grabber = null;
+		}
+		lastImage = null;
+		lastImageInts = null;
+	}
+
+	private static String defaultDisplay() {
+		String env = System.getenv("DISPLAY");
+		return env != null && !env.isEmpty() ? env : ":0.0";
+	}
+}
@@ -22,4 +22,39 @@ public class AppConfig {
             @Value("${echolink.server.clientThreadPoolSize}") int clientThreadPoolSize) {
         return new ServerConfig(jwtSecret, loginPort, authServerUrl, authPollIntervalMs, authMaxAttempts, serverBacklog, clientThreadPoolSize);
     }
+
+    /**
+     * 스트리밍 파이프라인 설정 (application.yml에 없으면 기본값)
+     */
+    @Bean
+    public StreamConfig streamConfig(
+            @Value("${echolink.stream.idle.keepAliveFps:1}") int idleKeepAliveFps,
+            @Value("${echolink.stream.idle.probeFps:10}") int idleProbeFps,
+            @Value("${echolink.stream.idle.enterMs:1000}") int idleEnterMs,
+            @Value("${echolink.stream.capture.poolSize:6}") int capturePoolSize,
+            @Value("${echolink.stream.capture.backend:auto}") String captureBackend,
+            @Value("${echolink.stream.capture.scale:area}") String captureScaleMode,
+            @Value("${echolink.stream.cursor.fps:60}") int cursorFps,
+            @Value("${echolink.stream.drop.video.maxAgeMs:50}") int videoMaxAgeMs,
+            @Value("${echolink.stream.drop.audio.silenceMs:60}") int audioSilenceDropMs,
+            @Value("${echolink.stream.drop.audio.maxAgeMs:200}") int audioMaxAgeMs,
+            @Value("${echolink.stream.drop.audio.maxGapMs:20}") int audioMaxGapMs,
+            @Value("${echolink.stream.keyframe.intervalMs:1000}") int keyFrameIntervalMs,
+            @Value("${echolink.stream.keyframe.minRequestMs:200}") int keyFrameMinRequestMs,
+            @Value("${echolink.stream.simulcast.ladder:}") String simulcastLadder,
+            @Value("${echolink.stream.simulcast.fps:30}") int simulcastFps,
+            @Value("${echolink.stream.video.formats:h264,hevc}") String videoFormats,
+            @Value("${echolink.stream.audio.codec:aac}") String audioCodec,
+            @Value("${echolink.stream.audio.bitrate:0}") int audioBitrate,
+            @Value("${echolink.stream.audio.frameMs:10}") int audioFrameMs,
+            @Value("${echolink.stream.audio.dtx:true}") boolean audioDtx,
+            @Value("${echolink.stream.audio.silenceDb:-60}") double audioSilenceDb,
+            @Value("${echolink.stream.audio.bufferMs:1000}") int audioBufferMs) {
+        return new StreamConfig(idleKeepAliveFps, idleProbeFps, idleEnterMs, capturePoolSize,
+                captureBackend, captureScaleMode, cursorFps,
+                videoMaxAgeMs, audioSilenceDropMs, audioMaxAgeMs, audioMaxGapMs,
+                keyFrameIntervalMs, keyFrameMinRequestMs, simulcastLadder, simulcastFps,
+                videoFormats, audioCodec, audioBitrate, audioFrameMs, audioDtx,
+                audioSilenceDb, audioBufferMs);
+    }
 }
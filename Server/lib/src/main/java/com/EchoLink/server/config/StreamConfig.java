@@ -0,0 +1,273 @@
+package com.EchoLink.server.config;
+
+/**
+ * 스트리밍 파이프라인(캡처 -> 인코딩) 설정값 클래스.
+ * AppConfig에서 application.yml의 echolink.stream.* 값을 주입하여 Bean으로 생성.
+ * (application.yml에 값이 없으면 AppConfig에 지정된 기본값 사용)
+ */
+public final class StreamConfig {
+
+	private final int idleKeepAliveFps;		// 유휴 모드에서 인코더로 보내는 반복 프레임 FPS
+	private final int idleProbeFps;			// 유휴 모드에서 화면 변경을 확인하는 캡처 FPS
+	private final int idleEnterMs;			// 화면 변경이 없을 때 유휴 모드로 들어가기까지의 시간(ms)
+	private final int capturePoolSize;		// 캡처 버퍼 풀 크기 (전체 화면 버퍼 수)
+	private final String captureBackend;	// 캡처 백엔드 ("auto", "robot", "x11grab")
+	private final String captureScaleMode;	// 캡처 단계 축소 방식 ("area", "bilinear")
+	private final int cursorFps;			// 커서 위치 전송 빈도 (0이면 커서 채널 사용 안 함, 요청한 클라이언트에게만)
+	private final int videoMaxAgeMs;		// 이보다 오래된 영상 프레임은 인코딩하지 않음(ms)
+	private final int audioSilenceDropMs;	// 이보다 오래된 무음 오디오 프레임은 버림(ms)
+	private final int audioMaxAgeMs;		// 이보다 오래된 오디오 프레임은 소리가 있어도 버림(ms)
+	private final int audioMaxGapMs;		// 소리 프레임을 연속으로 버릴 수 있는 최대 구간(ms)
+	private final int keyFrameIntervalMs;	// 주기적 키프레임 간격(ms, GOP 길이)
+	private final int keyFrameMinRequestMs;	// 클라이언트 키프레임 요청 최소 간격(ms)
+	private final String simulcastLadder;	// 동시 인코딩 렌디션 목록 (빈 문자열이면 사용 안 함)
+	private final int simulcastFps;			// 동시 인코딩 렌디션 공통 FPS
+	private final String videoFormats;		// 클라이언트와 협상할 수 있는 영상 형식 (쉼표로 구분)
+	private final String audioCodec;		// 오디오 코덱 ("opus", "aac")
+	private final int audioBitrate;			// 오디오 비트레이트(bps, 0 이하이면 코덱별 기본값)
+	private final int audioFrameMs;			// 오디오 캡처/코덱 프레임 길이(ms)
+	private final boolean audioDtx;			// 무음 오디오 프레임 건너뛰기
+	private final double audioSilenceDb;	// 무음으로 판정하는 크기 (dBFS)
+	private final int audioBufferMs;		// 오디오 캡처 링 버퍼 길이(ms)
+
+	/**
+	 * 생성자
+	 * @param idleKeepAliveFps	유휴 모드 keep-alive FPS
+	 * @param idleProbeFps		유휴 모드 변경 감지 FPS
+	 * @param idleEnterMs		유휴 모드 진입 시간(ms)
+	 * @param capturePoolSize	캡처 버퍼 풀 크기
+	 * @param captureBackend	캡처 백엔드
+	 * @param captureScaleMode	캡처 단계 축소 방식
+	 * @param cursorFps			커서 위치 전송 빈도 (설정값에 "cursor": true를 보낸 클라이언트에게만)
+	 * @param videoMaxAgeMs		영상 프레임 최대 나이(ms)
+	 * @param audioSilenceDropMs	무음 오디오 프레임을 버리기 시작하는 나이(ms)
+	 * @param audioMaxAgeMs		오디오 프레임 최대 나이(ms)
+	 * @param audioMaxGapMs		오디오 최대 끊김 구간(ms)
+	 * @param keyFrameIntervalMs	주기적 키프레임 간격(ms)
+	 * @param keyFrameMinRequestMs	키프레임 요청 최소 간격(ms)
+	 * @param simulcastLadder	동시 인코딩 렌디션 목록 (예: "1920x1080@6M,1280x720@2500k,854x480@800k")
+	 * @param simulcastFps		동시 인코딩 렌디션 공통 FPS
+	 * @param videoFormats		허용할 영상 형식 (예: "h264,hevc")
+	 * @param audioCodec		오디오 코덱
+	 * @param audioBitrate		오디오 비트레이트(bps, 0이면 코덱별 기본값: AAC 192kbps, Opus 64kbps)
+	 * @param audioFrameMs		오디오 프레임 길이(ms)
+	 * @param audioDtx			무음 오디오 프레임 건너뛰기
+	 * @param audioSilenceDb	무음 판정 크기 (dBFS)
+	 * @param audioBufferMs		오디오 캡처 링 버퍼 길이(ms)
+	 */
+	public StreamConfig(int idleKeepAliveFps, int idleProbeFps, int idleEnterMs, int capturePoolSize,
+			String captureBackend, String captureScaleMode, int cursorFps,
+			int videoMaxAgeMs, int audioSilenceDropMs, int audioMaxAgeMs, int audioMaxGapMs,
+			int keyFrameIntervalMs, int keyFrameMinRequestMs, String simulcastLadder, int simulcastFps,
+			String videoFormats, String audioCodec, int audioBitrate, int audioFrameMs, boolean audioDtx,
+			double audioSilenceDb, int audioBufferMs) {
+		this.idleKeepAliveFps = idleKeepAliveFps;
+		this.idleProbeFps = idleProbeFps;
+		this.idleEnterMs = idleEnterMs;
+		this.capturePoolSize = capturePoolSize;
+		this.captureBackend = captureBackend;
+		this.captureScaleMode = captureScaleMode;
+		this.cursorFps = cursorFps;
+		this.videoMaxAgeMs = videoMaxAgeMs;
+		this.audioSilenceDropMs = audioSilenceDropMs;
+		this.audioMaxAgeMs = audioMaxAgeMs;
+		this.audioMaxGapMs = audioMaxGapMs;
+		this.keyFrameIntervalMs = keyFrameIntervalMs;
+		this.keyFrameMinRequestMs = keyFrameMinRequestMs;
+		this.simulcastLadder = simulcastLadder;
+		this.simulcastFps = simulcastFps;
+		this.videoFormats = videoFormats;
+		this.audioCodec = audioCodec;
+		this.audioBitrate = audioBitrate;
+		this.audioFrameMs = audioFrameMs;
+		this.audioDtx = audioDtx;
+		this.audioSilenceDb = audioSilenceDb;
+		this.audioBufferMs = audioBufferMs;
+	}
+
+
+	// ----Getter-----
+	/**
+	 * Getter 메소드
+	 * @return 유휴 모드 keep-alive FPS
+	 */
+	public int getIdleKeepAliveFps() {
+		return idleKeepAliveFps;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 유휴 모드 변경 감지 FPS
+	 */
+	public int getIdleProbeFps() {
+		return idleProbeFps;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 유휴 모드 진입 시간(ms). 0 이하이면 유휴 모드 사용 안 함
+	 */
+	public int getIdleEnterMs() {
+		return idleEnterMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 캡처 버퍼 풀 크기
+	 */
+	public int getCapturePoolSize() {
+		return capturePoolSize;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 캡처 백엔드 ("auto"면 시작 시 벤치마크로 선택)
+	 */
+	public String getCaptureBackend() {
+		return captureBackend;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 캡처 단계 축소 방식 ("area": 화질 우선, "bilinear": 속도 우선)
+	 */
+	public String getCaptureScaleMode() {
+		return captureScaleMode;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 커서 위치 전송 빈도. 0 이하이면 커서 채널 사용 안 함 (기본값, 클라이언트가 요청해도 보내지 않음)
+	 */
+	public int getCursorFps() {
+		return cursorFps;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 영상 프레임 최대 나이(ms). 0 이하이면 나이로 버리지 않음
+	 */
+	public int getVideoMaxAgeMs() {
+		return videoMaxAgeMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 무음 오디오 프레임을 버리기 시작하는 나이(ms)
+	 */
+	public int getAudioSilenceDropMs() {
+		return audioSilenceDropMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 프레임 최대 나이(ms)
+	 */
+	public int getAudioMaxAgeMs() {
+		return audioMaxAgeMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 최대 끊김 구간(ms)
+	 */
+	public int getAudioMaxGapMs() {
+		return audioMaxGapMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 주기적 키프레임 간격(ms). 클라이언트가 손실 시 키프레임을 요청하면 길게 잡아 비트레이트를 줄일 수 있음
+	 */
+	public int getKeyFrameIntervalMs() {
+		return keyFrameIntervalMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 키프레임 요청 최소 간격(ms). 이 안에 들어온 요청은 간격이 지난 뒤 한 번으로 합침
+	 */
+	public int getKeyFrameMinRequestMs() {
+		return keyFrameMinRequestMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 동시 인코딩 렌디션 목록. 비어 있으면 시청자마다 요청한 설정의 인코더 사용 (SimulcastLadder.Rendition.parse() 형식)
+	 */
+	public String getSimulcastLadder() {
+		return simulcastLadder;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 동시 인코딩 렌디션 공통 FPS
+	 */
+	public int getSimulcastFps() {
+		return simulcastFps;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 허용할 영상 형식 (쉼표로 구분). 클라이언트가 디코딩할 수 없거나 이 목록에 없으면 H.264 사용
+	 * (av1은 MPEG-TS에 AV1을 넣을 수 있는 FFmpeg에서만 허용할 것. 번들된 FFmpeg 6.0은 데이터 스트림으로 써서 클라이언트가 디코딩하지 못함)
+	 */
+	public String getVideoFormats() {
+		return videoFormats;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 코덱 ("aac": 기본값, 모든 클라이언트가 디코딩, "opus": 저지연, Opus를 디코딩하는 클라이언트만 쓸 때)
+	 */
+	public String getAudioCodec() {
+		return audioCodec;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 비트레이트(bps). 0 이하이면 코덱별 기본값 (Opus 64kbps, AAC 192kbps)
+	 */
+	public int getAudioBitrate() {
+		return audioBitrate;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 프레임 길이(ms). 캡처 단위와 Opus 프레임 길이에 같이 쓰임 (10 또는 20)
+	 */
+	public int getAudioFrameMs() {
+		return audioFrameMs;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 무음 오디오 프레임을 인코딩하지 않고 건너뛸지 여부
+	 */
+	public boolean isAudioDtx() {
+		return audioDtx;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 무음 판정 크기 (dBFS). 이보다 작은 프레임(또는 조금 크더라도 잡음 같은 프레임)은 무음
+	 */
+	public double getAudioSilenceDb() {
+		return audioSilenceDb;
+	}
+	/**
+	 * Getter 메소드
+	 * @return 오디오 캡처 링 버퍼 길이(ms). 캡처한 PCM을 인코더가 다 쓸 때까지 담아 두는 고정 크기 버퍼
+	 */
+	public int getAudioBufferMs() {
+		return audioBufferMs;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamConfig{" +
+				"idleKeepAliveFps=" + idleKeepAliveFps +
+				", idleProbeFps=" + idleProbeFps +
+				", idleEnterMs=" + idleEnterMs +
+				", capturePoolSize=" + capturePoolSize +
+				", captureBackend='" + captureBackend + '\'' +
+				", captureScaleMode='" + captureScaleMode + '\'' +
+				", cursorFps=" + cursorFps +
+				", videoMaxAgeMs=" + videoMaxAgeMs +
+				", audioSilenceDropMs=" + audioSilenceDropMs +
+				", audioMaxAgeMs=" + audioMaxAgeMs +
+				", audioMaxGapMs=" + audioMaxGapMs +
+				", keyFrameIntervalMs=" + keyFrameIntervalMs +
+				", keyFrameMinRequestMs=" + keyFrameMinRequestMs +
+				", simulcastLadder='" + simulcastLadder + '\'' +
+				", simulcastFps=" + simulcastFps +
+				", videoFormats='" + videoFormats + '\'' +
+				", audioCodec='" + audioCodec + '\'' +
+				", audioBitrate=" + audioBitrate +
+				", audioFrameMs=" + audioFrameMs +
+				", audioDtx=" + audioDtx +
+				", audioSilenceDb=" + audioSilenceDb +
+				", audioBufferMs=" + audioBufferMs +
+				'}';
+	}
+}
@@ -8,14 +8,20 @@ import java.io.OutputStreamWriter;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.EchoLink.server.auth.AuthManager;
 import com.EchoLink.server.config.ServerConfig;
+import com.EchoLink.server.config.StreamConfig;
 import com.EchoLink.server.remote.InputEventReceiver;
-import com.EchoLink.server.stream.Encoder;
+import com.EchoLink.server.stream.EncoderHub;
+import com.EchoLink.server.stream.VideoEncoder;
+import com.EchoLink.server.stream.VideoEncoderProbe;
 
 /**
  * 클라이언트별 연결 관리, 인증, 설정 수신, 세션 시작 및 종료 총괄 클래스.
@@ -32,6 +38,9 @@ public class ClientHandler implements Runnable {
 	private final String serverJwt;			// 서버로부터 발급받은 원본 JWT
 	private StreamSessionManager streamManager;	// 스트리밍 세션 매니저
 	private final AuthManager authManager;		// 인증 관리
+	private final StreamConfig streamConfig;	// 스트리밍 파이프라인 설정
+	private final EncoderHub encoderHub;		// 세션 간 공유 인코더 (캡처 포함)
+	private boolean cursorRequested = false;	// 클라이언트가 커서 채널(제어 소켓의 101 위치 메시지)을 요청했는지
 
 	// 연결 타임아웃 상수 (15초)
 	private static final int SOCKET_TIMEOUT_MS = 15000;
@@ -39,12 +48,17 @@ public class ClientHandler implements Runnable {
     /**
      * 생성자
      * @param config StreamingServerService로부터 주입받은 ServerConfig 객체
+     * @param streamConfig StreamingServerService로부터 주입받은 StreamConfig 객체
+     * @param encoderHub StreamingServerService가 가진 공유 인코더
      */
-    public ClientHandler(Socket socket, String serverJWT, ServerConfig config) {
+    public ClientHandler(Socket socket, String serverJWT, ServerConfig config, StreamConfig streamConfig,
+    		EncoderHub encoderHub) {
         this.clientSocket = socket;
         this.serverJwt = serverJWT;
         // 주입받은 config 객체로부터 jwtSecret 값을 가져와 AuthManager를 생성합니다.
         this.authManager = new AuthManager(config.getJwtSecret());
+        this.streamConfig = streamConfig;
+        this.encoderHub = encoderHub;
     }
 
 
@@ -66,7 +80,7 @@ public class ClientHandler implements Runnable {
 			}
 
 			// 2. 스트리밍 세션 설정 및 시작
-			if (!setupAndStartStreamingSession(reader)) {
+			if (!setupAndStartStreamingSession(reader, writer)) {
 				System.err.println("스트리밍 세션 설정 실패: " + clientSocket.getInetAddress().getHostAddress());
 				return;
 			}
@@ -167,9 +181,13 @@ public class ClientHandler implements Runnable {
 
 	/**
 	 * 2. 클라이언트로부터 스트리밍 설정값을 받아 세션 시작
+	 * 설정값에 "codecs" 목록을 보낸 클라이언트에게는 협상 결과를 스트리밍 시작 전에 한 줄(JSON)로 보냄:
+	 * {"status":"OK","codec":"hevc"} 또는 {"status":"FAIL","reason":...} (맞는 형식이 없으면 세션을 시작하지 않음).
+	 * 목록을 보내지 않은 (이전 버전) 클라이언트는 응답 없이 H.264.
+	 * 커서 채널은 "cursor": true를 보낸 클라이언트에게만 (모르는 바이너리 메시지를 이전 버전 클라이언트에게 보내지 않음).
 	 * @return 세션 시작 성공 시 true, 실패 시 false
 	 */
-	private boolean setupAndStartStreamingSession(BufferedReader reader) throws IOException {
+	private boolean setupAndStartStreamingSession(BufferedReader reader, BufferedWriter writer) throws IOException {
 		
 		String configData = reader.readLine();
 		if (configData == null) 
@@ -182,11 +200,30 @@ public class ClientHandler implements Runnable {
 			int width = configJson.getInt("width");
 			int height = configJson.getInt("height");
 			int port = configJson.getInt("port");
+			boolean intraRefresh = configJson.optBoolean("intraRefresh", false);	// 선택: 키프레임 크기 급증 대신 인트라 갱신
+			JSONArray codecs = configJson.optJSONArray("codecs");	// 선택: 디코딩 가능한 형식 (선호 순서)
+			cursorRequested = configJson.optBoolean("cursor", false);	// 선택: 커서 위치 메시지 수신
+			String videoFormat = negotiateVideoFormat(codecs);
+			if (codecs != null) {
+				JSONObject reply = new JSONObject();
+				if (videoFormat == null) {
+					reply.put("status", "FAIL").put("reason", "No supported video codec.");
+				} else {
+					reply.put("status", "OK").put("codec", videoFormat);
+				}
+				writer.write(reply.toString() + "\n");
+				writer.flush();
+			}
+			if (videoFormat == null) {
+				System.err.println("스트리밍 설정 실패: 클라이언트가 디코딩할 수 있는 영상 형식이 없습니다. " + codecs);
+				return false;
+			}
 
 			// 세션 시작
 			this.streamManager = new StreamSessionManager(
 					clientSocket.getInetAddress().getHostAddress(),
-					fps, bitrate, width, height, port
+					fps, bitrate, width, height, port, intraRefresh, videoFormat,
+					encoderHub
 			);
 			streamManager.startSession();
 			return true;
@@ -197,12 +234,42 @@ public class ClientHandler implements Runnable {
 	}
 
 
+	/**
+	 * 영상 형식 협상
+	 * 클라이언트가 보낸 형식 목록(예: ["av1", "hevc", "h264"]) 중 서버 설정에서 허용하고 인코더가 열리는 첫 형식.
+	 * 목록을 보내지 않은 (이전 버전) 클라이언트는 H.264.
+	 * @param codecs 설정값의 "codecs" 배열 (없으면 null)
+	 * @return 사용할 영상 형식, 클라이언트가 디코딩할 수 있는 형식 중 열리는 형식이 없으면 null
+	 */
+	private String negotiateVideoFormat(JSONArray codecs) {
+		if (codecs == null) {
+			return VideoEncoder.FORMAT_H264;
+		}
+		List<String> clientFormats = new ArrayList<>();
+		for (int i = 0; i < codecs.length(); i++) {
+			clientFormats.add(codecs.getString(i));
+		}
+		List<String> serverFormats = new ArrayList<>();
+		for (String format : streamConfig.getVideoFormats().split(",")) {
+			if (!format.isBlank()) {
+				serverFormats.add(VideoEncoderProbe.normalizeFormat(format));
+			}
+		}
+		String format = VideoEncoderProbe.negotiate(clientFormats, serverFormats);
+		System.out.println("영상 형식 협상: 클라이언트 " + clientFormats + ", 서버 " + serverFormats + " -> " + format);
+		return format;
+	}
+
+
 	/**
 	 * 3. 원격 입력 처리 쓰레드 시작
 	 */
 	private void startInputReceiver() throws Exception {
-		Encoder activeEncoder = streamManager.getEncoder();
-		InputEventReceiver inputReceiver = new InputEventReceiver(clientSocket, activeEncoder);
+		int cursorFps = cursorRequested ? streamConfig.getCursorFps() : 0;
+		if (cursorRequested && cursorFps <= 0) {
+			System.out.println("커서 채널 요청 무시: 서버 설정(echolink.stream.cursor.fps)이 꺼져 있습니다.");
+		}
+		InputEventReceiver inputReceiver = new InputEventReceiver(clientSocket, streamManager, cursorFps);
 		Thread inputThread = new Thread(inputReceiver, "InputReceiver-" + clientSocket.getInetAddress().getHostAddress());
 		inputThread.start();
 	}
@@ -1,38 +1,33 @@
 package com.EchoLink.server.handler;
 
-import java.awt.Dimension;
-import java.awt.Toolkit;
-import java.awt.image.BufferedImage;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import org.bytedeco.javacv.Frame;
+import java.io.IOException;
 
+import com.EchoLink.server.remote.StreamController;
 import com.EchoLink.server.stream.Encoder;
-import com.EchoLink.server.stream.TimestampedFrame;
-import com.EchoLink.server.capture.AudioCapture;
-import com.EchoLink.server.capture.AudioDeviceManager;
-import com.EchoLink.server.capture.ScreenCapture;
+import com.EchoLink.server.stream.EncoderHub;
 
 /**
  * 스트리밍 세션을 관리하는 매니저
  * 영상, 오디오
+ * 
+ * 캡처와 인코딩은 EncoderHub를 통해 다른 세션과 공유하고, 이 세션은 자기 전송(StreamWriter)만 가짐.
  * @author ESH
  */
-public class StreamSessionManager {
+public class StreamSessionManager implements StreamController {
 	
 	// 영상 설정값
     private final String clientIp;
     private final int port;
     private final int fps;
-    private final int bitrate;
-    private final int width;	// 스트리밍 요청 가로 길이
-    private final int height;	// 스트리밍 요청 세로 길이
-	private final Dimension serverScreenSize;	// 서버의 실제 화면 크기
+    private int bitrate;
+    private int width;	// 스트리밍 요청 가로 길이
+    private int height;	// 스트리밍 요청 세로 길이
+    private final boolean intraRefresh;	// 주기적 IDR 대신 인트라 갱신 (프레임 크기를 고르게)
+    private final String videoFormat;	// 협상한 영상 형식 (h264, hevc, av1)
+	private final EncoderHub encoderHub;	// 세션 간 공유 인코더 (캡처 포함)
 	
-	// 쓰레드 인스턴스
-	private Encoder encoder;
-	private ScreenCapture screenCapture;
-	private AudioCapture audioCapture;
+	// 공유 인코더의 시청자 등록 정보
+	private EncoderHub.Viewer viewer;
 	
 	/**
 	 * 생성자
@@ -43,9 +38,13 @@ public class StreamSessionManager {
 	 * @param width		요청 해상도 가로
 	 * @param height	요청 해상도 세로
 	 * @param port		클라이언트 수신 포트(UDP)
+	 * @param intraRefresh 주기적 IDR 대신 인트라 갱신 사용
+	 * @param videoFormat 영상 형식 (VideoEncoderProbe.negotiate()의 결과)
+	 * @param encoderHub 공유 인코더
 	 */
 	public StreamSessionManager(String clientIp, int fps, int bitrate, 
-			int width, int height, int port) {
+			int width, int height, int port, boolean intraRefresh, String videoFormat,
+			EncoderHub encoderHub) {
 		
 		this.clientIp = clientIp;
 		this.fps = fps;
@@ -53,79 +52,133 @@ public class StreamSessionManager {
         this.width = width;
         this.height = height;
         this.port = port;
-        
-        // 서버 화면 크기 내부적 초기화
-        this.serverScreenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        
+        this.intraRefresh = intraRefresh;
+        this.videoFormat = videoFormat;
+        this.encoderHub = encoderHub;
 	}
 
 	
     /**
      * 클라이언트 IP와 포트를 받아 스트리밍 세션을 시작
-     * @param clientIp 클라이언트의 IP 주소
-     * @param port 클라이언트 수신 포트 (UDP)
+     * 같은 설정의 인코더가 이미 있으면 공유하고 다음 키프레임부터 전송.
+     * @throws IOException 인코더 초기화 실패
      */
-    public void startSession() {
-    	/*
-    	 * 1. 설정값 적용 확인
-    	 * 영상, 오디오 큐 생성
-    	 * 이후 영상, 오디오 쓰레드 시작
-    	 */
-        try {
-			System.out.println("스트리밍 세션 시작: " + clientIp + ":" + port);
-	        System.out.println("설정값: 해상도: " + width + "x" + height +
-                    ", FPS: " + fps + ", 비트레이트: " + bitrate);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-        
-        BlockingQueue<TimestampedFrame<BufferedImage>> frameQueue = new LinkedBlockingQueue<>(60); // 캡처된 이미지 프레임을 담을 큐 (임시: 30)
-        BlockingQueue<TimestampedFrame<Frame>> audioQueue = new LinkedBlockingQueue<>(200);	// 오디오 큐
-        
-        // 영상 쓰레드
-        this.screenCapture = new ScreenCapture(frameQueue, fps, serverScreenSize);
-        new Thread(this.screenCapture, "ScreenCapture-Thread").start();
-        
-        // 오디오 쓰레드
-        String audioDevice = AudioDeviceManager.windowsFindOutputDeviceName();	// windows의 실제 장치 이름으로 전환
-        if (audioDevice != null && !audioDevice.isEmpty()) {
-            this.audioCapture = new AudioCapture(audioQueue, audioDevice);
-            new Thread(this.audioCapture, "AudioCapture-Thread").start();
-        }
-        else {
-            System.err.println("오디오 장치를 찾지 못해 오디오 캡처를 시작하지 않습니다.");
-            // (선택) 오디오 큐에 빈 프레임을 주기적으로 넣어 인코더가 멈추지 않게 할 수도 있습니다.
-            // 여기서는 오디오 없이 영상만 스트리밍되도록 합니다.
-        }
-
-        
-        /*
-         *  2. 인코더 쓰레드 시작
-         *  영상, 오디오 큐 사용
-         */
-        this.encoder = new Encoder(
-        		frameQueue, audioQueue,
-        		clientIp, port, 
-        		width, 	// 인코딩 목표 너비
-        		height, // 인코딩 목표 높이
-        		fps, bitrate);
+    public void startSession() throws IOException {
+		System.out.println("스트리밍 세션 시작: " + clientIp + ":" + port);
+        System.out.println("설정값: 해상도: " + width + "x" + height +
+                ", FPS: " + fps + ", 비트레이트: " + bitrate + ", 형식: " + videoFormat
+                + (intraRefresh ? ", 인트라 갱신" : ""));
         
-        new Thread(this.encoder, "Encoder-Thread").start();
+        this.viewer = encoderHub.join(clientIp, port, width, height, fps, bitrate, intraRefresh, videoFormat);
     }
     
     public void stopSession() {
-        // 필드에 저장된 각 인스턴스의 stop() 메소드 호출
-        if (encoder != null) encoder.stop();
-        if (screenCapture != null) screenCapture.stop();
-        if (audioCapture != null) audioCapture.stop();
+        // 시청자 해제 (마지막 시청자면 인코더, 캡처도 중지)
+        encoderHub.leave(viewer);
+        viewer = null;
+    }
+
+    /**
+     * 비트레이트 변경 요청 (클라이언트의 혼잡 대응, 이 세션에만 적용)
+     * 혼자 보는 인코더면 연결은 그대로 두고 실행 중인 인코더의 목표/최대 비트레이트만 다음 프레임부터 바뀜.
+     * 인코더를 공유 중이거나 코덱이 실행 중 변경을 지원하지 않으면 (HEVC, AV1) 비트레이트 단계의 인코더로 옮김
+     * (해상도 변경과 같이 새 인코더의 키프레임부터, 새 인코더는 EncoderHub가 따로 열어 이 쓰레드를 막지 않음).
+     * 렌디션 사다리를 쓰는 세션은 비트레이트에 맞는 렌디션으로 옮김.
+     */
+    @Override
+    public synchronized void changeBitrate(int bitrate) {
+    	if (bitrate <= 0) {
+    		System.err.println("잘못된 비트레이트 요청 무시: " + bitrate);
+    		return;
+    	}
+    	if (viewer != null) {
+    		this.viewer = encoderHub.changeBitrate(viewer, bitrate);
+    	}
+    	this.bitrate = bitrate;
+    }
+
+    /**
+     * 렌디션 선택 요청 (렌디션 사다리를 쓰는 세션만)
+     * 이미 실행 중인 렌디션 인코더의 다음 키프레임부터 새 렌디션을 받음.
+     */
+    @Override
+    public synchronized void selectRendition(int rendition) {
+    	if (viewer != null) {
+    		this.viewer = encoderHub.switchRendition(viewer, rendition);
+    	}
+    }
+
+    /**
+     * 키프레임 요청 (클라이언트의 손실 복구)
+     * 인코더를 공유 중이면 같은 인코더의 시청자 모두 키프레임을 받음 (요청 간격은 인코더가 제한).
+     */
+    @Override
+    public void requestKeyFrame() {
+    	EncoderHub.Viewer current = viewer;
+    	if (current != null) {
+    		current.getEncoder().requestRecoveryKeyFrame();
+    	}
+    }
+
+    /**
+     * 해상도 변경 요청
+     * 
+     * 인코더는 공유되므로 직접 바꾸지 않고, 새 해상도의 인코더로 옮겨 감 (없으면 새로 시작).
+     * 전송 연결(SRT)은 유지되며, 새 인코더의 첫 키프레임부터 새 해상도로 바뀜 (그 전까지는 이전 해상도).
+     */
+    @Override
+    public synchronized void changeResolution(int newWidth, int newHeight) {
+        // 이미 같은 해상도이면 변경하지 않음
+        if (this.width == newWidth && this.height == newHeight) {
+            return;
+        }
+        System.out.println(">> 해상도를 " + newWidth + "x" + newHeight + " (으)로 변경합니다...");
+        try {
+        	if (viewer != null) {
+        		this.viewer = encoderHub.switchResolution(viewer, newWidth, newHeight, fps, bitrate);
+        	}
+        	this.width = newWidth;
+        	this.height = newHeight;
+        	System.out.println(">> 해상도 변경 완료.");
+        } catch (IOException e) {
+        	System.err.println("해상도 변경 중 오류 발생: " + e.getMessage());
+        }
     }
 
     /**
      * Getter
-     * @return encoder
+     * @return 이 세션이 공유 중인 encoder
      */
 	public Encoder getEncoder() {
-		return this.encoder;
+		return viewer != null ? viewer.getEncoder() : null;
+	}
+
+
+    /**
+     * 이 세션의 단계별 지연 시간 (직전 측정 구간의 p50/p99/max), 영상/오디오 동기화 상태
+     * 큐 대기, 변환, 인코딩, 먹스 대기는 인코더 쪽, 전송 대기와 전체 지연(캡처 -> 전송)은 이 세션의 전송 쓰레드 쪽.
+     * @return 측정 결과, 세션이 시작되지 않았으면 빈 문자열
+     */
+	public String getLatencyReport() {
+		EncoderHub.Viewer current = viewer;
+		if (current == null) {
+			return "";
+		}
+		return "video[" + current.getEncoder().getVideoLatency().getLastReport() + "]"
+				+ " audio[" + current.getEncoder().getAudioLatency().getLastReport() + "]"
+				+ " mux[" + current.getEncoder().getMuxer().getLatency().getLastReport() + "]"
+				+ " send[" + current.getWriter().getLatency().getLastReport() + "]"
+				+ " codec[" + current.getEncoder().getVideoCodecName() + "]"
+				+ " bitrate[target=" + current.getEncoder().getVideoBitrate()
+				+ " measured=" + current.getEncoder().getMeasuredVideoBitrate() + "]"
+				+ " frameSize[" + current.getEncoder().getFrameSizeReport() + "]"
+				+ String.format(" sync[drift=%.1fms error=%.1fms max=%.1fms %s]",
+						current.getEncoder().getClock().getDriftNs() / 1e6,
+						current.getEncoder().getClock().getSyncErrorNs() / 1e6,
+						current.getEncoder().getClock().getMaxSyncErrorNs() / 1e6,
+						current.getEncoder().getAudioTimingReport())
+				+ " audioDtx[" + current.getEncoder().getAudioDtxReport() + "]"
+				+ (current.getRendition() >= 0 ? " rendition[" + current.getRendition() + "]" : "");
 	}
     
 }
@@ -0,0 +1,90 @@
+package com.EchoLink.server.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 쓰레드별 프레임당 힙 할당량 측정기
+ *
+ * com.sun.management.ThreadMXBean의 쓰레드 할당 바이트 카운터를 사용.
+ * 측정하는 쓰레드에서 frameStart()/frameEnd()를 호출하고,
+ * 다른 쓰레드(로그, GUI 등)에서는 getBytesPerFrame()으로 최근 평균을 읽는다.
+ * JVM이 기능을 지원하지 않으면 항상 -1을 반환.
+ * @author ESH
+ */
+public class AllocationMeter {
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = initBean();
+
+	private final String name;				// 측정 대상 이름 (로그용)
+	private final int windowFrames;			// 평균을 계산할 프레임 수
+	private long frameStartBytes = -1;		// 현재 프레임 시작 시점의 누적 할당량
+	private long windowBytes = 0;			// 현재 구간의 할당량 합
+	private int windowCount = 0;			// 현재 구간의 프레임 수
+	private volatile long bytesPerFrame = -1;	// 직전 구간의 프레임당 평균 할당량
+
+	/**
+	 * 생성자
+	 * @param name			측정 대상 이름
+	 * @param windowFrames	평균 구간 (프레임 수)
+	 */
+	public AllocationMeter(String name, int windowFrames) {
+		this.name = name;
+		this.windowFrames = Math.max(1, windowFrames);
+	}
+
+
+	/**
+	 * 프레임 처리 시작 (측정 대상 쓰레드에서 호출)
+	 */
+	public void frameStart() {
+		frameStartBytes = currentThreadAllocatedBytes();
+	}
+
+	/**
+	 * 프레임 처리 종료 (측정 대상 쓰레드에서 호출)
+	 * 구간이 끝나면 평균을 갱신하고 로그 출력.
+	 */
+	public void frameEnd() {
+		if (frameStartBytes < 0) {
+			return;
+		}
+		windowBytes += currentThreadAllocatedBytes() - frameStartBytes;
+		frameStartBytes = -1;
+		if (++windowCount >= windowFrames) {
+			bytesPerFrame = windowBytes / windowCount;
+			windowBytes = 0;
+			windowCount = 0;
+			System.out.println("[Alloc] " + name + ": 프레임당 " + (bytesPerFrame / 1024) + " KB 할당");
+		}
+	}
+
+	/**
+	 * Getter
+	 * @return 직전 구간의 프레임당 평균 할당량(byte), 측정 전이거나 지원하지 않으면 -1
+	 */
+	public long getBytesPerFrame() {
+		return bytesPerFrame;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+
+	private static long currentThreadAllocatedBytes() {
+		return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1;
+	}
+
+	private static com.sun.management.ThreadMXBean initBean() {
+		try {
+			if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+					&& bean.isThreadAllocatedMemorySupported()) {
+				bean.setThreadAllocatedMemoryEnabled(true);
+				return bean;
+			}
+		} catch (UnsupportedOperationException e) {
+			System.err.println("[Alloc] 쓰레드 할당량 측정을 지원하지 않는 JVM입니다.");
+		}
+		return null;
+	}
+}
@@ -0,0 +1,73 @@
+package com.EchoLink.server.metrics;
+
+/**
+ * 인코더 출력 비트레이트 측정기 (쓰레드 하나가 기록)
+ *
+ * 패킷 크기를 스트림 시간(pts) 기준 구간마다 합산하여 bps로 환산.
+ * 벽시계가 아닌 스트림 시간을 쓰므로 인코딩이 밀리거나 프레임을 버려도 실제 전송률과 같은 값이 나옴.
+ * 다른 쓰레드(로그, GUI 등)에서는 getMeasuredBitrate()로 직전 구간 결과를 읽는다.
+ * @author ESH
+ */
+public class BitrateMeter {
+
+	private final long windowUs;			// 측정 구간 (마이크로초)
+	private long windowStartUs = -1;		// 현재 구간 시작 pts (-1이면 아직 없음)
+	private long windowBytes = 0;			// 현재 구간의 바이트 합
+	private volatile long measuredBitrate = -1;	// 직전 구간의 비트레이트(bps)
+	private volatile long completedWindows = 0;	// 끝난 구간 수
+
+	/**
+	 * 생성자
+	 * @param windowMs 측정 구간 (밀리초)
+	 */
+	public BitrateMeter(long windowMs) {
+		this.windowUs = Math.max(1, windowMs) * 1000;
+	}
+
+	/**
+	 * 패킷 하나 기록
+	 * @param bytes		패킷 크기
+	 * @param ptsUs		패킷 시간 (마이크로초)
+	 * @return 이 패킷으로 구간이 끝났으면 true (getMeasuredBitrate()가 갱신됨)
+	 */
+	public boolean record(int bytes, long ptsUs) {
+		if (windowStartUs < 0) {
+			windowStartUs = ptsUs;
+		}
+		long elapsed = ptsUs - windowStartUs;
+		boolean completed = false;
+		if (elapsed >= windowUs) {
+			measuredBitrate = windowBytes * 8 * 1_000_000L / elapsed;
+			completedWindows++;
+			windowStartUs = ptsUs;
+			windowBytes = 0;
+			completed = true;
+		}
+		else if (elapsed < 0) {
+			reset();	// 시간이 되돌아감 (인코더 재시작 등)
+			windowStartUs = ptsUs;
+		}
+		windowBytes += bytes;
+		return completed;
+	}
+
+	/**
+	 * 현재 구간 버림 (설정을 바꾼 직후 등, 다음 패킷부터 새 구간)
+	 */
+	public void reset() {
+		windowStartUs = -1;
+		windowBytes = 0;
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 직전 구간의 비트레이트(bps), 측정 전이면 -1
+	 */
+	public long getMeasuredBitrate() {
+		return measuredBitrate;
+	}
+	public long getCompletedWindows() {
+		return completedWindows;
+	}
+}
@@ -0,0 +1,87 @@
+package com.EchoLink.server.metrics;
+
+/**
+ * 인코딩된 영상 프레임 크기 통계 (쓰레드 하나가 기록)
+ *
+ * windowFrames 프레임마다 평균, 표준편차, 최대 크기를 계산해 로그로 출력한 뒤 초기화.
+ * 프레임 크기가 고를수록(표준편차, 최대/평균이 작을수록) 전송 버퍼가 넘치지 않아 지연 시간이 일정함.
+ * 다른 쓰레드(로그, GUI 등)에서는 getLastReport()로 직전 구간 결과를 읽는다 (AllocationMeter와 같은 방식).
+ * @author ESH
+ */
+public class FrameSizeStats {
+
+	private final String name;				// 측정 대상 이름 (로그용)
+	private final int windowFrames;			// 출력 간격 (프레임 수)
+	private int count = 0;					// 현재 구간 프레임 수
+	private double mean = 0;				// 현재 구간 평균 (Welford)
+	private double m2 = 0;					// 현재 구간 편차 제곱합 (Welford)
+	private int max = 0;					// 현재 구간 최대 크기
+	private volatile double lastMean = -1;		// 직전 구간 평균 크기(byte)
+	private volatile double lastStdDev = -1;	// 직전 구간 표준편차(byte)
+	private volatile int lastMax = -1;			// 직전 구간 최대 크기(byte)
+	private volatile String lastReport = "";
+
+	/**
+	 * 생성자
+	 * @param name			측정 대상 이름
+	 * @param windowFrames	출력 간격 (프레임 수)
+	 */
+	public FrameSizeStats(String name, int windowFrames) {
+		this.name = name;
+		this.windowFrames = Math.max(2, windowFrames);
+	}
+
+	/**
+	 * 프레임 하나의 크기 기록
+	 * @param bytes 인코딩된 프레임 크기
+	 */
+	public void record(int bytes) {
+		count++;
+		double delta = bytes - mean;
+		mean += delta / count;
+		m2 += delta * (bytes - mean);
+		max = Math.max(max, bytes);
+		if (count >= windowFrames) {
+			lastMean = mean;
+			lastStdDev = Math.sqrt(m2 / (count - 1));
+			lastMax = max;
+			lastReport = String.format("avg %.1f KB, stddev %.1f KB (cv %.2f), max %.1f KB (max/avg %.1f)",
+					lastMean / 1024, lastStdDev / 1024, lastStdDev / lastMean, lastMax / 1024.0, lastMax / lastMean);
+			System.out.println("[FrameSize] " + name + ": " + lastReport);
+			count = 0;
+			mean = 0;
+			m2 = 0;
+			max = 0;
+		}
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 직전 구간의 평균 프레임 크기(byte), 측정 전이면 -1
+	 */
+	public double getMean() {
+		return lastMean;
+	}
+	/**
+	 * @return 직전 구간의 프레임 크기 표준편차(byte), 측정 전이면 -1
+	 */
+	public double getStdDev() {
+		return lastStdDev;
+	}
+	/**
+	 * @return 직전 구간의 최대 프레임 크기(byte), 측정 전이면 -1
+	 */
+	public int getMax() {
+		return lastMax;
+	}
+	/**
+	 * @return 직전 구간 결과 (측정 전이면 빈 문자열)
+	 */
+	public String getLastReport() {
+		return lastReport;
+	}
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,111 @@
+package com.EchoLink.server.metrics;
+
+import java.util.Arrays;
+
+/**
+ * 지연 시간 히스토그램 (마이크로초, 로그-선형 구간)
+ *
+ * 2의 거듭제곱 구간마다 16칸으로 나눈 고정 배열이라 기록 시 할당/정렬이 없음 (오차 약 6% 이내).
+ * 범위: 1us ~ 약 67초 (그 이상은 마지막 칸). 최대값은 정확히 기록.
+ * 기록은 한 쓰레드에서만 함 (StageLatency가 쓰레드별로 가짐).
+ * @author ESH
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;					// 구간당 16칸
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 26;				// 2^26 us = 약 67초
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long maxMicros = 0;
+	private long sumMicros = 0;
+
+	/**
+	 * 나노초 값 기록
+	 * @param nanos 지연 시간 (음수는 0으로 취급)
+	 */
+	public void recordNanos(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts[bucketOf(micros)]++;
+		count++;
+		sumMicros += micros;
+		if (micros > maxMicros) {
+			maxMicros = micros;
+		}
+	}
+
+	/**
+	 * 백분위 값
+	 * @param percentile 0~100
+	 * @return 해당 백분위가 속한 칸의 상한 (마이크로초), 기록이 없으면 0
+	 */
+	public long percentileMicros(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(upperBoundOf(i), maxMicros);
+			}
+		}
+		return maxMicros;
+	}
+
+	/**
+	 * 기록 초기화 (구간 시작)
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		maxMicros = 0;
+		sumMicros = 0;
+	}
+
+	/**
+	 * @return "p50=1.20ms p99=3.40ms max=5.60ms" 형식
+	 */
+	public String summary() {
+		return String.format("p50=%.2fms p99=%.2fms max=%.2fms",
+				percentileMicros(50) / 1000.0, percentileMicros(99) / 1000.0, maxMicros / 1000.0);
+	}
+
+
+	private static int bucketOf(long micros) {
+		if (micros < SUB_COUNT) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);	// >= SUB_BITS
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+		int sub = bucket % SUB_COUNT;
+		long width = 1L << (exponent - SUB_BITS);
+		return (1L << exponent) + (sub + 1) * width - 1;
+	}
+
+
+	// ----Getter-----
+	public long getCount() {
+		return count;
+	}
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+	public long getMeanMicros() {
+		return count == 0 ? 0 : sumMicros / count;
+	}
+}
@@ -0,0 +1,102 @@
+package com.EchoLink.server.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 파이프라인 단계별 지연 시간 측정기 (쓰레드 하나가 기록)
+ *
+ * 단계마다 LatencyHistogram을 두고, windowFrames 프레임마다 p50/p99/max를 로그로 출력한 뒤 초기화.
+ * 다른 쓰레드(로그, GUI 등)에서는 getLastReport()로 직전 구간 결과를 읽는다 (AllocationMeter와 같은 방식).
+ * @author ESH
+ */
+public class StageLatency {
+
+	/**
+	 * 파이프라인 단계
+	 */
+	public enum Stage {
+		CAPTURE("capture"),			// 화면 캡처 + 변경 감지 + 축소
+		QUEUE_WAIT("queue"),		// 캡처 큐에 들어간 뒤 인코더가 꺼낼 때까지
+		CONVERT("convert"),			// BufferedImage -> Frame 변환
+		ENCODE("encode"),			// 인코딩
+		MUX_WAIT("mux"),			// 인코딩 후 먹스 쓰레드가 시청자에게 넘길 때까지 (영상/오디오 순서 맞추기)
+		SEND_QUEUE("sendQueue"),	// 먹스 후 전송 쓰레드가 꺼낼 때까지
+		SEND("send"),				// mpegts 기록 + SRT 전송
+		TOTAL("total");				// 캡처 시작 -> 전송 완료
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+	}
+
+	private final String name;				// 측정 대상 이름 (로그용)
+	private final int windowFrames;			// 출력 간격 (프레임 수)
+	private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+	private int windowCount = 0;
+	private volatile String lastReport = "";	// 직전 구간 결과
+
+	/**
+	 * 생성자
+	 * @param name			측정 대상 이름
+	 * @param windowFrames	출력 간격 (프레임 수)
+	 * @param stages		이 쓰레드가 기록하는 단계
+	 */
+	public StageLatency(String name, int windowFrames, Stage... stages) {
+		this.name = name;
+		this.windowFrames = Math.max(1, windowFrames);
+		for (Stage stage : stages) {
+			histograms.put(stage, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * 단계 지연 시간 기록
+	 * @param stage	단계 (생성자에서 지정하지 않은 단계는 무시)
+	 * @param nanos	지연 시간 (나노초)
+	 */
+	public void record(Stage stage, long nanos) {
+		LatencyHistogram histogram = histograms.get(stage);
+		if (histogram != null) {
+			histogram.recordNanos(nanos);
+		}
+	}
+
+	/**
+	 * 프레임 하나 기록 종료
+	 * 구간이 끝나면 결과를 만들고 로그 출력 후 초기화.
+	 */
+	public void frameEnd() {
+		if (++windowCount < windowFrames) {
+			return;
+		}
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+			if (entry.getValue().getCount() == 0) {
+				continue;
+			}
+			if (report.length() > 0) {
+				report.append(" | ");
+			}
+			report.append(entry.getKey().label).append(' ').append(entry.getValue().summary());
+			entry.getValue().reset();
+		}
+		lastReport = report.toString();
+		windowCount = 0;
+		System.out.println("[Latency] " + name + ": " + lastReport);
+	}
+
+	/**
+	 * Getter
+	 * @return 직전 구간의 단계별 지연 시간 (측정 전이면 빈 문자열)
+	 */
+	public String getLastReport() {
+		return lastReport;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
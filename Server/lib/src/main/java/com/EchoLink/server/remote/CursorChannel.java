@@ -0,0 +1,118 @@
+package com.EchoLink.server.remote;
+
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커서 위치 전송 (서버 -> 클라이언트, 제어 소켓)
+ *
+ * 커서 위치를 제어 소켓으로 따로 보냄 (영상 FPS가 낮아도(유휴 모드 등) 클라이언트가 커서 위치를 즉시 알 수 있음).
+ * 커서 모양은 보내지 않음: AWT로는 OS의 현재 커서 비트맵을 읽을 수 없으므로 커서는 계속 영상에 그려짐 (x11grab draw_mouse).
+ *
+ * 메시지 형식 (InputEventReceiver의 수신 형식과 같이 1바이트 타입 + 고정 데이터)
+ * - 101 CURSOR_POSITION	: int x, int y, byte visible	(서버 화면 좌표, 위치가 바뀔 때만)
+ * @author ESH
+ */
+public class CursorChannel implements Runnable {
+
+	public static final byte CURSOR_POSITION = 101;
+
+	private final DataOutputStream out;			// 제어 소켓 출력 (InputEventReceiver 소유)
+	private final long intervalNanos;			// 위치 확인 간격
+	private volatile boolean running = true;
+
+	private int lastX = Integer.MIN_VALUE;
+	private int lastY = Integer.MIN_VALUE;
+	private boolean lastVisible = false;
+
+	private long positionMessages = 0;			// 보낸 위치 메시지 수
+
+	/**
+	 * 생성자
+	 * @param out	제어 소켓 출력 스트림
+	 * @param fps	커서 위치 확인 빈도 (영상 FPS와 무관)
+	 */
+	public CursorChannel(DataOutputStream out, int fps) {
+		this.out = out;
+		this.intervalNanos = 1_000_000_000L / Math.max(1, fps);
+	}
+
+	@Override
+	public void run() {
+		long nextTime = System.nanoTime();
+		try {
+			while (running) {
+				poll();
+
+				nextTime += intervalNanos;
+				long sleepNs = nextTime - System.nanoTime();
+				if (sleepNs > 0) {
+					TimeUnit.NANOSECONDS.sleep(sleepNs);
+				}
+				else {
+					nextTime = System.nanoTime();	// 밀린 만큼 몰아서 보내지 않음
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e) {
+			// 제어 소켓이 닫히면 InputEventReceiver가 세션을 정리하므로 여기서는 종료만
+			if (running) {
+				System.out.println("커서 채널 종료: " + e.getMessage());
+			}
+		}
+		catch (Exception e) {
+			System.err.println("커서 채널 오류: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * 커서 위치를 한 번 확인하여 바뀌었으면 전송
+	 */
+	void poll() throws IOException {
+		PointerInfo info = MouseInfo.getPointerInfo();	// 다른 화면에 있거나 알 수 없으면 null
+		boolean visible = info != null;
+		Point p = visible ? info.getLocation() : null;
+		int x = visible ? p.x : lastX;
+		int y = visible ? p.y : lastY;
+		if (x != lastX || y != lastY || visible != lastVisible) {
+			sendPosition(x, y, visible);
+			lastX = x;
+			lastY = y;
+			lastVisible = visible;
+		}
+	}
+
+	private void sendPosition(int x, int y, boolean visible) throws IOException {
+		synchronized (out) {
+			out.writeByte(CURSOR_POSITION);
+			out.writeInt(x);
+			out.writeInt(y);
+			out.writeByte(visible ? 1 : 0);
+			out.flush();
+		}
+		positionMessages++;
+	}
+
+
+	/**
+	 * Getter
+	 * @return 보낸 위치 메시지 수
+	 */
+	public long getPositionMessages() {
+		return positionMessages;
+	}
+
+	/**
+	 * 커서 채널 중지
+	 */
+	public void stop() {
+		running = false;
+	}
+}
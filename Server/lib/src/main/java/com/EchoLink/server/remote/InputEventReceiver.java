@@ -3,34 +3,41 @@ package com.EchoLink.server.remote;
 import java.awt.AWTException;
 import java.awt.Robot;
 import java.awt.event.InputEvent;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStream;
 import java.net.Socket;
 
-import com.EchoLink.server.stream.Encoder;
-
 
 /**
  * 클라이언트로부터 여러 이벤트를 받아 처리하는 클래스
  * 
  * 클라이언트: binary 값 수신
  * 서버: binary 값에 맞는 이벤트 처리
+ * 
+ * 같은 소켓으로 커서 위치(CursorChannel)를 클라이언트에게 송신
  * @author ESH
  */
 public class InputEventReceiver implements Runnable {
 
     private Socket clientSocket;
-    private Encoder encoder;
+    private StreamController controller;	// 비트레이트/해상도 변경 요청 대상 세션
     private Robot robot;
     private volatile boolean running = true;
+    private final int cursorFps;		// 커서 위치 전송 빈도 (0이면 커서 채널 사용 안 함)
+    private CursorChannel cursorChannel;
 
     /**
      * 생성자
      * @param clientSocket 클라이언트와 연결된 TCP 소켓
+     * @param controller 비트레이트/해상도 변경 대상 세션
+     * @param cursorFps 커서 위치 전송 빈도 (0이면 커서 채널 사용 안 함)
      */
-    public InputEventReceiver(Socket clientSocket, Encoder encoder) throws AWTException {
+    public InputEventReceiver(Socket clientSocket, StreamController controller, int cursorFps) throws AWTException {
         this.clientSocket = clientSocket;
-        this.encoder = encoder;
+        this.controller = controller;
+        this.cursorFps = cursorFps;
         this.robot = new Robot();
     }
 
@@ -39,6 +46,8 @@ public class InputEventReceiver implements Runnable {
         try (InputStream is = clientSocket.getInputStream();
                 DataInputStream dis = new DataInputStream(is)) {
                
+               startCursorChannel();
+               
                while (running) {
                    // 1. 이벤트 타입을 1바이트 읽는다.
                    byte eventType = dis.readByte();
@@ -63,6 +72,12 @@ public class InputEventReceiver implements Runnable {
                        case 6: // CHANGE_RESOLUTION
                            handleResolutionChange(dis.readInt(), dis.readInt());
                            break;
+                       case 7: // REQUEST_KEYFRAME (데이터 없음)
+                           handleKeyFrameRequest();
+                           break;
+                       case 8: // SELECT_RENDITION
+                           handleRenditionSelect(dis.readInt());
+                           break;
                        default:
                            System.out.println("알 수 없는 입력 타입: " + eventType);
                            break;
@@ -117,8 +132,8 @@ public class InputEventReceiver implements Runnable {
      * @param eventJson
      */
     private void handleResolutionChange(int width, int height) {
-        if (encoder != null) {
-            encoder.changeResolution(width, height);
+        if (controller != null) {
+            controller.changeResolution(width, height);
         }
     }
     
@@ -127,16 +142,51 @@ public class InputEventReceiver implements Runnable {
      * @param eventJson
      */
     private void handleBitrateChange(int newBitrate) {
-		if (encoder != null) {
-			encoder.setVideoBitrate(newBitrate);
+		if (controller != null) {
+			controller.changeBitrate(newBitrate);
 		}
 	}
     
+    /**
+     * 키프레임 요청 (손실 복구)
+     */
+    private void handleKeyFrameRequest() {
+        if (controller != null) {
+            controller.requestKeyFrame();
+        }
+    }
+    
+    /**
+     * 렌디션 선택 (렌디션 사다리)
+     */
+    private void handleRenditionSelect(int rendition) {
+        if (controller != null) {
+            controller.selectRendition(rendition);
+        }
+    }
+    
+    /**
+     * 커서 채널 시작 (같은 소켓의 출력 방향 사용)
+     */
+    private void startCursorChannel() throws Exception {
+        if (cursorFps <= 0) {
+            return;
+        }
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()));
+        cursorChannel = new CursorChannel(dos, cursorFps);
+        Thread cursorThread = new Thread(cursorChannel, "CursorChannel-" + clientSocket.getInetAddress().getHostAddress());
+        cursorThread.setDaemon(true);
+        cursorThread.start();
+    }
+    
     /**
      *  스레드 종료
      */
     public void stop() {
         running = false;
+        if (cursorChannel != null) {
+            cursorChannel.stop();
+        }
         try {
             if (clientSocket != null && !clientSocket.isClosed()) {
                 clientSocket.close();
@@ -0,0 +1,36 @@
+package com.EchoLink.server.remote;
+
+/**
+ * 제어 이벤트(비트레이트, 해상도 변경, 키프레임 요청, 렌디션 선택)를 받아 처리할 스트리밍 세션
+ *
+ * 인코더는 같은 설정의 시청자끼리 공유되므로, InputEventReceiver는 인코더를 직접 바꾸지 않고
+ * 자기 세션(StreamSessionManager)에 요청함.
+ * @author ESH
+ */
+public interface StreamController {
+
+	/**
+	 * 비트레이트 변경 요청
+	 * @param bitrate 새로운 비트레이트 값(bps 단위)
+	 */
+	void changeBitrate(int bitrate);
+
+	/**
+	 * 해상도 변경 요청
+	 * @param width		새로운 가로 해상도
+	 * @param height	새로운 세로 해상도
+	 */
+	void changeResolution(int width, int height);
+
+	/**
+	 * 키프레임(IDR) 요청 (클라이언트가 패킷 손실로 화면이 깨졌을 때)
+	 * 다음 영상 프레임을 키프레임으로 인코딩 (키프레임 요청 최소 간격으로 제한됨).
+	 */
+	void requestKeyFrame();
+
+	/**
+	 * 렌디션 선택 요청 (서버에 렌디션 사다리가 설정되어 있을 때만 적용)
+	 * @param rendition 렌디션 번호 (0이 가장 큰 렌디션)
+	 */
+	void selectRendition(int rendition);
+}
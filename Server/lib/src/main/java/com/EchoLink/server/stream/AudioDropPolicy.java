@@ -0,0 +1,134 @@
+package com.EchoLink.server.stream;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 오디오 프레임 나이 기반 버리기 정책
+ *
+ * 1. 나이가 silenceDropMs를 넘으면 무음 프레임부터 버림 (들리는 손실 없이 지연만 줄임)
+ * 2. 나이가 maxAgeMs를 넘으면 소리가 있는 프레임도 버리지만,
+ *    연속으로 버린 소리 구간이 maxGapMs를 넘지 않도록 함 (긴 끊김 방지)
+ * @author ESH
+ */
+public class AudioDropPolicy implements DropPolicy<Frame> {
+
+	private static final double SILENCE_PEAK = 0.001;	// 이 값 이하의 최대 진폭(-60dBFS)은 무음으로 취급
+
+	private final long silenceDropNs;		// 무음 프레임을 버리기 시작하는 나이
+	private final long maxAgeNs;			// 소리가 있는 프레임도 버리기 시작하는 나이
+	private final long maxGapNs;			// 연속으로 버릴 수 있는 소리 구간 길이
+
+	private long gapNs = 0;					// 현재 연속으로 버린 소리 구간 길이
+	private volatile long accepted = 0;			// 인코딩한 프레임 수
+	private volatile long droppedSilent = 0;	// 버린 무음 프레임 수
+	private volatile long droppedAudible = 0;	// 버린 소리 프레임 수
+	private volatile long keptToAvoidGap = 0;	// 오래되었지만 끊김 제한으로 인코딩한 프레임 수
+
+	/**
+	 * 생성자
+	 * @param silenceDropMs	무음 프레임을 버리기 시작하는 나이(ms), 0 이하이면 사용 안 함
+	 * @param maxAgeMs		소리 프레임도 버리기 시작하는 나이(ms), 0 이하이면 사용 안 함
+	 * @param maxGapMs		연속으로 버릴 수 있는 소리 구간(ms)
+	 */
+	public AudioDropPolicy(int silenceDropMs, int maxAgeMs, int maxGapMs) {
+		this.silenceDropNs = silenceDropMs * 1_000_000L;
+		this.maxAgeNs = maxAgeMs * 1_000_000L;
+		this.maxGapNs = maxGapMs * 1_000_000L;
+	}
+
+	@Override
+	public boolean shouldDrop(TimestampedFrame<Frame> tsFrame, long nowNs) {
+		long age = nowNs - tsFrame.getTimestamp();
+		Frame frame = tsFrame.getFrame();
+
+		if (silenceDropNs > 0 && age > silenceDropNs && (tsFrame.isSilent() || isSilent(frame))) {	// 캡처 쪽 판정이 있으면 다시 검사하지 않음
+			droppedSilent++;
+			return true;	// 무음 구간은 끊김으로 들리지 않으므로 gap에 포함하지 않음
+		}
+
+		if (maxAgeNs > 0 && age > maxAgeNs) {
+			long duration = durationNanos(frame);
+			if (gapNs + duration <= maxGapNs) {
+				gapNs += duration;
+				droppedAudible++;
+				return true;
+			}
+			keptToAvoidGap++;
+		}
+		gapNs = 0;
+		accepted++;
+		return false;
+	}
+
+	@Override
+	public String getStats() {
+		return "audio{accepted=" + accepted + ", droppedSilent=" + droppedSilent
+				+ ", droppedAudible=" + droppedAudible + ", keptToAvoidGap=" + keptToAvoidGap + "}";
+	}
+
+
+	/**
+	 * 프레임 길이 (샘플 수 / 채널 / 샘플레이트)
+	 * @return 나노초, 알 수 없으면 0
+	 */
+	static long durationNanos(Frame frame) {
+		if (frame == null || frame.samples == null || frame.sampleRate <= 0) {
+			return 0;
+		}
+		Buffer samples = frame.samples[0];
+		int channels = frame.samples.length > 1 ? 1 : Math.max(1, frame.audioChannels);	// planar면 버퍼당 1채널
+		long perChannel = samples.limit() / channels;
+		return perChannel * 1_000_000_000L / frame.sampleRate;
+	}
+
+	/**
+	 * 최대 진폭이 SILENCE_PEAK 이하인지 (S16, FLT 포맷만 판단, 그 외는 소리로 취급)
+	 */
+	static boolean isSilent(Frame frame) {
+		if (frame == null || frame.samples == null) {
+			return false;
+		}
+		for (Buffer buffer : frame.samples) {
+			if (buffer instanceof ShortBuffer) {
+				ShortBuffer s = (ShortBuffer) buffer;
+				int limit = (int) (SILENCE_PEAK * Short.MAX_VALUE);
+				for (int i = s.position(); i < s.limit(); i++) {
+					if (Math.abs(s.get(i)) > limit) {
+						return false;
+					}
+				}
+			}
+			else if (buffer instanceof FloatBuffer) {
+				FloatBuffer f = (FloatBuffer) buffer;
+				for (int i = f.position(); i < f.limit(); i++) {
+					if (Math.abs(f.get(i)) > SILENCE_PEAK) {
+						return false;
+					}
+				}
+			}
+			else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	// ----Getter-----
+	public long getAccepted() {
+		return accepted;
+	}
+	public long getDroppedSilent() {
+		return droppedSilent;
+	}
+	public long getDroppedAudible() {
+		return droppedAudible;
+	}
+	public long getKeptToAvoidGap() {
+		return keptToAvoidGap;
+	}
+}
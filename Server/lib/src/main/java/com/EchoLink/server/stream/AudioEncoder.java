@@ -0,0 +1,424 @@
+package com.EchoLink.server.stream;
+
+import static org.bytedeco.ffmpeg.presets.avutil.AVERROR_EAGAIN;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avutil.AVAudioFifo;
+import org.bytedeco.ffmpeg.avutil.AVChannelLayout;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.ffmpeg.global.swresample;
+import org.bytedeco.ffmpeg.swresample.SwrContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.PointerPointer;
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 오디오 인코더 (avcodec 직접 사용, Opus 또는 AAC)
+ *
+ * AudioCapture의 Frame(S16/FLT, interleaved 또는 planar)을 인코더 포맷으로 변환(swresample)한 뒤
+ * 인코더 프레임 크기(Opus 10/20ms, AAC 1024 샘플)만큼 FIFO에 모아서 인코딩.
+ * pts는 첫 프레임의 캡처 시각 + 인코딩한 샘플 수로 계산 (마이크로초).
+ * 입력 시각(세션 시계의 오디오 시각)과 샘플 수가 어긋나면 (드롭 정책이 프레임을 버림, 오디오 시계 재동기화)
+ * 빈 구간은 무음으로 채우고(1초보다 길면 건너뜀) 겹친 구간은 샘플을 버려서, 오디오 pts가 계속 세션 시계를 따라가게 함.
+ * 기본값은 기존 클라이언트가 모두 디코딩할 수 있는 AAC.
+ * Opus(libopus)는 알고리즘 지연이 AAC보다 수십 ms 짧고 64kbps로도 데스크톱 소리에 충분함 (모든 클라이언트가 Opus를 디코딩할 때 설정).
+ * AudioCapture가 코덱 프레임과 같은 크기로 캡처하므로 FIFO에 샘플이 쌓이지 않음.
+ * DTX: 캡처 쪽에서 무음으로 판정한 프레임(SilenceDetector)은 변환, 인코딩 없이 건너뜀
+ * (DTX_KEEPALIVE_MS마다 한 프레임만 보내 스트림 유지, 소리가 있는 입력이 들어오면 그 프레임부터 바로 인코딩).
+ * 번들된 FFmpeg의 libopus 래퍼에는 dtx 옵션이 없어서 같은 동작을 여기서 구현.
+ * @author ESH
+ */
+public class AudioEncoder implements AutoCloseable {
+
+	/** 오디오 코덱 이름 (설정값) */
+	public static final String CODEC_OPUS = "opus";
+	public static final String CODEC_AAC = "aac";
+	/** 캡처, 인코딩 샘플링 속도 (Opus 기본 속도, AAC도 같은 캡처를 씀) */
+	public static final int SAMPLE_RATE = 48000;
+	/** 채널 수 (스테레오) */
+	public static final int CHANNELS = 2;
+	/** 코덱별 기본 비트레이트 (설정값이 0 이하일 때) */
+	public static final int DEFAULT_OPUS_BITRATE = 64_000;
+	public static final int DEFAULT_AAC_BITRATE = 192_000;
+
+	private static final int MAX_PLANES = 8;	// planar 입력 최대 채널 수
+	private static final int DTX_HANGOVER_FRAMES = 2;	// 무음이 시작된 뒤에도 인코딩하는 프레임 수 (디코더가 자연스럽게 끝나도록)
+	private static final long DTX_KEEPALIVE_MS = 400;	// 무음 중에도 이 간격으로 한 프레임 전송 (Opus DTX와 같은 간격)
+	private static final long MAX_TIMESTAMP_ERROR_US = 2000;	// 입력 시각과 샘플 위치의 허용 오차 (넘으면 무음 채움/샘플 버림)
+	private static final long MAX_SILENCE_FILL_US = 1_000_000;	// 이보다 긴 빈 구간은 무음을 채우지 않고 pts를 건너뜀
+
+	private final String codecName;	// 코덱 (CODEC_OPUS, CODEC_AAC)
+	private final int sampleRate;	// 샘플링 속도
+	private final int channels;		// 채널 수
+	private final int bitrate;		// 비트레이트
+	private final int frameMs;		// 코덱 프레임 길이(ms, Opus만 적용)
+	private final boolean dtx;		// 무음 프레임 건너뛰기
+
+	private AVCodecContext codecContext;
+	private AVFrame frame;					// 인코더 입력 프레임
+	private AVPacket packet;				// 인코더 출력 (재사용)
+	private AVAudioFifo fifo;				// 인코더 프레임 크기만큼 모으는 버퍼
+	private SwrContext swrContext;			// 입력 포맷 -> 인코더 포맷
+	private int swrInputFormat = avutil.AV_SAMPLE_FMT_NONE;
+	private int swrInputRate;
+	private int swrInputChannels;
+
+	private PointerPointer<BytePointer> convertData;	// 변환 결과 (planar, 채널별)
+	private int convertCapacity = 0;					// convertData에 담을 수 있는 샘플 수
+	private final PointerPointer<Pointer> inputData = new PointerPointer<>(MAX_PLANES);
+
+	private long baseTimestampUs = Long.MIN_VALUE;	// 첫 프레임 캡처 시각
+	private long samplePosition = 0;				// 인코더에 넣은 샘플 수 (pts, 1/sampleRate 단위)
+	private int silentFrames = 0;					// 연속 무음 프레임 수 (DTX)
+	private long lastSentPosition = Long.MIN_VALUE;	// 마지막으로 인코딩한 프레임의 샘플 위치 (DTX keep-alive)
+	private long audibleEnd = 0;					// 소리가 있는 입력의 끝 샘플 위치 (이 위치부터는 무음, DTX)
+	private volatile long encodedFrames = 0;		// 인코딩한 코덱 프레임 수
+	private volatile long skippedFrames = 0;		// DTX로 건너뛴 코덱 프레임 수
+	private volatile long insertedSamples = 0;		// 빈 구간에 채운(또는 건너뛴) 샘플 수
+	private volatile long droppedSamples = 0;		// 겹쳐서 버린 샘플 수
+
+	/**
+	 * 생성자
+	 * @param codecName		코덱 (CODEC_OPUS, CODEC_AAC)
+	 * @param sampleRate	샘플링 속도 (Opus는 48000)
+	 * @param channels		채널 수
+	 * @param bitrate		비트레이트(bps), 0 이하이면 코덱별 기본값
+	 * @param frameMs		코덱 프레임 길이(ms, Opus만 적용: 10 또는 20 권장)
+	 * @param dtx			무음 프레임 건너뛰기
+	 */
+	public AudioEncoder(String codecName, int sampleRate, int channels, int bitrate, int frameMs, boolean dtx) {
+		this.codecName = codecName;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bitrate = bitrate > 0 ? bitrate : (CODEC_AAC.equals(codecName) ? DEFAULT_AAC_BITRATE : DEFAULT_OPUS_BITRATE);
+		this.frameMs = frameMs;
+		this.dtx = dtx;
+	}
+
+	/**
+	 * 인코더 열기
+	 * @throws IOException 초기화 실패 (코덱이 없거나 설정이 잘못됨)
+	 */
+	public void open() throws IOException {
+		AVCodec codec;
+		AVDictionary options = new AVDictionary(null);
+		if (CODEC_AAC.equals(codecName)) {
+			codec = avcodec.avcodec_find_encoder(avcodec.AV_CODEC_ID_AAC);
+		} else if (CODEC_OPUS.equals(codecName)) {
+			codec = avcodec.avcodec_find_encoder_by_name("libopus");	// 내장 opus 인코더는 실험 단계
+			avutil.av_dict_set(options, "application", "lowdelay", 0);	// 음성 전처리 없이 지연 최소 (CELT만 사용)
+			avutil.av_dict_set(options, "frame_duration", Integer.toString(frameMs), 0);
+		} else {
+			avutil.av_dict_free(options);
+			throw new IOException("지원하지 않는 오디오 코덱: " + codecName);
+		}
+		if (codec == null) {
+			avutil.av_dict_free(options);
+			throw new IOException(codecName + " 인코더를 찾을 수 없습니다.");
+		}
+		codecContext = avcodec.avcodec_alloc_context3(codec);
+		// 내장 AAC 인코더는 FLTP, libopus는 FLT (interleaved)
+		codecContext.sample_fmt(CODEC_AAC.equals(codecName) ? avutil.AV_SAMPLE_FMT_FLTP : avutil.AV_SAMPLE_FMT_FLT);
+		codecContext.sample_rate(sampleRate);
+		avutil.av_channel_layout_default(codecContext.ch_layout(), channels);
+		codecContext.bit_rate(bitrate);
+		codecContext.time_base(avutil.av_make_q(1, sampleRate));
+		try {
+			FFmpegError.check(avcodec.avcodec_open2(codecContext, codec, options), "avcodec_open2(" + codecName + ")");
+		} finally {
+			avutil.av_dict_free(options);
+		}
+		System.out.println("[Encoder] 오디오: " + codecName + " " + sampleRate + "Hz " + channels + "ch " + bitrate + "bps, 프레임 "
+				+ codecContext.frame_size() + " 샘플, 지연 " + codecContext.initial_padding() + " 샘플" + (dtx ? ", DTX" : ""));
+
+		frame = avutil.av_frame_alloc();
+		frame.format(codecContext.sample_fmt());
+		frame.sample_rate(sampleRate);
+		avutil.av_channel_layout_copy(frame.ch_layout(), codecContext.ch_layout());
+		frame.nb_samples(codecContext.frame_size());
+		FFmpegError.check(avutil.av_frame_get_buffer(frame, 0), "av_frame_get_buffer(audio)");
+
+		fifo = avutil.av_audio_fifo_alloc(codecContext.sample_fmt(), channels, codecContext.frame_size() * 4);
+		packet = avcodec.av_packet_alloc();
+		convertData = new PointerPointer<>(channels);
+	}
+
+	/**
+	 * 캡처한 오디오 프레임 인코딩
+	 * @param samples		오디오 프레임 (FFmpegFrameGrabber 결과)
+	 * @param timestampUs	캡처 시각 (마이크로초)
+	 * @param silent		캡처 쪽 무음 판정 (DTX를 켰으면 변환, 인코딩을 생략)
+	 * @return 인코딩된 패킷 (프레임 크기만큼 모이지 않았거나 무음이면 빈 목록)
+	 * @throws IOException 변환/인코딩 실패
+	 */
+	public List<EncodedPacket> encode(Frame samples, long timestampUs, boolean silent) throws IOException {
+		if (samples.samples == null || samples.samples.length == 0) {
+			return new ArrayList<>(0);
+		}
+		if (baseTimestampUs == Long.MIN_VALUE) {
+			baseTimestampUs = timestampUs;
+		}
+		long queuedSamples = samplePosition + avutil.av_audio_fifo_size(fifo);
+		long offsetUs = timestampUs - (baseTimestampUs + queuedSamples * 1_000_000L / sampleRate);
+		if (offsetUs > MAX_TIMESTAMP_ERROR_US) {
+			fillGap(offsetUs);
+		}
+
+		Buffer first = samples.samples[0];
+		boolean planar = samples.samples.length > 1;
+		int inChannels = samples.audioChannels > 0 ? samples.audioChannels : channels;
+		int inFormat = sampleFormatOf(first, planar);
+		int inRate = samples.sampleRate > 0 ? samples.sampleRate : sampleRate;
+		int inSamples = planar ? first.limit() : first.limit() / inChannels;
+		if (dtx && silent) {
+			// 무음: 변환하지 않고 같은 길이의 무음만 채움 (샘플 위치 유지, 아래에서 인코딩도 건너뜀)
+			int length = (int) ((long) inSamples * sampleRate / inRate);
+			ensureConvertCapacity(length);
+			avutil.av_samples_set_silence(convertData, 0, length, channels, codecContext.sample_fmt());
+			avutil.av_audio_fifo_write(fifo, convertData, length);
+		} else {
+			configureResampler(inFormat, inRate, inChannels);
+			for (int i = 0; i < samples.samples.length && i < MAX_PLANES; i++) {
+				inputData.put(i, new Pointer(samples.samples[i]));
+			}
+			int outCapacity = swresample.swr_get_out_samples(swrContext, inSamples);
+			ensureConvertCapacity(outCapacity);
+			int converted = FFmpegError.check(swresample.swr_convert(swrContext,
+					convertData, convertCapacity, inputData, inSamples), "swr_convert");
+			if (converted > 0) {
+				avutil.av_audio_fifo_write(fifo, convertData, converted);
+			}
+		}
+		if (offsetUs < -MAX_TIMESTAMP_ERROR_US) {
+			// 이미 인코딩한 구간과 겹침: 겹친 만큼 버려서 다음 샘플이 제 시각에 오게 함
+			int overlap = (int) Math.min(-offsetUs * sampleRate / 1_000_000L, avutil.av_audio_fifo_size(fifo));
+			avutil.av_audio_fifo_drain(fifo, overlap);
+			droppedSamples += overlap;
+		}
+		if (!silent) {
+			audibleEnd = samplePosition + avutil.av_audio_fifo_size(fifo);	// 이 입력이 끝나는 위치까지는 인코딩
+		}
+
+		List<EncodedPacket> packets = new ArrayList<>(1);
+		int frameSize = codecContext.frame_size();
+		while (avutil.av_audio_fifo_size(fifo) >= frameSize) {
+			FFmpegError.check(avutil.av_frame_make_writable(frame), "av_frame_make_writable(audio)");
+			avutil.av_audio_fifo_read(fifo, frame.data(), frameSize);
+			frame.pts(samplePosition);
+			samplePosition += frameSize;
+			if (dtx && skipSilentFrame(frame.pts())) {
+				skippedFrames++;
+				continue;
+			}
+			lastSentPosition = frame.pts();
+			encodedFrames++;
+			send(frame, packets);
+		}
+		return packets;
+	}
+
+	/**
+	 * DTX: 이 코덱 프레임을 건너뛸지 결정 (소리가 있는 입력이 조금이라도 들어 있으면 인코딩)
+	 * @param position 코덱 프레임의 시작 샘플 위치
+	 */
+	private boolean skipSilentFrame(long position) {
+		if (position < audibleEnd) {
+			silentFrames = 0;
+			return false;
+		}
+		silentFrames++;
+		if (silentFrames <= DTX_HANGOVER_FRAMES) {
+			return false;
+		}
+		long keepAliveSamples = (long) sampleRate * DTX_KEEPALIVE_MS / 1000;
+		return position - lastSentPosition < keepAliveSamples;
+	}
+
+	/**
+	 * 입력 시각보다 샘플 위치가 늦음 (버려진 프레임 등): 빈 구간을 무음으로 채우거나, 길면 pts를 건너뜀
+	 */
+	private void fillGap(long gapUs) throws IOException {
+		int gap = (int) (Math.min(gapUs, MAX_SILENCE_FILL_US) * sampleRate / 1_000_000L);
+		if (gapUs > MAX_SILENCE_FILL_US) {
+			gap = (int) (gapUs * sampleRate / 1_000_000L) + avutil.av_audio_fifo_size(fifo);
+			avutil.av_audio_fifo_reset(fifo);	// 남은 샘플은 버리고 새 위치에서 다시 시작
+			samplePosition += gap;
+		} else {
+			ensureConvertCapacity(gap);
+			avutil.av_samples_set_silence(convertData, 0, gap, channels, codecContext.sample_fmt());
+			avutil.av_audio_fifo_write(fifo, convertData, gap);
+		}
+		insertedSamples += gap;
+	}
+
+	/**
+	 * 인코더 안에 남은 패킷 꺼내기 (종료 전)
+	 */
+	public List<EncodedPacket> flush() throws IOException {
+		List<EncodedPacket> packets = new ArrayList<>(1);
+		send(null, packets);
+		return packets;
+	}
+
+	private void send(AVFrame input, List<EncodedPacket> out) throws IOException {
+		int ret = avcodec.avcodec_send_frame(codecContext, input);
+		if (ret < 0 && ret != avutil.AVERROR_EOF) {
+			FFmpegError.check(ret, "avcodec_send_frame(audio)");
+		}
+		while (true) {
+			ret = avcodec.avcodec_receive_packet(codecContext, packet);
+			if (ret == AVERROR_EAGAIN() || ret == avutil.AVERROR_EOF) {
+				return;
+			}
+			FFmpegError.check(ret, "avcodec_receive_packet(audio)");
+			out.add(EncodedPacket.copyOf(EncodedPacket.Type.AUDIO, packet, codecContext.time_base(), baseTimestampUs));
+			avcodec.av_packet_unref(packet);
+		}
+	}
+
+	/**
+	 * 입력 포맷이 바뀌면 swresample 다시 생성
+	 */
+	private void configureResampler(int inFormat, int inRate, int inChannels) throws IOException {
+		if (swrContext != null && inFormat == swrInputFormat && inRate == swrInputRate && inChannels == swrInputChannels) {
+			return;
+		}
+		if (swrContext != null) {
+			swresample.swr_free(swrContext);
+			swrContext = null;
+		}
+		AVChannelLayout inLayout = new AVChannelLayout();
+		avutil.av_channel_layout_default(inLayout, inChannels);
+		SwrContext swr = new SwrContext(null);
+		FFmpegError.check(swresample.swr_alloc_set_opts2(swr,
+				codecContext.ch_layout(), codecContext.sample_fmt(), sampleRate,
+				inLayout, inFormat, inRate, 0, null), "swr_alloc_set_opts2");
+		FFmpegError.check(swresample.swr_init(swr), "swr_init");
+		avutil.av_channel_layout_uninit(inLayout);
+		swrContext = swr;
+		swrInputFormat = inFormat;
+		swrInputRate = inRate;
+		swrInputChannels = inChannels;
+	}
+
+	private void ensureConvertCapacity(int samples) throws IOException {
+		if (samples <= convertCapacity) {
+			return;
+		}
+		if (convertCapacity > 0) {
+			avutil.av_freep(convertData);	// av_samples_alloc은 채널 전체를 한 번에 할당 (첫 포인터만 해제)
+		}
+		int capacity = Math.max(samples, codecContext.frame_size());
+		FFmpegError.check(avutil.av_samples_alloc(convertData, null, channels, capacity,
+				codecContext.sample_fmt(), 0), "av_samples_alloc");
+		convertCapacity = capacity;
+	}
+
+	private static int sampleFormatOf(Buffer buffer, boolean planar) throws IOException {
+		if (buffer instanceof ShortBuffer) {
+			return planar ? avutil.AV_SAMPLE_FMT_S16P : avutil.AV_SAMPLE_FMT_S16;
+		}
+		if (buffer instanceof FloatBuffer) {
+			return planar ? avutil.AV_SAMPLE_FMT_FLTP : avutil.AV_SAMPLE_FMT_FLT;
+		}
+		throw new IOException("지원하지 않는 오디오 샘플 버퍼: " + buffer.getClass().getSimpleName());
+	}
+
+
+	/**
+	 * 인코더 해제
+	 */
+	@Override
+	public void close() {
+		if (codecContext != null) {
+			avcodec.avcodec_free_context(codecContext);
+			codecContext = null;
+		}
+		if (frame != null) {
+			avutil.av_frame_free(frame);
+			frame = null;
+		}
+		if (packet != null) {
+			avcodec.av_packet_free(packet);
+			packet = null;
+		}
+		if (fifo != null) {
+			avutil.av_audio_fifo_free(fifo);
+			fifo = null;
+		}
+		if (swrContext != null) {
+			swresample.swr_free(swrContext);
+			swrContext = null;
+		}
+		if (convertCapacity > 0) {
+			avutil.av_freep(convertData);
+			convertCapacity = 0;
+		}
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 인코더 코덱 설정 (StreamWriter가 스트림 정보로 사용)
+	 */
+	public AVCodecContext getCodecContext() {
+		return codecContext;
+	}
+	/**
+	 * @return 다음에 나올 패킷의 가장 이른 시각(마이크로초, 인코더 지연 포함), 첫 프레임 전이면 Long.MIN_VALUE
+	 * DTX로 프레임을 건너뛰는 동안 먹스 단계가 오디오를 기다리지 않도록 알려 주는 데 사용.
+	 */
+	public long getNextTimestampUs() {
+		if (baseTimestampUs == Long.MIN_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		long position = samplePosition - codecContext.initial_padding();	// 다음 프레임 시작 위치 - 인코더 지연
+		return baseTimestampUs + position * 1_000_000L / sampleRate;
+	}
+	public String getCodecName() {
+		return codecName;
+	}
+	/**
+	 * @return 인코딩한 코덱 프레임 수
+	 */
+	public long getEncodedFrames() {
+		return encodedFrames;
+	}
+	/**
+	 * @return DTX로 인코딩하지 않고 건너뛴 코덱 프레임 수
+	 */
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+	/**
+	 * @return 입력 시각에 맞추려고 채운(또는 건너뛴) 샘플 수
+	 */
+	public long getInsertedSamples() {
+		return insertedSamples;
+	}
+	/**
+	 * @return 입력 시각에 맞추려고 버린 샘플 수
+	 */
+	public long getDroppedSamples() {
+		return droppedSamples;
+	}
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	public int getChannels() {
+		return channels;
+	}
+}
@@ -0,0 +1,25 @@
+package com.EchoLink.server.stream;
+
+/**
+ * 인코더가 큐에서 꺼낸 프레임을 인코딩할지 버릴지 결정하는 정책
+ *
+ * 큐 길이(개수)가 아니라 프레임 나이(캡처 시각 기준)로 판단하여
+ * FPS와 무관하게 지연 시간의 상한을 보장.
+ * 구현체는 결정마다 카운터를 올려 getStats()로 보여줌.
+ * @author ESH
+ * @param <T> 프레임 데이터 타입
+ */
+public interface DropPolicy<T> {
+
+	/**
+	 * @param frame	큐에서 꺼낸 프레임
+	 * @param nowNs	현재 시각 (System.nanoTime())
+	 * @return 버려야 하면 true (호출한 쪽에서 release)
+	 */
+	boolean shouldDrop(TimestampedFrame<T> frame, long nowNs);
+
+	/**
+	 * @return 결정 카운터 요약 (로그용)
+	 */
+	String getStats();
+}
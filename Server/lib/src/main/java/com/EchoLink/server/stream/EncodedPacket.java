@@ -0,0 +1,108 @@
+package com.EchoLink.server.stream;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+
+/**
+ * 인코딩된 패킷 하나 (영상 또는 오디오)
+ *
+ * AVPacket은 인코더가 재사용하므로 데이터를 Java 배열로 복사해 둠.
+ * 변경되지 않는 객체라 같은 인코더를 보는 여러 시청자(StreamWriter)가 그대로 공유.
+ * (영상 패킷의 단계별 시각(FrameTimings)만 인코더가 시청자에게 넘기기 전에 한 번 붙임)
+ * 시간값은 모두 마이크로초 (캡처 System.nanoTime() 기준).
+ * @author ESH
+ */
+public final class EncodedPacket {
+
+	/**
+	 * 패킷 종류
+	 */
+	public enum Type {
+		VIDEO, AUDIO
+	}
+
+	/** 마이크로초 시간 단위 (1/1000000) */
+	static final AVRational MICROSECONDS = avutil.av_make_q(1, 1_000_000);
+
+	private final Type type;
+	private final byte[] data;
+	private final long ptsUs;
+	private final long dtsUs;
+	private final long durationUs;
+	private final boolean keyFrame;
+	private FrameTimings timings;	// 영상 프레임의 단계별 시각 (오디오, 측정 안 함은 null)
+
+	/**
+	 * 생성자
+	 * @param type			패킷 종류
+	 * @param data			인코딩된 데이터
+	 * @param ptsUs			표시 시간 (마이크로초)
+	 * @param dtsUs			디코딩 시간 (마이크로초)
+	 * @param durationUs	길이 (마이크로초, 모르면 0)
+	 * @param keyFrame		키프레임 여부 (오디오는 항상 true)
+	 */
+	public EncodedPacket(Type type, byte[] data, long ptsUs, long dtsUs, long durationUs, boolean keyFrame) {
+		this.type = type;
+		this.data = data;
+		this.ptsUs = ptsUs;
+		this.dtsUs = dtsUs;
+		this.durationUs = durationUs;
+		this.keyFrame = keyFrame;
+	}
+
+	/**
+	 * 인코더 출력 AVPacket 복사
+	 * @param type		패킷 종류
+	 * @param packet	인코더 출력
+	 * @param timeBase	인코더 시간 단위
+	 * @param offsetUs	pts/dts에 더할 시간 (마이크로초)
+	 * @return EncodedPacket
+	 */
+	static EncodedPacket copyOf(Type type, AVPacket packet, AVRational timeBase, long offsetUs) {
+		byte[] data = new byte[packet.size()];
+		packet.data().get(data);
+		long pts = avutil.av_rescale_q(packet.pts(), timeBase, MICROSECONDS) + offsetUs;
+		long dts = packet.dts() == avutil.AV_NOPTS_VALUE ? pts
+				: avutil.av_rescale_q(packet.dts(), timeBase, MICROSECONDS) + offsetUs;
+		long duration = avutil.av_rescale_q(packet.duration(), timeBase, MICROSECONDS);
+		boolean key = type == Type.AUDIO || (packet.flags() & avcodec.AV_PKT_FLAG_KEY) != 0;
+		return new EncodedPacket(type, data, pts, dts, duration, key);
+	}
+
+	/**
+	 * 단계별 시각 연결 (시청자에게 넘기기 전에만 호출)
+	 * @param timings 이 패킷을 만든 프레임의 시각
+	 */
+	void attachTimings(FrameTimings timings) {
+		this.timings = timings;
+	}
+
+
+	// ----Getter-----
+	public Type getType() {
+		return type;
+	}
+	public boolean isVideo() {
+		return type == Type.VIDEO;
+	}
+	public byte[] getData() {
+		return data;
+	}
+	public long getPtsUs() {
+		return ptsUs;
+	}
+	public long getDtsUs() {
+		return dtsUs;
+	}
+	public long getDurationUs() {
+		return durationUs;
+	}
+	public boolean isKeyFrame() {
+		return keyFrame;
+	}
+	public FrameTimings getTimings() {
+		return timings;
+	}
+}
@@ -1,105 +1,180 @@
 package com.EchoLink.server.stream;
 
-import org.bytedeco.ffmpeg.global.avcodec;
-import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.Java2DFrameConverter;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.bytedeco.ffmpeg.global.avutil;
 
+import com.EchoLink.server.metrics.AllocationMeter;
+import com.EchoLink.server.metrics.StageLatency;
+
 
 /**
  * 영상, 음성 프레임을 각각의 큐에서 받아 인코딩
- * 영상: BufferedImage -> H.264
- * 음성: Frame -> AAC
- * 이후 하나의 스트림으로 합쳐(Muxing) 클라이언트에게 UDP 포트로 전송.
+ * 영상: BufferedImage -> H.264/HEVC/AV1 (캡처 단계의 변경 영역(Dirty Region)만 변환, 인코더에 ROI로 전달)
+ * 음성: Frame -> AAC 또는 Opus (echolink.stream.audio.codec)
+ *
+ * 같은 설정(해상도, FPS, 비트레이트)의 시청자들이 하나의 Encoder를 공유 (EncoderHub가 관리).
+ * 인코딩은 한 번만 하고, 인코딩된 패킷을 시청자별 StreamWriter로 나눠 줌 (mpegts로 묶어 SRT 전송).
+ * 새 시청자는 다음 키프레임부터 받음 (키프레임을 요청하므로 GOP 끝까지 기다리지 않음).
+ * 클라이언트의 키프레임 요청(손실 복구)은 keyFrameMinRequestMs 간격으로 제한하고, 그 안에 들어온 요청은 한 번으로 합침.
+ *
+ * 영상과 오디오는 각자의 코덱 컨텍스트를 가지므로 Lock 없이 별도 쓰레드에서 인코딩하고,
+ * 결과 패킷은 PacketMuxer(먹스 쓰레드)가 타임스탬프 순서로 섞어 시청자에게 넘김.
+ * (느린 영상 인코딩이 오디오를 막지 않음)
  * @author ESH
  */
-public class Encoder implements Runnable {
+public final class Encoder implements Runnable {
 
-	private final BlockingQueue<TimestampedFrame<BufferedImage>> videoFrameQueue;	// 영상 공유용 큐
-	private final BlockingQueue<TimestampedFrame<Frame>> audioFrameQueue;			// 오디오 공유용 큐
+	private final FrameRingBuffer<TimestampedFrame<BufferedImage>> videoFrameQueue;	// 영상 공유용 링 버퍼
+	private final FrameRingBuffer<TimestampedFrame<Frame>> audioFrameQueue;			// 오디오 공유용 링 버퍼
+	private final SessionClock clock;						// 캡처 시각 -> pts (세션 시작 = 0, 오디오 시계 기준)
 
 	/*
 	 * 영상용
 	 */
-	private final String clientIp;							// 클라이언트
-	private final int port;									// UDP 포트
-	private int width;								// 해상도(가로)
-	private int height;								// 해상도(세로)
+	private final int width;								// 해상도(가로)
+	private final int height;								// 해상도(세로)
 	private final int frameRate;							// 프레임
-	private int videoBitrate; 								// 비트레이트(영상 품질)
-	private final int throwVideoFrameQueue_SIZE = 30;		// 프레임 큐 임계값
-	private final int throwAudioFrameQueue_SIZE = 150;		// 오디오 큐 임계값
+	private volatile int videoBitrate; 						// 비트레이트(영상 품질, 요청된 마지막 값)
+	private final int keyFrameIntervalMs;					// 주기적 키프레임 간격
+	private final boolean intraRefresh;						// 주기적 IDR 대신 인트라 갱신 (libx264)
+	private final long keyFrameMinRequestNs;				// 키프레임 요청 최소 간격
 
-	private FFmpegFrameRecorder recorder;	// 영상/오디오 제공자
-	private final ExecutorService executor = Executors.newFixedThreadPool(2); // 영상,음성 처리용 스레드 풀
+	/*
+	 * 오디오용
+	 */
+	private final String audioCodec;						// 오디오 코덱 (opus, aac)
+	private final int audioBitrate;							// 오디오 비트레이트 (0 이하이면 코덱별 기본값)
+	private final int audioFrameMs;							// 오디오 코덱 프레임 길이(ms, Opus)
+	private final boolean audioDtx;							// 무음 프레임 건너뛰기
+
+	private volatile VideoEncoder videoEncoder;	// 영상 인코더 (H.264/HEVC/AV1)
+	private AudioEncoder audioEncoder;		// 오디오 인코더 (AAC 또는 Opus)
+	private final List<StreamWriter> writers = new CopyOnWriteArrayList<>();	// 시청자별 전송 쓰레드
+	private final Map<StreamWriter, Thread> writerThreads = new ConcurrentHashMap<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(3); // 영상, 음성, 먹스 처리용 스레드 풀
+	private final PacketMuxer muxer = new PacketMuxer(this::publish);	// 영상/오디오 패킷을 타임스탬프 순서로 시청자에게 전달
 	
-	private final ReentrantLock recorderLock = new ReentrantLock();	// 동시성 제어용 Lock
+	private final DropPolicy<BufferedImage> videoDropPolicy;	// 영상 프레임 나이 기반 버리기 정책
+	private final DropPolicy<Frame> audioDropPolicy;			// 오디오 프레임 나이 기반 버리기 정책
 	
 	private volatile boolean running = true;	// 종료
+	private volatile long skippedStaticFrames = 0;	// 변경 영역이 없어 변환을 생략한 프레임 수
+	private volatile boolean keyFrameRequestPending = false;	// 간격 제한으로 아직 적용하지 않은 키프레임 요청
+	private long lastRequestedKeyFrameNs = 0;		// 마지막으로 키프레임 요청을 적용한 시각 (영상 쓰레드만 사용)
+	private long lastVideoSequence = -1;	// 직전 영상 프레임의 캡처 순번 (영상 쓰레드만 사용)
+	private long lastVideoPtsUs = Long.MIN_VALUE;	// 마지막 영상 pts (드리프트 보정으로 되돌아가지 않게, 영상 쓰레드만 사용)
+	private final AtomicLong keyFrameRequests = new AtomicLong();	// 받은 키프레임 요청 수 (여러 쓰레드에서 증가)
+	private volatile long requestedKeyFrames = 0;	// 요청으로 만든 키프레임 수 (나머지는 합쳐짐)
+	private final AllocationMeter allocationMeter = new AllocationMeter("Encoder-Video", 300);	// 영상 쓰레드 프레임당 할당량
+	private final StageLatency videoLatency;	// 영상 쓰레드 단계별 지연 시간 (큐 대기, 변환, 인코딩)
+	private final StageLatency audioLatency;	// 오디오 쓰레드 단계별 지연 시간 (큐 대기, 인코딩)
 
 
 	/**
 	 * 생성자
-	 * @param frameQueue	프레임 공유용 버퍼
-	 * @param clientIp		클라이언트
-	 * @param port			UDP 전송 포트
+	 * @param videoQueue	영상 프레임 링 버퍼
+	 * @param audioQueue	오디오 프레임 링 버퍼
+	 * @param clock			세션 시계 (CaptureHub.getClock())
 	 * @param width			가로
 	 * @param height		세로
 	 * @param fps			프레임
 	 * @param bitrate		비트레이트
+	 * @param keyFrameIntervalMs	주기적 키프레임 간격(ms)
+	 * @param keyFrameMinRequestMs	키프레임 요청 최소 간격(ms)
+	 * @param intraRefresh	주기적 IDR 대신 인트라 갱신 사용
+	 * @param audioCodec	오디오 코덱 (AudioEncoder.CODEC_OPUS, AudioEncoder.CODEC_AAC)
+	 * @param audioBitrate	오디오 비트레이트 (0 이하이면 코덱별 기본값)
+	 * @param audioFrameMs	오디오 코덱 프레임 길이(ms, Opus)
+	 * @param audioDtx		무음 오디오 프레임 건너뛰기
+	 * @param videoDropPolicy	영상 버리기 정책
+	 * @param audioDropPolicy	오디오 버리기 정책
 	 */
-	public Encoder(BlockingQueue<TimestampedFrame<BufferedImage>> videoQueue, BlockingQueue<TimestampedFrame<Frame>> audioQueue,
-			String clientIp, int port, int width, int height, 
-			int fps, int bitrate) {
+	public Encoder(FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue, FrameRingBuffer<TimestampedFrame<Frame>> audioQueue,
+			SessionClock clock,
+			int width, int height, 
+			int fps, int bitrate,
+			int keyFrameIntervalMs, int keyFrameMinRequestMs, boolean intraRefresh,
+			String audioCodec, int audioBitrate, int audioFrameMs, boolean audioDtx,
+			DropPolicy<BufferedImage> videoDropPolicy, DropPolicy<Frame> audioDropPolicy) {
 
 		this.videoFrameQueue = videoQueue;
 		this.audioFrameQueue = audioQueue;
-		this.clientIp = clientIp;
-		this.port = port;
+		this.clock = clock;
 		this.width = width;
 		this.height = height;
 		this.frameRate = fps;
 		this.videoBitrate = bitrate;
+		this.keyFrameIntervalMs = keyFrameIntervalMs;
+		this.intraRefresh = intraRefresh;
+		this.keyFrameMinRequestNs = TimeUnit.MILLISECONDS.toNanos(Math.max(0, keyFrameMinRequestMs));
+		this.audioCodec = audioCodec;
+		this.audioBitrate = audioBitrate;
+		this.audioFrameMs = audioFrameMs;
+		this.audioDtx = audioDtx;
+		this.videoDropPolicy = videoDropPolicy;
+		this.audioDropPolicy = audioDropPolicy;
+		this.videoLatency = new StageLatency("Encoder-Video " + width + "x" + height, 300,
+				StageLatency.Stage.QUEUE_WAIT, StageLatency.Stage.CONVERT, StageLatency.Stage.ENCODE);
+		this.audioLatency = new StageLatency("Encoder-Audio", 500,
+				StageLatency.Stage.QUEUE_WAIT, StageLatency.Stage.ENCODE);
 	}
 
 
-	@Override
-	public void run() {
-		
-		// UDP 포트 방식
-		// String outputUrl = "udp://" + clientIp + ":" + port + "?pkt_size=1316&fifo_size=1000000";
-		
-		// SRT 포트 방식 ("srt://[IP 주소]:[포트]?mode=caller")
-		String outputUrl = "srt://" + clientIp + ":" + port + "?mode=caller";
-		System.out.println("스트리밍(Encoder) 시작: " + outputUrl);
+	/**
+	 * 인코더 초기화 (쓰레드 시작 전, 시청자 추가 전에 호출)
+	 * 
+	 * 하드웨어 가속을 우선으로 하는 인코더 초기화 메소드
+	 * NVIDIA(nvenc) -> Intel(qsv) -> CPU(libx264) 순서 중 서버 시작 시 확인된 코덱만 시도 (VideoEncoderProbe).
+	 * @throws IOException 모든 인코더 초기화 실패 시 예외 발생
+	 */
+	public void open() throws IOException {
+		open(VideoEncoderProbe.codecs());
+	}
 
-		// FFmpegFrameRecorder 설정
-		// outputUrl에게 데이터 자동 전송
-		// 오디오 채널(2=스테레오) 명시적 설정
-		try {
+	/**
+	 * 인코더 초기화 (코덱 순서 지정)
+	 * @param codecs 시도할 영상 코덱 순서 (해상도 변경 시 이전 인코더의 코덱을 먼저 시도)
+	 * @throws IOException 모든 인코더 초기화 실패 시 예외 발생
+	 */
+	public void open(List<String> codecs) throws IOException {
+		videoEncoder = new VideoEncoder(width, height, frameRate, videoBitrate, keyFrameIntervalMs, intraRefresh);
+		videoEncoder.open(codecs);
+		audioEncoder = new AudioEncoder(audioCodec, AudioEncoder.SAMPLE_RATE, AudioEncoder.CHANNELS,
+				audioBitrate, audioFrameMs, audioDtx);	// AudioCapture와 같은 샘플링 속도, 채널
+		audioEncoder.open();
+	}
 
-			// 인코더 초기화
-			initializeRecorder(outputUrl);
 
+	@Override
+	public void run() {
+		System.out.println("스트리밍(Encoder) 시작: " + width + "x" + height + " @" + frameRate + "fps, " + videoBitrate + "bps"
+				+ (intraRefresh ? ", 인트라 갱신 " : ", 키프레임 ") + keyFrameIntervalMs + "ms");
+		try {
 			/*
 			 * 쓰레드 시작
 			 */
 			// 영상과 음성을 별도의 스레드에서 병렬로 처리하여 서로를 방해하지 않도록 함.
-			Java2DFrameConverter converter = new Java2DFrameConverter();
+			IncrementalFrameConverter converter = new IncrementalFrameConverter();	// 변경 영역만 복사하는 변환기 (크기가 다를 때, swscale)
+			Yuv420Converter yuvConverter = new Yuv420Converter();	// 변경 영역만 YUV420P로 바로 변환 (크기가 같을 때)
+			System.out.println("[Encoder] YUV 변환: " + Yuv420Converter.describe());
 
-			// 영상, 오디오 쓰레드
-			executor.submit(() -> processVideoFrames(recorder, converter));	// 영상 쓰레드 시작
-			executor.submit(() -> processAudioFrames(recorder));			// 오디오 쓰레드 시작
+			// 영상, 오디오, 먹스 쓰레드
+			executor.submit(() -> processVideoFrames(converter, yuvConverter));	// 영상 쓰레드 시작
+			executor.submit(() -> processAudioFrames());			// 오디오 쓰레드 시작
+			executor.submit(muxer);									// 먹스 쓰레드 시작 (시청자 전달)
 
 
 			// 메인 쓰레드
@@ -109,8 +184,8 @@ public class Encoder implements Runnable {
 			}
 
 		} 
-		catch (Exception e) {
-			e.printStackTrace();
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 		finally {
 			stop();
@@ -119,100 +194,180 @@ public class Encoder implements Runnable {
 
 	}
 
+
 	/**
-	 * 인코더 초기화
-	 * 
-	 * 하드웨어 가속을 우선으로 하는 인코더 초기화 메소드
-	 * NVIDIA(nvenc) -> Intel(qsv) -> CPU(libx264) 순서로 시도.
-	 * 
-	 * @param outputUrl 스트리밍을 보낼 대상 URL
-	 * @throws org.bytedeco.javacv.FFmpegFrameRecorder.Exception 모든 인코더 초기화 실패 시 예외 발생
+	 * 시청자 추가 (전송 쓰레드 시작). 다음 키프레임부터 전송.
+	 * @param clientIp	클라이언트 IP
+	 * @param port		클라이언트 수신 포트
+	 * @return 시청자 전송 쓰레드
 	 */
-	private void initializeRecorder(String outputUrl) throws org.bytedeco.javacv.FFmpegFrameRecorder.Exception {
+	public StreamWriter addWriter(String clientIp, int port) {
+		// SRT 포트 방식 ("srt://[IP 주소]:[포트]?mode=caller")
+		String outputUrl = "srt://" + clientIp + ":" + port + "?mode=caller";
+		StreamWriter writer = new StreamWriter(outputUrl,
+				videoEncoder.getCodecContext(), audioEncoder.getCodecContext());
+		writer.switchTo(this);
+		Thread thread = new Thread(writer, "StreamWriter-" + clientIp + ":" + port);
+		writerThreads.put(writer, thread);
+		writers.add(writer);
+		thread.start();
+		requestRecoveryKeyFrame();	// 공유 인코더에 들어온 시청자가 GOP 끝까지 기다리지 않게 함
+		return writer;
+	}
 
-		// 시도할 코덱 목록. h264_nvenc(NVIDIA), h264_qsv(Intel), libx264(CPU)
-		List<String> videoCodecs = Arrays.asList("h264_nvenc", "h264_qsv", "libx264");
+	/**
+	 * 손실 복구용 키프레임 요청 (클라이언트 제어 이벤트, 시청자 재동기화 등, 어느 쓰레드에서나 호출 가능)
+	 * 키프레임은 크기가 크므로 keyFrameMinRequestMs 간격으로 제한: 간격 안에 들어온 요청은 버리지 않고
+	 * 간격이 지난 뒤의 첫 프레임에서 한 번으로 합쳐 적용 (영상 쓰레드가 프레임 경계에서 확인).
+	 */
+	public void requestRecoveryKeyFrame() {
+		keyFrameRequests.incrementAndGet();
+		keyFrameRequestPending = true;
+	}
 
-		for (String codec : videoCodecs) {
-			try {
-				System.out.println("[Encoder] '" + codec + "' 코덱으로 인코더 초기화를 시도합니다...");
-				recorder = new FFmpegFrameRecorder(outputUrl, width, height, 2);
-
-				/*
-				 * --- 비디오 설정 ---
-				 */
-				// recorder.setFormat("flv");		// UDP에는 flv 컨테이너 포맷 안정적
-				recorder.setFormat("mpegts");		// SRT는 mpegts 컨테이너 포맷 안정적
-				recorder.setVideoCodecName(codec);  // 코덱 이름으로 설정
-				recorder.setFrameRate(frameRate);	// FPS 설정
-				recorder.setVideoBitrate(videoBitrate);	// 비트레이트 설정
-				recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);	// H.264 표준 픽셀 포맷
-				recorder.setGopSize(frameRate);		// 네트워크 불안정 시 복구 속도 증가 설정(I-프레임 간격을 FPS와 동일하게 설정)
-
-				// 코덱별 최적화 옵션 설정
-				if ("libx264".equals(codec)) {
-					recorder.setVideoOption("preset", "ultrafast");
-				}
-				recorder.setVideoOption("tune", "zerolatency");
-
-				// SRT 전송 관련 옵션
-                recorder.setOption("flush_packets", "1"); // 패킷을 즉시 전송하여 지연 시간 감소
-                recorder.setOption("latency", "0"); 	// SRT 내부 지연 시간 설정 (0에 가깝게)
-
-				
-				/*
-				 * --- 오디오 설정 ---
-				 */
-				recorder.setAudioCodec(avcodec.AV_CODEC_ID_AAC);	// AAC 코덱 사용
-				recorder.setSampleRate(44100);		// AudioCapture와 동일하게 설정
-				recorder.setAudioBitrate(192000);	// 192kbps
-
-
-				// 인코더 실행
-				recorder.start();
-				System.out.println("[Encoder] ✔️ 성공: '" + codec + "' 코덱으로 인코더를 시작합니다.");
-				return; // 성공 시 메소드 종료
-
-			} catch (org.bytedeco.javacv.FFmpegFrameRecorder.Exception e) {
-				System.err.println("[Encoder] ❌ 실패: '" + codec + "' 코덱 초기화 실패. 다음 코덱을 시도합니다. (오류: " + e.getMessage() + ")");
-				if (recorder != null) {
-					recorder.release();
-				}
-			}
+	/**
+	 * 대기 중인 키프레임 요청 적용 (영상 쓰레드, 인코딩 직전)
+	 */
+	private void applyKeyFrameRequest(long now) {
+		if (!keyFrameRequestPending) {
+			return;
+		}
+		if (lastRequestedKeyFrameNs != 0 && now - lastRequestedKeyFrameNs < keyFrameMinRequestNs) {
+			return;	// 간격 제한: 다음 프레임에서 다시 확인
+		}
+		keyFrameRequestPending = false;
+		lastRequestedKeyFrameNs = now;
+		requestedKeyFrames++;
+		videoEncoder.requestKeyFrame();
+	}
+
+	/**
+	 * 다음 영상 프레임을 키프레임으로 인코딩 요청 (간격 제한 없음, 해상도 전환 등 서버 내부용)
+	 */
+	public void requestKeyFrame() {
+		VideoEncoder encoder = videoEncoder;
+		if (encoder != null) {
+			encoder.requestKeyFrame();
+		}
+	}
+
+	/**
+	 * 다른 Encoder의 시청자를 연결을 끊지 않고 넘겨받음 (해상도 변경)
+	 * 키프레임을 바로 요청하고, 시청자는 이 Encoder의 첫 키프레임부터 받음 (그 전까지는 이전 Encoder의 패킷을 받음).
+	 * @param writer	이전 Encoder의 시청자
+	 * @param thread	시청자 전송 쓰레드
+	 * @return 전환되면 완료되는 Future (이후 이전 Encoder에서 detachWriter()로 떼어냄)
+	 */
+	public CompletableFuture<Void> adoptWriter(StreamWriter writer, Thread thread) {
+		CompletableFuture<Void> switched = writer.switchTo(this);
+		if (thread != null) {
+			writerThreads.put(writer, thread);
+		}
+		writers.add(writer);
+		requestKeyFrame();
+		return switched;
+	}
+
+	/**
+	 * 시청자를 이 Encoder에서 떼어냄 (전송 쓰레드는 그대로, 다른 Encoder로 옮긴 뒤 호출)
+	 * @param writer 시청자
+	 */
+	public void detachWriter(StreamWriter writer) {
+		writers.remove(writer);
+		writerThreads.remove(writer);
+	}
+
+	/**
+	 * 시청자 제거 (전송 쓰레드 중지)
+	 * @param writer addWriter()의 반환값
+	 */
+	public void removeWriter(StreamWriter writer) {
+		writers.remove(writer);
+		writer.stop();
+		Thread thread = writerThreads.remove(writer);
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * 인코딩된 패킷을 모든 시청자에게 전달 (먹스 쓰레드에서만 호출)
+	 */
+	private void publish(EncodedPacket packet) {
+		for (StreamWriter writer : writers) {
+			writer.offer(packet, this);
 		}
-		// 모든 코덱 시도 후에도 실패하면 예외 발생
-		throw new org.bytedeco.javacv.FFmpegFrameRecorder.Exception("사용 가능한 H.264 인코더(nvenc, qsv, libx264)를 찾을 수 없습니다.");
 	}
 
 
 	/**
 	 * 영상 처리 쓰레드
-	 * @param recorder
-	 * @param converter
+	 * 캡처 크기가 인코더와 같으면 YUV420P 입력 프레임에 바로 변환하고, 다르면 BGR0 변환 후 swscale로 축소.
+	 * @param converter		BGR0 변환기 (swscale 경로)
+	 * @param yuvConverter	YUV420P 직접 변환기
 	 */
-	private void processVideoFrames(FFmpegFrameRecorder recorder, Java2DFrameConverter converter) {
+	private void processVideoFrames(IncrementalFrameConverter converter, Yuv420Converter yuvConverter) {
 		while (running) {
 			try {
-				// 큐가 너무 많이 쌓일 시,
-				// 지연을 줄이기 위해 가장 오래된 프레임을 버리고 최신 프레임으로 건너뜀.
-				while (videoFrameQueue.size() > throwVideoFrameQueue_SIZE) {
-					videoFrameQueue.take(); 	// 오래된 프레임 버리기
+				// 지연을 줄이기 위해 항상 최신 프레임을 꺼내고, 밀린 프레임은 버림 (버퍼 풀 반납).
+				// (버린 프레임의 변경 영역은 캡처 순번으로 감지되어 다음 변환 때 전체 복사됨)
+				TimestampedFrame<BufferedImage> tsFrame = videoFrameQueue.takeLatest();
+				long dequeued = System.nanoTime();
+				if (videoDropPolicy.shouldDrop(tsFrame, dequeued)) {
+					tsFrame.release();	// 너무 오래된 프레임은 인코딩하지 않음
+					continue;
+				}
+				allocationMeter.frameStart();
+				FrameTimings timings = new FrameTimings(tsFrame, dequeued);
+				videoLatency.record(StageLatency.Stage.QUEUE_WAIT, dequeued - timings.publishNs);
+				List<Rectangle> dirtyRegions = tsFrame.getDirtyRegions();
+				if (dirtyRegions != null && dirtyRegions.isEmpty()) {
+					skippedStaticFrames++;	// 변경 없는 프레임: 변환 생략 (직전 프레임 그대로 인코딩, 전체를 정적 영역 ROI로)
+				}
+				long sequence = tsFrame.getSequence();
+				if (sequence < 0 || sequence != lastVideoSequence + 1) {
+					dirtyRegions = null;	// 사이 프레임을 버렸으면 그 변경 영역이 빠져 있으므로 ROI를 붙이지 않음
+				}
+				lastVideoSequence = sequence;
+				BufferedImage image = tsFrame.getFrame();
+				boolean direct = videoEncoder.acceptsYuv420(image.getWidth(), image.getHeight())
+						&& Yuv420Converter.supports(image);
+				Frame videoFrame = null;
+				try {
+					if (direct) {
+						yuvConverter.convert(tsFrame, videoEncoder.beginPicture());	// 인코더 입력 프레임에 바로 씀
+					} else {
+						videoFrame = converter.convert(tsFrame);
+					}
+				} finally {
+					tsFrame.release();	// 변환이 끝난 캡처 버퍼는 바로 풀로 반납
+				}
+				timings.convertEndNs = System.nanoTime();
+				videoLatency.record(StageLatency.Stage.CONVERT, timings.convertEndNs - dequeued);
+
+				// 영상 코덱은 이 쓰레드만 사용 (오디오와 Lock을 공유하지 않음)
+				timings.encodeStartNs = System.nanoTime();
+				applyKeyFrameRequest(timings.encodeStartNs);
+				videoEncoder.setDirtyRegions(dirtyRegions, image.getWidth(), image.getHeight());	// 바뀐 부분에 비트를 더 씀
+				// 타임스탬프 (캡처 시각 -> 세션 시각, 오디오 시계 기준으로 드리프트 보정)
+				long ptsUs = Math.max(clock.toSessionUs(tsFrame.getTimestamp()), lastVideoPtsUs + 1);
+				lastVideoPtsUs = ptsUs;
+				List<EncodedPacket> packets;
+				if (direct) {
+					packets = videoEncoder.encodePicture(ptsUs);
+				} else {
+					int pixelFormat = converter.isOwnFrame(videoFrame)
+							? IncrementalFrameConverter.PIXEL_FORMAT : avutil.AV_PIX_FMT_NONE;
+					packets = videoEncoder.encode(videoFrame, pixelFormat, ptsUs);
 				}
-				
-				// '상자'를 꺼냄
-				TimestampedFrame<BufferedImage> tsFrame = videoFrameQueue.take();
-				Frame videoFrame = converter.convert(tsFrame.getFrame());
-
-                // recorderLock을 사용하여 recorder 접근 보호(쓰레드 동시 접근 제한)
-                recorderLock.lock();
-                try {
-                    if (this.recorder != null) {
-                        this.recorder.setTimestamp(tsFrame.getTimestamp() / 1000);  // 타임스탬프 설정 (나노초 -> 마이크로초 변환)
-                        this.recorder.record(videoFrame);
-                    }
-                } finally {
-                    recorderLock.unlock();
-                }
+				timings.encodeEndNs = System.nanoTime();
+				videoLatency.record(StageLatency.Stage.ENCODE, timings.encodeEndNs - timings.encodeStartNs);
+				for (EncodedPacket packet : packets) {
+					packet.attachTimings(timings);	// 먹스/전송 쓰레드에서 대기 시간, 전체 지연 측정
+				}
+				muxer.offerVideo(packets);
+				videoLatency.frameEnd();
+				allocationMeter.frameEnd();
 			}
 			catch (Exception e) {
 				if (running) 
@@ -224,29 +379,34 @@ public class Encoder implements Runnable {
 	
 	/**
 	 * 오디오 처리 쓰레드
-	 * @param recorder 
 	 */
-	private void processAudioFrames(FFmpegFrameRecorder recorder) {
+	private void processAudioFrames() {
 		while (running) {
 			try {
-                // 큐가 너무 많이 쌓이면 오래된 오디오 프레임을 버림.
-                while (audioFrameQueue.size() > throwAudioFrameQueue_SIZE) {
-                    audioFrameQueue.take(); // 오래된 프레임 버리기
-                }
-				
-				// '상자'를 꺼냄
+				// '상자'를 꺼냄 (오디오는 순서대로, 밀리면 링 버퍼가 가장 오래된 프레임을 버림)
 				TimestampedFrame<Frame> tsFrame = audioFrameQueue.take();
-
-				// recorderLock을 사용하여 recorder 접근 보호(쓰레드 동시 접근 제한)
-				recorderLock.lock();
 				try {
-					if (this.recorder != null) {
-						this.recorder.setTimestamp(tsFrame.getTimestamp() / 1000); // 타임스탬프 설정 (나노초 -> 마이크로초 변환)
-						this.recorder.record(tsFrame.getFrame());
+					long dequeued = System.nanoTime();
+					if (audioDropPolicy.shouldDrop(tsFrame, dequeued)) {
+						continue;	// 밀린 오디오는 무음부터 버림
 					}
-				}
-				finally {
-					recorderLock.unlock();
+					audioLatency.record(StageLatency.Stage.QUEUE_WAIT, dequeued - tsFrame.getPublishNs());
+
+					// 오디오 코덱은 이 쓰레드만 사용 (영상 인코딩을 기다리지 않음)
+					long encodeStart = System.nanoTime();
+					// 타임스탬프 (나노초 -> 마이크로초 변환)
+					// 오디오 시계로 계산한 시각 (AudioEncoder는 이 시각과 샘플 수가 어긋나면 무음을 채우거나 샘플을 버림)
+					List<EncodedPacket> packets = audioEncoder.encode(tsFrame.getFrame(), clock.toSessionUs(tsFrame.getTimestamp()),
+							tsFrame.isSilent());	// 캡처 쪽 무음 판정 (DTX면 인코딩 생략)
+					if (packets.isEmpty()) {
+						muxer.skipAudioUntil(audioEncoder.getNextTimestampUs());	// DTX 등으로 패킷이 없으면 영상이 기다리지 않게 함
+					} else {
+						muxer.offerAudio(packets);
+					}
+					audioLatency.record(StageLatency.Stage.ENCODE, System.nanoTime() - encodeStart);
+					audioLatency.frameEnd();
+				} finally {
+					tsFrame.release();	// 인코더 FIFO로 복사했으므로 캡처 링 버퍼 칸 반납
 				}
 			} 
 			catch (Exception e) {
@@ -259,74 +419,221 @@ public class Encoder implements Runnable {
 	 * 스트리밍 중 비트레이트를 동적으로 변경하는 메소드.
 	 * 
 	 * 클라이언트가 자신의 네트워크 상태를 서버에 알려, 서버가 그에 맞게 비트레이트 조절
+	 * 인코더를 다시 열지 않고 영상 쓰레드가 다음 프레임 경계에서 목표/최대 비트레이트와 VBV 크기를 바꿈.
+	 * supportsLiveBitrate()가 false인 코덱은 적용되지 않음 (EncoderHub가 새 비트레이트의 인코더로 옮김).
 	 * @param bitrate 새로운 비트레이트 값(bps 단위)
 	 */
 	public void setVideoBitrate(int bitrate) {
-		try {
-			synchronized (recorder) { 	// recorder 객체를 동기화하여 안전하게 접근
-				this.videoBitrate = bitrate;
-				recorder.setVideoBitrate(this.videoBitrate);
-				System.out.println(">> 비트레이트가 " + bitrate + "bps로 변경되었습니다.");
-			}
-		} catch (Exception e) {
-			System.err.println("비트레이트 변경 중 오류 발생: " + e.getMessage());
+		this.videoBitrate = Math.max(VideoEncoder.MIN_BITRATE, bitrate);
+		VideoEncoder encoder = videoEncoder;
+		if (encoder != null) {
+			encoder.requestBitrate(videoBitrate);
 		}
+		System.out.println(">> 비트레이트 변경 요청: " + videoBitrate + "bps (다음 프레임부터 적용)");
+	}
+
+
+	/**
+	 * Getter
+	 * @return 인코딩 해상도 가로
+	 */
+	public int getWidth() {
+		return width;
 	}
 
+	/**
+	 * Getter
+	 * @return 인코딩 해상도 세로
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Getter
+	 * @return 프레임
+	 */
+	public int getFrameRate() {
+		return frameRate;
+	}
+
+	/**
+	 * Getter
+	 * @param writer 시청자
+	 * @return 시청자 전송 쓰레드 (이 Encoder의 시청자가 아니면 null)
+	 */
+	public Thread getWriterThread(StreamWriter writer) {
+		return writerThreads.get(writer);
+	}
 
-    /**
-     * 스트리밍 중 해상도를 동적으로 변경하는 메소드.
-     * 
-     * 인코더를 안전하게 중지하고 새로운 설정으로 다시 시작합니다.
-     * @param newWidth 새로운 가로 해상도
-     * @param newHeight 새로운 세로 해상도
-     */
-    public void changeResolution(int newWidth, int newHeight) {
-        // 이미 같은 해상도이면 변경하지 않음
-        if (this.width == newWidth && this.height == newHeight) {
-            return;
-        }
-
-        System.out.println(">> 해상도를 " + newWidth + "x" + newHeight + " (으)로 변경합니다...");
-
-        // Lock을 걸어 다른 스레드가 recorder에 접근하는 것을 막습니다.
-        recorderLock.lock();
-        try {
-            // 1. 기존 레코더 중지 및 리소스 해제
-            if (recorder != null) {
-                recorder.stop();
-                recorder.release();
-            }
-
-            // 2. 새로운 해상도로 멤버 변수 업데이트
-            this.width = newWidth;
-            this.height = newHeight;
-
-            // 3. 새로운 설정으로 레코더 재초기화
-            String outputUrl = "srt://" + clientIp + ":" + port + "?mode=caller";
-            initializeRecorder(outputUrl);
-            System.out.println(">> 해상도 변경 완료.");
-
-        } catch (Exception e) {
-            System.err.println("해상도 변경 중 오류 발생: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            // Lock을 해제합니다.
-            recorderLock.unlock();
-        }
-    }
+	/**
+	 * 실행 중 비트레이트 변경 지원 여부
+	 * @return 열린 영상 코덱이 setVideoBitrate()를 적용하면 true
+	 */
+	public boolean supportsLiveBitrate() {
+		return VideoEncoder.supportsLiveBitrate(getVideoCodecName());
+	}
+
+	/**
+	 * Getter
+	 * @return 사용 중인 영상 코덱 이름 (열리기 전이면 null)
+	 */
+	public String getVideoCodecName() {
+		VideoEncoder encoder = videoEncoder;
+		return encoder != null ? encoder.getCodecName() : null;
+	}
+
+	/**
+	 * Getter
+	 * @return "키프레임 요청 n개 -> 키프레임 m개" 형식
+	 */
+	public String getKeyFrameRequestStats() {
+		return "키프레임 요청 " + keyFrameRequests + "개 -> 키프레임 " + requestedKeyFrames + "개";
+	}
+
+	/**
+	 * Getter
+	 * @return 영상 프레임 크기 분포 직전 구간 결과 (열리기 전이면 빈 문자열)
+	 */
+	public String getFrameSizeReport() {
+		VideoEncoder encoder = videoEncoder;
+		return encoder != null ? encoder.getFrameSizes().getLastReport() : "";
+	}
+
+	/**
+	 * Getter
+	 * @return 인트라 갱신 사용 여부
+	 */
+	public boolean isIntraRefresh() {
+		return intraRefresh;
+	}
+
+	/**
+	 * Getter
+	 * @return 요청된 목표 비트레이트(bps)
+	 */
+	public int getVideoBitrate() {
+		return videoBitrate;
+	}
+
+	/**
+	 * Getter
+	 * @return 직전 1초 구간의 실제 영상 출력 비트레이트(bps), 측정 전이면 -1
+	 */
+	public long getMeasuredVideoBitrate() {
+		VideoEncoder encoder = videoEncoder;
+		return encoder != null ? encoder.getMeasuredBitrate() : -1;
+	}
 	
 
+	/**
+	 * Getter
+	 * @return 변경 영역이 없어 변환을 생략한 영상 프레임 수
+	 */
+	public long getSkippedStaticFrames() {
+		return skippedStaticFrames;
+	}
+
+
+	/**
+	 * Getter
+	 * @return 현재 시청자 수
+	 */
+	public int getWriterCount() {
+		return writers.size();
+	}
+
+
+	/**
+	 * Getter
+	 * @return 영상 쓰레드의 프레임당 할당량 측정기
+	 */
+	public AllocationMeter getAllocationMeter() {
+		return allocationMeter;
+	}
+
+
+	/**
+	 * Getter
+	 * @return 영상 쓰레드 단계별 지연 시간 측정기
+	 */
+	public StageLatency getVideoLatency() {
+		return videoLatency;
+	}
+
+	/**
+	 * Getter
+	 * @return 오디오 쓰레드 단계별 지연 시간 측정기
+	 */
+	public StageLatency getAudioLatency() {
+		return audioLatency;
+	}
+
+
+	/**
+	 * Getter
+	 * @return 세션 시계 (드리프트, 동기화 오차 확인용)
+	 */
+	public SessionClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Getter
+	 * @return 오디오 인코더의 시각 보정 횟수 ("채운 샘플 수/버린 샘플 수")
+	 */
+	public String getAudioTimingReport() {
+		AudioEncoder encoder = audioEncoder;
+		return encoder == null ? "" : "inserted=" + encoder.getInsertedSamples() + " dropped=" + encoder.getDroppedSamples();
+	}
+
+	/**
+	 * Getter
+	 * @return 오디오 DTX 결과 ("인코딩한 프레임 수/건너뛴 프레임 수")
+	 */
+	public String getAudioDtxReport() {
+		AudioEncoder encoder = audioEncoder;
+		return encoder == null ? "" : "encoded=" + encoder.getEncodedFrames() + " skipped=" + encoder.getSkippedFrames();
+	}
+
+	/**
+	 * Getter
+	 * @return 먹스 단계 (대기 시간, 카운터 확인용)
+	 */
+	public PacketMuxer getMuxer() {
+		return muxer;
+	}
+
+
+	/**
+	 * Getter
+	 * @return 영상 버리기 정책 (카운터 확인용)
+	 */
+	public DropPolicy<BufferedImage> getVideoDropPolicy() {
+		return videoDropPolicy;
+	}
+
+	/**
+	 * Getter
+	 * @return 오디오 버리기 정책 (카운터 확인용)
+	 */
+	public DropPolicy<Frame> getAudioDropPolicy() {
+		return audioDropPolicy;
+	}
+
+
 	/** 
-	 * 인코더 종료
-	 * @throws org.bytedeco.javacv.FFmpegFrameRecorder.Exception 
+	 * 인코더 종료 (모든 시청자 전송도 중지)
 	 */
-	public void stop() {
+	public synchronized void stop() {
 		running = false;
+		muxer.stop();
 		executor.shutdownNow();
+		boolean terminated = false;
 		try {
 			// 스레드 풀이 종료될 때까지 최대 5초 대기
-			if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+			terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+			if (!terminated) {
 				System.err.println("인코더 스레드 풀이 정상적으로 종료되지 않았습니다.");
 			}
 		} catch (InterruptedException e) {
@@ -335,22 +642,23 @@ public class Encoder implements Runnable {
 			executor.shutdownNow();
 		}
 
-        recorderLock.lock();
-		try {
-			// 레코더 중지 및 리소스 해제
-			if (recorder != null) {
-				recorder.stop();
-				recorder.release();
-                recorder = null; // 참조 제거
-			}
-		} 
-		catch (org.bytedeco.javacv.FFmpegFrameRecorder.Exception e) {
-			System.err.println("레코더 종료 중 오류 발생: " + e.getMessage());
-		} 
-		finally {
-            recorderLock.unlock();
-        }
+		for (StreamWriter writer : writers) {
+			removeWriter(writer);
+		}
 
+		// 인코더 해제 (코덱을 쓰는 영상/오디오 쓰레드가 모두 끝난 뒤에만 해제, Lock이 없으므로)
+		if (!terminated) {
+			return;
+		}
+		if (videoEncoder != null) {
+			videoEncoder.close();
+			videoEncoder = null; // 참조 제거
+		}
+		if (audioEncoder != null) {
+			audioEncoder.close();
+			audioEncoder = null;
+			System.out.println("[Encoder] 버리기 정책: " + videoDropPolicy.getStats() + ", " + audioDropPolicy.getStats()
+					+ ", " + muxer.getStats() + ", " + getKeyFrameRequestStats());
+		}
 	}
 }
-
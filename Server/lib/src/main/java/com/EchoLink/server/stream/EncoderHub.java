@@ -0,0 +1,618 @@
+package com.EchoLink.server.stream;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.javacv.Frame;
+
+import com.EchoLink.server.capture.CaptureHub;
+import com.EchoLink.server.config.StreamConfig;
+
+/**
+ * 같은 설정의 시청자끼리 Encoder 하나를 공유하도록 관리
+ *
+ * 인코딩은 파이프라인에서 CPU를 가장 많이 쓰는 단계이므로, 해상도/FPS/비트레이트가 같은 시청자는
+ * 한 번 인코딩한 패킷을 나눠 받고 전송(StreamWriter)만 각자 함.
+ * - 설정별 첫 시청자가 들어오면 Encoder를 열고 CaptureHub를 구독
+ * - 마지막 시청자가 나가면 Encoder를 닫고 구독 해제
+ * - 해상도를 바꾸는 시청자는 연결(StreamWriter)을 유지한 채 새 설정의 Encoder로 옮김 (switchResolution())
+ * - 비트레이트를 바꾸는 시청자도 인코더를 공유 중이면 새 비트레이트의 Encoder로 옮김 (다른 시청자의 화질은 그대로),
+ *   혼자 보는 인코더면 다시 열지 않고 비트레이트만 바꾸고 새 설정 키로 등록 (changeBitrate(), 실행 중 변경을 지원하는 코덱만)
+ * - 새 Encoder 열기(코덱 초기화, 수백 ms)와 종료(쓰레드 대기, 최대 수 초)는 Lock 밖에서 하므로 다른 세션의 요청을 막지 않음
+ * - 렌디션 사다리(echolink.stream.simulcast.ladder)가 설정되어 있으면 시청자는 요청 해상도에 가까운 렌디션에 붙고,
+ *   해상도/비트레이트 변경은 실행 중인 다른 렌디션으로 옮기는 것으로 처리 (인코더를 새로 열지 않음)
+ * @author ESH
+ */
+public class EncoderHub {
+
+	private static final int VIDEO_QUEUE_CAPACITY = 8;		// 영상 링 버퍼 용량 (캡처 버퍼 풀보다 크면 충분)
+	private static final int AUDIO_QUEUE_CAPACITY = 128;	// 오디오 링 버퍼 용량 (약 3초)
+	private static final long SWITCH_TIMEOUT_MS = 2000;		// 해상도 전환 시 새 키프레임을 기다리는 최대 시간 (넘으면 이전 Encoder를 정리)
+	private static final long BITRATE_SWITCH_INTERVAL_MS = 2000;	// 비트레이트 때문에 인코더를 옮기는 최소 간격 (옮길 때마다 키프레임 하나)
+	// 인코더를 옮겨야 하는 비트레이트 변경은 이 단계로 내림 (혼잡 대응의 작은 변화마다 인코더를 열지 않고, 가까운 요청끼리 인코더를 공유)
+	private static final int[] BITRATE_STEPS = {
+			100_000, 150_000, 250_000, 400_000, 600_000, 800_000, 1_000_000, 1_500_000, 2_000_000,
+			2_500_000, 3_000_000, 4_000_000, 5_000_000, 6_000_000, 8_000_000, 10_000_000, 15_000_000, 20_000_000 };
+
+	private final CaptureHub captureHub;		// 공유 캡처 파이프라인
+	private final StreamConfig streamConfig;	// 스트리밍 파이프라인 설정
+	private final Map<String, Group> groups = new HashMap<>();	// 설정 키 -> 공유 인코더
+	private final List<SimulcastLadder.Rendition> renditions;	// 렌디션 사다리 설정 (비어 있으면 사용 안 함)
+	private SimulcastLadder ladder;								// 실행 중인 렌디션 사다리 (시청자가 없으면 null)
+	private final List<Group> ladderGroups = new ArrayList<>();	// 렌디션 번호 -> 렌디션 인코더
+	// 비트레이트 변경으로 인한 인코더 옮기기 (새 인코더를 Lock 밖에서 열고, 시청자별 간격 제한)
+	private final ScheduledExecutorService switcher = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "EncoderHub-Switch");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * 같은 설정의 시청자들이 공유하는 인코더
+	 */
+	private static final class Group {
+		private String key;						// 설정 키 (혼자 보는 인코더의 비트레이트를 바꾸면 새 키로 다시 등록)
+		private final boolean intraRefresh;
+		private final String videoFormat;		// 영상 형식 (VideoEncoder.FORMAT_*)
+		private final Encoder encoder;
+		private final CaptureHub.Subscription subscription;
+		private final SimulcastLadder ladder;	// 렌디션 인코더이면 소속 사다리 (아니면 null)
+		private final int rendition;			// 렌디션 번호 (렌디션 인코더가 아니면 -1)
+		private int viewers = 0;
+
+		private Group(String key, boolean intraRefresh, String videoFormat, Encoder encoder,
+				CaptureHub.Subscription subscription) {
+			this(key, intraRefresh, videoFormat, encoder, subscription, null, -1);
+		}
+
+		private Group(String key, boolean intraRefresh, String videoFormat, Encoder encoder,
+				CaptureHub.Subscription subscription, SimulcastLadder ladder, int rendition) {
+			this.key = key;
+			this.intraRefresh = intraRefresh;
+			this.videoFormat = videoFormat;
+			this.encoder = encoder;
+			this.subscription = subscription;
+			this.ladder = ladder;
+			this.rendition = rendition;
+		}
+	}
+
+	/**
+	 * 시청자 한 명 (join()의 반환값)
+	 */
+	public static final class Viewer {
+		private volatile Group group;		// 인코더를 옮기면 바뀜 (변경은 EncoderHub Lock 안에서)
+		private final StreamWriter writer;
+		// 비트레이트 변경 상태 (EncoderHub Lock 안에서만 사용)
+		private int requestedBitrate;		// 마지막으로 요청된 비트레이트 (옮기는 중에 들어온 요청은 끝난 뒤 적용)
+		private boolean switching = false;	// 비트레이트 변경으로 옮기는 중 (예약 포함)
+		private long lastSwitchNs;			// 마지막으로 옮긴 시각
+		private boolean left = false;		// leave() 호출됨
+
+		private Viewer(Group group, StreamWriter writer) {
+			this.group = group;
+			this.writer = writer;
+			this.lastSwitchNs = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(BITRATE_SWITCH_INTERVAL_MS);
+		}
+
+		/**
+		 * Getter
+		 * @return 공유 중인 인코더
+		 */
+		public Encoder getEncoder() {
+			return group.encoder;
+		}
+
+		/**
+		 * Getter
+		 * @return 이 시청자의 전송 쓰레드
+		 */
+		public StreamWriter getWriter() {
+			return writer;
+		}
+
+		/**
+		 * Getter
+		 * @return 렌디션 번호, 렌디션 사다리를 쓰지 않는 시청자면 -1
+		 */
+		public int getRendition() {
+			return group.rendition;
+		}
+
+		/**
+		 * Getter
+		 * @return 영상 형식 (VideoEncoder.FORMAT_*)
+		 */
+		public String getVideoFormat() {
+			return group.videoFormat;
+		}
+	}
+
+	/**
+	 * 생성자
+	 * @param captureHub	공유 캡처 파이프라인
+	 * @param streamConfig	스트리밍 파이프라인 설정
+	 */
+	public EncoderHub(CaptureHub captureHub, StreamConfig streamConfig) {
+		this.captureHub = captureHub;
+		this.streamConfig = streamConfig;
+		this.renditions = SimulcastLadder.Rendition.parse(streamConfig.getSimulcastLadder());
+		if (!renditions.isEmpty()) {
+			System.out.println("[EncoderHub] 렌디션 사다리 사용: " + renditions + " @" + streamConfig.getSimulcastFps() + "fps");
+		}
+	}
+
+	/**
+	 * 시청자 추가. 같은 설정의 인코더가 있으면 공유하고, 없으면 새로 시작.
+	 * 렌디션 사다리가 설정되어 있으면 요청 해상도에 가장 가까운 렌디션에 붙음 (FPS, 비트레이트는 렌디션 설정을 따름).
+	 * 인트라 갱신을 요청했거나 H.264가 아닌 형식을 쓰는 시청자는 렌디션 인코더와 설정이 다르므로 사다리를 쓰지 않음.
+	 * @param clientIp	클라이언트 IP
+	 * @param port		클라이언트 수신 포트
+	 * @param width		요청 해상도 가로
+	 * @param height	요청 해상도 세로
+	 * @param fps		프레임
+	 * @param bitrate	비트레이트
+	 * @param intraRefresh	주기적 IDR 대신 인트라 갱신 (설정이 다르면 인코더를 공유하지 않음)
+	 * @param videoFormat	영상 형식 (VideoEncoderProbe.negotiate()의 결과, 형식이 다르면 인코더를 공유하지 않음)
+	 * @return 시청자 (leave()에 사용)
+	 * @throws IOException 인코더 초기화 실패
+	 */
+	public Viewer join(String clientIp, int port, int width, int height, int fps, int bitrate,
+			boolean intraRefresh, String videoFormat) throws IOException {
+		if (!renditions.isEmpty() && !intraRefresh && VideoEncoder.FORMAT_H264.equals(videoFormat)) {
+			synchronized (this) {
+				Group group = acquireRendition(SimulcastLadder.select(renditions, width, height));
+				StreamWriter writer = group.encoder.addWriter(clientIp, port);
+				return new Viewer(group, writer);
+			}
+		}
+		Group group = acquireGroup(width, height, fps, bitrate, intraRefresh, videoFormat,
+				VideoEncoderProbe.codecs(videoFormat));	// 확인된 코덱만 시도
+		StreamWriter writer = group.encoder.addWriter(clientIp, port);	// 다음 키프레임부터 전송 (시청자 수를 이미 더했으므로 그룹이 닫히지 않음)
+		return new Viewer(group, writer);
+	}
+
+	/**
+	 * 시청자의 해상도 변경. 전송 연결(SRT)은 유지하고 새 설정의 Encoder로 옮김.
+	 * 새 Encoder에 키프레임을 요청하고, 시청자는 그 키프레임부터 새 해상도를 받음 (그 전까지는 이전 해상도를 계속 받음).
+	 * 전환이 끝나면 이전 Encoder에서 떼어내고, 마지막 시청자였으면 이전 Encoder를 종료 (인트라 갱신 설정, 영상 형식은 유지).
+	 * 렌디션 사다리의 시청자는 새 해상도에 가장 가까운 렌디션으로 옮김 (switchRendition()).
+	 * @param viewer	현재 시청자
+	 * @param width		새 해상도 가로
+	 * @param height	새 해상도 세로
+	 * @param fps		프레임
+	 * @param bitrate	비트레이트
+	 * @return 새 설정의 시청자 (이후 leave()에 사용)
+	 * @throws IOException 새 인코더 초기화 실패 (이전 설정으로 계속 전송)
+	 */
+	public Viewer switchResolution(Viewer viewer, int width, int height, int fps, int bitrate) throws IOException {
+		Group previous;
+		synchronized (this) {
+			previous = viewer.group;
+			if (previous.ladder != null) {
+				return switchRendition(viewer, SimulcastLadder.select(renditions, width, height));
+			}
+			if (key(width, height, fps, bitrate, previous.intraRefresh, previous.videoFormat).equals(previous.key)) {
+				return viewer;
+			}
+		}
+		Group group = acquireGroup(width, height, fps, bitrate, previous.intraRefresh, previous.videoFormat,
+				preferredCodecs(previous));
+		synchronized (this) {
+			return move(viewer, group);
+		}
+	}
+
+	/**
+	 * 렌디션 사다리 시청자를 다른 렌디션으로 옮김.
+	 * 렌디션 인코더는 이미 실행 중이므로 키프레임만 요청하고, 시청자는 그 키프레임부터 새 렌디션을 받음.
+	 * @param viewer	현재 시청자
+	 * @param rendition	렌디션 번호 (0이 가장 큰 렌디션)
+	 * @return 새 렌디션의 시청자 (렌디션 사다리를 쓰지 않거나 번호가 잘못되었으면 viewer 그대로)
+	 */
+	public synchronized Viewer switchRendition(Viewer viewer, int rendition) {
+		Group previous = viewer.group;
+		if (previous.ladder == null || previous.ladder != ladder || rendition < 0 || rendition >= ladderGroups.size()) {
+			System.err.println("[EncoderHub] 렌디션 전환 불가: " + previous.key + " -> " + rendition);
+			return viewer;
+		}
+		Group group = ladderGroups.get(rendition);
+		if (group == previous) {
+			return viewer;
+		}
+		group.viewers++;
+		return move(viewer, group);
+	}
+
+	/**
+	 * 비트레이트 변경 (한 시청자의 혼잡 대응이 같은 인코더의 다른 시청자에게 번지지 않도록 함).
+	 * - 렌디션 사다리 시청자는 비트레이트에 맞는 렌디션으로 옮김
+	 * - 혼자 보는 인코더는 다시 열지 않고 비트레이트만 바꾸고, 새 비트레이트의 설정 키로 다시 등록
+	 *   (원래 비트레이트를 요청하는 새 시청자가 낮춘 인코더에 붙지 않음)
+	 * - 다른 시청자와 공유 중이거나 새 설정의 인코더가 이미 있으면 이 시청자만 그 인코더로 옮김 (switchResolution()과 같은 방식)
+	 * - 실행 중 변경을 지원하지 않는 코덱(libx265, libsvtav1 등)은 혼자 보더라도 새 비트레이트의 인코더를 열어 옮김
+	 * 인코더를 옮기는 경우는 비트레이트를 BITRATE_STEPS 단계로 내리고, 시청자마다 BITRATE_SWITCH_INTERVAL_MS에 한 번만 옮김.
+	 * 새 인코더는 switcher 쓰레드에서 Lock 밖에서 열고, 간격 안에 들어온 요청은 마지막 요청 하나로 합쳐 적용.
+	 * @param viewer	현재 시청자
+	 * @param bitrate	새 비트레이트(bps, VideoEncoder.MIN_BITRATE보다 작으면 MIN_BITRATE)
+	 * @return 변경 후 시청자 (이후 leave()에 사용, 인코더를 옮기는 경우 옮기기는 나중에 끝남)
+	 */
+	public synchronized Viewer changeBitrate(Viewer viewer, int bitrate) {
+		Group previous = viewer.group;
+		if (previous.ladder != null) {
+			return switchRendition(viewer, SimulcastLadder.selectByBitrate(renditions, bitrate));
+		}
+		viewer.requestedBitrate = Math.max(VideoEncoder.MIN_BITRATE, bitrate);
+		if (viewer.switching) {
+			return viewer;	// 옮기기가 끝난 뒤 마지막 요청을 적용
+		}
+		if (!retuneInPlace(viewer)) {
+			scheduleSwitch(viewer);
+		}
+		return viewer;
+	}
+
+	/**
+	 * 같은 인코더에서 비트레이트만 바꿈 (Lock 안에서 호출)
+	 * @return 처리했으면 true (이미 같은 설정이거나 혼자 보는 실행 중 변경 가능 인코더), 인코더를 옮겨야 하면 false
+	 */
+	private boolean retuneInPlace(Viewer viewer) {
+		Group previous = viewer.group;
+		Encoder encoder = previous.encoder;
+		int target = viewer.requestedBitrate;
+		String key = key(encoder.getWidth(), encoder.getHeight(), encoder.getFrameRate(), target,
+				previous.intraRefresh, previous.videoFormat);
+		if (key.equals(previous.key)) {
+			return true;
+		}
+		if (previous.viewers == 1 && !groups.containsKey(key) && encoder.supportsLiveBitrate()) {
+			groups.remove(previous.key, previous);
+			System.out.println("[EncoderHub] 비트레이트 변경: " + previous.key + " -> " + key);
+			previous.key = key;
+			groups.put(key, previous);
+			encoder.setVideoBitrate(target);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 비트레이트 변경으로 인한 옮기기 예약 (Lock 안에서 호출, 직전 옮기기에서 간격이 지난 뒤 실행)
+	 */
+	private void scheduleSwitch(Viewer viewer) {
+		viewer.switching = true;
+		long delayNs = viewer.lastSwitchNs + TimeUnit.MILLISECONDS.toNanos(BITRATE_SWITCH_INTERVAL_MS) - System.nanoTime();
+		switcher.schedule(() -> switchBitrate(viewer), Math.max(0, delayNs), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 비트레이트 단계의 인코더로 시청자를 옮김 (switcher 쓰레드)
+	 * 같은 설정의 인코더가 있으면 공유하고, 없으면 Lock 밖에서 새로 열어 등록한 뒤 옮김.
+	 */
+	private void switchBitrate(Viewer viewer) {
+		Group previous;
+		int target;
+		String key;
+		synchronized (this) {
+			previous = viewer.group;
+			if (viewer.left || previous.ladder != null || retuneInPlace(viewer)) {
+				viewer.switching = false;
+				return;
+			}
+			target = viewer.requestedBitrate;
+			key = key(previous.encoder.getWidth(), previous.encoder.getHeight(), previous.encoder.getFrameRate(),
+					bitrateStep(target), previous.intraRefresh, previous.videoFormat);
+			if (key.equals(previous.key)) {
+				viewer.switching = false;	// 같은 단계 안의 변화
+				return;
+			}
+			Group group = groups.get(key);
+			if (group != null) {
+				System.out.println("[EncoderHub] 같은 설정의 인코더 공유: " + key);
+				group.viewers++;
+				finishSwitch(viewer, group, target);
+				return;
+			}
+		}
+
+		Group started;
+		try {
+			started = startGroup(key, previous.encoder.getWidth(), previous.encoder.getHeight(), previous.encoder.getFrameRate(),
+					bitrateStep(target), previous.intraRefresh, previous.videoFormat, preferredCodecs(previous));
+		} catch (IOException e) {
+			System.err.println("[EncoderHub] 비트레이트 변경 실패 (이전 설정으로 계속 전송): " + e.getMessage());
+			synchronized (this) {
+				viewer.switching = false;
+				viewer.lastSwitchNs = System.nanoTime();	// 실패해도 간격 제한 (매 요청마다 다시 열지 않음)
+			}
+			return;
+		}
+
+		Group discarded = started;
+		synchronized (this) {
+			if (viewer.left) {
+				viewer.switching = false;
+			}
+			else if (viewer.group != previous) {
+				scheduleSwitch(viewer);	// 여는 동안 해상도가 바뀜, 새 설정으로 다시 계산
+			}
+			else {
+				Group group = register(started);
+				if (group == started) {
+					discarded = null;
+				}
+				group.viewers++;
+				finishSwitch(viewer, group, target);
+			}
+		}
+		if (discarded != null) {
+			stopGroup(discarded);
+		}
+	}
+
+	/**
+	 * 비트레이트 변경 옮기기 마무리 (Lock 안에서 호출, 그 사이 새 요청이 들어왔으면 다시 예약)
+	 */
+	private void finishSwitch(Viewer viewer, Group group, int target) {
+		move(viewer, group);
+		viewer.lastSwitchNs = System.nanoTime();
+		if (viewer.requestedBitrate != target) {
+			scheduleSwitch(viewer);
+		}
+		else {
+			viewer.switching = false;
+		}
+	}
+
+	/**
+	 * 인코더를 옮기는 비트레이트 변경의 목표 단계 (요청 이하에서 가장 높은 단계, 최고 단계보다 크면 5Mbps 단위로 내림)
+	 */
+	static int bitrateStep(int bitrate) {
+		int top = BITRATE_STEPS[BITRATE_STEPS.length - 1];
+		if (bitrate >= top) {
+			return bitrate / 5_000_000 * 5_000_000;
+		}
+		int step = BITRATE_STEPS[0];
+		for (int candidate : BITRATE_STEPS) {
+			if (candidate > bitrate) {
+				break;
+			}
+			step = candidate;
+		}
+		return Math.max(VideoEncoder.MIN_BITRATE, step);
+	}
+
+	/**
+	 * 새 인코더를 열 때 시도할 코덱 (이전 인코더와 같은 코덱을 먼저 시도, 하드웨어 인코더를 다시 찾지 않음)
+	 */
+	private static List<String> preferredCodecs(Group previous) {
+		List<String> codecs = new ArrayList<>(VideoEncoderProbe.codecs(previous.videoFormat));
+		String codecName = previous.encoder.getVideoCodecName();
+		if (codecName != null && codecs.remove(codecName)) {
+			codecs.add(0, codecName);
+		}
+		return codecs;
+	}
+
+	/**
+	 * 시청자의 전송 쓰레드를 다른 그룹의 Encoder로 넘김 (group의 시청자 수는 호출한 쪽에서 이미 더함)
+	 * 새 Encoder의 키프레임에서 전환이 끝나면(또는 시간 초과) 이전 그룹에서 떼어냄. (Lock 안에서 호출)
+	 */
+	private Viewer move(Viewer viewer, Group group) {
+		Group previous = viewer.group;
+		long requested = System.nanoTime();
+		group.encoder.adoptWriter(viewer.writer, previous.encoder.getWriterThread(viewer.writer))
+				.completeOnTimeout(null, SWITCH_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+				.thenRunAsync(() -> {
+					System.out.println("[EncoderHub] 전환 " + previous.key + " -> " + group.key + ": "
+							+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requested) + "ms");
+					retire(previous, viewer.writer);
+				});
+		viewer.group = group;
+		return viewer;
+	}
+
+	/**
+	 * 시청자 제거. 마지막 시청자면 인코더도 종료 (종료 대기는 Lock 밖에서).
+	 * @param viewer join()의 반환값
+	 */
+	public void leave(Viewer viewer) {
+		if (viewer == null) {
+			return;
+		}
+		Runnable teardown;
+		synchronized (this) {
+			viewer.left = true;
+			Group group = viewer.group;
+			group.encoder.removeWriter(viewer.writer);
+			teardown = release(group);
+		}
+		if (teardown != null) {
+			teardown.run();
+		}
+	}
+
+	/**
+	 * 해상도를 바꾼 시청자를 이전 Encoder에서 떼어냄 (전송 쓰레드는 새 Encoder가 계속 사용)
+	 */
+	private void retire(Group previous, StreamWriter writer) {
+		Runnable teardown;
+		synchronized (this) {
+			previous.encoder.detachWriter(writer);
+			teardown = release(previous);
+		}
+		if (teardown != null) {
+			teardown.run();
+		}
+	}
+
+	/**
+	 * 시청자 수 감소 (Lock 안에서 호출). 마지막 시청자였으면 목록에서 빼고 종료 작업을 반환.
+	 * 렌디션 인코더는 사다리 전체의 마지막 시청자가 나갈 때 모두 함께 종료.
+	 * Encoder.stop()은 쓰레드 종료를 최대 수 초 기다리므로 호출한 쪽이 Lock을 놓은 뒤 실행.
+	 * @return 종료 작업 (인코더 종료 + 캡처 구독 해제), 종료할 것이 없으면 null
+	 */
+	private Runnable release(Group group) {
+		if (--group.viewers > 0) {
+			return null;
+		}
+		if (group.ladder != null) {
+			if (group.ladder != ladder || ladderViewers() > 0) {
+				return null;
+			}
+			SimulcastLadder stopped = ladder;
+			ladder = null;
+			ladderGroups.clear();
+			return stopped::stop;
+		}
+		groups.remove(group.key, group);
+		return () -> stopGroup(group);
+	}
+
+	/**
+	 * 인코더 종료 + 캡처 구독 해제 (Lock 밖에서 호출, 마지막 구독이면 캡처도 중지)
+	 */
+	private void stopGroup(Group group) {
+		group.encoder.stop();
+		captureHub.unsubscribe(group.subscription);
+	}
+
+	/**
+	 * 설정에 맞는 인코더 그룹에 시청자 수를 더함 (없으면 Lock 밖에서 새로 시작, Lock을 잡지 않은 상태에서 호출)
+	 */
+	private Group acquireGroup(int width, int height, int fps, int bitrate, boolean intraRefresh,
+			String videoFormat, List<String> codecs) throws IOException {
+		String key = key(width, height, fps, bitrate, intraRefresh, videoFormat);
+		synchronized (this) {
+			Group group = groups.get(key);
+			if (group != null) {
+				System.out.println("[EncoderHub] 같은 설정의 인코더 공유: " + key);
+				group.viewers++;
+				return group;
+			}
+		}
+		Group started = startGroup(key, width, height, fps, bitrate, intraRefresh, videoFormat, codecs);
+		Group group;
+		synchronized (this) {
+			group = register(started);
+			group.viewers++;
+		}
+		if (group != started) {
+			stopGroup(started);
+		}
+		return group;
+	}
+
+	/**
+	 * Lock 밖에서 연 인코더 그룹 등록 (Lock 안에서 호출)
+	 * @return 등록된 그룹, 여는 동안 같은 설정의 그룹이 먼저 등록되었으면 그 그룹 (started는 호출한 쪽이 종료)
+	 */
+	private Group register(Group started) {
+		Group existing = groups.get(started.key);
+		if (existing != null) {
+			System.out.println("[EncoderHub] 같은 설정의 인코더 공유 (동시에 연 인코더 종료): " + started.key);
+			return existing;
+		}
+		groups.put(started.key, started);
+		System.out.println("[EncoderHub] 새 인코더 시작: " + started.key + " (인코더 " + groups.size() + "개)");
+		return started;
+	}
+
+	/**
+	 * 렌디션 인코더에 시청자 수를 더함 (사다리가 실행 중이 아니면 모든 렌디션 인코더 시작)
+	 */
+	private Group acquireRendition(int rendition) throws IOException {
+		if (ladder == null) {
+			startLadder();
+		}
+		Group group = ladderGroups.get(rendition);
+		group.viewers++;
+		System.out.println("[EncoderHub] 렌디션 " + group.key + " 시청 (사다리 시청자 " + ladderViewers() + "명)");
+		return group;
+	}
+
+	/**
+	 * 렌디션 사다리 시작 (렌디션마다 그룹 하나, 캡처 구독은 사다리가 가짐)
+	 */
+	private void startLadder() throws IOException {
+		SimulcastLadder started = new SimulcastLadder(captureHub, streamConfig, renditions, streamConfig.getSimulcastFps());
+		started.start(VideoEncoderProbe.codecs());
+		for (int i = 0; i < renditions.size(); i++) {
+			SimulcastLadder.Rendition r = renditions.get(i);
+			String key = "simulcast/" + r.getWidth() + "x" + r.getHeight() + "@" + started.getFps() + "/" + r.getBitrate();
+			ladderGroups.add(new Group(key, false, VideoEncoder.FORMAT_H264, started.getEncoder(i), null, started, i));
+		}
+		this.ladder = started;
+	}
+
+	private int ladderViewers() {
+		int viewers = 0;
+		for (Group group : ladderGroups) {
+			viewers += group.viewers;
+		}
+		return viewers;
+	}
+
+	private static String key(int width, int height, int fps, int bitrate, boolean intraRefresh, String videoFormat) {
+		return width + "x" + height + "@" + fps + "/" + bitrate + (intraRefresh ? "/ir" : "")
+				+ (VideoEncoder.FORMAT_H264.equals(videoFormat) ? "" : "/" + videoFormat);
+	}
+
+	/**
+	 * 인코더 시작 + 캡처 구독 (코덱 초기화가 오래 걸리므로 Lock 밖에서 호출, 등록은 register())
+	 */
+	private Group startGroup(String key, int width, int height, int fps, int bitrate, boolean intraRefresh,
+			String videoFormat, List<String> codecs) throws IOException {
+		// 캡처된 이미지 프레임을 담을 링 버퍼 (인코더는 최신 프레임만 사용, 버린 프레임은 버퍼 풀로 반납)
+		FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue =
+				new FrameRingBuffer<>(VIDEO_QUEUE_CAPACITY, TimestampedFrame::release);
+		FrameRingBuffer<TimestampedFrame<Frame>> audioQueue =
+				new FrameRingBuffer<>(AUDIO_QUEUE_CAPACITY, TimestampedFrame::release);	// 오디오 링 버퍼 (가득 차면 오래된 프레임을 캡처 링 버퍼로 반납)
+
+		Encoder encoder = new Encoder(
+				videoQueue, audioQueue, captureHub.getClock(),
+				width, 	// 인코딩 목표 너비
+				height, // 인코딩 목표 높이
+				fps, bitrate,
+				streamConfig.getKeyFrameIntervalMs(), streamConfig.getKeyFrameMinRequestMs(), intraRefresh,
+				streamConfig.getAudioCodec(), streamConfig.getAudioBitrate(), streamConfig.getAudioFrameMs(), streamConfig.isAudioDtx(),
+				new VideoDropPolicy(streamConfig.getVideoMaxAgeMs(), fps),	// 최대 1초 연속으로 버림
+				new AudioDropPolicy(streamConfig.getAudioSilenceDropMs(),
+						streamConfig.getAudioMaxAgeMs(), streamConfig.getAudioMaxGapMs()));
+		try {
+			encoder.open(codecs);
+		} catch (IOException e) {
+			encoder.stop();
+			throw e;
+		}
+
+		// 영상, 오디오 캡처 구독 (다른 인코더가 이미 캡처 중이면 같은 프레임을 나눠 받음)
+		CaptureHub.Subscription subscription = captureHub.subscribe(fps, new Dimension(width, height), videoQueue, audioQueue);
+		new Thread(encoder, "Encoder-Thread-" + key).start();
+		return new Group(key, intraRefresh, videoFormat, encoder, subscription);
+	}
+
+	/**
+	 * Getter
+	 * @return 실행 중인 인코더 수
+	 */
+	public synchronized int getEncoderCount() {
+		return groups.size() + ladderGroups.size();
+	}
+
+	/**
+	 * Getter
+	 * @return 렌디션 사다리 설정 (큰 것부터, 사용하지 않으면 빈 목록)
+	 */
+	public List<SimulcastLadder.Rendition> getRenditions() {
+		return renditions;
+	}
+}
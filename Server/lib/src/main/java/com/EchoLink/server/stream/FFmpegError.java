@@ -0,0 +1,44 @@
+package com.EchoLink.server.stream;
+
+import java.io.IOException;
+
+import org.bytedeco.ffmpeg.global.avutil;
+
+/**
+ * FFmpeg 반환값(음수 오류 코드) 처리 도우미
+ * @author ESH
+ */
+final class FFmpegError {
+
+	private FFmpegError() {
+	}
+
+	/**
+	 * 오류 코드를 문자열로 변환
+	 * @param code FFmpeg 오류 코드 (음수)
+	 * @return 오류 설명
+	 */
+	static String describe(int code) {
+		byte[] buf = new byte[256];
+		avutil.av_strerror(code, buf, buf.length);
+		int len = 0;
+		while (len < buf.length && buf[len] != 0) {
+			len++;
+		}
+		return new String(buf, 0, len) + " (" + code + ")";
+	}
+
+	/**
+	 * 반환값이 음수이면 예외
+	 * @param ret	FFmpeg 함수 반환값
+	 * @param what	실패한 작업 설명
+	 * @return ret (음수가 아닐 때)
+	 * @throws IOException ret이 음수일 때
+	 */
+	static int check(int ret, String what) throws IOException {
+		if (ret < 0) {
+			throw new IOException(what + " 실패: " + describe(ret));
+		}
+		return ret;
+	}
+}
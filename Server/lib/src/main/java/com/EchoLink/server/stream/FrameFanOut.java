@@ -0,0 +1,67 @@
+package com.EchoLink.server.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 캡처 프레임 하나를 여러 세션의 링 버퍼로 나눠 주는 팬아웃
+ *
+ * 픽셀 데이터는 복사하지 않고 TimestampedFrame의 참조 횟수만 늘려서 각 링 버퍼에 넣음.
+ * 각 세션의 인코더가 release()하고, 마지막 release에서 버퍼 풀로 반납.
+ * 구독자가 1명이면 LinkedBlockingQueue 시절과 같은 단일 큐 경로.
+ *
+ * publish()와 구독자 추가/제거는 같은 모니터를 사용 (구독 변경은 드물어 경합이 거의 없음).
+ * 제거된 링 버퍼에 프레임이 남아 버퍼가 풀로 돌아오지 않는 일을 막기 위함.
+ * @author ESH
+ * @param <T> 프레임 데이터 타입
+ */
+public class FrameFanOut<T> {
+
+	private final List<FrameRingBuffer<TimestampedFrame<T>>> rings = new ArrayList<>();
+
+	/**
+	 * 구독자 링 버퍼 추가
+	 */
+	public synchronized void add(FrameRingBuffer<TimestampedFrame<T>> ring) {
+		rings.add(ring);
+	}
+
+	/**
+	 * 구독자 링 버퍼 제거. 남은 프레임은 모두 release.
+	 */
+	public synchronized void remove(FrameRingBuffer<TimestampedFrame<T>> ring) {
+		if (rings.remove(ring)) {
+			ring.clear();
+		}
+	}
+
+	/**
+	 * 모든 구독자에게 프레임 전달 (호출한 쪽의 참조는 여기서 해제)
+	 * @param frame 참조 1개를 가진 새 프레임
+	 */
+	public synchronized void publish(TimestampedFrame<T> frame) {
+		for (FrameRingBuffer<TimestampedFrame<T>> ring : rings) {
+			ring.offer(frame.retain());	// 가득 차 있으면 링 버퍼가 가장 오래된 프레임을 release
+		}
+		frame.release();
+	}
+
+	/**
+	 * 모든 구독자의 가장 오래된 프레임을 버림 (캡처 버퍼 풀이 비었을 때 버퍼를 되찾기 위함)
+	 * @return 하나라도 버렸으면 true
+	 */
+	public synchronized boolean dropOldest() {
+		boolean dropped = false;
+		for (FrameRingBuffer<TimestampedFrame<T>> ring : rings) {
+			dropped |= ring.dropOldest();
+		}
+		return dropped;
+	}
+
+	/**
+	 * @return 구독자 수
+	 */
+	public synchronized int size() {
+		return rings.size();
+	}
+}
@@ -0,0 +1,277 @@
+package com.EchoLink.server.stream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 캡처 -> 인코더 사이의 단일 생산자/단일 소비자(SPSC) 링 버퍼
+ *
+ * LinkedBlockingQueue를 대체. 요소마다 노드를 만들지 않고 양쪽 끝의 Lock도 없음.
+ * - 가득 차면 생산자가 가장 오래된 요소를 버리고 넣음 (overwrite oldest, 생산자는 대기하지 않음)
+ * - 소비자는 최신 요소만 꺼내고 나머지는 버릴 수 있음 (take latest)
+ * 버리는 요소는 dropHandler로 전달 (예: TimestampedFrame::release 로 버퍼 풀 반납)
+ *
+ * 오래된 요소 버리기와 소비가 같은 head를 CAS로 가져가므로 한 요소는 정확히 한 쪽만 소유.
+ * 소비자 대기는 park/unpark(빈 버퍼일 때만)로 처리.
+ * @author ESH
+ * @param <T> 요소 타입
+ */
+public class FrameRingBuffer<T> {
+
+	private final AtomicReferenceArray<T> slots;
+	private final int mask;
+	private final Consumer<T> dropHandler;			// 버린 요소 처리 (null이면 그냥 버림)
+
+	private final AtomicLong head = new AtomicLong();	// 다음에 꺼낼 위치 (소비자 + 생산자의 버리기)
+	private final AtomicLong tail = new AtomicLong();	// 다음에 넣을 위치 (생산자만 씀)
+	private volatile Thread waiter;						// take()에서 대기 중인 소비자
+
+	// 카운터 (각각 한 쓰레드만 씀)
+	private volatile long offered = 0;		// 넣은 요소 수 (생산자)
+	private volatile long overwritten = 0;	// 가득 차서 생산자가 버린 요소 수
+	private volatile long skipped = 0;		// 최신 요소를 꺼내며 소비자가 건너뛴 요소 수
+	private volatile int peakSize = 0;		// 최대 점유 수 (생산자)
+
+	/**
+	 * 생성자
+	 * @param capacity		용량 (2의 거듭제곱으로 올림)
+	 * @param dropHandler	버린 요소 처리, null 가능
+	 */
+	public FrameRingBuffer(int capacity, Consumer<T> dropHandler) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+		this.dropHandler = dropHandler;
+	}
+
+
+	// ---- 생산자 ----
+
+	/**
+	 * 요소 추가 (대기하지 않음). 가득 차 있으면 가장 오래된 요소를 버림.
+	 * @param e 추가할 요소
+	 * @return 버린 요소 없이 들어갔으면 true
+	 */
+	public boolean offer(T e) {
+		long t = tail.get();
+		boolean dropped = false;
+		while (t - head.get() > mask) {
+			dropped |= dropOldest();	// 소비자와 경쟁하므로 실패하면 다시 확인
+		}
+		slots.lazySet((int) t & mask, e);
+		tail.lazySet(t + 1);	// 요소 기록 후 공개 (release)
+
+		offered++;
+		int size = (int) (t + 1 - head.get());
+		if (size > peakSize) {
+			peakSize = size;
+		}
+
+		Thread w = waiter;
+		if (w != null) {
+			LockSupport.unpark(w);
+		}
+		return !dropped;
+	}
+
+	/**
+	 * 가장 오래된 요소를 버림 (생산자가 버퍼를 되찾을 때 사용)
+	 * @return 버린 요소가 있으면 true
+	 */
+	public boolean dropOldest() {
+		while (true) {
+			long h = head.get();
+			if (h >= tail.get()) {
+				return false;
+			}
+			T old = slots.get((int) h & mask);
+			if (head.compareAndSet(h, h + 1)) {
+				overwritten++;
+				drop(old);
+				return true;
+			}
+		}
+	}
+
+
+	// ---- 소비자 ----
+
+	/**
+	 * 가장 오래된 요소 꺼내기 (대기하지 않음)
+	 * @return 요소, 비어 있으면 null
+	 */
+	public T poll() {
+		while (true) {
+			long h = head.get();
+			if (h >= tail.get()) {
+				return null;
+			}
+			T e = slots.get((int) h & mask);	// CAS 전에 읽어야 생산자의 덮어쓰기와 겹치지 않음
+			if (head.compareAndSet(h, h + 1)) {
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * 가장 오래된 요소 확인 (꺼내지 않음, 대기하지 않음)
+	 * 생산자가 가득 차서 버리면 다음 poll()은 다른 요소를 돌려줄 수 있음.
+	 * @return 요소, 비어 있으면 null
+	 */
+	public T peek() {
+		long h = head.get();
+		if (h >= tail.get()) {
+			return null;
+		}
+		return slots.get((int) h & mask);
+	}
+
+	/**
+	 * 가장 최신 요소만 꺼내고 그 이전 요소는 버림 (대기하지 않음)
+	 * @return 최신 요소, 비어 있으면 null
+	 */
+	public T pollLatest() {
+		T e = poll();
+		while (e != null) {
+			T next = poll();
+			if (next == null) {
+				return e;
+			}
+			skipped++;
+			drop(e);
+			e = next;
+		}
+		return null;
+	}
+
+	/**
+	 * 가장 오래된 요소 꺼내기 (비어 있으면 대기)
+	 * @return 요소
+	 * @throws InterruptedException 대기 중 인터럽트
+	 */
+	public T take() throws InterruptedException {
+		T e;
+		while ((e = poll()) == null) {
+			await(0);
+		}
+		return e;
+	}
+
+	/**
+	 * 가장 최신 요소 꺼내기 (비어 있으면 대기, 이전 요소는 버림)
+	 * @return 최신 요소
+	 * @throws InterruptedException 대기 중 인터럽트
+	 */
+	public T takeLatest() throws InterruptedException {
+		T e;
+		while ((e = pollLatest()) == null) {
+			await(0);
+		}
+		return e;
+	}
+
+	/**
+	 * 가장 오래된 요소 꺼내기 (최대 timeout 대기)
+	 * @return 요소, 시간 초과 시 null
+	 * @throws InterruptedException 대기 중 인터럽트
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		T e;
+		while ((e = poll()) == null) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return null;
+			}
+			await(remaining);
+		}
+		return e;
+	}
+
+	/**
+	 * 남은 요소를 모두 버림 (세션 종료 시 버퍼 풀 반납용)
+	 */
+	public void clear() {
+		T e;
+		while ((e = poll()) != null) {
+			drop(e);
+		}
+	}
+
+
+	/**
+	 * 요소가 들어올 때까지 park (nanos가 0이면 무기한)
+	 */
+	private void await(long nanos) throws InterruptedException {
+		waiter = Thread.currentThread();
+		try {
+			if (isEmpty()) {	// waiter 등록 후 다시 확인해야 unpark를 놓치지 않음
+				if (nanos > 0) {
+					LockSupport.parkNanos(this, nanos);
+				} else {
+					LockSupport.park(this);
+				}
+			}
+		} finally {
+			waiter = null;
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+	private void drop(T e) {
+		if (dropHandler != null && e != null) {
+			dropHandler.accept(e);
+		}
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 현재 점유 수
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, mask + 1));
+	}
+	public boolean isEmpty() {
+		return head.get() >= tail.get();
+	}
+	public int capacity() {
+		return mask + 1;
+	}
+	/**
+	 * @return 넣은 요소 수
+	 */
+	public long getOfferedCount() {
+		return offered;
+	}
+	/**
+	 * @return 가득 차서 버린 요소 수 (overwrite oldest)
+	 */
+	public long getOverwrittenCount() {
+		return overwritten;
+	}
+	/**
+	 * @return 최신 요소를 꺼내며 건너뛴 요소 수 (take latest)
+	 */
+	public long getSkippedCount() {
+		return skipped;
+	}
+	/**
+	 * @return 최대 점유 수
+	 */
+	public int getPeakSize() {
+		return peakSize;
+	}
+}
@@ -0,0 +1,61 @@
+package com.EchoLink.server.stream;
+
+/**
+ * 영상 프레임 하나의 단계별 시각 (System.nanoTime())
+ *
+ * 캡처 쪽 시각은 TimestampedFrame에서 가져오고, 인코더 쓰레드가 변환/인코딩 시각을 채운 뒤
+ * 인코딩된 패킷(EncodedPacket)에 붙여서 PacketMuxer를 거쳐 시청자별 StreamWriter로 넘김.
+ * (muxNs는 먹스 쓰레드가 시청자에게 넘기기 직전에 채움)
+ * 패킷을 넘긴 뒤에는 바꾸지 않음 (여러 StreamWriter가 읽기만 함).
+ * @author ESH
+ */
+public final class FrameTimings {
+
+	long captureStartNs;	// 캡처 시작
+	long captureEndNs;		// 캡처 완료 (TimestampedFrame.getTimestamp())
+	long publishNs;			// 캡처 큐에 넣은 시각
+	long dequeueNs;			// 인코더가 큐에서 꺼낸 시각
+	long convertEndNs;		// 변환 완료
+	long encodeStartNs;		// 인코딩 시작
+	long encodeEndNs;		// 인코딩 완료 (먹스 버퍼에 넣은 시각)
+	long muxNs;				// 먹스 쓰레드가 시청자에게 전달한 시각
+
+	/**
+	 * 캡처 쪽 시각으로 생성
+	 * @param tsFrame	캡처 프레임
+	 * @param dequeueNs	큐에서 꺼낸 시각
+	 */
+	FrameTimings(TimestampedFrame<?> tsFrame, long dequeueNs) {
+		this.captureStartNs = tsFrame.getCaptureStartNs();
+		this.captureEndNs = tsFrame.getTimestamp();
+		this.publishNs = tsFrame.getPublishNs();
+		this.dequeueNs = dequeueNs;
+	}
+
+
+	// ----Getter-----
+	public long getCaptureStartNs() {
+		return captureStartNs;
+	}
+	public long getCaptureEndNs() {
+		return captureEndNs;
+	}
+	public long getPublishNs() {
+		return publishNs;
+	}
+	public long getDequeueNs() {
+		return dequeueNs;
+	}
+	public long getConvertEndNs() {
+		return convertEndNs;
+	}
+	public long getEncodeStartNs() {
+		return encodeStartNs;
+	}
+	public long getEncodeEndNs() {
+		return encodeEndNs;
+	}
+	public long getMuxNs() {
+		return muxNs;
+	}
+}
@@ -0,0 +1,131 @@
+package com.EchoLink.server.stream;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+
+/**
+ * BufferedImage -> Frame 변환기 (변경 영역만 복사)
+ *
+ * Java2DFrameConverter는 매 프레임 전체 픽셀을 복사하지만,
+ * 이 변환기는 하나의 Frame(BGR0)을 재사용하며 TileChangeDetector가 알려준 변경 영역만 갱신.
+ * TYPE_INT_RGB(0x00RRGGBB)를 little-endian으로 쓰면 그대로 BGR0 바이트 순서가 되므로 픽셀 단위 변환이 없음.
+ * @author ESH
+ */
+public class IncrementalFrameConverter {
+
+	/** 이 변환기가 만드는 Frame의 픽셀 포맷 (recorder.record(frame, PIXEL_FORMAT)으로 전달) */
+	public static final int PIXEL_FORMAT = avutil.AV_PIX_FMT_BGR0;
+
+	private Frame frame;				// 재사용하는 출력 프레임
+	private IntBuffer frameInts;		// frame.image[0]을 int 단위로 본 버퍼
+	private int strideInts;				// 출력 프레임 한 행의 int 수
+	private boolean valid = false;		// 출력 프레임이 직전 입력과 같은 내용인지 여부
+	private long lastSequence = -1;		// 마지막으로 변환한 프레임의 캡처 순번
+
+	private final Java2DFrameConverter fallback = new Java2DFrameConverter();	// int 픽셀이 아닌 이미지용
+
+
+	/**
+	 * 변경 영역만 출력 프레임에 반영하여 반환.
+	 *
+	 * 반환된 Frame은 다음 convert 호출 시 덮어쓰이므로 즉시 인코딩해야 함.
+	 * 캡처 순번이 직전 프레임과 이어지지 않으면(중간 프레임이 버려졌으면) 전체를 복사.
+	 * @param tsFrame	캡처된 화면 (변경 영역, 순번 포함)
+	 * @return 변환된 Frame (BGR0 이면 PIXEL_FORMAT, 그 외에는 Java2DFrameConverter 결과)
+	 */
+	public Frame convert(TimestampedFrame<BufferedImage> tsFrame) {
+		long sequence = tsFrame.getSequence();
+		if (sequence < 0 || sequence != lastSequence + 1) {
+			invalidate();
+		}
+		lastSequence = sequence;
+		return convert(tsFrame.getFrame(), tsFrame.getDirtyRegions());
+	}
+
+	/**
+	 * 변경 영역만 출력 프레임에 반영하여 반환.
+	 *
+	 * 반환된 Frame은 다음 convert 호출 시 덮어쓰이므로 즉시 인코딩해야 함.
+	 * @param image			캡처된 화면
+	 * @param dirtyRegions	변경 영역 (null이면 전체 복사)
+	 * @return 변환된 Frame (BGR0 이면 PIXEL_FORMAT, 그 외에는 Java2DFrameConverter 결과)
+	 */
+	public Frame convert(BufferedImage image, List<Rectangle> dirtyRegions) {
+		Raster raster = image.getRaster();
+		if (!(raster.getDataBuffer() instanceof DataBufferInt)
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+				|| image.getType() != BufferedImage.TYPE_INT_RGB) {
+			invalidate();
+			return fallback.convert(image);
+		}
+
+		int w = image.getWidth();
+		int h = image.getHeight();
+		if (frame == null || frame.imageWidth != w || frame.imageHeight != h) {
+			allocate(w, h);
+		}
+
+		int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+		int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		int offset = raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+		if (!valid || dirtyRegions == null) {
+			copyRect(pixels, offset, stride, 0, 0, w, h);
+			valid = true;
+		}
+		else {
+			for (Rectangle r : dirtyRegions) {
+				copyRect(pixels, offset, stride, r.x, r.y, r.width, r.height);
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * 출력 프레임이 최신 상태가 아님을 표시 (중간 프레임을 버린 경우 등)
+	 * 다음 convert 호출 때 전체를 복사.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * 마지막 convert 결과가 BGR0 재사용 프레임인지 여부
+	 */
+	public boolean isOwnFrame(Frame converted) {
+		return converted == frame;
+	}
+
+
+	private void allocate(int w, int h) {
+		if (frame != null) {
+			frame.close();
+		}
+		frame = new Frame(w, h, Frame.DEPTH_UBYTE, 4);
+		frameInts = ((ByteBuffer) frame.image[0]).duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		strideInts = frame.imageStride / 4;
+		valid = false;
+	}
+
+	/**
+	 * 사각형 영역을 행 단위로 복사 (행마다 bulk put)
+	 */
+	private void copyRect(int[] pixels, int offset, int stride, int x, int y, int w, int h) {
+		for (int row = y; row < y + h; row++) {
+			frameInts.position(row * strideInts + x);
+			frameInts.put(pixels, offset + row * stride + x, w);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.EchoLink.server.stream;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.EchoLink.server.metrics.StageLatency;
+
+/**
+ * 영상/오디오 인코딩 결과를 타임스탬프(dts) 순서로 섞어 시청자에게 넘기는 먹스 단계
+ *
+ * 영상과 오디오 쓰레드는 Lock 없이 각자 인코딩하고, 결과만 각자의 패킷 링 버퍼에 넣음.
+ * 먹스 쓰레드 하나가 두 버퍼의 앞 패킷 중 dts가 작은 것부터 꺼내 sink(시청자 전달)로 넘김.
+ * - 한쪽 버퍼만 비어 있으면 그쪽 패킷을 최대 MAX_INTERLEAVE_WAIT_MS까지만 기다림
+ *   (비어 있는 쪽의 다음 패킷이 더 늦을 것이 확실하거나(마지막 dts + 길이) 한동안 패킷이 없으면 기다리지 않음)
+ * - 오디오 패킷은 길이만큼 늦게 나오므로 완전한 순서보다 지연 시간을 우선함 (스트림 안의 순서는 항상 유지)
+ * - 오디오 DTX로 패킷을 건너뛰는 동안은 오디오 쓰레드가 skipAudioUntil()로 알려 주므로 영상이 기다리지 않음
+ * - 시청자 전달(StreamWriter.offer)은 이 쓰레드 하나만 하므로 StreamWriter는 단일 생산자로 유지됨
+ * @author ESH
+ */
+public class PacketMuxer implements Runnable {
+
+	private static final int PACKET_QUEUE_CAPACITY = 64;		// 스트림별 패킷 링 버퍼 용량
+	private static final long MAX_INTERLEAVE_WAIT_MS = 10;		// 다른 스트림 패킷을 기다리는 최대 시간
+	private static final long IDLE_STREAM_MS = 500;				// 이 시간 동안 패킷이 없으면 기다리지 않음 (유휴 화면, 오디오 장치 없음)
+
+	private final FrameRingBuffer<EncodedPacket> videoPackets = new FrameRingBuffer<>(PACKET_QUEUE_CAPACITY, null);
+	private final FrameRingBuffer<EncodedPacket> audioPackets = new FrameRingBuffer<>(PACKET_QUEUE_CAPACITY, null);
+	private final Consumer<EncodedPacket> sink;		// 시청자 전달
+
+	private volatile Thread muxThread;				// 대기 중인 먹스 쓰레드 (생산자가 깨움)
+	private volatile boolean running = true;
+	private volatile long lastVideoOfferNs = 0;		// 영상 쓰레드가 마지막으로 넣은 시각 (0이면 아직 없음)
+	private volatile long lastAudioOfferNs = 0;		// 오디오 쓰레드가 마지막으로 넣은 시각
+	private volatile long audioSkippedUntilUs = Long.MIN_VALUE;	// 이 dts 전에는 오디오 패킷이 없음 (DTX로 건너뜀)
+
+	// 먹스 쓰레드만 사용
+	private long videoNextDtsUs = Long.MIN_VALUE;	// 다음 영상 패킷의 가장 이른 dts (마지막 dts + 길이)
+	private long audioNextDtsUs = Long.MIN_VALUE;	// 다음 오디오 패킷의 가장 이른 dts
+	private long waitStartNs = 0;					// 다른 스트림을 기다리기 시작한 시각 (0이면 대기 중 아님)
+	private final StageLatency latency = new StageLatency("Encoder-Mux", 300, StageLatency.Stage.MUX_WAIT);
+
+	// 카운터 (먹스 쓰레드만 씀)
+	private volatile long muxedPackets = 0;			// 넘긴 패킷 수
+	private volatile long timedOutPackets = 0;		// 다른 스트림을 끝까지 기다리지 못하고 넘긴 패킷 수
+
+	/**
+	 * 생성자
+	 * @param sink 섞인 패킷을 받을 곳 (먹스 쓰레드에서 호출)
+	 */
+	public PacketMuxer(Consumer<EncodedPacket> sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * 영상 패킷 추가 (영상 쓰레드에서 호출, 대기하지 않음)
+	 * @param packets 인코딩 결과
+	 */
+	public void offerVideo(List<EncodedPacket> packets) {
+		if (packets.isEmpty()) {
+			return;
+		}
+		for (EncodedPacket packet : packets) {
+			videoPackets.offer(packet);
+		}
+		lastVideoOfferNs = System.nanoTime();
+		wakeUp();
+	}
+
+	/**
+	 * 오디오 패킷 추가 (오디오 쓰레드에서 호출, 대기하지 않음)
+	 * @param packets 인코딩 결과
+	 */
+	public void offerAudio(List<EncodedPacket> packets) {
+		if (packets.isEmpty()) {
+			return;
+		}
+		for (EncodedPacket packet : packets) {
+			audioPackets.offer(packet);
+		}
+		lastAudioOfferNs = System.nanoTime();
+		wakeUp();
+	}
+
+	/**
+	 * 오디오 패킷이 없는 구간 알림 (오디오 쓰레드에서 호출, DTX로 무음 프레임을 건너뛸 때)
+	 * 영상 패킷이 이 시각보다 이르면 오디오를 기다리지 않고 바로 보냄.
+	 * @param dtsUs 다음 오디오 패킷의 가장 이른 dts (마이크로초)
+	 */
+	public void skipAudioUntil(long dtsUs) {
+		audioSkippedUntilUs = dtsUs;
+		wakeUp();
+	}
+
+	@Override
+	public void run() {
+		muxThread = Thread.currentThread();
+		try {
+			while (running && !Thread.currentThread().isInterrupted()) {
+				long waitNs = muxNext();
+				// 양쪽 다 비었으면 패킷이 들어올 때까지, 다른 스트림을 기다리는 중이면 남은 시간만큼 대기
+				// (먼저 들어온 unpark는 다음 park를 바로 깨우므로 놓치지 않음)
+				if (waitNs < 0) {
+					LockSupport.park(this);
+				} else if (waitNs > 0) {
+					LockSupport.parkNanos(this, waitNs);
+				}
+			}
+		} finally {
+			muxThread = null;
+			videoPackets.clear();
+			audioPackets.clear();
+		}
+	}
+
+	/**
+	 * 보낼 수 있는 패킷 하나를 넘김
+	 * @return 0: 넘김(바로 다음 확인), -1: 양쪽 다 비어 있음, 양수: 다른 스트림을 기다릴 남은 시간(나노초)
+	 */
+	private long muxNext() {
+		EncodedPacket video = videoPackets.peek();
+		EncodedPacket audio = audioPackets.peek();
+		if (video == null && audio == null) {
+			return -1;
+		}
+
+		long now = System.nanoTime();
+		boolean fromVideo;
+		if (video != null && audio != null) {
+			fromVideo = video.getDtsUs() <= audio.getDtsUs();
+		}
+		else if (video != null) {
+			long waitNs = waitForOther(video.getDtsUs(), Math.max(audioNextDtsUs, audioSkippedUntilUs), lastAudioOfferNs, now);
+			if (waitNs > 0) {
+				return waitNs;
+			}
+			fromVideo = true;
+		}
+		else {
+			long waitNs = waitForOther(audio.getDtsUs(), videoNextDtsUs, lastVideoOfferNs, now);
+			if (waitNs > 0) {
+				return waitNs;
+			}
+			fromVideo = false;
+		}
+		waitStartNs = 0;
+
+		// peek 이후 생산자가 가득 차서 버렸을 수 있으므로 실제로 꺼낸 패킷을 보냄 (같은 스트림 안에서는 순서 유지)
+		EncodedPacket packet = fromVideo ? videoPackets.poll() : audioPackets.poll();
+		if (packet == null) {
+			return 0;
+		}
+		long nextDtsUs = packet.getDtsUs() + Math.max(1, packet.getDurationUs());
+		if (fromVideo) {
+			videoNextDtsUs = nextDtsUs;
+		} else {
+			audioNextDtsUs = nextDtsUs;
+		}
+
+		FrameTimings timings = packet.getTimings();
+		if (timings != null) {
+			timings.muxNs = System.nanoTime();
+			latency.record(StageLatency.Stage.MUX_WAIT, timings.muxNs - timings.encodeEndNs);
+			latency.frameEnd();
+		}
+		sink.accept(packet);
+		muxedPackets++;
+		return 0;
+	}
+
+	/**
+	 * 한쪽 버퍼만 비었을 때 다른 스트림의 패킷을 기다릴지 결정
+	 * @param dtsUs			보낼 후보 패킷의 dts
+	 * @param otherNextDtsUs	다른 스트림의 다음 패킷의 가장 이른 dts
+	 * @param otherLastOfferNs	다른 스트림이 마지막으로 패킷을 넣은 시각
+	 * @param now			현재 시각
+	 * @return 더 기다릴 시간(나노초), 0이면 바로 보냄
+	 */
+	private long waitForOther(long dtsUs, long otherNextDtsUs, long otherLastOfferNs, long now) {
+		if (otherNextDtsUs > dtsUs) {
+			return 0;	// 다른 스트림의 이후 패킷은 모두 더 늦음
+		}
+		if (otherLastOfferNs == 0 || now - otherLastOfferNs > TimeUnit.MILLISECONDS.toNanos(IDLE_STREAM_MS)) {
+			return 0;	// 다른 스트림이 멈춰 있음 (유휴 화면, 오디오 장치 없음)
+		}
+		if (waitStartNs == 0) {
+			waitStartNs = now;
+		}
+		long remaining = waitStartNs + TimeUnit.MILLISECONDS.toNanos(MAX_INTERLEAVE_WAIT_MS) - now;
+		if (remaining > 0) {
+			return remaining;
+		}
+		timedOutPackets++;
+		return 0;
+	}
+
+	private void wakeUp() {
+		Thread t = muxThread;
+		if (t != null) {
+			LockSupport.unpark(t);
+		}
+	}
+
+	/**
+	 * 먹스 쓰레드 중지 (쓰레드 인터럽트와 함께 호출)
+	 */
+	public void stop() {
+		running = false;
+		wakeUp();
+	}
+
+
+	// ----Getter-----
+	public long getMuxedPackets() {
+		return muxedPackets;
+	}
+	public long getTimedOutPackets() {
+		return timedOutPackets;
+	}
+	public StageLatency getLatency() {
+		return latency;
+	}
+	/**
+	 * @return "먹스 n개 (대기 시간 초과 m개)" 형식
+	 */
+	public String getStats() {
+		return "먹스 " + muxedPackets + "개 (대기 시간 초과 " + timedOutPackets + "개)";
+	}
+}
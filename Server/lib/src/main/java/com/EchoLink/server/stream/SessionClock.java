@@ -0,0 +1,150 @@
+package com.EchoLink.server.stream;
+
+/**
+ * 스트리밍 세션 시계 (캡처 시작 = 0, 오디오 시계 기준)
+ *
+ * 캡처 쓰레드들은 System.nanoTime()으로 프레임 시각을 기록하지만, 오디오 장치는 자기 시계(샘플 수)로 돌아가므로
+ * 몇 시간 스트리밍하면 둘이 수백 ms씩 벌어져 소리와 화면이 어긋남.
+ * - 오디오가 기준: 오디오 시각은 캡처한 샘플 수로 계산 (첫 오디오 프레임 시각 + 샘플 수 / 샘플링 속도)
+ * - 드리프트 = 벽시계(nanoTime) - 오디오 시계. 오디오 프레임마다 측정하고 DRIFT_TIME_CONSTANT_MS로 부드럽게 따라감
+ * - 영상 시각은 벽시계에서 드리프트를 빼서 오디오 시계로 옮김 (toSessionUs()), 조금씩 계속 보정되므로 끊김이 없음
+ * - 오차가 RESYNC_THRESHOLD_MS를 넘으면 (장치 재시작, 샘플 대량 손실) 오디오 시계를 벽시계에 다시 맞춤
+ *   (오디오 시각이 건너뛴 만큼 AudioEncoder가 무음을 채우거나 겹친 샘플을 버림)
+ * 프레임의 타임스탬프는 드롭 정책, 지연 측정에 쓰이므로 계속 nanoTime 기준으로 두고, 인코딩할 때만 세션 시각으로 바꿈.
+ * CaptureHub가 하나 가지고 캡처를 시작할 때마다 reset() (공유 인코더들이 같은 시계를 씀).
+ * 오디오 시계 갱신은 오디오 캡처 쓰레드 하나만, 조회는 어느 쓰레드에서나 가능.
+ * @author ESH
+ */
+public class SessionClock {
+
+	private static final long DRIFT_TIME_CONSTANT_MS = 2000;	// 드리프트 평활 시간 (캡처 지터는 걸러지고 드리프트는 따라갈 만큼)
+	private static final long RESYNC_THRESHOLD_MS = 200;		// 순간 오차가 이보다 크면 오디오 시계를 다시 맞춤
+	private static final long REPORT_INTERVAL_MS = 60_000;		// 동기화 상태 로그 간격
+
+	private volatile long originNs = System.nanoTime();	// 세션 시각 0 (캡처 시작)
+	private volatile long driftNs = 0;					// 벽시계 - 오디오 시계 (평활값, 영상 보정에 사용)
+
+	// 오디오 캡처 쓰레드만 사용
+	private long audioAnchorNs = Long.MIN_VALUE;	// 오디오 샘플 0의 세션 시각 (첫 오디오 프레임 전이면 MIN_VALUE)
+	private long audioSamples = 0;					// 기준점 이후 캡처한 샘플 수
+	private long windowMaxErrorNs = 0;				// 현재 구간의 최대 동기화 오차 (절댓값)
+	private long windowStartNs = 0;
+
+	// 지표 (다른 쓰레드에서 읽음)
+	private volatile long syncErrorNs = 0;			// 마지막 오디오 프레임의 동기화 오차 (오디오 시계 - 영상에 적용한 시각)
+	private volatile long lastMaxSyncErrorNs = 0;	// 직전 구간의 최대 동기화 오차
+	private volatile long resyncCount = 0;			// 오디오 시계를 다시 맞춘 횟수
+	private volatile String lastReport = "";
+
+	/**
+	 * 새 세션 시작 (캡처 시작 시, 이 시각이 0)
+	 */
+	public void reset() {
+		originNs = System.nanoTime();
+		driftNs = 0;
+		audioAnchorNs = Long.MIN_VALUE;
+		audioSamples = 0;
+		windowMaxErrorNs = 0;
+		windowStartNs = originNs;
+		syncErrorNs = 0;
+		lastMaxSyncErrorNs = 0;
+		resyncCount = 0;
+		lastReport = "";
+	}
+
+	/**
+	 * 오디오 프레임 캡처 기록 (오디오 캡처 쓰레드에서 프레임마다 호출)
+	 * @param samples		이 프레임의 채널당 샘플 수
+	 * @param sampleRate	샘플링 속도
+	 * @param capturedNs	캡처를 마친 시각 (System.nanoTime())
+	 * @return 오디오 시계로 계산한 이 프레임의 시작 시각 (nanoTime 기준, TimestampedFrame의 타임스탬프로 사용)
+	 */
+	public long audioCaptured(int samples, int sampleRate, long capturedNs) {
+		long endNs = capturedNs - originNs;
+		long frameNs = samples * 1_000_000_000L / sampleRate;
+		if (audioAnchorNs == Long.MIN_VALUE) {
+			audioAnchorNs = endNs - frameNs;	// 첫 프레임: 장치 지연을 포함한 시작 위치를 기준점으로
+			audioSamples = 0;
+		}
+		audioSamples += samples;
+		long audioEndNs = audioAnchorNs + audioSamples * 1_000_000_000L / sampleRate;
+
+		long errorNs = endNs - audioEndNs;	// +: 오디오 시계가 느림 (또는 샘플 손실)
+		long drift = driftNs;
+		if (Math.abs(errorNs - drift) > RESYNC_THRESHOLD_MS * 1_000_000L) {
+			audioAnchorNs += errorNs - drift;	// 오디오 시계를 벽시계(- 드리프트)에 다시 맞춤
+			audioEndNs += errorNs - drift;
+			errorNs = drift;
+			resyncCount++;
+			System.out.println("[AvSync] 오디오 시계 재동기화 (" + resyncCount + "회)");
+		}
+		else {
+			drift += (errorNs - drift) * Math.min(frameNs, DRIFT_TIME_CONSTANT_MS * 1_000_000L) / (DRIFT_TIME_CONSTANT_MS * 1_000_000L);
+			driftNs = drift;
+		}
+		recordSyncError(errorNs - drift, capturedNs);
+		return originNs + audioEndNs - frameNs + drift;
+	}
+
+	/**
+	 * 캡처 시각을 세션 시각으로 변환 (인코더 pts, 오디오 시계 기준)
+	 * @param timestampNs 캡처 시각 (System.nanoTime() 기준)
+	 * @return 세션 시각 (마이크로초, 캡처 시작 = 0)
+	 */
+	public long toSessionUs(long timestampNs) {
+		return (timestampNs - originNs - driftNs) / 1000;
+	}
+
+	/**
+	 * 동기화 오차 기록, 구간마다 로그 출력
+	 */
+	private void recordSyncError(long errorNs, long nowNs) {
+		syncErrorNs = errorNs;
+		windowMaxErrorNs = Math.max(windowMaxErrorNs, Math.abs(errorNs));
+		if (nowNs - windowStartNs >= REPORT_INTERVAL_MS * 1_000_000L) {
+			lastMaxSyncErrorNs = windowMaxErrorNs;
+			lastReport = String.format("drift %.1f ms (%.0f ppm), sync error %.1f ms (max %.1f ms), resync %d",
+					driftNs / 1e6, getDriftPpm(), errorNs / 1e6, windowMaxErrorNs / 1e6, resyncCount);
+			System.out.println("[AvSync] " + lastReport);
+			windowMaxErrorNs = 0;
+			windowStartNs = nowNs;
+		}
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 벽시계 - 오디오 시계 (나노초, 영상 시각에서 빼는 값)
+	 */
+	public long getDriftNs() {
+		return driftNs;
+	}
+	/**
+	 * @return 세션 시작 이후 드리프트 비율 (ppm, +면 오디오 장치 시계가 느림)
+	 */
+	public double getDriftPpm() {
+		long elapsed = System.nanoTime() - originNs;
+		return elapsed > 0 ? driftNs * 1e6 / elapsed : 0;
+	}
+	/**
+	 * @return 마지막 오디오 프레임의 동기화 오차 (나노초, 오디오 시계 - 영상 보정 시각)
+	 */
+	public long getSyncErrorNs() {
+		return syncErrorNs;
+	}
+	/**
+	 * @return 직전 구간의 최대 동기화 오차 (나노초, 절댓값)
+	 */
+	public long getMaxSyncErrorNs() {
+		return lastMaxSyncErrorNs;
+	}
+	public long getResyncCount() {
+		return resyncCount;
+	}
+	/**
+	 * @return 직전 구간 결과 (측정 전이면 빈 문자열)
+	 */
+	public String getLastReport() {
+		return lastReport;
+	}
+}
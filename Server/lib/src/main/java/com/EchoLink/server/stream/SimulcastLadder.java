@@ -0,0 +1,427 @@
+package com.EchoLink.server.stream;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.bytedeco.javacv.Frame;
+
+import com.EchoLink.server.capture.CaptureHub;
+import com.EchoLink.server.capture.FrameBufferPool;
+import com.EchoLink.server.capture.FrameScaler;
+import com.EchoLink.server.config.StreamConfig;
+import com.EchoLink.server.metrics.StageLatency;
+
+/**
+ * 캡처 하나로 여러 해상도/비트레이트(렌디션)를 동시에 인코딩하는 사다리 (simulcast)
+ *
+ * 캡처는 가장 큰 렌디션 크기로 한 번만 구독하고, 축소 쓰레드 하나가 큰 렌디션부터 차례로 FrameScaler로 줄임
+ * (예: 1080p -> 720p -> 480p, 앞 렌디션 결과를 다음 렌디션 입력으로 사용하고 변경 영역만 다시 계산).
+ * 렌디션 크기와 인코더 크기가 같으므로 각 Encoder는 swscale 없이 변경 영역만 YUV로 바로 변환.
+ * 오디오는 같은 프레임을 모든 렌디션 Encoder에 나눠 줌.
+ * 렌디션 Encoder는 사다리가 도는 동안 계속 실행되므로, 시청자는 인코더를 다시 열지 않고
+ * 키프레임에서 렌디션만 옮겨 탐 (EncoderHub.switchRendition()).
+ * @author ESH
+ */
+public class SimulcastLadder {
+
+	private static final int VIDEO_QUEUE_CAPACITY = 8;		// 렌디션 영상 링 버퍼 용량 (EncoderHub와 같음)
+	private static final int AUDIO_QUEUE_CAPACITY = 128;	// 오디오 링 버퍼 용량 (약 3초)
+
+	private final CaptureHub captureHub;		// 공유 캡처 파이프라인
+	private final StreamConfig streamConfig;	// 스트리밍 파이프라인 설정
+	private final List<Rendition> renditions;	// 큰 것부터 정렬된 렌디션
+	private final int fps;						// 모든 렌디션 공통 FPS
+	private final FrameScaler.Mode scaleMode;	// 축소 방식
+	private final List<Rung> rungs = new ArrayList<>();
+	private final FrameFanOut<Frame> audioFanOut = new FrameFanOut<>();	// 오디오를 모든 렌디션 Encoder로 전달
+
+	// 캡처 구독 (축소 쓰레드, 오디오 전달 쓰레드가 꺼냄)
+	private final FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue =
+			new FrameRingBuffer<>(VIDEO_QUEUE_CAPACITY, TimestampedFrame::release);
+	private final FrameRingBuffer<TimestampedFrame<Frame>> audioQueue =
+			new FrameRingBuffer<>(AUDIO_QUEUE_CAPACITY, TimestampedFrame::release);
+	private CaptureHub.Subscription subscription;
+	private Thread scaleThread;
+	private Thread audioThread;
+	private volatile boolean running = false;
+
+	private final StageLatency latency =
+			new StageLatency("SimulcastLadder", 300, StageLatency.Stage.CAPTURE);	// 렌디션 축소 시간 (전체)
+	private long lastSourceSequence = -1;	// 직전 캡처 프레임 순번 (끊기면 모든 렌디션 전체 축소)
+
+	/**
+	 * 렌디션 하나 (해상도 + 비트레이트)
+	 */
+	public static final class Rendition {
+		private final int width;
+		private final int height;
+		private final int bitrate;
+
+		public Rendition(int width, int height, int bitrate) {
+			if (width <= 0 || height <= 0 || bitrate <= 0 || (width & 1) != 0 || (height & 1) != 0) {
+				throw new IllegalArgumentException("invalid rendition: " + width + "x" + height + "@" + bitrate);
+			}
+			this.width = width;
+			this.height = height;
+			this.bitrate = bitrate;
+		}
+
+		/**
+		 * 설정 문자열을 렌디션 목록으로 변환
+		 * @param spec "1920x1080@6M,1280x720@2500k,854x480@800k" 형식 (비트레이트 단위 k, M 또는 bps, 빈 문자열이면 사용 안 함)
+		 * @return 면적이 큰 것부터 정렬된 렌디션 (변경 불가)
+		 */
+		public static List<Rendition> parse(String spec) {
+			List<Rendition> renditions = new ArrayList<>();
+			if (spec == null || spec.isBlank()) {
+				return Collections.emptyList();
+			}
+			for (String item : spec.split(",")) {
+				String[] sizeAndRate = item.trim().split("@");
+				String[] size = sizeAndRate[0].trim().toLowerCase(Locale.ROOT).split("x");
+				if (sizeAndRate.length != 2 || size.length != 2) {
+					throw new IllegalArgumentException("invalid rendition: " + item);
+				}
+				renditions.add(new Rendition(Integer.parseInt(size[0].trim()), Integer.parseInt(size[1].trim()),
+						parseBitrate(sizeAndRate[1].trim())));
+			}
+			renditions.sort((a, b) -> Long.compare((long) b.width * b.height, (long) a.width * a.height));
+			return Collections.unmodifiableList(renditions);
+		}
+
+		private static int parseBitrate(String value) {
+			char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+			if (unit == 'k') {
+				return Integer.parseInt(value.substring(0, value.length() - 1).trim()) * 1000;
+			}
+			if (unit == 'm') {
+				return (int) Math.round(Double.parseDouble(value.substring(0, value.length() - 1).trim()) * 1_000_000);
+			}
+			return Integer.parseInt(value);
+		}
+
+		@Override
+		public String toString() {
+			return width + "x" + height + "/" + (bitrate / 1000) + "k";
+		}
+
+
+		// ----Getter-----
+		public int getWidth() {
+			return width;
+		}
+		public int getHeight() {
+			return height;
+		}
+		public int getBitrate() {
+			return bitrate;
+		}
+	}
+
+	/**
+	 * 렌디션 하나의 인코더와 축소 상태 (축소 상태는 축소 쓰레드만 사용)
+	 */
+	private static final class Rung {
+		private final Rendition rendition;
+		private final FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue;
+		private final FrameRingBuffer<TimestampedFrame<Frame>> audioQueue;
+		private final FrameBufferPool bufferPool;
+		private final Encoder encoder;
+		private FrameScaler scaler;			// 입력 크기 != 렌디션 크기일 때만 사용 (입력 크기가 바뀌면 다시 생성)
+		private int sourceWidth;			// scaler의 입력 크기
+		private int sourceHeight;
+		private BufferedImage scaledFrame;	// 축소 결과 (변경 영역만 갱신되는 누적 버퍼, 다음 렌디션의 입력)
+		private long sequence = 0;			// 렌디션 Encoder 큐에 넣는 순번
+
+		private Rung(Rendition rendition, FrameRingBuffer<TimestampedFrame<BufferedImage>> videoQueue,
+				FrameRingBuffer<TimestampedFrame<Frame>> audioQueue, FrameBufferPool bufferPool, Encoder encoder) {
+			this.rendition = rendition;
+			this.videoQueue = videoQueue;
+			this.audioQueue = audioQueue;
+			this.bufferPool = bufferPool;
+			this.encoder = encoder;
+		}
+	}
+
+	/**
+	 * 생성자
+	 * @param captureHub	공유 캡처 파이프라인
+	 * @param streamConfig	스트리밍 파이프라인 설정
+	 * @param renditions	렌디션 목록 (Rendition.parse()의 결과, 비어 있으면 안 됨)
+	 * @param fps			모든 렌디션 공통 FPS
+	 */
+	public SimulcastLadder(CaptureHub captureHub, StreamConfig streamConfig, List<Rendition> renditions, int fps) {
+		if (renditions.isEmpty()) {
+			throw new IllegalArgumentException("no renditions");
+		}
+		this.captureHub = captureHub;
+		this.streamConfig = streamConfig;
+		this.renditions = renditions;
+		this.fps = fps;
+		this.scaleMode = FrameScaler.Mode.parse(streamConfig.getCaptureScaleMode());
+	}
+
+	/**
+	 * 모든 렌디션 Encoder를 열고 캡처 구독 (하나라도 실패하면 모두 닫음)
+	 * @param codecs 시도할 코덱 이름 목록
+	 * @throws IOException 인코더 초기화 실패
+	 */
+	public synchronized void start(List<String> codecs) throws IOException {
+		if (running) {
+			return;
+		}
+		try {
+			for (Rendition rendition : renditions) {
+				rungs.add(openRung(rendition, codecs));
+			}
+		} catch (IOException e) {
+			for (Rung rung : rungs) {
+				rung.encoder.stop();
+			}
+			rungs.clear();
+			throw e;
+		}
+
+		running = true;
+		for (Rung rung : rungs) {
+			audioFanOut.add(rung.audioQueue);
+			new Thread(rung.encoder, "Encoder-Thread-simulcast-" + rung.rendition).start();
+		}
+		this.scaleThread = new Thread(this::scaleLoop, "Simulcast-Scale");
+		this.audioThread = new Thread(this::audioLoop, "Simulcast-Audio");
+		scaleThread.start();
+		audioThread.start();
+
+		// 가장 큰 렌디션 크기로 캡처 구독 (다른 세션이 더 크게 요청하면 축소 쓰레드가 첫 렌디션도 줄임)
+		Rendition top = renditions.get(0);
+		this.subscription = captureHub.subscribe(fps, new Dimension(top.width, top.height), videoQueue, audioQueue);
+		System.out.println("[Simulcast] 사다리 시작: " + renditions + " @" + fps + "fps");
+	}
+
+	/**
+	 * 캡처 구독 해제 + 모든 렌디션 Encoder 종료
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		captureHub.unsubscribe(subscription);	// 마지막 구독이면 캡처도 중지
+		subscription = null;
+		scaleThread.interrupt();
+		audioThread.interrupt();
+		try {
+			scaleThread.join(1000);	// 축소 중인 프레임을 렌디션 큐에 넣고 끝날 때까지
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Rung rung : rungs) {
+			audioFanOut.remove(rung.audioQueue);
+			rung.encoder.stop();
+			rung.videoQueue.clear();	// 남은 프레임은 버퍼 풀로 반납
+		}
+		rungs.clear();
+		videoQueue.clear();
+		audioQueue.clear();
+		System.out.println("[Simulcast] 사다리 종료");
+	}
+
+	/**
+	 * 화면 크기와 가장 가까운 렌디션 (요청 크기를 넘지 않는 것 중 가장 큰 것, 모두 크면 가장 작은 것)
+	 * @param renditions	렌디션 목록 (큰 것부터)
+	 * @param width		요청 가로
+	 * @param height	요청 세로
+	 * @return 렌디션 번호
+	 */
+	public static int select(List<Rendition> renditions, int width, int height) {
+		for (int i = 0; i < renditions.size(); i++) {
+			Rendition r = renditions.get(i);
+			if (r.width <= width && r.height <= height) {
+				return i;
+			}
+		}
+		return renditions.size() - 1;
+	}
+
+	/**
+	 * 대역폭에 맞는 렌디션 (비트레이트를 넘지 않는 것 중 가장 높은 것, 모두 높으면 가장 낮은 것)
+	 * @param renditions	렌디션 목록
+	 * @param bitrate		클라이언트가 받을 수 있는 비트레이트(bps)
+	 * @return 렌디션 번호
+	 */
+	public static int selectByBitrate(List<Rendition> renditions, int bitrate) {
+		int selected = -1;
+		int lowest = 0;
+		for (int i = 0; i < renditions.size(); i++) {
+			Rendition r = renditions.get(i);
+			if (r.bitrate <= bitrate && (selected < 0 || r.bitrate > renditions.get(selected).bitrate)) {
+				selected = i;
+			}
+			if (r.bitrate < renditions.get(lowest).bitrate) {
+				lowest = i;
+			}
+		}
+		return selected >= 0 ? selected : lowest;
+	}
+
+
+	/**
+	 * 렌디션 Encoder 열기 (렌디션 크기의 버퍼 풀과 링 버퍼 포함)
+	 */
+	private Rung openRung(Rendition rendition, List<String> codecs) throws IOException {
+		FrameRingBuffer<TimestampedFrame<BufferedImage>> rungVideo =
+				new FrameRingBuffer<>(VIDEO_QUEUE_CAPACITY, TimestampedFrame::release);
+		FrameRingBuffer<TimestampedFrame<Frame>> rungAudio = new FrameRingBuffer<>(AUDIO_QUEUE_CAPACITY, TimestampedFrame::release);
+		Encoder encoder = new Encoder(
+				rungVideo, rungAudio, captureHub.getClock(),
+				rendition.width, rendition.height, fps, rendition.bitrate,
+				streamConfig.getKeyFrameIntervalMs(), streamConfig.getKeyFrameMinRequestMs(), false,
+				streamConfig.getAudioCodec(), streamConfig.getAudioBitrate(), streamConfig.getAudioFrameMs(), streamConfig.isAudioDtx(),
+				new VideoDropPolicy(streamConfig.getVideoMaxAgeMs(), fps),
+				new AudioDropPolicy(streamConfig.getAudioSilenceDropMs(),
+						streamConfig.getAudioMaxAgeMs(), streamConfig.getAudioMaxGapMs()));
+		try {
+			encoder.open(codecs);
+		} catch (IOException e) {
+			encoder.stop();
+			throw e;
+		}
+		FrameBufferPool pool = new FrameBufferPool(rendition.width, rendition.height, streamConfig.getCapturePoolSize());
+		return new Rung(rendition, rungVideo, rungAudio, pool, encoder);
+	}
+
+	/**
+	 * 축소 쓰레드: 최신 캡처 프레임을 모든 렌디션 크기로 줄여 각 Encoder 큐에 넣음
+	 */
+	private void scaleLoop() {
+		while (running) {
+			TimestampedFrame<BufferedImage> source;
+			try {
+				source = videoQueue.takeLatest();
+			} catch (InterruptedException e) {
+				break;
+			}
+			try {
+				long start = System.nanoTime();
+				scaleFrame(source);
+				latency.record(StageLatency.Stage.CAPTURE, System.nanoTime() - start);
+				latency.frameEnd();
+			}
+			catch (Exception e) {
+				System.err.println("[Simulcast] 렌디션 축소 중 오류: " + e.getMessage());
+				lastSourceSequence = -1;	// 다음 프레임은 전체 축소
+			}
+			finally {
+				source.release();
+			}
+		}
+	}
+
+	/**
+	 * 프레임 하나를 큰 렌디션부터 차례로 축소 (앞 렌디션의 결과와 변경 영역을 다음 렌디션의 입력으로)
+	 * 입력과 크기가 같은 렌디션은 복사하지 않고 캡처 프레임을 그대로 공유.
+	 * 캡처 순번이 끊겼거나 변경 영역을 모르면 모든 렌디션을 전체 축소.
+	 */
+	private void scaleFrame(TimestampedFrame<BufferedImage> source) {
+		boolean continuous = lastSourceSequence >= 0 && source.getSequence() == lastSourceSequence + 1
+				&& source.getDirtyRegions() != null;
+		lastSourceSequence = source.getSequence();
+
+		BufferedImage input = source.getFrame();
+		List<Rectangle> regions = continuous ? source.getDirtyRegions() : fullFrame(input);
+		boolean passThrough = true;	// 입력이 아직 캡처 프레임인지 (순번을 그대로 써도 되는지)
+
+		for (Rung rung : rungs) {
+			Rendition r = rung.rendition;
+			if (passThrough && input.getWidth() == r.width && input.getHeight() == r.height) {
+				rung.videoQueue.offer(source.retain());	// 복사 없이 공유 (캡처 순번, 변경 영역 그대로)
+				continue;
+			}
+			passThrough = false;
+			if (rung.scaler == null || rung.scaledFrame == null
+					|| !sameSource(rung, input.getWidth(), input.getHeight())) {
+				rung.scaler = new FrameScaler(input.getWidth(), input.getHeight(), r.width, r.height, scaleMode);
+				rung.scaledFrame = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_RGB);
+				rung.sourceWidth = input.getWidth();
+				rung.sourceHeight = input.getHeight();
+				regions = fullFrame(input);	// 새 누적 버퍼는 전체를 다시 계산 (다음 렌디션도 전체)
+			}
+			regions = rung.scaler.scale(input, rung.scaledFrame, regions);
+			input = rung.scaledFrame;
+			publish(rung, source, regions);
+		}
+	}
+
+	/**
+	 * 축소 결과를 풀 버퍼로 복사하여 렌디션 Encoder 큐에 넣음 (ScreenCapture.captureFrame()과 같은 방식)
+	 * 버퍼가 없으면 이번 프레임을 건너뛰고 순번을 끊어 Encoder가 다음 프레임을 전체 변환하게 함.
+	 */
+	private void publish(Rung rung, TimestampedFrame<BufferedImage> source, List<Rectangle> regions) {
+		BufferedImage buffer = rung.bufferPool.acquire();
+		while (buffer == null && rung.videoQueue.dropOldest()) {
+			buffer = rung.bufferPool.acquire();
+		}
+		if (buffer == null) {
+			rung.sequence++;
+			return;
+		}
+		FrameBufferPool.copyInto(rung.scaledFrame, buffer);
+		rung.videoQueue.offer(new TimestampedFrame<>(buffer, source.getCaptureStartNs(), source.getTimestamp(),
+				regions, rung.sequence++, rung.bufferPool::release));
+	}
+
+	/**
+	 * 오디오 전달 쓰레드: 캡처 오디오를 모든 렌디션 Encoder에 나눠 줌 (복사 없음)
+	 */
+	private void audioLoop() {
+		while (running) {
+			try {
+				audioFanOut.publish(audioQueue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+	private static boolean sameSource(Rung rung, int width, int height) {
+		return rung.sourceWidth == width && rung.sourceHeight == height;
+	}
+
+	private static List<Rectangle> fullFrame(BufferedImage image) {
+		return List.of(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 렌디션 목록 (큰 것부터)
+	 */
+	public List<Rendition> getRenditions() {
+		return renditions;
+	}
+	/**
+	 * @param index 렌디션 번호
+	 * @return 렌디션 Encoder (시작 전이면 null)
+	 */
+	public synchronized Encoder getEncoder(int index) {
+		return index < rungs.size() ? rungs.get(index).encoder : null;
+	}
+	public int getFps() {
+		return fps;
+	}
+	public boolean isRunning() {
+		return running;
+	}
+	/**
+	 * @return 렌디션 축소 시간 측정기
+	 */
+	public StageLatency getLatency() {
+		return latency;
+	}
+}
@@ -0,0 +1,323 @@
+package com.EchoLink.server.stream;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVCodecParameters;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVIOContext;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.ffmpeg.global.avutil;
+
+import com.EchoLink.server.metrics.StageLatency;
+
+/**
+ * 시청자 한 명에게 인코딩된 패킷을 보내는 전송 쓰레드 (mpegts over SRT)
+ *
+ * 같은 설정의 시청자들은 Encoder 하나를 공유하고, 인코딩 결과(EncodedPacket)만 각자의 StreamWriter로 받음.
+ * - 처음 연결되면 다음 영상 키프레임부터 보냄 (그 전 패킷은 디코딩할 수 없으므로 버림)
+ * - 전송이 밀려 큐가 가득 차면 큐를 비우고 키프레임을 요청한 뒤 다음 키프레임부터 보냄 (다른 시청자와 인코더는 기다리지 않음)
+ * - 패킷은 PacketMuxer가 이미 타임스탬프 순서로 섞어서 주므로 muxer에서 다시 모아 두지 않고 바로 기록
+ * - 해상도를 바꾸면 연결(SRT, mpegts)은 그대로 두고 패킷을 받을 Encoder만 바꿈 (switchTo()).
+ *   새 Encoder의 첫 키프레임부터 받고, 그 전까지는 이전 Encoder의 패킷을 계속 보냄 (H.264 SPS가 키프레임마다 들어가므로 디코더가 새 크기를 따라감)
+ * @author ESH
+ */
+public class StreamWriter implements Runnable {
+
+	private static final int PACKET_QUEUE_CAPACITY = 256;	// 약 2초 분량 (영상 60fps + 오디오 43pps)
+
+	private final String outputUrl;				// srt://ip:port?mode=caller
+	private final AVCodecParameters videoParameters;	// 스트림 정보 (인코더 설정 복사본)
+	private final AVCodecParameters audioParameters;
+	private final AVRational videoTimeBase;
+	private final AVRational audioTimeBase;
+	private final FrameRingBuffer<EncodedPacket> packetQueue = new FrameRingBuffer<>(PACKET_QUEUE_CAPACITY, null);
+
+	private AVFormatContext formatContext;
+	private AVStream videoStream;
+	private AVStream audioStream;
+	private AVPacket packet;
+	private boolean headerWritten = false;
+
+	private volatile boolean running = true;
+	// 생산자 쪽 상태 (offer 잠금 안에서만 사용)
+	private boolean waitingForKeyFrame = true;
+	private Encoder source;						// 패킷을 받는 Encoder
+	private Encoder pendingSource;				// 옮겨 갈 Encoder (키프레임을 받으면 source가 됨)
+	private CompletableFuture<Void> pendingSwitch;
+	private boolean sourceVideoHeld = false;		// 전환 중 이전 Encoder의 영상을 더 받지 않음 (새 키프레임이 앞서도록)
+	private long lastVideoDtsUs = Long.MIN_VALUE;	// 큐에 넣은 마지막 영상 dts (Encoder를 바꿀 때 시간이 되돌아가지 않게)
+	private long lastAudioDtsUs = Long.MIN_VALUE;
+	private volatile long sourceSwitchCount = 0;	// Encoder를 바꾼 횟수 (해상도 변경)
+	private volatile long resyncCount = 0;		// 큐가 가득 차 키프레임부터 다시 보낸 횟수
+	private volatile long writtenPackets = 0;
+	private volatile long writtenBytes = 0;
+	private final StageLatency latency;			// 영상 패킷 전송 대기/전송/전체(캡처 -> 전송) 지연 시간
+
+	/**
+	 * 생성자
+	 * @param outputUrl		전송 대상 URL
+	 * @param videoCodec	영상 인코더 설정 (스트림 정보용, 생성 시 복사)
+	 * @param audioCodec	오디오 인코더 설정 (스트림 정보용, 생성 시 복사)
+	 */
+	public StreamWriter(String outputUrl, AVCodecContext videoCodec, AVCodecContext audioCodec) {
+		this.outputUrl = outputUrl;
+		this.latency = new StageLatency("StreamWriter " + outputUrl, 300,
+				StageLatency.Stage.SEND_QUEUE, StageLatency.Stage.SEND, StageLatency.Stage.TOTAL);
+		// 인코더가 먼저 해제되어도 안전하도록 스트림 정보를 복사해 둠
+		this.videoParameters = avcodec.avcodec_parameters_alloc();
+		this.audioParameters = avcodec.avcodec_parameters_alloc();
+		avcodec.avcodec_parameters_from_context(videoParameters, videoCodec);
+		avcodec.avcodec_parameters_from_context(audioParameters, audioCodec);
+		this.videoTimeBase = avutil.av_make_q(videoCodec.time_base().num(), videoCodec.time_base().den());
+		this.audioTimeBase = avutil.av_make_q(audioCodec.time_base().num(), audioCodec.time_base().den());
+	}
+
+	/**
+	 * 패킷을 받을 Encoder 지정
+	 * 처음이면 바로 적용하고, 이미 받고 있으면 새 Encoder의 첫 영상 키프레임이 올 때 바꿈 (그때까지 이전 Encoder 패킷을 보냄).
+	 * @param next 새 Encoder
+	 * @return 바뀌면 완료되는 Future (이전 Encoder에서 이 시청자를 떼어낼 시점)
+	 */
+	synchronized CompletableFuture<Void> switchTo(Encoder next) {
+		if (pendingSwitch != null) {
+			pendingSwitch.complete(null);	// 아직 바뀌지 않은 이전 요청은 버림 (이전 Encoder는 정리해도 됨)
+		}
+		sourceVideoHeld = false;
+		if (source == null || source == next) {
+			source = next;
+			pendingSource = null;
+			pendingSwitch = null;
+			return CompletableFuture.completedFuture(null);
+		}
+		pendingSource = next;
+		pendingSwitch = new CompletableFuture<>();
+		return pendingSwitch;
+	}
+
+	/**
+	 * 인코딩된 패킷 전달 (Encoder의 먹스 쓰레드에서 호출, 대기하지 않음)
+	 * 평소에는 먹스 쓰레드 하나만 부르므로 잠금 경쟁이 없고, Encoder를 바꾸는 동안만 두 먹스 쓰레드가 함께 부름
+	 * (잠금으로 패킷 큐는 계속 단일 생산자로 유지).
+	 * @param encoded	인코딩된 패킷 (여러 시청자가 공유)
+	 * @param from		패킷을 만든 Encoder (지정한 Encoder가 아니면 무시)
+	 */
+	public synchronized void offer(EncodedPacket encoded, Encoder from) {
+		if (!running) {
+			return;	// 연결이 끊긴 시청자 (세션 종료 시 Encoder에서 제거됨)
+		}
+		if (from != source) {
+			if (from != pendingSource || !encoded.isVideo() || !encoded.isKeyFrame()) {
+				return;	// 이전 Encoder의 남은 패킷, 또는 새 Encoder의 키프레임 전 패킷
+			}
+			if (encoded.getDtsUs() <= lastVideoDtsUs) {
+				// 같은 캡처 프레임을 이전 Encoder가 먼저 보냄 (보통 작은 해상도가 더 빠름):
+				// 이전 Encoder 영상을 멈추고 다음 프레임을 다시 키프레임으로 받음 (약 한 프레임 지연)
+				sourceVideoHeld = true;
+				from.requestKeyFrame();
+				return;
+			}
+			// 새 Encoder의 키프레임부터 이어서 보냄 (연결은 그대로)
+			source = from;
+			pendingSource = null;
+			sourceVideoHeld = false;
+			sourceSwitchCount++;
+			pendingSwitch.complete(null);
+			pendingSwitch = null;
+		}
+		else if (sourceVideoHeld && encoded.isVideo()) {
+			return;
+		}
+		if (encoded.getDtsUs() <= (encoded.isVideo() ? lastVideoDtsUs : lastAudioDtsUs)) {
+			return;	// Encoder를 바꾼 직후 이미 보낸 시간대의 오디오 (mpegts는 dts가 되돌아가면 기록 실패)
+		}
+		if (packetQueue.size() >= packetQueue.capacity()) {
+			// 전송이 인코딩을 따라가지 못함: 중간 패킷이 빠진 스트림은 디코딩이 깨지므로 키프레임부터 다시 보냄
+			packetQueue.clear();
+			waitingForKeyFrame = true;
+			resyncCount++;
+			from.requestRecoveryKeyFrame();	// GOP 끝까지 기다리지 않도록 키프레임 요청 (간격 제한됨)
+		}
+		if (waitingForKeyFrame) {
+			if (!encoded.isVideo() || !encoded.isKeyFrame()) {
+				return;
+			}
+			waitingForKeyFrame = false;
+		}
+		packetQueue.offer(encoded);
+		if (encoded.isVideo()) {
+			lastVideoDtsUs = encoded.getDtsUs();
+		} else {
+			lastAudioDtsUs = encoded.getDtsUs();
+		}
+	}
+
+	@Override
+	public void run() {
+		System.out.println("[StreamWriter] 전송 시작: " + outputUrl);
+		try {
+			open();
+			while (running) {
+				EncodedPacket encoded = packetQueue.take();
+				long writeStart = System.nanoTime();
+				write(encoded);
+				recordLatency(encoded.getTimings(), writeStart, System.nanoTime());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e) {
+			if (running) {
+				System.err.println("[StreamWriter] 전송 오류 (" + outputUrl + "): " + e.getMessage());
+			}
+		}
+		finally {
+			running = false;
+			close();
+			System.out.println("[StreamWriter] 전송 종료: " + outputUrl + " (패킷 " + writtenPackets
+					+ "개, " + (writtenBytes / 1024) + "KB, 재동기화 " + resyncCount + "회, 해상도 전환 " + sourceSwitchCount + "회)");
+		}
+	}
+
+	/**
+	 * mpegts 출력 열기 (SRT 연결)
+	 */
+	private void open() throws IOException {
+		AVFormatContext oc = new AVFormatContext(null);
+		FFmpegError.check(avformat.avformat_alloc_output_context2(oc, null, "mpegts", outputUrl), "avformat_alloc_output_context2");
+		formatContext = oc;
+
+		videoStream = newStream(videoParameters, videoTimeBase);
+		audioStream = newStream(audioParameters, audioTimeBase);
+
+		AVDictionary ioOptions = new AVDictionary(null);
+		avutil.av_dict_set(ioOptions, "latency", "0", 0);	// SRT 내부 지연 시간 설정 (0에 가깝게)
+		AVIOContext pb = new AVIOContext(null);
+		try {
+			FFmpegError.check(avformat.avio_open2(pb, outputUrl, avformat.AVIO_FLAG_WRITE, null, ioOptions), "avio_open2");
+		} finally {
+			avutil.av_dict_free(ioOptions);
+		}
+		formatContext.pb(pb);
+
+		AVDictionary muxOptions = new AVDictionary(null);
+		avutil.av_dict_set(muxOptions, "flush_packets", "1", 0);	// 패킷을 즉시 전송하여 지연 시간 감소
+		try {
+			FFmpegError.check(avformat.avformat_write_header(formatContext, muxOptions), "avformat_write_header");
+			headerWritten = true;
+		} finally {
+			avutil.av_dict_free(muxOptions);
+		}
+		packet = avcodec.av_packet_alloc();
+	}
+
+	private AVStream newStream(AVCodecParameters parameters, AVRational timeBase) throws IOException {
+		AVStream stream = avformat.avformat_new_stream(formatContext, null);
+		if (stream == null) {
+			throw new IOException("avformat_new_stream 실패");
+		}
+		FFmpegError.check(avcodec.avcodec_parameters_copy(stream.codecpar(), parameters), "avcodec_parameters_copy");
+		stream.time_base(timeBase);
+		return stream;
+	}
+
+	/**
+	 * 패킷 하나를 mpegts로 기록 (SRT 전송)
+	 */
+	private void write(EncodedPacket encoded) throws IOException {
+		AVStream stream = encoded.isVideo() ? videoStream : audioStream;
+		byte[] data = encoded.getData();
+		FFmpegError.check(avcodec.av_new_packet(packet, data.length), "av_new_packet");
+		packet.data().put(data);
+		packet.stream_index(stream.index());
+		packet.pts(avutil.av_rescale_q(encoded.getPtsUs(), EncodedPacket.MICROSECONDS, stream.time_base()));
+		packet.dts(avutil.av_rescale_q(encoded.getDtsUs(), EncodedPacket.MICROSECONDS, stream.time_base()));
+		packet.duration(avutil.av_rescale_q(encoded.getDurationUs(), EncodedPacket.MICROSECONDS, stream.time_base()));
+		if (encoded.isKeyFrame()) {
+			packet.flags(avcodec.AV_PKT_FLAG_KEY);
+		}
+		// 이미 섞인 순서이므로 interleave 버퍼를 거치지 않고 바로 기록 (패킷 참조는 직접 해제)
+		try {
+			FFmpegError.check(avformat.av_write_frame(formatContext, packet), "av_write_frame");
+		} finally {
+			avcodec.av_packet_unref(packet);
+		}
+		writtenPackets++;
+		writtenBytes += data.length;
+	}
+
+	/**
+	 * 영상 패킷의 전송 단계 지연 시간 기록 (단계별 시각이 없는 패킷은 무시)
+	 */
+	private void recordLatency(FrameTimings timings, long writeStart, long writeEnd) {
+		if (timings == null) {
+			return;
+		}
+		latency.record(StageLatency.Stage.SEND_QUEUE, writeStart - timings.muxNs);
+		latency.record(StageLatency.Stage.SEND, writeEnd - writeStart);
+		latency.record(StageLatency.Stage.TOTAL, writeEnd - timings.captureStartNs);
+		latency.frameEnd();
+	}
+
+	private void close() {
+		if (formatContext != null) {
+			if (headerWritten) {
+				avformat.av_write_trailer(formatContext);
+			}
+			if (formatContext.pb() != null) {
+				avformat.avio_close(formatContext.pb());
+				formatContext.pb(null);
+			}
+			avformat.avformat_free_context(formatContext);
+			formatContext = null;
+		}
+		if (packet != null) {
+			avcodec.av_packet_free(packet);
+			packet = null;
+		}
+		packetQueue.clear();
+		avcodec.avcodec_parameters_free(videoParameters);
+		avcodec.avcodec_parameters_free(audioParameters);
+	}
+
+	/**
+	 * 전송 중지 (쓰레드 인터럽트와 함께 호출)
+	 */
+	public void stop() {
+		running = false;
+		synchronized (this) {
+			if (pendingSwitch != null) {
+				pendingSwitch.complete(null);	// 전환을 기다리는 쪽(이전 Encoder 정리)을 풀어 줌
+				pendingSwitch = null;
+			}
+		}
+	}
+
+
+	// ----Getter-----
+	public String getOutputUrl() {
+		return outputUrl;
+	}
+	public long getResyncCount() {
+		return resyncCount;
+	}
+	public long getSourceSwitchCount() {
+		return sourceSwitchCount;
+	}
+	public long getWrittenPackets() {
+		return writtenPackets;
+	}
+	public long getWrittenBytes() {
+		return writtenBytes;
+	}
+	public StageLatency getLatency() {
+		return latency;
+	}
+}
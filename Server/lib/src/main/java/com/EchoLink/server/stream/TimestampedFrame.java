@@ -1,19 +1,62 @@
 package com.EchoLink.server.stream;
 
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
 /**
  * 캡처된 데이터 프레임과 타임스탬프를 함께 저장하는 래퍼 클래스
  * 제네릭을 사용하여 BufferedImage와 Frame 모두 담을 수 있습니다.
  * 
  * 장시간 스트리밍 시 소리와 화면 싱크 어긋나는 현상 보완 클래스
+ * 
+ * 여러 세션이 같은 프레임을 공유할 수 있도록 참조 횟수를 가짐 (CaptureHub 팬아웃).
+ * 공유하는 쪽마다 retain()하고, 사용이 끝나면 각자 release() 한 번씩 호출.
  * @param <T> 프레임 데이터의 타입 (e.g., BufferedImage, Frame)
  */
 public class TimestampedFrame<T> {
     private final T frame;
     private final long timestamp; // 캡처된 시점의 나노초 시간
+    private final long captureStartNs; // 캡처를 시작한 나노초 시간 (지연 측정용)
+    private final long publishNs = System.nanoTime(); // 큐에 넣은 나노초 시간 (생성 직후 큐에 넣음)
+    private final List<Rectangle> dirtyRegions; // 이전 프레임 대비 변경된 영역 (null = 알 수 없음, 전체 변경으로 취급)
+    private final long sequence; // 캡처 쪽에서 큐에 넣은 순번 (-1 = 없음). 순번이 끊기면 중간 프레임이 버려진 것
+    private final Consumer<T> recycler; // 사용이 끝난 프레임 데이터를 버퍼 풀로 반납 (null = 풀 미사용)
+    private final boolean silent; // 오디오: 캡처 쪽에서 무음으로 판정 (SilenceDetector)
+    private final AtomicInteger refCount = new AtomicInteger(1); // 참조 횟수 (0이 되면 버퍼 풀로 반납)
 
     public TimestampedFrame(T frame, long timestamp) {
+        this(frame, timestamp, null, -1, null);
+    }
+
+    public TimestampedFrame(T frame, long timestamp, List<Rectangle> dirtyRegions) {
+        this(frame, timestamp, dirtyRegions, -1, null);
+    }
+
+    public TimestampedFrame(T frame, long timestamp, boolean silent) {
+        this(frame, timestamp, timestamp, null, -1, null, silent);
+    }
+
+    public TimestampedFrame(T frame, long timestamp, List<Rectangle> dirtyRegions,
+            long sequence, Consumer<T> recycler) {
+        this(frame, timestamp, timestamp, dirtyRegions, sequence, recycler);
+    }
+
+    public TimestampedFrame(T frame, long captureStartNs, long timestamp, List<Rectangle> dirtyRegions,
+            long sequence, Consumer<T> recycler) {
+        this(frame, captureStartNs, timestamp, dirtyRegions, sequence, recycler, false);
+    }
+
+    public TimestampedFrame(T frame, long captureStartNs, long timestamp, List<Rectangle> dirtyRegions,
+            long sequence, Consumer<T> recycler, boolean silent) {
         this.frame = frame;
+        this.captureStartNs = captureStartNs;
         this.timestamp = timestamp;
+        this.dirtyRegions = dirtyRegions;
+        this.sequence = sequence;
+        this.recycler = recycler;
+        this.silent = silent;
     }
 
     public T getFrame() {
@@ -23,4 +66,63 @@ public class TimestampedFrame<T> {
     public long getTimestamp() {
         return timestamp;
     }
+
+    /**
+     * 캡처 시작 시각 (캡처 단계 지연 측정용)
+     * @return 나노초, 따로 기록하지 않았으면 getTimestamp()와 같음
+     */
+    public long getCaptureStartNs() {
+        return captureStartNs;
+    }
+
+    /**
+     * 큐에 넣은 시각 (큐 대기 시간 측정용)
+     * @return 나노초
+     */
+    public long getPublishNs() {
+        return publishNs;
+    }
+
+    /**
+     * 이전 프레임 대비 변경된 영역
+     * @return 변경 영역 목록. 빈 리스트면 변경 없음, null이면 전체 프레임을 변경으로 취급
+     */
+    public List<Rectangle> getDirtyRegions() {
+        return dirtyRegions;
+    }
+
+    /**
+     * 오디오 무음 여부 (캡처 쪽 판정)
+     * @return 무음이면 true, 판정하지 않았으면 false
+     */
+    public boolean isSilent() {
+        return silent;
+    }
+
+    /**
+     * 캡처 순번
+     * @return 순번, 없으면 -1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 참조 추가 (다른 세션의 큐에도 넣을 때 호출, 픽셀 데이터는 복사하지 않음)
+     * @return this
+     */
+    public TimestampedFrame<T> retain() {
+        refCount.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * 프레임 데이터 사용 종료 (인코더 변환 후, 또는 프레임을 버릴 때 호출)
+     * 마지막 참조가 해제되면 버퍼 풀을 사용하는 프레임은 풀로 반납.
+     */
+    public void release() {
+        if (refCount.decrementAndGet() == 0 && recycler != null) {
+            recycler.accept(frame);
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package com.EchoLink.server.stream;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 영상 프레임 나이 기반 버리기 정책
+ *
+ * 캡처된 지 maxAgeMs가 지난 프레임은 인코딩하지 않음 (예: 50ms).
+ * 인코더가 계속 느린 경우 화면이 멈추지 않도록 연속으로 버리는 수는 maxConsecutiveDrops로 제한.
+ * 버린 프레임은 캡처 순번이 끊기므로 다음 프레임은 전체 변환됨.
+ * @author ESH
+ */
+public class VideoDropPolicy implements DropPolicy<BufferedImage> {
+
+	private final long maxAgeNs;				// 허용 최대 나이 (0 이하이면 버리지 않음)
+	private final int maxConsecutiveDrops;		// 연속으로 버릴 수 있는 최대 프레임 수
+
+	private int consecutiveDrops = 0;
+	private volatile long accepted = 0;			// 인코딩한 프레임 수
+	private volatile long droppedTooOld = 0;	// 오래되어 버린 프레임 수
+	private volatile long keptToAvoidStall = 0;	// 오래되었지만 연속 버리기 제한으로 인코딩한 프레임 수
+
+	/**
+	 * 생성자
+	 * @param maxAgeMs				허용 최대 나이(ms), 0 이하이면 정책 사용 안 함
+	 * @param maxConsecutiveDrops	연속으로 버릴 수 있는 최대 프레임 수
+	 */
+	public VideoDropPolicy(int maxAgeMs, int maxConsecutiveDrops) {
+		this.maxAgeNs = maxAgeMs * 1_000_000L;
+		this.maxConsecutiveDrops = maxConsecutiveDrops;
+	}
+
+	@Override
+	public boolean shouldDrop(TimestampedFrame<BufferedImage> frame, long nowNs) {
+		if (maxAgeNs > 0 && nowNs - frame.getTimestamp() > maxAgeNs) {
+			if (consecutiveDrops < maxConsecutiveDrops) {
+				consecutiveDrops++;
+				droppedTooOld++;
+				return true;
+			}
+			keptToAvoidStall++;
+		}
+		consecutiveDrops = 0;
+		accepted++;
+		return false;
+	}
+
+	@Override
+	public String getStats() {
+		return "video{accepted=" + accepted + ", droppedTooOld=" + droppedTooOld
+				+ ", keptToAvoidStall=" + keptToAvoidStall + "}";
+	}
+
+
+	// ----Getter-----
+	public long getAccepted() {
+		return accepted;
+	}
+	public long getDroppedTooOld() {
+		return droppedTooOld;
+	}
+	public long getKeptToAvoidStall() {
+		return keptToAvoidStall;
+	}
+}
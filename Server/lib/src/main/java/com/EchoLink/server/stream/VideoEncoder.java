@@ -0,0 +1,718 @@
+package com.EchoLink.server.stream;
+
+import static org.bytedeco.ffmpeg.presets.avutil.AVERROR_EAGAIN;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avutil.AVBufferRef;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.avutil.AVFrameSideData;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.avutil.AVRegionOfInterest;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.ffmpeg.global.swscale;
+import org.bytedeco.ffmpeg.swscale.SwsContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.PointerPointer;
+import org.bytedeco.javacv.Frame;
+
+import com.EchoLink.server.metrics.BitrateMeter;
+import com.EchoLink.server.metrics.FrameSizeStats;
+
+/**
+ * 영상 인코더 (avcodec 직접 사용)
+ *
+ * FFmpegFrameRecorder는 인코딩과 전송(mux)을 한 객체에서 하므로 인코딩 결과를 여러 시청자에게 나눌 수 없음.
+ * 이 클래스는 인코딩만 하고 결과를 EncodedPacket으로 돌려주며, 전송은 시청자별 StreamWriter가 담당.
+ * 하드웨어 가속 우선: NVIDIA(nvenc) -> Intel(qsv) -> CPU(libx264) 순서로 시도.
+ * 대역폭이 좁은 클라이언트를 위해 HEVC(libx265), AV1(libsvtav1)도 지원 (CPU 전용, 같은 화질에서 비트레이트가 낮은 대신 CPU를 더 씀).
+ * 어떤 형식을 쓸지는 접속 시 클라이언트가 디코딩 가능한 형식을 알려 주고 서버가 고름 (VideoEncoderProbe.negotiate()).
+ * 시간 단위는 마이크로초 (pts = 캡처 시각).
+ * 입력은 두 가지:
+ * - encode(Frame): BGR0 등 Frame을 swscale로 변환 (크기가 달라도 됨)
+ * - beginPicture()/encodePicture(): Yuv420Converter가 입력 AVFrame(YUV420P)에 바로 쓰고 인코딩 (swscale 없음)
+ * intraRefresh를 켜면 (libx264) 주기적 IDR 대신 열 단위로 화면을 조금씩 인트라 갱신하여 프레임 크기를 고르게 함
+ * (갱신 주기 = GOP 길이, 키프레임 요청은 그대로 IDR).
+ * 캡처 단계의 변경 영역(setDirtyRegions())은 프레임마다 AVRegionOfInterest side data로 붙여,
+ * 바뀐 부분은 양자화를 낮추고(비트를 더) 나머지 정적 영역은 높임 (libx264, libx265처럼 ROI를 읽는 코덱만 반영, 나머지는 무시).
+ * libx264는 적응 양자화(aq-mode)가 켜져 있어야 ROI를 적용하는데 ultrafast 프리셋이 끄므로 aq-mode=1로 다시 켬.
+ * libx265는 재사용하는 내부 프레임 버퍼를 처음 받은 입력에 ROI가 있었는지에 따라 만들므로, ROI를 붙이지 않는 프레임에도
+ * 효과 없는 영역(오프셋 0)을 붙여 모든 프레임에 ROI가 있게 함 (섞이면 ROI용 버퍼가 없는 프레임에 복사하다 비정상 종료).
+ * H.264 인코더는 실행 중에도 비트레이트를 바꿀 수 있음 (requestBitrate(): 다음 프레임 경계에서 코덱 컨텍스트에 적용).
+ * FFmpeg 6.0 래퍼가 프레임마다 bit_rate/rc_max_rate/rc_buffer_size 변경을 확인해 키프레임 없이 재설정함:
+ * libx264는 x264_encoder_reconfig(), h264_nvenc는 동적 비트레이트 변경(reconfig_encoder(), 지원하지 않는 GPU는 무시),
+ * h264_qsv는 CBR/VBR에서 update_bitrate()로 인코더를 리셋.
+ * 번들된 FFmpeg 6.0의 libx265, libsvtav1 래퍼는 이 변경을 무시하므로 (supportsLiveBitrate()가 false)
+ * 비트레이트를 바꾸려면 새 비트레이트로 인코더를 다시 열어야 함 (EncoderHub.changeBitrate()가 단계별 비트레이트의 인코더로,
+ * 시청자마다 간격을 두고 옮김).
+ * @author ESH
+ */
+public class VideoEncoder implements AutoCloseable {
+
+	/** 시도할 코덱 목록. h264_nvenc(NVIDIA), h264_qsv(Intel), libx264(CPU) */
+	public static final List<String> DEFAULT_CODECS = Arrays.asList("h264_nvenc", "h264_qsv", "libx264");
+	/** 영상 형식 (클라이언트와 협상, 기본 H.264) */
+	public static final String FORMAT_H264 = "h264";
+	public static final String FORMAT_HEVC = "hevc";
+	public static final String FORMAT_AV1 = "av1";
+	/** 서버가 지원하는 영상 형식 (선호 순서 아님) */
+	public static final List<String> FORMATS = Arrays.asList(FORMAT_H264, FORMAT_HEVC, FORMAT_AV1);
+	/** 최소 비트레이트 (이보다 낮은 요청은 올림) */
+	public static final int MIN_BITRATE = 100_000;
+	/** 실행 중 비트레이트 변경을 적용하는 코덱 (FFmpeg 6.0 래퍼가 변경을 확인하는 코덱만) */
+	public static final List<String> LIVE_BITRATE_CODECS = Arrays.asList("libx264", "h264_nvenc", "h264_qsv");
+
+	private static final int VBV_BUFFER_MS = 500;		// VBV 버퍼 크기 (목표 비트레이트로 이 시간만큼, 순간 최대 크기 제한)
+	private static final long BITRATE_WINDOW_MS = 1000;	// 출력 비트레이트 측정 구간
+	private static final AVRational ROI_DIRTY_QOFFSET = avutil.av_make_q(-1, 10);	// 변경 영역 양자화 오프셋 (libx264 기준 약 -5 QP)
+	private static final AVRational ROI_STATIC_QOFFSET = avutil.av_make_q(1, 10);	// 정적 영역 양자화 오프셋 (약 +5 QP)
+	private static final AVRational ROI_NEUTRAL_QOFFSET = avutil.av_make_q(0, 1);	// 효과 없는 영역 (libx265에서 ROI를 붙이지 않는 프레임)
+	private static final int MAX_ROI_REGIONS = 64;	// 변경 영역이 이보다 많으면 화면 대부분이 바뀐 것으로 보고 ROI를 붙이지 않음
+	private static final int ROI_SIZE = Loader.sizeof(AVRegionOfInterest.class);
+
+	private final int width;		// 해상도(가로)
+	private final int height;		// 해상도(세로)
+	private final int frameRate;	// 프레임
+	private final int gopSize;		// 주기적 키프레임 간격 (프레임 수, intraRefresh면 갱신 주기)
+	private final boolean intraRefresh;	// 주기적 인트라 갱신 사용 (IDR 대신)
+	private volatile int bitrate;	// 현재 적용된 목표 비트레이트
+	private final AtomicInteger pendingBitrate = new AtomicInteger(0);	// 다음 프레임에 적용할 비트레이트 (0이면 없음)
+
+	private String codecName;				// 실제 사용 중인 코덱
+	private String openOptions = "";		// 코덱을 열 때 준 옵션 ("preset=ultrafast:tune=zerolatency" 형식)
+	private AVCodecContext codecContext;
+	private AVFrame picture;				// 인코더 입력 프레임 (YUV)
+	private AVPacket packet;				// 인코더 출력 (재사용)
+	private SwsContext swsContext;			// BGR -> YUV 변환
+	private final PointerPointer<BytePointer> srcData = new PointerPointer<>(4);
+	private final IntPointer srcStride = new IntPointer(4);
+	private Buffer lastSource;				// 직전 입력 버퍼 (같은 버퍼면 포인터 재사용)
+	private BytePointer lastSourcePointer;
+	private Yuv420Planes planes;			// 입력 AVFrame 평면 (버퍼가 다시 할당되면 새로 만듦)
+	private final long[] planeAddresses = new long[3];	// planes를 만들 때의 평면 주소
+	private long encodedFrames = 0;
+	private final BitrateMeter outputBitrate = new BitrateMeter(BITRATE_WINDOW_MS);	// 실제 출력 비트레이트
+	private final FrameSizeStats frameSizes;	// 프레임 크기 분포 (인트라 갱신 효과 확인)
+	private boolean reportRate = false;		// 비트레이트 변경 후 첫 측정 결과를 로그로 출력
+	private volatile boolean keyFrameRequested = false;	// 다음 프레임을 키프레임(IDR)으로 인코딩
+	private List<Rectangle> dirtyRegions;	// 다음 프레임의 변경 영역 (null이면 ROI 없음, 인코딩 쓰레드만 사용)
+	private int dirtyWidth;					// 변경 영역 좌표계의 가로 (캡처 화면 크기)
+	private int dirtyHeight;				// 변경 영역 좌표계의 세로
+	private long roiFrames = 0;				// ROI를 붙여 인코딩한 프레임 수
+
+	/**
+	 * 생성자
+	 * @param width		가로
+	 * @param height	세로
+	 * @param fps		프레임
+	 * @param bitrate	비트레이트(bps)
+	 */
+	public VideoEncoder(int width, int height, int fps, int bitrate) {
+		this(width, height, fps, bitrate, 1000);
+	}
+
+	/**
+	 * 생성자 (키프레임 간격 지정)
+	 * @param width				가로
+	 * @param height			세로
+	 * @param fps				프레임
+	 * @param bitrate			비트레이트(bps)
+	 * @param keyFrameIntervalMs	주기적 키프레임 간격(ms, 최소 1프레임)
+	 */
+	public VideoEncoder(int width, int height, int fps, int bitrate, int keyFrameIntervalMs) {
+		this(width, height, fps, bitrate, keyFrameIntervalMs, false);
+	}
+
+	/**
+	 * 생성자 (키프레임 간격, 인트라 갱신 지정)
+	 * @param width				가로
+	 * @param height			세로
+	 * @param fps				프레임
+	 * @param bitrate			비트레이트(bps)
+	 * @param keyFrameIntervalMs	주기적 키프레임 간격(ms, 최소 1프레임)
+	 * @param intraRefresh		주기적 IDR 대신 인트라 갱신 사용 (libx264만 지원, 다른 코덱은 무시)
+	 */
+	public VideoEncoder(int width, int height, int fps, int bitrate, int keyFrameIntervalMs, boolean intraRefresh) {
+		this.intraRefresh = intraRefresh;
+		this.width = width;
+		this.height = height;
+		this.frameRate = fps;
+		this.bitrate = bitrate;
+		this.gopSize = (int) Math.max(1, (long) fps * keyFrameIntervalMs / 1000);
+		this.frameSizes = new FrameSizeStats("Encoder-Video " + width + "x" + height + (intraRefresh ? " intra-refresh" : ""),
+				Math.max(fps * 10, gopSize));	// GOP 여러 개가 들어가는 구간
+	}
+
+	/**
+	 * 코덱 목록을 순서대로 시도하여 처음 성공한 코덱으로 인코더 열기
+	 * @param codecs 시도할 코덱 이름 목록
+	 * @throws IOException 모든 코덱 초기화 실패
+	 */
+	public void open(List<String> codecs) throws IOException {
+		for (String codec : codecs) {
+			try {
+				System.out.println("[Encoder] '" + codec + "' 코덱으로 인코더 초기화를 시도합니다...");
+				openCodec(codec);
+				System.out.println("[Encoder] ✔️ 성공: '" + codec + "' 코덱으로 인코더를 시작합니다.");
+				return;
+			} catch (IOException e) {
+				System.err.println("[Encoder] ❌ 실패: '" + codec + "' 코덱 초기화 실패. 다음 코덱을 시도합니다. (오류: " + e.getMessage() + ")");
+				close();
+			}
+		}
+		throw new IOException("사용 가능한 영상 인코더(" + String.join(", ", codecs) + ")를 찾을 수 없습니다.");
+	}
+
+	/**
+	 * 코덱 하나로 인코더 열기 (실패 시 close() 필요)
+	 * @param name 코덱 이름
+	 * @throws IOException 초기화 실패
+	 */
+	void openCodec(String name) throws IOException {
+		AVCodec codec = avcodec.avcodec_find_encoder_by_name(name);
+		if (codec == null) {
+			throw new IOException("코덱 없음: " + name);
+		}
+		if (!isDeviceAvailable(name)) {
+			// 장치 없이 nvenc 초기화가 실패하면 FFmpeg 6.0의 정리 코드에서 프로세스가 죽으므로 미리 확인
+			throw new IOException("하드웨어 장치 없음: " + name);
+		}
+		codecContext = avcodec.avcodec_alloc_context3(codec);
+		codecContext.width(width);
+		codecContext.height(height);
+		codecContext.pix_fmt(selectPixelFormat(codec));
+		codecContext.time_base(EncodedPacket.MICROSECONDS);	// pts = 캡처 시각(마이크로초)
+		codecContext.framerate(avutil.av_make_q(frameRate, 1));
+		applyRateControl(bitrate);
+		codecContext.gop_size(gopSize);		// 기본 1초 (클라이언트가 손실 시 키프레임을 요청하면 길게 설정 가능)
+		codecContext.max_b_frames(0);		// 지연 방지 (B-프레임 없음)
+
+		AVDictionary options = new AVDictionary(null);
+		try {
+			lowLatencyOptions(name, options);
+			if (intraRefresh) {
+				if (name.equals("libx264")) {
+					avutil.av_dict_set(options, "intra-refresh", "1", 0);	// 갱신 주기 = gop_size
+				} else {
+					System.out.println("[Encoder] '" + name + "'는 인트라 갱신을 지원하지 않아 주기적 IDR을 사용합니다.");
+				}
+			}
+			openOptions = optionsString(options);
+			FFmpegError.check(avcodec.avcodec_open2(codecContext, codec, options), "avcodec_open2");
+		} finally {
+			avutil.av_dict_free(options);
+		}
+
+		picture = avutil.av_frame_alloc();
+		picture.format(codecContext.pix_fmt());
+		picture.width(width);
+		picture.height(height);
+		FFmpegError.check(avutil.av_frame_get_buffer(picture, 0), "av_frame_get_buffer");
+		packet = avcodec.av_packet_alloc();
+		codecName = name;
+	}
+
+	/**
+	 * 목표 비트레이트, 최대 비트레이트, VBV 버퍼 크기 설정
+	 * libx264는 처음부터 VBV가 켜져 있어야 실행 중 변경을 받으므로 열 때도 같은 값으로 설정.
+	 * @param target 목표 비트레이트(bps)
+	 */
+	private void applyRateControl(int target) {
+		codecContext.bit_rate(target);
+		if (codecContext.codec_id() == avcodec.AV_CODEC_ID_AV1) {
+			codecContext.rc_max_rate(0);	// SVT-AV1은 최대 = 목표를 거부함 (CBR은 svtav1-params rc=2로 지정)
+		} else {
+			codecContext.rc_max_rate(target);	// 저지연: 평균을 넘는 순간 전송률을 허용하지 않음 (혼잡 대응)
+		}
+		codecContext.rc_buffer_size((int) ((long) target * VBV_BUFFER_MS / 1000));
+		bitrate = target;
+	}
+
+	/**
+	 * 비트레이트 변경 요청 (어느 쓰레드에서나 호출 가능)
+	 * 인코딩 쓰레드가 다음 프레임을 보내기 직전(프레임 경계)에 코덱 컨텍스트에 적용.
+	 * 여러 번 요청하면 마지막 값만 적용.
+	 * @param target 목표 비트레이트(bps, MIN_BITRATE보다 작으면 MIN_BITRATE)
+	 */
+	public void requestBitrate(int target) {
+		pendingBitrate.set(Math.max(MIN_BITRATE, target));
+	}
+
+	/**
+	 * 실행 중 비트레이트 변경 지원 여부
+	 * @param codecName 코덱 이름
+	 * @return requestBitrate()가 열린 인코더에 적용되면 true (false면 인코더를 다시 열어야 함)
+	 */
+	public static boolean supportsLiveBitrate(String codecName) {
+		return LIVE_BITRATE_CODECS.contains(codecName);
+	}
+
+	/**
+	 * 대기 중인 비트레이트 변경 적용 (인코딩 쓰레드, avcodec_send_frame 직전)
+	 */
+	private void applyPendingBitrate() {
+		int target = pendingBitrate.getAndSet(0);
+		if (target == 0 || target == bitrate) {
+			return;
+		}
+		if (!supportsLiveBitrate(codecName)) {
+			System.err.println("[Encoder] '" + codecName + "'는 실행 중 비트레이트 변경을 지원하지 않아 무시합니다: "
+					+ bitrate + " -> " + target + "bps (새 비트레이트로 인코더를 다시 열어야 함)");
+			return;
+		}
+		int previous = bitrate;
+		applyRateControl(target);
+		outputBitrate.reset();	// 변경 전 출력이 섞이지 않도록 새 구간부터 측정
+		reportRate = true;
+		System.out.println("[Encoder] 비트레이트 변경 적용 (" + codecName + "): " + previous + " -> " + target + "bps"
+				+ " (maxrate " + codecContext.rc_max_rate() + ", VBV " + codecContext.rc_buffer_size() + ")");
+	}
+
+	private static String optionsString(AVDictionary options) {
+		PointerPointer<BytePointer> buffer = new PointerPointer<>(1);
+		if (avutil.av_dict_get_string(options, buffer, (byte) '=', (byte) ':') < 0) {
+			return "";
+		}
+		BytePointer text = buffer.get(BytePointer.class);
+		try {
+			return text.getString();
+		} finally {
+			avutil.av_free(text);
+		}
+	}
+
+	/**
+	 * 다음 프레임을 키프레임으로 인코딩 요청 (어느 쓰레드에서나 호출 가능)
+	 * 새 시청자나 해상도를 바꿔 옮겨 온 시청자가 GOP 끝까지 기다리지 않게 함.
+	 */
+	public void requestKeyFrame() {
+		keyFrameRequested = true;
+	}
+
+	/**
+	 * 키프레임 요청이 있으면 입력 프레임을 I 프레임으로 지정 (입력 AVFrame을 재사용하므로 매번 다시 설정)
+	 * libx264, nvenc, qsv 모두 I 지정 프레임을 IDR로 인코딩 (B 프레임 없음, closed GOP).
+	 */
+	private void applyPictureType() {
+		if (keyFrameRequested) {
+			keyFrameRequested = false;
+			picture.pict_type(avutil.AV_PICTURE_TYPE_I);
+		} else {
+			picture.pict_type(avutil.AV_PICTURE_TYPE_NONE);
+		}
+	}
+
+	/**
+	 * 형식별로 시도할 코덱
+	 * @param format 영상 형식 (FORMAT_*)
+	 * @return 코덱 이름 목록 (H.264는 하드웨어 우선, HEVC/AV1은 CPU 인코더만), 모르는 형식이면 빈 목록
+	 */
+	public static List<String> codecsFor(String format) {
+		switch (format) {
+			case FORMAT_H264:
+				return DEFAULT_CODECS;
+			case FORMAT_HEVC:
+				return Arrays.asList("libx265");
+			case FORMAT_AV1:
+				return Arrays.asList("libsvtav1");
+			default:
+				return Arrays.asList();
+		}
+	}
+
+	/**
+	 * 코덱의 영상 형식
+	 * @param codec 코덱 이름
+	 * @return 영상 형식 (FORMAT_*), 모르는 코덱이면 null
+	 */
+	public static String formatOf(String codec) {
+		for (String format : FORMATS) {
+			if (codecsFor(format).contains(codec)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 코덱별 저지연 옵션
+	 * libx265, libsvtav1은 가장 빠른 preset + 지연 없는 구조 (lookahead, B 프레임 없음).
+	 * 둘 다 전역 헤더를 쓰지 않으면 키프레임마다 시퀀스 헤더를 넣으므로 중간에 들어온 시청자도 디코딩 가능.
+	 */
+	private static void lowLatencyOptions(String codec, AVDictionary options) {
+		switch (codec) {
+			case "libx264":
+				avutil.av_dict_set(options, "preset", "ultrafast", 0);
+				avutil.av_dict_set(options, "tune", "zerolatency", 0);
+				avutil.av_dict_set(options, "aq-mode", "1", 0);	// ROI 적용 조건 (ultrafast는 0)
+				break;
+			case "h264_nvenc":
+				avutil.av_dict_set(options, "preset", "p1", 0);
+				avutil.av_dict_set(options, "tune", "ull", 0);
+				avutil.av_dict_set(options, "zerolatency", "1", 0);
+				break;
+			case "h264_qsv":
+				avutil.av_dict_set(options, "preset", "veryfast", 0);
+				avutil.av_dict_set(options, "async_depth", "1", 0);
+				break;
+			case "libx265":
+				avutil.av_dict_set(options, "preset", "veryfast", 0);	// ultrafast/superfast는 같은 비트레이트에서 libx264보다 화질이 낮음 (CodecBenchmark)
+				avutil.av_dict_set(options, "tune", "zerolatency", 0);	// B 프레임, lookahead, 프레임 병렬 없음
+				avutil.av_dict_set(options, "x265-params", "log-level=error", 0);	// 세션마다 찍히는 배너 생략
+				break;
+			case "libsvtav1":
+				avutil.av_dict_set(options, "preset", "12", 0);
+				avutil.av_dict_set(options, "svtav1-params", "rc=2:pred-struct=1:lookahead=0", 0);	// CBR + 저지연 예측 구조 (B 프레임 없음)
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * 하드웨어 인코더가 쓸 장치(CUDA, QSV)를 열 수 있는지 확인
+	 * @param codec 코덱 이름
+	 * @return 장치를 열 수 있거나 소프트웨어 코덱이면 true
+	 */
+	static boolean isDeviceAvailable(String codec) {
+		int type;
+		if (codec.endsWith("_nvenc")) {
+			type = avutil.AV_HWDEVICE_TYPE_CUDA;
+		}
+		else if (codec.endsWith("_qsv")) {
+			type = avutil.AV_HWDEVICE_TYPE_QSV;
+		}
+		else {
+			return true;
+		}
+		AVBufferRef device = new AVBufferRef(null);
+		int ret = avutil.av_hwdevice_ctx_create(device, type, (String) null, null, 0);
+		if (ret < 0) {
+			return false;
+		}
+		avutil.av_buffer_unref(device);
+		return true;
+	}
+
+	/**
+	 * YUV420P를 지원하면 YUV420P, 아니면 코덱의 첫 번째 포맷 (qsv는 NV12)
+	 */
+	private static int selectPixelFormat(AVCodec codec) {
+		IntPointer formats = codec.pix_fmts();
+		if (formats == null || formats.isNull()) {
+			return avutil.AV_PIX_FMT_YUV420P;
+		}
+		for (int i = 0; formats.get(i) != avutil.AV_PIX_FMT_NONE; i++) {
+			if (formats.get(i) == avutil.AV_PIX_FMT_YUV420P) {
+				return avutil.AV_PIX_FMT_YUV420P;
+			}
+		}
+		return formats.get(0);
+	}
+
+
+	/**
+	 * 프레임 하나를 인코딩
+	 * @param image			영상 프레임 (IncrementalFrameConverter 결과 등)
+	 * @param pixelFormat	image의 픽셀 포맷 (AV_PIX_FMT_NONE이면 채널 수로 결정)
+	 * @param timestampUs	캡처 시각 (마이크로초)
+	 * @return 인코딩된 패킷 (인코더가 아직 내놓지 않았으면 빈 목록)
+	 * @throws IOException 인코딩 실패
+	 */
+	public List<EncodedPacket> encode(Frame image, int pixelFormat, long timestampUs) throws IOException {
+		FFmpegError.check(avutil.av_frame_make_writable(picture), "av_frame_make_writable");
+		toPicture(image, pixelFormat);
+		picture.pts(timestampUs);
+		encodedFrames++;
+		applyPendingBitrate();
+		applyPictureType();
+		applyRegionsOfInterest();
+		return send(picture);
+	}
+
+	/**
+	 * 다음 프레임의 변경 영역 지정 (인코딩 쓰레드, encode()/encodePicture() 직전)
+	 * 한 프레임에만 쓰이고, 지정하지 않은 프레임에는 ROI를 붙이지 않음.
+	 * @param regions		변경 영역 (null이면 알 수 없음: ROI 없음, 빈 목록이면 정적 프레임: 전체를 정적 영역으로)
+	 * @param sourceWidth	변경 영역 좌표계의 가로 (캡처 화면, 인코더 크기와 다르면 비율로 맞춤)
+	 * @param sourceHeight	변경 영역 좌표계의 세로
+	 */
+	public void setDirtyRegions(List<Rectangle> regions, int sourceWidth, int sourceHeight) {
+		this.dirtyRegions = regions;
+		this.dirtyWidth = sourceWidth;
+		this.dirtyHeight = sourceHeight;
+	}
+
+	/**
+	 * 변경 영역을 AVRegionOfInterest side data로 입력 프레임에 붙임 (입력 AVFrame을 재사용하므로 매번 지우고 다시 붙임)
+	 * 배열 앞의 영역이 우선이므로 변경 영역을 먼저, 마지막에 화면 전체를 정적 영역으로 넣음.
+	 * 키프레임은 뒤 프레임들이 참조하므로 정적 영역 화질을 낮추지 않음.
+	 */
+	private void applyRegionsOfInterest() {
+		avutil.av_frame_remove_side_data(picture, avutil.AV_FRAME_DATA_REGIONS_OF_INTEREST);
+		List<Rectangle> regions = dirtyRegions;
+		dirtyRegions = null;
+		if (regions == null || regions.size() > MAX_ROI_REGIONS || dirtyWidth <= 0 || dirtyHeight <= 0
+				|| picture.pict_type() == avutil.AV_PICTURE_TYPE_I) {
+			if ("libx265".equals(codecName)) {
+				attachNeutralRegion();	// 모든 프레임에 ROI가 있어야 함 (클래스 설명 참고)
+			}
+			return;
+		}
+		AVFrameSideData sideData = avutil.av_frame_new_side_data(picture, avutil.AV_FRAME_DATA_REGIONS_OF_INTEREST,
+				(long) (regions.size() + 1) * ROI_SIZE);
+		if (sideData == null) {
+			return;
+		}
+		AVRegionOfInterest rois = new AVRegionOfInterest(sideData.data());
+		int index = 0;
+		for (Rectangle r : regions) {
+			setRegion(rois.position(index++),
+					(int) ((long) r.y * height / dirtyHeight),
+					(int) (((long) (r.y + r.height) * height + dirtyHeight - 1) / dirtyHeight),
+					(int) ((long) r.x * width / dirtyWidth),
+					(int) (((long) (r.x + r.width) * width + dirtyWidth - 1) / dirtyWidth),
+					ROI_DIRTY_QOFFSET);
+		}
+		setRegion(rois.position(index), 0, height, 0, width, ROI_STATIC_QOFFSET);
+		roiFrames++;
+	}
+
+	private void attachNeutralRegion() {
+		AVFrameSideData sideData = avutil.av_frame_new_side_data(picture, avutil.AV_FRAME_DATA_REGIONS_OF_INTEREST, ROI_SIZE);
+		if (sideData != null) {
+			setRegion(new AVRegionOfInterest(sideData.data()), 0, height, 0, width, ROI_NEUTRAL_QOFFSET);
+		}
+	}
+
+	private static void setRegion(AVRegionOfInterest roi, int top, int bottom, int left, int right, AVRational qoffset) {
+		roi.self_size(ROI_SIZE).top(top).bottom(bottom).left(left).right(right).qoffset(qoffset);
+	}
+
+	/**
+	 * 캡처 화면을 swscale 없이 입력 프레임에 바로 쓸 수 있는지 확인
+	 * @param imageWidth	캡처 화면 가로
+	 * @param imageHeight	캡처 화면 세로
+	 * @return 인코더 입력이 YUV420P이고 크기가 같으면 true
+	 */
+	public boolean acceptsYuv420(int imageWidth, int imageHeight) {
+		return picture != null && picture.format() == avutil.AV_PIX_FMT_YUV420P
+				&& imageWidth == width && imageHeight == height;
+	}
+
+	/**
+	 * 입력 프레임을 쓰기 가능하게 만들고 평면을 반환 (Yuv420Converter로 채운 뒤 encodePicture() 호출)
+	 * 인코더가 이전 프레임을 아직 참조하고 있어 버퍼가 다시 할당되면 새 Yuv420Planes를 반환 (변환기가 전체 변환).
+	 * @return 입력 프레임 평면
+	 * @throws IOException 버퍼 할당 실패
+	 */
+	public Yuv420Planes beginPicture() throws IOException {
+		FFmpegError.check(avutil.av_frame_make_writable(picture), "av_frame_make_writable");
+		if (planes == null || planesChanged()) {
+			int chromaHeight = (height + 1) / 2;
+			planes = new Yuv420Planes(
+					plane(0, height), plane(1, chromaHeight), plane(2, chromaHeight),
+					picture.linesize(0), picture.linesize(1), picture.linesize(2), width, height);
+			planeAddresses[0] = picture.data(0).address();
+			planeAddresses[1] = picture.data(1).address();
+			planeAddresses[2] = picture.data(2).address();
+		}
+		return planes;
+	}
+
+	/**
+	 * beginPicture()로 채운 입력 프레임 인코딩
+	 * @param timestampUs 캡처 시각 (마이크로초)
+	 * @return 인코딩된 패킷 (인코더가 아직 내놓지 않았으면 빈 목록)
+	 * @throws IOException 인코딩 실패
+	 */
+	public List<EncodedPacket> encodePicture(long timestampUs) throws IOException {
+		picture.pts(timestampUs);
+		encodedFrames++;
+		applyPendingBitrate();
+		applyPictureType();
+		applyRegionsOfInterest();
+		return send(picture);
+	}
+
+	private boolean planesChanged() {
+		for (int i = 0; i < 3; i++) {
+			if (picture.data(i).address() != planeAddresses[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private ByteBuffer plane(int index, int rows) {
+		return picture.data(index).capacity((long) picture.linesize(index) * rows).asByteBuffer();
+	}
+
+	/**
+	 * 입력 프레임 하나를 내용과 관계없이 인코딩하고 남은 패킷까지 꺼냄 (코덱 확인용, 열린 직후에만 사용)
+	 * @return 출력된 패킷 수
+	 * @throws IOException 인코딩 실패
+	 */
+	int encodeTestFrame() throws IOException {
+		FFmpegError.check(avutil.av_frame_make_writable(picture), "av_frame_make_writable");
+		picture.pts(0);
+		int count = send(picture).size();
+		return count + flush().size();
+	}
+
+	/**
+	 * 인코더 안에 남은 패킷 꺼내기 (종료 전)
+	 */
+	public List<EncodedPacket> flush() throws IOException {
+		return send(null);
+	}
+
+	private List<EncodedPacket> send(AVFrame frame) throws IOException {
+		int ret = avcodec.avcodec_send_frame(codecContext, frame);
+		if (ret < 0 && ret != avutil.AVERROR_EOF) {
+			FFmpegError.check(ret, "avcodec_send_frame");
+		}
+		List<EncodedPacket> packets = new ArrayList<>(1);
+		while (true) {
+			ret = avcodec.avcodec_receive_packet(codecContext, packet);
+			if (ret == AVERROR_EAGAIN() || ret == avutil.AVERROR_EOF) {
+				return packets;
+			}
+			FFmpegError.check(ret, "avcodec_receive_packet");
+			EncodedPacket encoded = EncodedPacket.copyOf(EncodedPacket.Type.VIDEO, packet, codecContext.time_base(), 0);
+			avcodec.av_packet_unref(packet);
+			packets.add(encoded);
+			frameSizes.record(encoded.getData().length);
+			if (outputBitrate.record(encoded.getData().length, encoded.getDtsUs()) && reportRate) {
+				reportRate = false;
+				System.out.println("[Encoder] 비트레이트 변경 후 측정: 목표 " + bitrate + "bps, 실제 "
+						+ outputBitrate.getMeasuredBitrate() + "bps");
+			}
+		}
+	}
+
+	/**
+	 * 입력 프레임을 인코더 픽셀 포맷으로 변환 (크기가 다르면 축소/확대)
+	 */
+	private void toPicture(Frame image, int pixelFormat) {
+		int srcFormat = pixelFormat != avutil.AV_PIX_FMT_NONE ? pixelFormat : guessPixelFormat(image);
+		swsContext = swscale.sws_getCachedContext(swsContext,
+				image.imageWidth, image.imageHeight, srcFormat,
+				width, height, picture.format(),
+				swscale.SWS_BILINEAR, null, null, (DoublePointer) null);
+
+		Buffer source = image.image[0];
+		if (source != lastSource) {
+			lastSourcePointer = new BytePointer(new Pointer(source));	// 직접 버퍼 주소 (복사 없음)
+			lastSource = source;
+		}
+		srcData.put(0, lastSourcePointer);
+		srcStride.put(0, image.imageStride * Math.abs(image.imageDepth) / 8);	// 요소 단위 -> 바이트 단위
+		swscale.sws_scale(swsContext, srcData, srcStride, 0, image.imageHeight, picture.data(), picture.linesize());
+	}
+
+	private static int guessPixelFormat(Frame image) {
+		switch (image.imageChannels) {
+			case 1:
+				return avutil.AV_PIX_FMT_GRAY8;
+			case 4:
+				return avutil.AV_PIX_FMT_BGRA;
+			default:
+				return avutil.AV_PIX_FMT_BGR24;
+		}
+	}
+
+
+	/**
+	 * 인코더 해제
+	 */
+	@Override
+	public void close() {
+		if (codecContext != null) {
+			avcodec.avcodec_free_context(codecContext);
+			codecContext = null;
+		}
+		if (picture != null) {
+			avutil.av_frame_free(picture);
+			picture = null;
+		}
+		if (packet != null) {
+			avcodec.av_packet_free(packet);
+			packet = null;
+		}
+		if (swsContext != null) {
+			swscale.sws_freeContext(swsContext);
+			swsContext = null;
+		}
+		lastSource = null;
+		lastSourcePointer = null;
+		planes = null;
+	}
+
+
+	// ----Getter-----
+	/**
+	 * @return 인코더 코덱 설정 (StreamWriter가 스트림 정보로 사용)
+	 */
+	public AVCodecContext getCodecContext() {
+		return codecContext;
+	}
+	public String getCodecName() {
+		return codecName;
+	}
+	public String getOpenOptions() {
+		return openOptions;
+	}
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getGopSize() {
+		return gopSize;
+	}
+	public boolean isIntraRefresh() {
+		return intraRefresh;
+	}
+	public FrameSizeStats getFrameSizes() {
+		return frameSizes;
+	}
+	/**
+	 * @return 현재 적용된 목표 비트레이트 (requestBitrate()는 다음 프레임부터 반영)
+	 */
+	public int getBitrate() {
+		return bitrate;
+	}
+	/**
+	 * @return 직전 측정 구간(1초)의 실제 출력 비트레이트(bps), 측정 전이면 -1
+	 */
+	public long getMeasuredBitrate() {
+		return outputBitrate.getMeasuredBitrate();
+	}
+	public long getEncodedFrames() {
+		return encodedFrames;
+	}
+	/**
+	 * @return 변경 영역 ROI를 붙여 인코딩한 프레임 수
+	 */
+	public long getRoiFrames() {
+		return roiFrames;
+	}
+}
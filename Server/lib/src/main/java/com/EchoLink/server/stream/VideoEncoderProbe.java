@@ -0,0 +1,223 @@
+package com.EchoLink.server.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 영상 코덱 사용 가능 여부 확인 (서버 시작 시 한 번, 결과는 캐시)
+ *
+ * 하드웨어가 없는 환경에서는 nvenc, qsv 초기화가 실패할 때마다 수백 ms씩 걸리므로,
+ * 세션 시작이나 해상도 변경 때마다 DEFAULT_CODECS를 처음부터 시도하지 않도록 백그라운드에서 미리 확인.
+ * 코덱마다 작은 크기로 열고 한 프레임을 인코딩해 보고, 여는 시간과 옵션을 기록.
+ * 인코더는 codecs()로 성공한 코덱만 받음 (확인이 아직 안 끝났으면 끝날 때까지 기다림).
+ * HEVC, AV1 코덱도 함께 확인하여, 접속 시 클라이언트가 디코딩할 수 있는 형식 중 이 서버에서 열리는 형식을 고름 (negotiate()).
+ * @author ESH
+ */
+public final class VideoEncoderProbe {
+
+	private static final int PROBE_WIDTH = 640;			// 확인용 인코더 설정 (하드웨어 인코더 최소 크기보다 크게)
+	private static final int PROBE_HEIGHT = 360;
+	private static final int PROBE_FPS = 30;
+	private static final int PROBE_BITRATE = 1_000_000;
+	private static final long WAIT_TIMEOUT_MS = 10_000;	// codecs()가 확인 결과를 기다리는 최대 시간
+
+	private static CompletableFuture<List<Result>> probe;	// 확인 결과 (처음 요청할 때 시작)
+
+	/**
+	 * 코덱 하나의 확인 결과
+	 */
+	public static final class Result {
+		private final String codec;
+		private final boolean available;
+		private final long openMillis;		// 코덱을 열고 첫 프레임을 인코딩하기까지 걸린 시간 (실패해도 기록)
+		private final String options;		// 열 때 준 옵션
+		private final String error;			// 실패 이유 (성공이면 null)
+
+		private Result(String codec, boolean available, long openMillis, String options, String error) {
+			this.codec = codec;
+			this.available = available;
+			this.openMillis = openMillis;
+			this.options = options;
+			this.error = error;
+		}
+
+		@Override
+		public String toString() {
+			return codec + (available ? " 사용 가능 (" + options + ")" : " 사용 불가 (" + error + ")")
+					+ ", " + openMillis + "ms";
+		}
+
+
+		// ----Getter-----
+		public String getCodec() {
+			return codec;
+		}
+		public boolean isAvailable() {
+			return available;
+		}
+		public long getOpenMillis() {
+			return openMillis;
+		}
+		public String getOptions() {
+			return options;
+		}
+		public String getError() {
+			return error;
+		}
+	}
+
+	private VideoEncoderProbe() {
+	}
+
+
+	/**
+	 * 백그라운드 확인 시작 (이미 시작했으면 기존 결과 반환)
+	 * 서버 시작 시 호출하면 첫 세션이 코덱 확인을 기다리지 않음.
+	 * @return 확인 결과 (VideoEncoder.FORMATS, 형식별 코덱 순서)
+	 */
+	public static synchronized CompletableFuture<List<Result>> start() {
+		if (probe == null) {
+			CompletableFuture<List<Result>> future = new CompletableFuture<>();
+			Thread thread = new Thread(() -> future.complete(probeAll()), "VideoEncoder-Probe");
+			thread.setDaemon(true);
+			thread.start();
+			probe = future;
+		}
+		return probe;
+	}
+
+	/**
+	 * 인코더가 시도할 H.264 코덱 목록
+	 * 확인에서 성공한 코덱만 DEFAULT_CODECS 순서로 반환 (하드웨어 우선).
+	 * 확인이 시간 안에 끝나지 않았거나 모두 실패했으면 DEFAULT_CODECS를 그대로 반환 (기존처럼 차례로 시도).
+	 * @return 시도할 코덱 이름 목록
+	 */
+	public static List<String> codecs() {
+		return codecs(VideoEncoder.FORMAT_H264);
+	}
+
+	/**
+	 * 영상 형식 하나의 시도할 코덱 목록
+	 * 확인이 시간 안에 끝나지 않았으면 VideoEncoder.codecsFor(format)을 그대로 반환 (차례로 시도).
+	 * 확인이 끝났으면 성공한 코덱만 반환. H.264는 모두 실패해도 DEFAULT_CODECS를 반환 (기본 형식이므로 그래도 시도).
+	 * @param format 영상 형식 (VideoEncoder.FORMAT_*)
+	 * @return 시도할 코덱 이름 목록 (HEVC, AV1 코덱이 없으면 빈 목록)
+	 */
+	public static List<String> codecs(String format) {
+		List<String> candidates = VideoEncoder.codecsFor(format);
+		List<Result> results;
+		try {
+			results = start().get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return candidates;
+		} catch (ExecutionException | TimeoutException e) {
+			System.err.println("[Encoder] 코덱 확인 결과를 받지 못했습니다. 모든 코덱을 차례로 시도합니다.");
+			return candidates;
+		}
+		List<String> codecs = new ArrayList<>();
+		for (Result result : results) {
+			if (result.isAvailable() && candidates.contains(result.getCodec())) {
+				codecs.add(result.getCodec());
+			}
+		}
+		if (codecs.isEmpty() && VideoEncoder.FORMAT_H264.equals(format)) {
+			return VideoEncoder.DEFAULT_CODECS;
+		}
+		return codecs;
+	}
+
+	/**
+	 * 영상 형식 협상
+	 * 클라이언트가 보낸 순서(선호 순서)대로, 서버 설정에서 허용하고 이 서버에서 열리는 첫 형식을 고름.
+	 * 맞는 형식이 없으면 클라이언트가 H.264를 디코딩할 수 있을 때만 H.264 (서버 설정에서 빠져 있어도, 항상 열 수 있는 형식).
+	 * 클라이언트가 디코딩할 수 없는 형식은 고르지 않음.
+	 * @param clientFormats	클라이언트가 디코딩 가능한 형식 (선호 순서, "h265"는 "hevc"로 취급)
+	 * @param serverFormats	서버 설정에서 허용한 형식
+	 * @return 사용할 영상 형식 (VideoEncoder.FORMAT_*), 맞는 형식이 없으면 null (세션 거부)
+	 */
+	public static String negotiate(List<String> clientFormats, List<String> serverFormats) {
+		boolean clientH264 = false;
+		for (String requested : clientFormats) {
+			String format = normalizeFormat(requested);
+			if (serverFormats.contains(format) && !codecs(format).isEmpty()) {
+				return format;
+			}
+			clientH264 |= VideoEncoder.FORMAT_H264.equals(format);
+		}
+		return clientH264 ? VideoEncoder.FORMAT_H264 : null;
+	}
+
+	/**
+	 * 형식 이름 정리 (대소문자, 별칭)
+	 * @param name 형식 이름 ("H264", "avc", "h265", "AV1" 등)
+	 * @return VideoEncoder.FORMAT_* 값, 모르는 이름이면 소문자로 바꾼 이름
+	 */
+	public static String normalizeFormat(String name) {
+		String format = name.trim().toLowerCase(Locale.ROOT);
+		switch (format) {
+			case "avc":
+			case "h.264":
+				return VideoEncoder.FORMAT_H264;
+			case "h265":
+			case "h.265":
+				return VideoEncoder.FORMAT_HEVC;
+			default:
+				return format;
+		}
+	}
+
+	/**
+	 * Getter
+	 * @return 확인 결과, 아직 끝나지 않았으면 빈 목록
+	 */
+	public static synchronized List<Result> getResults() {
+		return probe != null && probe.isDone() ? probe.join() : Collections.emptyList();
+	}
+
+
+	private static List<Result> probeAll() {
+		long start = System.nanoTime();
+		List<Result> results = new ArrayList<>();
+		for (String format : VideoEncoder.FORMATS) {
+			for (String codec : VideoEncoder.codecsFor(format)) {
+				Result result = probe(codec);
+				System.out.println("[Encoder] 코덱 확인: " + result);
+				results.add(result);
+			}
+		}
+		System.out.println("[Encoder] 코덱 확인 완료 ("
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms)");
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * 코덱 하나를 열고 한 프레임 인코딩
+	 */
+	private static Result probe(String codec) {
+		long start = System.nanoTime();
+		VideoEncoder encoder = new VideoEncoder(PROBE_WIDTH, PROBE_HEIGHT, PROBE_FPS, PROBE_BITRATE);
+		try {
+			encoder.openCodec(codec);
+			encoder.encodeTestFrame();
+			return new Result(codec, true, elapsedMillis(start), encoder.getOpenOptions(), null);
+		}
+		catch (Throwable e) {
+			// 네이티브 라이브러리 로딩 실패(UnsatisfiedLinkError) 등도 "사용 불가"로 처리
+			return new Result(codec, false, elapsedMillis(start), encoder.getOpenOptions(), e.getMessage());
+		}
+		finally {
+			encoder.close();
+		}
+	}
+
+	private static long elapsedMillis(long startNs) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+	}
+}
@@ -0,0 +1,325 @@
+package com.EchoLink.server.stream;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 캡처 화면(int RGB) -> YUV420P 직접 변환기 (변경 영역만, 행 구간 병렬, SIMD)
+ *
+ * 기존 경로는 BufferedImage -> BGR0 Frame 복사 후 인코더 안에서 swscale로 다시 YUV로 변환 (픽셀을 두 번 지나감).
+ * 이 변환기는 캡처 버퍼를 읽어 인코더 입력 AVFrame(Yuv420Planes)에 바로 씀.
+ * - 색 변환: BT.601 제한 범위 (휘도는 swscale 결과와 ±1 이내), 색차는 2x2 평균
+ * - jdk.incubator.vector 모듈이 있으면 SIMD 구현, 없으면 스칼라 구현 (--add-modules jdk.incubator.vector)
+ * - 변경 영역이 크면 행 구간으로 나눠 공유 쓰레드 풀에서 병렬 변환
+ * - 캡처 순번이 이어지지 않거나 출력 버퍼가 바뀌면 전체 변환 (IncrementalFrameConverter와 같은 규칙)
+ * @author ESH
+ */
+public class Yuv420Converter {
+
+	/** SIMD(Vector API) 구현 사용 여부 (모듈이 없거나 레인이 적으면 스칼라) */
+	public static final boolean SIMD_ENABLED = detectSimd();
+
+	private static final int WARM_UP_ITERATIONS = 3000;		// 예열 반복 횟수 (C2 컴파일 기준보다 충분히 많게)
+	private static final int PARALLEL_MIN_PIXELS = 1 << 18;	// 이보다 작은 영역은 호출 쓰레드에서만 변환 (약 512x512)
+	private static final int BAND_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+	private static final ExecutorService BAND_POOL = BAND_THREADS > 1 ? newBandPool(BAND_THREADS - 1) : null;	// 호출 쓰레드도 한 구간 처리
+
+	// 쓰레드별 행 버퍼 (한 행 분량, 커지면 다시 할당)
+	private static final ThreadLocal<RowScratch> SCRATCH = ThreadLocal.withInitial(RowScratch::new);
+
+	private Yuv420Planes lastPlanes;		// 직전에 변환한 출력 (바뀌면 전체 변환)
+	private long lastSequence = -1;			// 마지막으로 변환한 프레임의 캡처 순번
+	private long fullConversions = 0;		// 전체 변환 횟수
+	private long partialConversions = 0;	// 변경 영역만 변환한 횟수
+
+	/**
+	 * 쓰레드별 행 버퍼
+	 */
+	private static final class RowScratch {
+		private byte[] y0 = new byte[0];
+		private byte[] y1 = new byte[0];
+		private byte[] u = new byte[0];
+		private byte[] v = new byte[0];
+		private int[] rbSum = new int[0];	// SIMD 색차 세로 합
+		private int[] gSum = new int[0];
+
+		private void ensure(int width) {
+			if (y0.length < width) {
+				y0 = new byte[width];
+				y1 = new byte[width];
+				u = new byte[(width + 1) / 2];
+				v = new byte[(width + 1) / 2];
+				rbSum = new int[width];
+				gSum = new int[width];
+			}
+		}
+	}
+
+
+	/**
+	 * 이 변환기가 처리할 수 있는 이미지인지 확인
+	 * @param image 캡처 화면
+	 * @return int 픽셀(TYPE_INT_RGB, TYPE_INT_ARGB) 이미지면 true
+	 */
+	public static boolean supports(BufferedImage image) {
+		Raster raster = image.getRaster();
+		return raster.getDataBuffer() instanceof DataBufferInt
+				&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+				&& (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * 변경 영역만 출력에 반영.
+	 * 캡처 순번이 직전 프레임과 이어지지 않으면(중간 프레임이 버려졌으면) 전체 변환.
+	 * @param tsFrame	캡처된 화면 (변경 영역, 순번 포함, supports()가 true인 이미지)
+	 * @param planes	출력 (이미지와 같은 크기)
+	 * @throws InterruptedException 병렬 변환 대기 중 인터럽트
+	 */
+	public void convert(TimestampedFrame<BufferedImage> tsFrame, Yuv420Planes planes) throws InterruptedException {
+		long sequence = tsFrame.getSequence();
+		boolean continuous = sequence >= 0 && sequence == lastSequence + 1;
+		lastSequence = sequence;
+		convert(tsFrame.getFrame(), continuous ? tsFrame.getDirtyRegions() : null, planes);
+	}
+
+	/**
+	 * 변경 영역만 출력에 반영.
+	 * @param image			캡처된 화면 (supports()가 true인 이미지)
+	 * @param dirtyRegions	변경 영역 (null이면 전체 변환)
+	 * @param planes		출력 (이미지와 같은 크기)
+	 * @throws InterruptedException 병렬 변환 대기 중 인터럽트
+	 */
+	public void convert(BufferedImage image, List<Rectangle> dirtyRegions, Yuv420Planes planes) throws InterruptedException {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		if (planes.getWidth() != w || planes.getHeight() != h) {
+			throw new IllegalArgumentException("크기가 다름: " + w + "x" + h + " -> " + planes.getWidth() + "x" + planes.getHeight());
+		}
+		Raster raster = image.getRaster();
+		int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+		int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		int offset = raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+		if (planes != lastPlanes || dirtyRegions == null) {
+			convertRect(pixels, offset, stride, planes, 0, 0, w, h);
+			lastPlanes = planes;
+			fullConversions++;
+		}
+		else {
+			for (Rectangle r : dirtyRegions) {
+				convertRect(pixels, offset, stride, planes, r.x, r.y, r.width, r.height);
+			}
+			partialConversions++;
+		}
+	}
+
+	/**
+	 * SIMD 구현을 JIT가 미리 컴파일하도록 작은 이미지로 반복 변환 (서버 시작 시 1회)
+	 * Vector API는 컴파일 전(인터프리터)에는 스칼라보다 훨씬 느리므로, 첫 시청자의 초기 프레임이 밀리지 않게 함.
+	 */
+	public static void warmUp() {
+		if (!SIMD_ENABLED) {
+			return;
+		}
+		long start = System.nanoTime();
+		BufferedImage image = new BufferedImage(256, 16, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = i * 0x010203;
+		}
+		Yuv420Planes planes = new Yuv420Planes(ByteBuffer.allocate(256 * 16), ByteBuffer.allocate(128 * 8),
+				ByteBuffer.allocate(128 * 8), 256, 128, 128, 256, 16);
+		for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+			convertBand(pixels, 0, 256, planes, 0, 256, 0, 16);
+		}
+		System.out.println("[Encoder] YUV 변환 예열 완료: " + describe() + " ("
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms)");
+	}
+
+	/**
+	 * 다음 convert 호출 때 전체 변환 (출력 내용이 바뀐 경우 등)
+	 */
+	public void invalidate() {
+		lastPlanes = null;
+	}
+
+
+	/**
+	 * 사각형 영역 변환. 색차가 2x2 단위이므로 짝수 좌표로 넓힘. 크면 행 구간으로 나눠 병렬 처리.
+	 */
+	private static void convertRect(int[] px, int offset, int stride, Yuv420Planes planes,
+			int x, int y, int w, int h) throws InterruptedException {
+		int x0 = Math.max(0, x) & ~1;
+		int y0 = Math.max(0, y) & ~1;
+		int x1 = Math.min(planes.getWidth(), (x + w + 1) & ~1);
+		int y1 = Math.min(planes.getHeight(), (y + h + 1) & ~1);
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+
+		int bands = BAND_POOL == null ? 1 : (int) Math.min(BAND_THREADS, (long) (x1 - x0) * (y1 - y0) / PARALLEL_MIN_PIXELS + 1);
+		if (bands <= 1) {
+			convertBand(px, offset, stride, planes, x0, x1, y0, y1);
+			return;
+		}
+
+		// 행 구간 (짝수 행 경계), 첫 구간은 호출 쓰레드가 처리
+		int rowPairs = (y1 - y0 + 1) / 2;
+		int pairsPerBand = (rowPairs + bands - 1) / bands;
+		List<Future<?>> futures = new ArrayList<>(bands - 1);
+		for (int band = 1; band < bands; band++) {
+			int bandStart = y0 + band * pairsPerBand * 2;
+			int bandEnd = Math.min(y1, bandStart + pairsPerBand * 2);
+			if (bandStart < bandEnd) {
+				futures.add(BAND_POOL.submit(() -> convertBand(px, offset, stride, planes, x0, x1, bandStart, bandEnd)));
+			}
+		}
+		convertBand(px, offset, stride, planes, x0, x1, y0, Math.min(y1, y0 + pairsPerBand * 2));
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("YUV 변환 실패", e.getCause());
+		} finally {
+			for (Future<?> future : futures) {
+				future.cancel(true);	// 예외/인터럽트로 빠져나온 경우 남은 구간 취소 (이미 끝난 구간은 영향 없음)
+			}
+		}
+	}
+
+	/**
+	 * 행 구간 [y0, y1) 변환 (y0은 짝수). 마지막 행이 홀수 높이의 끝이면 같은 행을 두 번 사용.
+	 */
+	private static void convertBand(int[] px, int offset, int stride, Yuv420Planes planes,
+			int x0, int x1, int y0, int y1) {
+		RowScratch scratch = SCRATCH.get();
+		int width = x1 - x0;
+		scratch.ensure(width);
+		for (int row = y0; row < y1; row += 2) {
+			boolean pair = row + 1 < y1;
+			int row0 = offset + row * stride;
+			int row1 = pair ? row0 + stride : row0;
+			if (SIMD_ENABLED) {
+				Yuv420VectorKernel.convertRowPair(px, row0, row1, x0, x1,
+						scratch.y0, scratch.y1, scratch.u, scratch.v, scratch.rbSum, scratch.gSum);
+			} else {
+				convertRowPairScalar(px, row0, row1, x0, x1, x0, scratch.y0, scratch.y1, scratch.u, scratch.v);
+			}
+			planes.putY(row, x0, scratch.y0, width);
+			if (pair) {
+				planes.putY(row + 1, x0, scratch.y1, width);
+			}
+			planes.putUV(row >> 1, x0 >> 1, scratch.u, scratch.v, (width + 1) / 2);
+		}
+	}
+
+	/**
+	 * 두 행의 [x, x1) 구간 변환 (스칼라 구현, SIMD 구현의 나머지 열 처리에도 사용)
+	 * @param px		픽셀 (0x00RRGGBB)
+	 * @param row0		위 행 시작 인덱스
+	 * @param row1		아래 행 시작 인덱스 (홀수 높이의 마지막 행이면 row0과 같음)
+	 * @param x			시작 열 (짝수)
+	 * @param x1		끝 열 (홀수 폭의 끝이면 마지막 픽셀을 두 번 사용)
+	 * @param origin	출력 버퍼의 0번이 가리키는 열
+	 * @param y0		위 행 휘도 출력
+	 * @param y1		아래 행 휘도 출력
+	 * @param u			Cb 출력 (색차 좌표)
+	 * @param v			Cr 출력 (색차 좌표)
+	 */
+	static void convertRowPairScalar(int[] px, int row0, int row1, int x, int x1, int origin,
+			byte[] y0, byte[] y1, byte[] u, byte[] v) {
+		for (; x < x1; x += 2) {
+			int i = x - origin;
+			int xr = Math.min(x + 1, x1 - 1);
+			int a = px[row0 + x];
+			int b = px[row0 + xr];
+			int c = px[row1 + x];
+			int d = px[row1 + xr];
+			y0[i] = luma(a);
+			y1[i] = luma(c);
+			if (xr != x) {
+				y0[i + 1] = luma(b);
+				y1[i + 1] = luma(d);
+			}
+			// R과 B는 한 int에 16비트씩 나눠 더함 (네 픽셀 합 최대 1020)
+			int rb = (a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF);
+			int g = ((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF) + ((d >> 8) & 0xFF);
+			chroma(rb, g, u, v, i >> 1);
+		}
+	}
+
+	/**
+	 * 2x2 블록의 채널 합으로 색차 계산 (평균은 반올림)
+	 * @param rbSum	R 합(상위 16비트) | B 합(하위 16비트)
+	 * @param gSum	G 합
+	 * @param u		Cb 출력
+	 * @param v		Cr 출력
+	 * @param index	출력 위치
+	 */
+	static void chroma(int rbSum, int gSum, byte[] u, byte[] v, int index) {
+		int r = ((rbSum >>> 16) + 2) >> 2;
+		int b = ((rbSum & 0xFFFF) + 2) >> 2;
+		int g = (gSum + 2) >> 2;
+		u[index] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+		v[index] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+	}
+
+	private static byte luma(int p) {
+		return (byte) (((66 * ((p >> 16) & 0xFF) + 129 * ((p >> 8) & 0xFF) + 25 * (p & 0xFF) + 128) >> 8) + 16);
+	}
+
+	/**
+	 * jdk.incubator.vector 모듈이 로드되어 있고 레인 수가 충분하면 SIMD 사용
+	 */
+	private static boolean detectSimd() {
+		if (Boolean.getBoolean("echolink.yuv.scalar")) {
+			return false;	// 비교 측정용 (-Decholink.yuv.scalar=true)
+		}
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return false;
+		}
+		try {
+			return Yuv420VectorKernel.isUsable();
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	private static ExecutorService newBandPool(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "Yuv420-Band-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+
+	// ----Getter-----
+	public long getFullConversions() {
+		return fullConversions;
+	}
+	public long getPartialConversions() {
+		return partialConversions;
+	}
+	/**
+	 * @return "SIMD(8 lanes) x 4 threads" 형식의 구현 설명 (로그용)
+	 */
+	public static String describe() {
+		return (SIMD_ENABLED ? "SIMD(" + Yuv420VectorKernel.lanes() + " lanes)" : "scalar") + " x " + BAND_THREADS + " threads";
+	}
+}
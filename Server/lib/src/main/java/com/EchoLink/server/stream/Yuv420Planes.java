@@ -0,0 +1,89 @@
+package com.EchoLink.server.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YUV420P 프레임의 세 평면 (Yuv420Converter의 출력 대상)
+ *
+ * VideoEncoder의 입력 AVFrame 평면을 복사 없이 감싼 것으로, 변환기가 인코더 입력 버퍼에 바로 씀.
+ * AVFrame 버퍼가 다시 할당되면 VideoEncoder가 새 객체를 만들므로, 변환기는 객체가 바뀌면 전체를 다시 변환.
+ * 쓰기는 절대 위치 put만 사용하므로 서로 다른 행 구간은 여러 쓰레드에서 동시에 써도 됨.
+ * @author ESH
+ */
+public final class Yuv420Planes {
+
+	private final ByteBuffer y;
+	private final ByteBuffer u;
+	private final ByteBuffer v;
+	private final int strideY;		// 행 간격 (바이트)
+	private final int strideU;
+	private final int strideV;
+	private final int width;
+	private final int height;
+
+	/**
+	 * 생성자
+	 * @param y			휘도 평면
+	 * @param u			Cb 평면 (가로, 세로 절반)
+	 * @param v			Cr 평면 (가로, 세로 절반)
+	 * @param strideY	휘도 행 간격
+	 * @param strideU	Cb 행 간격
+	 * @param strideV	Cr 행 간격
+	 * @param width		가로
+	 * @param height	세로
+	 */
+	public Yuv420Planes(ByteBuffer y, ByteBuffer u, ByteBuffer v,
+			int strideY, int strideU, int strideV, int width, int height) {
+		this.y = y;
+		this.u = u;
+		this.v = v;
+		this.strideY = strideY;
+		this.strideU = strideU;
+		this.strideV = strideV;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * 휘도 한 행의 일부 기록
+	 * @param row	행
+	 * @param x		시작 열
+	 * @param src	값
+	 * @param len	길이
+	 */
+	void putY(int row, int x, byte[] src, int len) {
+		y.put(row * strideY + x, src, 0, len);
+	}
+
+	/**
+	 * 색차 한 행의 일부 기록 (색차 좌표)
+	 * @param row	색차 행
+	 * @param x		색차 시작 열
+	 * @param srcU	Cb 값
+	 * @param srcV	Cr 값
+	 * @param len	길이
+	 */
+	void putUV(int row, int x, byte[] srcU, byte[] srcV, int len) {
+		u.put(row * strideU + x, srcU, 0, len);
+		v.put(row * strideV + x, srcV, 0, len);
+	}
+
+	/**
+	 * 휘도 평면을 행 간격 없이 복사 (벤치마크의 화질 비교용)
+	 * @param dst 출력 (가로 x 세로 이상)
+	 */
+	public void copyLuma(byte[] dst) {
+		for (int row = 0; row < height; row++) {
+			y.get(row * strideY, dst, row * width, width);
+		}
+	}
+
+
+	// ----Getter-----
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,98 @@
+package com.EchoLink.server.stream;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * RGB -> YUV420P 변환의 SIMD(Vector API) 구현 (두 행 단위)
+ *
+ * jdk.incubator.vector 모듈이 있을 때만 로드됨 (Yuv420Converter가 확인 후 사용, 없으면 스칼라 구현).
+ * 휘도는 L개(L = int 레인 수)씩 벡터로 계산하고, 색차는 두 행의 세로 합까지 벡터로 구한 뒤 가로 합만 스칼라.
+ * 2L 픽셀 단위로 나누어떨어지지 않는 나머지 열은 스칼라 구현으로 처리.
+ * @author ESH
+ */
+final class Yuv420VectorKernel {
+
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final int LANES = INTS.length();
+	private static final VectorSpecies<Byte> BYTES = LANES * 8 >= 64
+			? VectorSpecies.of(byte.class, VectorShape.forBitSize(LANES * 8)) : null;
+
+	private Yuv420VectorKernel() {
+	}
+
+	/**
+	 * 이 CPU에서 SIMD 구현을 쓸 수 있는지 여부
+	 * @return 레인이 8개 이상(256비트 이상)이면 true (128비트는 스칼라와 차이가 적음)
+	 */
+	static boolean isUsable() {
+		return BYTES != null && LANES >= 8;
+	}
+
+	/**
+	 * @return int 레인 수
+	 */
+	static int lanes() {
+		return LANES;
+	}
+
+	/**
+	 * 두 행(row0, row1)의 [x0, x1) 구간 변환 (Yuv420Converter.convertRowPairScalar와 같은 결과)
+	 * 휘도와 색차를 따로 돌림 (루프가 작아야 JIT가 벡터 연산을 모두 인라인함)
+	 * @param rbSum	색차용 작업 버퍼 (x1 - x0 이상)
+	 * @param gSum	색차용 작업 버퍼 (x1 - x0 이상)
+	 */
+	static void convertRowPair(int[] px, int row0, int row1, int x0, int x1,
+			byte[] y0, byte[] y1, byte[] u, byte[] v, int[] rbSum, int[] gSum) {
+		int n = ((x1 - x0) / (LANES * 2)) * LANES * 2;	// 벡터로 처리할 픽셀 수 (2L 단위라 항상 짝수)
+		lumaRow(px, row0 + x0, y0, n);
+		lumaRow(px, row1 + x0, y1, n);
+		verticalSums(px, row0 + x0, row1 + x0, rbSum, gSum, n);
+		for (int i = 0; i < n; i += 2) {
+			Yuv420Converter.chroma(rbSum[i] + rbSum[i + 1], gSum[i] + gSum[i + 1], u, v, i >> 1);
+		}
+		if (x0 + n < x1) {
+			// 남는 열 (색차 위치도 그대로 이어짐)
+			Yuv420Converter.convertRowPairScalar(px, row0, row1, x0 + n, x1, x0, y0, y1, u, v);
+		}
+	}
+
+	/**
+	 * 휘도 한 행 (n은 LANES의 배수)
+	 * Y = ((66R + 129G + 25B + 128) >> 8) + 16 (BT.601 제한 범위)
+	 */
+	private static void lumaRow(int[] px, int from, byte[] y, int n) {
+		for (int i = 0; i < n; i += LANES) {
+			IntVector p = IntVector.fromArray(INTS, px, from + i);
+			IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+			IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+			IntVector b = p.and(0xFF);
+			storeBytes(r.mul(66).add(g.mul(129)).add(b.mul(25)).add(128)
+					.lanewise(VectorOperators.ASHR, 8).add(16), y, i);
+		}
+	}
+
+	/**
+	 * 두 행의 세로 합 (R과 B는 한 int에 16비트씩 나눠 담음: 0x0RRR0BBB)
+	 * 가로 두 칸 합과 색차 계산은 스칼라 (짝/홀수 레인 재배치는 JIT가 잘 최적화하지 못함)
+	 */
+	private static void verticalSums(int[] px, int from0, int from1, int[] rbSum, int[] gSum, int n) {
+		for (int i = 0; i < n; i += LANES) {
+			IntVector p0 = IntVector.fromArray(INTS, px, from0 + i);
+			IntVector p1 = IntVector.fromArray(INTS, px, from1 + i);
+			p0.and(0xFF00FF).add(p1.and(0xFF00FF)).intoArray(rbSum, i);
+			p0.lanewise(VectorOperators.LSHR, 8).and(0xFF)
+					.add(p1.lanewise(VectorOperators.LSHR, 8).and(0xFF)).intoArray(gSum, i);
+		}
+	}
+
+	/**
+	 * 0~255 범위의 int 레인을 바이트로 좁혀 저장
+	 */
+	private static void storeBytes(IntVector values, byte[] dst, int offset) {
+		((ByteVector) values.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(dst, offset);
+	}
+}
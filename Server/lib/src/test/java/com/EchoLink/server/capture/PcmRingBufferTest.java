@@ -0,0 +1,140 @@
+package com.EchoLink.server.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PcmRingBuffer 칸 나누기, overrun 테스트
+ * 1000Hz 스테레오, 칸 10ms(10샘플)로 샘플 번호를 값으로 써서 복사 결과를 확인.
+ * @author ESH
+ */
+class PcmRingBufferTest {
+
+	private static final int SAMPLE_RATE = 1000;
+	private static final int CHANNELS = 2;
+	private static final int CHUNK_MS = 10;
+	private static final int CHUNK_SAMPLES = 10;
+
+	@Test
+	void splitsArbitraryWritesIntoChunks() {
+		PcmRingBuffer buffer = new PcmRingBuffer(SAMPLE_RATE, CHANNELS, CHUNK_MS, 40, null);
+		assertEquals(CHUNK_SAMPLES, buffer.getChunkSamples());
+		assertEquals(4, buffer.getChunkCount());
+
+		assertEquals(25, buffer.write(interleaved(0, 25)));
+		assertChunk(buffer.poll(), 0);
+		assertChunk(buffer.poll(), 10);
+		assertNull(buffer.poll());	// 5샘플은 아직 채우는 중
+
+		buffer.write(interleaved(25, 5));
+		assertChunk(buffer.poll(), 20);
+		assertEquals(30, buffer.getWrittenSamples());
+		assertEquals(3, buffer.getPublishedChunks());
+	}
+
+	@Test
+	void convertsPlanarFloatToInterleavedShort() {
+		PcmRingBuffer buffer = new PcmRingBuffer(SAMPLE_RATE, CHANNELS, CHUNK_MS, 40, null);
+		float[] left = new float[CHUNK_SAMPLES];
+		float[] right = new float[CHUNK_SAMPLES];
+		for (int i = 0; i < CHUNK_SAMPLES; i++) {
+			left[i] = 0.5f;
+			right[i] = -0.5f;
+		}
+		Frame frame = new Frame();
+		frame.sampleRate = SAMPLE_RATE;
+		frame.audioChannels = CHANNELS;
+		frame.samples = new Buffer[] { FloatBuffer.wrap(left), FloatBuffer.wrap(right) };
+		buffer.write(frame);
+
+		ShortBuffer data = (ShortBuffer) buffer.poll().getFrame().samples[0];
+		assertEquals(Math.round(0.5f * Short.MAX_VALUE), data.get(0));
+		assertEquals(Math.round(-0.5f * Short.MAX_VALUE), data.get(1));
+	}
+
+	@Test
+	void overrunSkipsSamplesButKeepsSampleIndex() {
+		PcmRingBuffer buffer = new PcmRingBuffer(SAMPLE_RATE, CHANNELS, CHUNK_MS, 20, null);	// 2칸, 반납 전에는 되찾지 않음
+		buffer.write(interleaved(0, 40));
+
+		PcmRingBuffer.Chunk first = buffer.poll();
+		PcmRingBuffer.Chunk second = buffer.poll();
+		assertChunk(first, 0);
+		assertChunk(second, 10);
+		assertNull(buffer.poll());
+		assertEquals(2, buffer.getPublishedChunks());
+		assertEquals(2, buffer.getOverrunChunks());	// 20~39는 버림
+
+		// 첫 칸을 반납하면 다음 샘플부터 다시 채움 (번호는 버린 샘플만큼 건너뜀)
+		first.getRecycler().accept(first.getFrame());
+		buffer.write(interleaved(40, 10));
+		assertChunk(buffer.poll(), 40);
+	}
+
+	@Test
+	void reclaimerFreesChunksBeforeOverrun() {
+		ArrayDeque<PcmRingBuffer.Chunk> subscriberQueue = new ArrayDeque<>();
+		PcmRingBuffer buffer = new PcmRingBuffer(SAMPLE_RATE, CHANNELS, CHUNK_MS, 20, () -> {
+			// 구독자 큐에서 가장 오래된 칸을 버림 (FrameRingBuffer.dropOldest() 역할)
+			PcmRingBuffer.Chunk oldest = subscriberQueue.poll();
+			if (oldest == null) {
+				return false;
+			}
+			oldest.getRecycler().accept(oldest.getFrame());
+			return true;
+		});
+
+		for (int start = 0; start < 60; start += CHUNK_SAMPLES) {
+			buffer.write(interleaved(start, CHUNK_SAMPLES));
+			PcmRingBuffer.Chunk chunk;
+			while ((chunk = buffer.poll()) != null) {
+				subscriberQueue.add(chunk);
+			}
+		}
+		assertEquals(0, buffer.getOverrunChunks());
+		assertEquals(6, buffer.getPublishedChunks());
+		assertChunk(subscriberQueue.poll(), 40);
+		assertChunk(subscriberQueue.poll(), 50);
+	}
+
+	@Test
+	void rejectsInvalidFormat() {
+		assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(0, CHANNELS, CHUNK_MS, 40, null));
+		assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(SAMPLE_RATE, CHANNELS, 0, 40, null));
+	}
+
+
+	/**
+	 * 샘플 번호 start부터 count개 (왼쪽 = 번호, 오른쪽 = -번호)
+	 */
+	private static Frame interleaved(int start, int count) {
+		short[] samples = new short[count * CHANNELS];
+		for (int i = 0; i < count; i++) {
+			samples[i * CHANNELS] = (short) (start + i);
+			samples[i * CHANNELS + 1] = (short) -(start + i);
+		}
+		Frame frame = new Frame();
+		frame.sampleRate = SAMPLE_RATE;
+		frame.audioChannels = CHANNELS;
+		frame.samples = new Buffer[] { ShortBuffer.wrap(samples) };
+		return frame;
+	}
+
+	private static void assertChunk(PcmRingBuffer.Chunk chunk, long sampleIndex) {
+		assertEquals(sampleIndex, chunk.getSampleIndex());
+		ShortBuffer data = (ShortBuffer) chunk.getFrame().samples[0];
+		for (int i = 0; i < CHUNK_SAMPLES; i++) {
+			assertEquals(sampleIndex + i, data.get(i * CHANNELS));
+			assertEquals(-(sampleIndex + i), data.get(i * CHANNELS + 1));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.EchoLink.server.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SilenceDetector 판정 테스트 (-60dB 기준)
+ * @author ESH
+ */
+class SilenceDetectorTest {
+
+	private static final int SAMPLE_RATE = 48000;
+	private static final int SAMPLES = 480;		// 10ms
+	private static final int CHANNELS = 2;
+
+	private final SilenceDetector detector = new SilenceDetector(-60);
+
+	@Test
+	void digitalSilenceIsSilent() {
+		assertTrue(detector.isSilent(stereo(new short[SAMPLES * CHANNELS])));
+	}
+
+	@Test
+	void loudToneIsNotSilent() {
+		assertFalse(detector.isSilent(stereo(tone(440, -20))));
+	}
+
+	@Test
+	void quietNoiseIsSilent() {
+		// -55dB 잡음: 기준(-60dB)보다 크지만 영교차율이 높아 장치 히스로 판정
+		Random random = new Random(1);
+		double amplitude = Math.pow(10, -55 / 20.0) * Math.sqrt(3) * 32767;	// 균등 분포 RMS = 진폭 / sqrt(3)
+		short[] samples = new short[SAMPLES * CHANNELS];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = (short) Math.round((random.nextDouble() * 2 - 1) * amplitude);
+		}
+		assertTrue(detector.isSilent(stereo(samples)));
+	}
+
+	@Test
+	void quietLowToneIsNotSilent() {
+		// 같은 크기라도 영교차율이 낮은 소리(여음 등)는 남김
+		assertFalse(detector.isSilent(stereo(tone(100, -55))));
+	}
+
+	@Test
+	void planarFloatInputIsSupported() {
+		float[] left = new float[SAMPLES];
+		float[] right = new float[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			left[i] = right[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+		}
+		Frame frame = new Frame();
+		frame.sampleRate = SAMPLE_RATE;
+		frame.audioChannels = CHANNELS;
+		frame.samples = new Buffer[] { FloatBuffer.wrap(left), FloatBuffer.wrap(right) };
+		assertFalse(detector.isSilent(frame));
+
+		frame.samples = new Buffer[] { FloatBuffer.wrap(new float[SAMPLES]), FloatBuffer.wrap(new float[SAMPLES]) };
+		assertTrue(detector.isSilent(frame));
+	}
+
+	@Test
+	void emptyFrameIsNotSilentAndCountersAdvance() {
+		assertFalse(detector.isSilent(new Frame()));
+		assertTrue(detector.isSilent(stereo(new short[SAMPLES * CHANNELS])));
+		assertEquals(2, detector.getAnalyzedFrames());
+		assertEquals(1, detector.getSilentFrames());
+	}
+
+
+	private static short[] tone(double frequency, double db) {
+		double amplitude = Math.pow(10, db / 20) * Math.sqrt(2) * 32767;	// 사인파 RMS = 진폭 / sqrt(2)
+		short[] samples = new short[SAMPLES * CHANNELS];
+		for (int i = 0; i < SAMPLES; i++) {
+			short v = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+			samples[i * CHANNELS] = v;
+			samples[i * CHANNELS + 1] = v;
+		}
+		return samples;
+	}
+
+	private static Frame stereo(short[] interleaved) {
+		Frame frame = new Frame();
+		frame.sampleRate = SAMPLE_RATE;
+		frame.audioChannels = CHANNELS;
+		frame.samples = new Buffer[] { ShortBuffer.wrap(interleaved) };
+		return frame;
+	}
+}
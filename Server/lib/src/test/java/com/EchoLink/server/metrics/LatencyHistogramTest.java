@@ -0,0 +1,65 @@
+package com.EchoLink.server.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LatencyHistogram 구간 테스트
+ * @author ESH
+ */
+class LatencyHistogramTest {
+
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentileMicros(50));
+		assertEquals(0, histogram.getMeanMicros());
+	}
+
+	@Test
+	void smallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int us = 0; us < 16; us++) {
+			histogram.recordNanos(us * 1000L);
+		}
+		assertEquals(7, histogram.percentileMicros(50));	// 16개 중 8번째
+		assertEquals(15, histogram.percentileMicros(100));
+		assertEquals(16, histogram.getCount());
+	}
+
+	@Test
+	void bucketUpperBoundIsWithinSixPercent() {
+		for (long us : new long[] { 16, 17, 100, 1_000, 12_345, 999_999, 40_000_000 }) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histogram.recordNanos(us * 1000);
+			histogram.recordNanos(us * 1000 * 10);	// 최대값으로 잘리지 않게 더 큰 값 하나
+			long p50 = histogram.percentileMicros(50);
+			assertTrue(p50 >= us, us + "us -> " + p50);
+			assertTrue(p50 <= us + us / 16, us + "us -> " + p50);
+		}
+	}
+
+	@Test
+	void valuesBeyondRangeKeepExactMaximum() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordNanos(100_000_000_000L);	// 100초 (마지막 칸)
+		assertEquals(100_000_000, histogram.getMaxMicros());
+		assertEquals(100_000_000, histogram.percentileMicros(99));
+	}
+
+	@Test
+	void negativeValuesCountAsZeroAndResetClears() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordNanos(-5_000);
+		histogram.recordNanos(4_000);
+		assertEquals(0, histogram.percentileMicros(50));
+		assertEquals(2, histogram.getMeanMicros());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaxMicros());
+		assertEquals(0, histogram.percentileMicros(99));
+	}
+}
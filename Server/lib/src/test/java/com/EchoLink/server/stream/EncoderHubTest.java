@@ -0,0 +1,35 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 인코더를 옮기는 비트레이트 변경의 단계 계산 테스트 (인코더는 열지 않음)
+ * @author ESH
+ */
+class EncoderHubTest {
+
+	@Test
+	void bitrateStepRoundsDownToStep() {
+		assertEquals(1_000_000, EncoderHub.bitrateStep(1_000_000));
+		assertEquals(1_000_000, EncoderHub.bitrateStep(1_200_000));
+		assertEquals(1_500_000, EncoderHub.bitrateStep(1_999_999));
+		assertEquals(600_000, EncoderHub.bitrateStep(650_000));
+	}
+
+	@Test
+	void nearbyRequestsShareStep() {
+		// 혼잡 대응의 작은 변화는 같은 단계 (같은 인코더를 공유)
+		assertEquals(EncoderHub.bitrateStep(2_100_000), EncoderHub.bitrateStep(2_400_000));
+		assertEquals(EncoderHub.bitrateStep(4_100_000), EncoderHub.bitrateStep(4_900_000));
+	}
+
+	@Test
+	void bitrateStepHasFloorAndCoarseTop() {
+		assertEquals(VideoEncoder.MIN_BITRATE, EncoderHub.bitrateStep(VideoEncoder.MIN_BITRATE));
+		assertEquals(VideoEncoder.MIN_BITRATE, EncoderHub.bitrateStep(50_000));
+		assertEquals(20_000_000, EncoderHub.bitrateStep(24_000_000));	// 최고 단계 위는 5Mbps 단위
+		assertEquals(25_000_000, EncoderHub.bitrateStep(27_000_000));
+	}
+}
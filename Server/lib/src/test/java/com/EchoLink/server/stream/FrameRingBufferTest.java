@@ -0,0 +1,154 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FrameRingBuffer 테스트
+ * 가득 찼을 때 가장 오래된 요소 버리기, 최신 요소만 꺼내기, 생산자의 dropOldest()와 소비자의 경쟁.
+ * @author ESH
+ */
+class FrameRingBufferTest {
+
+	@Test
+	void capacityRoundsUpToPowerOfTwo() {
+		assertEquals(8, new FrameRingBuffer<Integer>(5, null).capacity());
+		assertEquals(8, new FrameRingBuffer<Integer>(8, null).capacity());
+	}
+
+	@Test
+	void offerOverwritesOldestWhenFull() {
+		List<Integer> dropped = new ArrayList<>();
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(4, dropped::add);
+
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(5));	// 1을 버리고 넣음
+		assertFalse(buffer.offer(6));	// 2를 버리고 넣음
+
+		assertEquals(List.of(1, 2), dropped);
+		assertEquals(2, buffer.getOverwrittenCount());
+		assertEquals(6, buffer.getOfferedCount());
+		assertEquals(4, buffer.getPeakSize());
+		for (int i = 3; i <= 6; i++) {
+			assertEquals(i, buffer.poll());
+		}
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	void pollLatestDropsOlderElements() {
+		List<Integer> dropped = new ArrayList<>();
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(8, dropped::add);
+		buffer.offer(1);
+		buffer.offer(2);
+		buffer.offer(3);
+
+		assertEquals(3, buffer.pollLatest());
+		assertEquals(List.of(1, 2), dropped);
+		assertEquals(2, buffer.getSkippedCount());
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.pollLatest());
+	}
+
+	@Test
+	void dropOldestOnEmptyBufferDoesNothing() {
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(4, null);
+		assertFalse(buffer.dropOldest());
+		buffer.offer(1);
+		assertTrue(buffer.dropOldest());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	void clearPassesRemainingElementsToDropHandler() {
+		List<Integer> dropped = new ArrayList<>();
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(4, dropped::add);
+		buffer.offer(1);
+		buffer.offer(2);
+		buffer.clear();
+		assertEquals(List.of(1, 2), dropped);
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	void takeWaitsForProducer() throws Exception {
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(4, null);
+		assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+
+		Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return;
+			}
+			buffer.offer(7);
+		});
+		producer.start();
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(7, buffer.take()));
+		producer.join();
+	}
+
+	/**
+	 * 생산자가 offer()와 dropOldest()(버퍼 되찾기)를 섞어 호출하는 동안 소비자가 최신 요소만 꺼냄.
+	 * 모든 요소는 정확히 한 번 (소비 또는 버림) 처리되고, 소비한 요소는 순서대로여야 함.
+	 */
+	@Test
+	void takeLatestRacesWithDropOldest() throws Exception {
+		final int count = 200_000;
+		AtomicIntegerArray handled = new AtomicIntegerArray(count);
+		FrameRingBuffer<Integer> buffer = new FrameRingBuffer<>(8, e -> handled.incrementAndGet(e));
+		List<Integer> consumed = new CopyOnWriteArrayList<>();
+		Integer end = -1;
+
+		Thread consumer = new Thread(() -> {
+			List<Integer> local = new ArrayList<>();
+			try {
+				while (true) {
+					Integer e = buffer.takeLatest();
+					if (e.equals(end)) {
+						break;
+					}
+					handled.incrementAndGet(e);
+					local.add(e);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			consumed.addAll(local);
+		}, "consumer");
+		consumer.start();
+
+		for (int i = 0; i < count; i++) {
+			buffer.offer(i);
+			if (i % 3 == 0) {
+				buffer.dropOldest();
+			}
+		}
+		// 종료 표시는 최신 요소이므로 takeLatest()가 반드시 꺼냄 (앞의 남은 요소는 버려짐)
+		buffer.offer(end);
+		consumer.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(consumer.isAlive());
+
+		for (int i = 0; i < count; i++) {
+			assertEquals(1, handled.get(i), "element " + i);
+		}
+		for (int i = 1; i < consumed.size(); i++) {
+			assertTrue(consumed.get(i - 1) < consumed.get(i));
+		}
+		assertFalse(consumed.isEmpty());
+	}
+}
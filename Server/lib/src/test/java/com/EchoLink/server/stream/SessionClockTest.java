@@ -0,0 +1,90 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SessionClock 드리프트 추적, 재동기화 테스트
+ * 캡처 시각을 직접 만들어 넣으므로 실제 시간은 기다리지 않음.
+ * @author ESH
+ */
+class SessionClockTest {
+
+	private static final int SAMPLE_RATE = 48000;
+	private static final int FRAME_SAMPLES = 480;				// 10ms
+	private static final long FRAME_NS = 10_000_000L;
+
+	private SessionClock clock;
+	private long startNs;
+
+	@BeforeEach
+	void setUp() {
+		clock = new SessionClock();
+		clock.reset();
+		startNs = System.nanoTime();
+	}
+
+	@Test
+	void firstFrameStartsOneFrameBeforeCapture() {
+		long captured = startNs + FRAME_NS;
+		assertEquals(captured - FRAME_NS, clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured));
+		assertEquals(0, clock.getDriftNs());
+	}
+
+	@Test
+	void tracksSlowAudioDeviceWithoutResync() {
+		// 오디오 장치가 500ppm 느림: 오디오 10ms마다 벽시계는 10.005ms
+		long wallFrameNs = FRAME_NS + FRAME_NS / 2000;
+		long captured = startNs;
+		for (int i = 0; i < 6000; i++) {	// 오디오 60초
+			captured += wallFrameNs;
+			clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured);
+		}
+
+		// 누적 드리프트 30ms, 평활(2초)로 약 1ms 뒤처짐
+		long drift = clock.getDriftNs();
+		assertTrue(drift > 27_000_000L && drift < 30_500_000L, "drift " + drift);
+		assertEquals(0, clock.getResyncCount());
+
+		// 영상 시각은 오디오 시계로 옮겨짐 (벽시계로는 60.03초, 오디오로는 60초)
+		long sessionUs = clock.toSessionUs(captured);
+		long audioUs = (captured - startNs) / 1000 - 30_000;
+		assertTrue(Math.abs(sessionUs - audioUs) < 3_000, "session " + sessionUs + " audio " + audioUs);
+	}
+
+	@Test
+	void resyncsAfterLostSamples() {
+		long captured = startNs;
+		for (int i = 0; i < 100; i++) {
+			captured += FRAME_NS;
+			clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured);
+		}
+		long before = clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured += FRAME_NS);
+
+		// 장치가 500ms 동안 샘플을 주지 않음: 오디오 시계를 벽시계에 다시 맞춤
+		captured += 500_000_000L + FRAME_NS;
+		long after = clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured);
+
+		assertEquals(1, clock.getResyncCount());
+		assertEquals(captured - FRAME_NS, after, 1_000_000);
+		assertTrue(after - before > 500_000_000L);
+		assertTrue(Math.abs(clock.getDriftNs()) < 1_000_000L, "drift " + clock.getDriftNs());
+	}
+
+	@Test
+	void resetClearsState() {
+		long captured = startNs;
+		for (int i = 0; i < 10; i++) {
+			captured += FRAME_NS;
+			clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured);
+		}
+		clock.audioCaptured(FRAME_SAMPLES, SAMPLE_RATE, captured + 1_000_000_000L);
+		clock.reset();
+		assertEquals(0, clock.getResyncCount());
+		assertEquals(0, clock.getDriftNs());
+		assertEquals("", clock.getLastReport());
+	}
+}
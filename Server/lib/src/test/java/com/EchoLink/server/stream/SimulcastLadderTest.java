@@ -0,0 +1,71 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.EchoLink.server.stream.SimulcastLadder.Rendition;
+
+/**
+ * 렌디션 사다리 설정 해석, 렌디션 선택 테스트 (인코더는 열지 않음)
+ * @author ESH
+ */
+class SimulcastLadderTest {
+
+	private static final List<Rendition> LADDER =
+			Rendition.parse("854x480@800k, 1920x1080@6M,1280x720@2500k");
+
+	@Test
+	void parseSortsByAreaAndReadsUnits() {
+		assertEquals(3, LADDER.size());
+		assertRendition(LADDER.get(0), 1920, 1080, 6_000_000);
+		assertRendition(LADDER.get(1), 1280, 720, 2_500_000);
+		assertRendition(LADDER.get(2), 854, 480, 800_000);
+
+		assertRendition(Rendition.parse("640X360@1.5m").get(0), 640, 360, 1_500_000);
+		assertRendition(Rendition.parse("640x360@300000").get(0), 640, 360, 300_000);
+	}
+
+	@Test
+	void parseOfBlankSpecDisablesLadder() {
+		assertTrue(Rendition.parse("").isEmpty());
+		assertTrue(Rendition.parse(null).isEmpty());
+	}
+
+	@Test
+	void parseRejectsInvalidRenditions() {
+		assertThrows(IllegalArgumentException.class, () -> Rendition.parse("1280x720"));
+		assertThrows(IllegalArgumentException.class, () -> Rendition.parse("1280@2M"));
+		assertThrows(IllegalArgumentException.class, () -> Rendition.parse("1281x720@2M"));	// 홀수 크기 (YUV420)
+		assertThrows(IllegalArgumentException.class, () -> Rendition.parse("1280x720@0"));
+		assertThrows(UnsupportedOperationException.class, () -> LADDER.add(new Rendition(2, 2, 1)));
+	}
+
+	@Test
+	void selectPicksLargestRenditionThatFits() {
+		assertEquals(0, SimulcastLadder.select(LADDER, 2560, 1440));
+		assertEquals(0, SimulcastLadder.select(LADDER, 1920, 1080));
+		assertEquals(1, SimulcastLadder.select(LADDER, 1919, 1080));
+		assertEquals(2, SimulcastLadder.select(LADDER, 1000, 600));
+		assertEquals(2, SimulcastLadder.select(LADDER, 320, 240));	// 모두 크면 가장 작은 것
+	}
+
+	@Test
+	void selectByBitratePicksHighestAffordableRendition() {
+		assertEquals(0, SimulcastLadder.selectByBitrate(LADDER, 10_000_000));
+		assertEquals(1, SimulcastLadder.selectByBitrate(LADDER, 2_500_000));
+		assertEquals(2, SimulcastLadder.selectByBitrate(LADDER, 1_000_000));
+		assertEquals(2, SimulcastLadder.selectByBitrate(LADDER, 100_000));	// 모두 높으면 가장 낮은 것
+	}
+
+
+	private static void assertRendition(Rendition rendition, int width, int height, int bitrate) {
+		assertEquals(width, rendition.getWidth());
+		assertEquals(height, rendition.getHeight());
+		assertEquals(bitrate, rendition.getBitrate());
+	}
+}
@@ -0,0 +1,68 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TimestampedFrame 버퍼 풀 반납, 참조 횟수 테스트 (마지막 release()에서만 반납)
+ * @author ESH
+ */
+class TimestampedFrameTest {
+
+	@Test
+	void releaseReturnsFrameToPool() {
+		Object data = new Object();
+		List<Object> recycled = new ArrayList<>();
+		TimestampedFrame<Object> frame = new TimestampedFrame<>(data, 100L, null, 5, recycled::add);
+
+		frame.release();
+		assertEquals(1, recycled.size());
+		assertSame(data, recycled.get(0));
+	}
+
+	@Test
+	void sharedFrameIsRecycledOnlyAfterLastRelease() {
+		Object data = new Object();
+		List<Object> recycled = new ArrayList<>();
+		TimestampedFrame<Object> frame = new TimestampedFrame<>(data, 100L, null, 5, recycled::add);
+
+		assertSame(frame, frame.retain());	// 두 번째 세션
+		frame.retain();						// 세 번째 세션
+
+		frame.release();
+		frame.release();
+		assertEquals(0, recycled.size());
+
+		frame.release();
+		assertEquals(1, recycled.size());
+		assertSame(data, recycled.get(0));
+	}
+
+	@Test
+	void releaseWithoutRecyclerIsHarmless() {
+		TimestampedFrame<String> frame = new TimestampedFrame<>("frame", 100L);
+		frame.release();
+		assertEquals(-1, frame.getSequence());
+	}
+
+	@Test
+	void ringBufferDropHandlerReturnsDroppedFramesToPool() {
+		List<Object> recycled = new ArrayList<>();
+		FrameRingBuffer<TimestampedFrame<Object>> buffer = new FrameRingBuffer<>(2, TimestampedFrame::release);
+		for (int i = 0; i < 4; i++) {
+			buffer.offer(new TimestampedFrame<>(i, i, null, i, recycled::add));
+		}
+		assertEquals(List.of(0, 1), recycled);	// 가득 차서 버린 프레임만 반납
+
+		TimestampedFrame<Object> latest = buffer.pollLatest();
+		assertEquals(3, latest.getFrame());
+		assertEquals(List.of(0, 1, 2), recycled);
+		latest.release();
+		assertEquals(List.of(0, 1, 2, 3), recycled);
+	}
+}
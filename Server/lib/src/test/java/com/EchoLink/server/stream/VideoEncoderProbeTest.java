@@ -0,0 +1,40 @@
+package com.EchoLink.server.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 영상 형식 협상 테스트
+ * 서버가 허용하지 않는 형식만 고르게 해서 인코더 확인(네이티브 코덱 열기) 없이 판정.
+ * @author ESH
+ */
+class VideoEncoderProbeTest {
+
+	@Test
+	void fallsBackToH264OnlyWhenClientListsIt() {
+		assertEquals(VideoEncoder.FORMAT_H264,
+				VideoEncoderProbe.negotiate(List.of("av1", "h264"), List.of("hevc")));
+		assertEquals(VideoEncoder.FORMAT_H264,
+				VideoEncoderProbe.negotiate(List.of("AVC"), List.of("hevc")));
+	}
+
+	@Test
+	void refusesWhenClientCannotDecodeAnyServerFormat() {
+		assertNull(VideoEncoderProbe.negotiate(List.of("av1"), List.of("hevc")));
+		assertNull(VideoEncoderProbe.negotiate(List.of("vp9", "H.265"), List.of("av1")));
+		assertNull(VideoEncoderProbe.negotiate(List.of(), List.of("h264", "hevc")));
+	}
+
+	@Test
+	void normalizeFormatAcceptsAliases() {
+		assertEquals(VideoEncoder.FORMAT_H264, VideoEncoderProbe.normalizeFormat(" H.264 "));
+		assertEquals(VideoEncoder.FORMAT_H264, VideoEncoderProbe.normalizeFormat("avc"));
+		assertEquals(VideoEncoder.FORMAT_HEVC, VideoEncoderProbe.normalizeFormat("H265"));
+		assertEquals(VideoEncoder.FORMAT_AV1, VideoEncoderProbe.normalizeFormat("AV1"));
+		assertEquals("vp9", VideoEncoderProbe.normalizeFormat("VP9"));
+	}
+}